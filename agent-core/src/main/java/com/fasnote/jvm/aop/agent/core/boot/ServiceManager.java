@@ -37,7 +37,7 @@ public enum ServiceManager {
     INSTANCE;
 
     private static final ILog LOGGER = LogManager.getLogger(ServiceManager.class);
-    private Map<Class, BootService> bootedServices = Collections.emptyMap();
+    private volatile Map<Class, BootService> bootedServices = Collections.emptyMap();
 
     public void boot() {
         bootedServices = loadAllServices();
@@ -47,8 +47,14 @@ public enum ServiceManager {
         onComplete();
     }
 
-    public void shutdown() {
-        bootedServices.values().stream().sorted(Comparator.comparingInt(BootService::priority).reversed()).forEach(service -> {
+    /**
+     * Shutdown the booted services. The services are shut down only once, either by the detach of the agent, or by the
+     * shutdown hook of the JVM.
+     */
+    public synchronized void shutdown() {
+        Map<Class, BootService> services = bootedServices;
+        bootedServices = Collections.emptyMap();
+        services.values().stream().sorted(Comparator.comparingInt(BootService::priority).reversed()).forEach(service -> {
             try {
                 service.shutdown();
             } catch (Throwable e) {
@@ -25,7 +25,9 @@ import com.fasnote.jvm.aop.agent.core.logging.core.ResolverType;
 import com.fasnote.jvm.aop.agent.core.logging.core.WriterFactory;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This is the core config in sniffer agent.
@@ -44,6 +46,90 @@ public class Config {
          * Enable the agent kernel services and instrumentation.
          */
         public static boolean ENABLE = true;
+
+        /**
+         * If true, instance method interceptors are woven into the target method body through byte-buddy's advice,
+         * instead of delegating to {@code InstMethodsInter} with an auxiliary callable. Plugins can override it by
+         * {@code ClassEnhancePluginDefine#isInlineAdviceDispatch()}. Bootstrap plugins always use delegation.
+         */
+        public static boolean INSTANCE_METHODS_INLINE_ADVICE = false;
+
+        /**
+         * If true, the V1 and V2 interceptor bridges reuse a per-thread {@code MethodInterceptResult} and {@code
+         * MethodInvocationContext} for every invocation, instead of allocating a new one. Turn it off if a plugin keeps
+         * the context after the invocation finishes.
+         */
+        public static boolean REUSE_INVOCATION_CONTEXT = true;
+
+        /**
+         * If true, when more than one interceptor intercepts the same method, they are called by one fused bridge
+         * around a single invocation of the origin method, ordered by the plugin priority. Otherwise, only the last
+         * applied interceptor takes effect on the method.
+         */
+        public static boolean FUSE_INTERCEPTOR_CHAINS = true;
+
+        /**
+         * If true, the V1 and V2 interceptor bridges record the time spent in beforeMethod, in the origin method and in
+         * afterMethod for every interceptor, and a summary is logged every {@link #INTERCEPTOR_METER_REPORT_INTERVAL}
+         * seconds. It costs several reads of the clock for every intercepted call.
+         */
+        public static boolean INTERCEPTOR_METER = false;
+
+        /**
+         * The interval of the interceptor meter summary, in seconds.
+         */
+        public static long INTERCEPTOR_METER_REPORT_INTERVAL = 60;
+
+        /**
+         * When an interceptor fails this many times in {@link #INTERCEPTOR_FAILURE_WINDOW} seconds, it is bypassed for
+         * {@link #INTERCEPTOR_BYPASS_DURATION} seconds, rather than logging the error of every call. 0 never bypasses
+         * the failing interceptors.
+         */
+        public static int INTERCEPTOR_FAILURE_THRESHOLD = 10;
+
+        /**
+         * The window counting the failures of an interceptor, in seconds.
+         */
+        public static long INTERCEPTOR_FAILURE_WINDOW = 10;
+
+        /**
+         * How long a failing interceptor is bypassed, in seconds. Then it is called again, and bypassed again at the
+         * next failure in the window.
+         */
+        public static long INTERCEPTOR_BYPASS_DURATION = 60;
+
+        /**
+         * The max number of the loaded classes retransformed in one batch. The classes of different class loaders are
+         * never in the same batch.
+         */
+        public static int RETRANSFORM_BATCH_SIZE = 100;
+
+        /**
+         * The number of the threads retransforming the loaded classes in parallel, when the agent is attached to a
+         * running JVM. The loaded classes at premain are retransformed on the main thread.
+         */
+        public static int RETRANSFORM_THREADS = 2;
+
+        /**
+         * Profile one in every this many classes transformed by each thread: the evaluations, the hits and the time of
+         * the matchers, the witness checks, the plugin defines and byte-buddy making the class. The report is logged at
+         * the shutdown, or on demand by attaching the agent with the option {@code profile}. 0 turns it off.
+         */
+        public static int TRANSFORM_PROFILER_SAMPLE_RATE = 0;
+
+        /**
+         * The classes whose names start with one of these prefixes are never transformed, nor matched by any plugin,
+         * such as agent.ignore_prefixes=net.bytebuddy.,org.slf4j.,com.example.dto. Setting it replaces the defaults, so
+         * keep them in the list. The classes of the agent itself are always ignored. See {@code IgnoredTypeMatcher}.
+         */
+        public static List<String> IGNORE_PREFIXES = Arrays.asList(
+                "net.bytebuddy.", "org.slf4j.", "org.groovy.", "sun.reflect");
+
+        /**
+         * The classes whose names contain one of these fragments are never transformed, nor matched by any plugin.
+         * Setting it replaces the defaults.
+         */
+        public static List<String> IGNORE_CONTAINS = Arrays.asList("javassist", ".asm.", ".reflectasm.");
     }
 
     public static class Logging {
@@ -114,5 +200,43 @@ public class Config {
          * Mount the folders of the plugins. The folder path is relative to agent.jar.
          */
         public static List<String> MOUNT = Arrays.asList("plugins", "activations");
+
+        /**
+         * Override the priority of the plugins, keyed by the class name of the plugin define, such as
+         * plugin.priority[com.example.FooInstrumentation]=10. See {@code AbstractClassEnhancePluginDefine#priority()}.
+         */
+        public static Map<String, Integer> PRIORITY = new HashMap<>();
+
+        /**
+         * The max total size of the plugin class bytes cached in memory, in bytes. The agent class loaders of the
+         * application class loaders share the plugin jars, and read the classes loaded by each other from the cache.
+         * 0 disables the cache.
+         */
+        public static long CLASS_BYTES_CACHE_SIZE = 8 * 1024 * 1024;
+
+        /**
+         * If true, the entries and the plugin defines of the plugin jars are persisted in the agent directory, and read
+         * from there at the next start if the jars are not changed, rather than scanning the jars again.
+         */
+        public static boolean STARTUP_INDEX = true;
+
+        /**
+         * If true, the plugin defines listed in the JVMAop-plugin.manifest of their jars, or recorded matching by names
+         * in the fresh startup index, are loaded when one of the classes they match shows up, rather than at the start.
+         */
+        public static boolean LAZY_LOAD_DEFINES = true;
+
+        /**
+         * The max number of the types, whose parent type names are cached for each class loader. See {@code
+         * SuperTypeCache}.
+         */
+        public static int SUPER_TYPE_CACHE_SIZE = 10000;
+
+        /**
+         * The max number of the types matched by no plugin, cached for each class loader, so they are not matched
+         * again when they are retransformed. The cache of a class loader is cleared when it is full. 0 disables the
+         * cache. See {@code NegativeMatchCache}.
+         */
+        public static int NEGATIVE_MATCH_CACHE_SIZE = 50000;
     }
 }
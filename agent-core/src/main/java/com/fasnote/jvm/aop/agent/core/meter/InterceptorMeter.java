@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.meter;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The time spent by the invocations intercepted by one interceptor: in beforeMethod, in the origin method, and in
+ * afterMethod along with handleMethodException. The bridges share one meter for every interceptor class, so the meter
+ * covers all the intercept points and the enhanced classes using the interceptor.
+ * <p>
+ * The bridge takes the time before beforeMethod, and passes it through the meter, which records every stage and
+ * returns the end of it:
+ * <pre>
+ * long time = System.nanoTime();
+ * // beforeMethod
+ * time = meter.beforeMethodDone(time);
+ * // origin method
+ * time = meter.originDone(time);
+ * // afterMethod
+ * meter.afterMethodDone(time);
+ * </pre>
+ */
+public class InterceptorMeter {
+    private static final ConcurrentMap<String, InterceptorMeter> METERS = new ConcurrentHashMap<>();
+
+    private final String interceptorClassName;
+
+    private final StripedHistogram beforeMethod = new StripedHistogram();
+
+    private final StripedHistogram origin = new StripedHistogram();
+
+    private final StripedHistogram afterMethod = new StripedHistogram();
+
+    private InterceptorMeter(String interceptorClassName) {
+        this.interceptorClassName = interceptorClassName;
+    }
+
+    /**
+     * @return the meter of the interceptor, or null if {@link Config.Agent#INTERCEPTOR_METER} is off, then the bridge
+     * doesn't take the time at all.
+     */
+    public static InterceptorMeter of(String interceptorClassName) {
+        if (!Config.Agent.INTERCEPTOR_METER) {
+            return null;
+        }
+        return METERS.computeIfAbsent(interceptorClassName, InterceptorMeter::new);
+    }
+
+    public static List<InterceptorMeter> all() {
+        return new ArrayList<>(METERS.values());
+    }
+
+    public long beforeMethodDone(long start) {
+        long now = System.nanoTime();
+        beforeMethod.record(now - start);
+        return now;
+    }
+
+    public long originDone(long start) {
+        long now = System.nanoTime();
+        origin.record(now - start);
+        return now;
+    }
+
+    public void afterMethodDone(long start) {
+        afterMethod.record(System.nanoTime() - start);
+    }
+
+    public String getInterceptorClassName() {
+        return interceptorClassName;
+    }
+
+    public StripedHistogram getBeforeMethod() {
+        return beforeMethod;
+    }
+
+    public StripedHistogram getOrigin() {
+        return origin;
+    }
+
+    public StripedHistogram getAfterMethod() {
+        return afterMethod;
+    }
+}
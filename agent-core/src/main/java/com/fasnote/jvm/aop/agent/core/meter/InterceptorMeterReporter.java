@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.meter;
+
+import com.fasnote.jvm.aop.agent.core.boot.BootService;
+import com.fasnote.jvm.aop.agent.core.boot.DefaultNamedThreadFactory;
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.util.RunnableWithExceptionProtection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write a summary of every {@link InterceptorMeter} through the agent logger periodically, the interceptors costing
+ * most first. Every summary only covers the invocations since the last one.
+ */
+public class InterceptorMeterReporter implements BootService {
+    private static final ILog LOGGER = LogManager.getLogger(InterceptorMeterReporter.class);
+
+    private volatile ScheduledExecutorService executor;
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public void boot() {
+        if (!Config.Agent.INTERCEPTOR_METER) {
+            return;
+        }
+        long interval = Math.max(1, Config.Agent.INTERCEPTOR_METER_REPORT_INTERVAL);
+        executor = Executors.newSingleThreadScheduledExecutor(new DefaultNamedThreadFactory("InterceptorMeterReporter"));
+        executor.scheduleAtFixedRate(new RunnableWithExceptionProtection(
+                this::report, t -> LOGGER.error(t, "Report the interceptor meters failure.")), interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    @Override
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            report();
+        }
+    }
+
+    void report() {
+        List<Summary> summaries = new ArrayList<>();
+        for (InterceptorMeter meter : InterceptorMeter.all()) {
+            Summary summary = new Summary(meter);
+            if (summary.beforeMethod.getCount() > 0) {
+                summaries.add(summary);
+            }
+        }
+        if (summaries.isEmpty()) {
+            return;
+        }
+        summaries.sort(Comparator.comparingLong(Summary::overhead).reversed());
+        for (Summary summary : summaries) {
+            LOGGER.info("interceptor {} calls={} overhead={}us before[{}] origin[{}] after[{}]",
+                    summary.interceptorClassName, summary.beforeMethod.getCount(),
+                    TimeUnit.NANOSECONDS.toMicros(summary.overhead()),
+                    format(summary.beforeMethod), format(summary.origin), format(summary.afterMethod));
+        }
+    }
+
+    private static String format(StripedHistogram.Snapshot snapshot) {
+        return "mean=" + snapshot.getMean() + "ns p50<=" + snapshot.getQuantile(0.5) + "ns p99<="
+                + snapshot.getQuantile(0.99) + "ns max<=" + snapshot.getMax() + "ns";
+    }
+
+    private static class Summary {
+        private final String interceptorClassName;
+        private final StripedHistogram.Snapshot beforeMethod;
+        private final StripedHistogram.Snapshot origin;
+        private final StripedHistogram.Snapshot afterMethod;
+
+        Summary(InterceptorMeter meter) {
+            this.interceptorClassName = meter.getInterceptorClassName();
+            this.beforeMethod = meter.getBeforeMethod().drain();
+            this.origin = meter.getOrigin().drain();
+            this.afterMethod = meter.getAfterMethod().drain();
+        }
+
+        /**
+         * @return the time spent in the interceptor, in nanoseconds.
+         */
+        long overhead() {
+            return beforeMethod.getSum() + afterMethod.getSum();
+        }
+    }
+}
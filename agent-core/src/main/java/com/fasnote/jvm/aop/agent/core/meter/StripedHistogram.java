@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.meter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds, with power-of-two buckets. It is written by many threads without lock: the
+ * values are recorded into one of several stripes, picked by the recording thread, so the threads rarely update the
+ * same cell. The stripes are only merged when the histogram is drained.
+ * <p>
+ * Bucket i holds the values in [2^(i-1), 2^i), bucket 0 holds 0 and the negative values of a clock going backwards.
+ */
+public class StripedHistogram {
+    private static final int BUCKETS = 64;
+
+    /**
+     * The cell of the sum of the recorded values, after the buckets.
+     */
+    private static final int SUM = BUCKETS;
+
+    /**
+     * Keep the stripes of different threads on different cache lines.
+     */
+    private static final int STRIDE = BUCKETS + 8;
+
+    private final AtomicLongArray cells;
+
+    private final int mask;
+
+    public StripedHistogram() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+        this.mask = Math.min(stripes, 64) - 1;
+        this.cells = new AtomicLongArray((mask + 1) * STRIDE);
+    }
+
+    public void record(long nanos) {
+        int bucket = nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+        int base = ((int) Thread.currentThread().getId() & mask) * STRIDE;
+        cells.incrementAndGet(base + Math.min(bucket, BUCKETS - 1));
+        if (nanos > 0) {
+            cells.addAndGet(base + SUM, nanos);
+        }
+    }
+
+    /**
+     * Take the values recorded since the last drain, and start over. The values recorded during the drain go to either
+     * this snapshot or the next one, none is lost.
+     */
+    public Snapshot drain() {
+        long[] buckets = new long[BUCKETS];
+        long sum = 0;
+        for (int base = 0; base < cells.length(); base += STRIDE) {
+            for (int i = 0; i < BUCKETS; i++) {
+                if (cells.get(base + i) != 0) {
+                    buckets[i] += cells.getAndSet(base + i, 0);
+                }
+            }
+            sum += cells.getAndSet(base + SUM, 0);
+        }
+        return new Snapshot(buckets, sum);
+    }
+
+    public static class Snapshot {
+        private final long[] buckets;
+
+        private final long count;
+
+        private final long sum;
+
+        Snapshot(long[] buckets, long sum) {
+            long count = 0;
+            for (long bucket : buckets) {
+                count += bucket;
+            }
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the sum of the recorded values in nanoseconds.
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * @param quantile in [0, 1].
+         * @return the upper bound of the bucket holding the quantile, in nanoseconds. It overestimates the value by up
+         * to two times.
+         */
+        public long getQuantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && buckets[i] > 0) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(buckets.length - 1);
+        }
+
+        /**
+         * @return the upper bound of the highest non-empty bucket, in nanoseconds.
+         */
+        public long getMax() {
+            for (int i = buckets.length - 1; i >= 0; i--) {
+                if (buckets[i] > 0) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.meter;
+
+import com.fasnote.jvm.aop.agent.core.boot.BootService;
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write the records of {@link TransformProfiler} through the agent logger, the stages costing most first. It reports at
+ * the shutdown, and on demand by attaching the agent with the option {@code profile}.
+ */
+public class TransformProfileReporter implements BootService {
+    private static final ILog LOGGER = LogManager.getLogger(TransformProfileReporter.class);
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public void boot() {
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    @Override
+    public void shutdown() {
+        if (TransformProfiler.isEnabled()) {
+            report();
+        }
+    }
+
+    public void report() {
+        if (!TransformProfiler.isEnabled()) {
+            LOGGER.warn("transform profiler is off, set agent.transform_profiler_sample_rate to turn it on.");
+            return;
+        }
+        List<TransformProfiler.Record> records = TransformProfiler.records();
+        LOGGER.info("transform profile of {} records, one in every {} classes sampled.", records.size(),
+                TransformProfiler.getSampleRate());
+        for (TransformProfiler.Record record : records) {
+            LOGGER.info("transform profile {} {} count={} hits={} total={}us mean={}ns", record.getStage(),
+                    record.getKey(), record.getCount(), record.getHits(),
+                    TimeUnit.NANOSECONDS.toMicros(record.getNanos()), record.getNanos() / Math.max(1, record.getCount()));
+        }
+    }
+}
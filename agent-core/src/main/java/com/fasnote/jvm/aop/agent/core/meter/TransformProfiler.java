@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.meter;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The number of evaluations, the hits and the time spent by every stage of the class transformation, such as the
+ * matchers, the plugin defines and byte-buddy making the class, so the plugins making the class loading slow could be
+ * found. One in every {@link Config.Agent#TRANSFORM_PROFILER_SAMPLE_RATE} classes of a thread is profiled, the others
+ * only cost a thread local lookup at every stage.
+ * <p>
+ * The transformation of a class is wrapped by {@link #beginClass()} and {@link #endClass()}, and every stage in it
+ * takes the time by {@link #start()}, which tells whether the class is sampled:
+ * <pre>
+ * long start = TransformProfiler.start();
+ * // the stage
+ * TransformProfiler.stop(start, Stage.FIND, key, hit);
+ * </pre>
+ */
+public final class TransformProfiler {
+    /**
+     * The time returned by {@link #start()} if the class is not sampled.
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private static final String ALL = "*";
+
+    private static final ConcurrentMap<String, Record> RECORDS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<State> STATES = ThreadLocal.withInitial(State::new);
+
+    private static volatile int SAMPLE_RATE = 0;
+
+    private TransformProfiler() {
+    }
+
+    public enum Stage {
+        /**
+         * The whole transformation of a class by the agent builder, from the discovery to the completion, hit if the
+         * class is transformed.
+         */
+        TRANSFORM,
+        /**
+         * The type matcher of {@code PluginFinder#buildMatch()}, hit if the class is matched.
+         */
+        TYPE_MATCH,
+        /**
+         * A class match of a plugin evaluated by the type matcher or {@code PluginFinder#find}, keyed by the type of
+         * the match.
+         */
+        MATCHER,
+        /**
+         * {@code PluginFinder#find}, hit if any plugin is found.
+         */
+        FIND,
+        /**
+         * The class match of a plugin define evaluated by {@code PluginFinder#find}, keyed by the plugin define.
+         */
+        FIND_DEFINE,
+        /**
+         * The witness classes and methods checked for a plugin define, hit if they all exist.
+         */
+        WITNESS,
+        /**
+         * {@code AbstractClassEnhancePluginDefine#define}, keyed by the plugin define.
+         */
+        DEFINE,
+        /**
+         * Byte-buddy making the enhanced class, after all the plugin defines are applied.
+         */
+        MAKE
+    }
+
+    /**
+     * @param sampleRate profile one in every sampleRate classes, 0 turns the profiler off.
+     */
+    public static void setSampleRate(int sampleRate) {
+        SAMPLE_RATE = Math.max(0, sampleRate);
+    }
+
+    public static boolean isEnabled() {
+        return SAMPLE_RATE > 0;
+    }
+
+    /**
+     * The transformation of a class begins in the current thread. The nested ones are a part of the outer one.
+     */
+    public static void beginClass() {
+        int sampleRate = SAMPLE_RATE;
+        if (sampleRate <= 0) {
+            return;
+        }
+        State state = STATES.get();
+        if (state.depth++ > 0) {
+            return;
+        }
+        state.sampled = state.classes++ % sampleRate == 0;
+        state.classStart = state.sampled ? System.nanoTime() : NOT_SAMPLED;
+        state.makeStart = NOT_SAMPLED;
+        state.transformed = false;
+    }
+
+    public static void endClass() {
+        if (SAMPLE_RATE <= 0) {
+            return;
+        }
+        State state = STATES.get();
+        if (state.depth == 0 || --state.depth > 0) {
+            return;
+        }
+        if (state.sampled) {
+            stop(state.classStart, Stage.TRANSFORM, ALL, state.transformed);
+            state.sampled = false;
+        }
+    }
+
+    /**
+     * @return the start time of a stage, or {@link #NOT_SAMPLED} if the current class is not sampled.
+     */
+    public static long start() {
+        if (SAMPLE_RATE <= 0) {
+            return NOT_SAMPLED;
+        }
+        return STATES.get().sampled ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * @param start the value returned by {@link #start()}.
+     * @param key   the plugin define or the type of the match, {@link #ALL} for the stages of the whole class.
+     */
+    public static void stop(long start, Stage stage, String key, boolean hit) {
+        if (start == NOT_SAMPLED) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        String id = stage.name() + ':' + key;
+        Record record = RECORDS.get(id);
+        if (record == null) {
+            record = RECORDS.computeIfAbsent(id, k -> new Record(stage, key));
+        }
+        record.count.increment();
+        if (hit) {
+            record.hits.increment();
+        }
+        record.nanos.add(elapsed);
+    }
+
+    public static void stop(long start, Stage stage, boolean hit) {
+        stop(start, stage, ALL, hit);
+    }
+
+    /**
+     * The plugin defines are applied, byte-buddy begins to make the class.
+     */
+    public static void beginMake() {
+        if (SAMPLE_RATE > 0) {
+            STATES.get().makeStart = start();
+        }
+    }
+
+    /**
+     * Byte-buddy has made the class.
+     */
+    public static void endMake() {
+        if (SAMPLE_RATE > 0) {
+            State state = STATES.get();
+            stop(state.makeStart, Stage.MAKE, true);
+            state.makeStart = NOT_SAMPLED;
+            state.transformed = true;
+        }
+    }
+
+    /**
+     * @return the records, the most time spent first.
+     */
+    public static List<Record> records() {
+        List<Record> records = new ArrayList<>(RECORDS.values());
+        records.sort((left, right) -> Long.compare(right.getNanos(), left.getNanos()));
+        return records;
+    }
+
+    public static void reset() {
+        RECORDS.clear();
+    }
+
+    public static int getSampleRate() {
+        return SAMPLE_RATE;
+    }
+
+    public static class Record {
+        private final Stage stage;
+        private final String key;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private Record(Stage stage, String key) {
+            this.stage = stage;
+            this.key = key;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+    }
+
+    private static class State {
+        private int depth;
+        private boolean sampled;
+        private boolean transformed;
+        private long classes;
+        private long classStart = NOT_SAMPLED;
+        private long makeStart = NOT_SAMPLED;
+    }
+}
@@ -18,21 +18,26 @@
 
 package com.fasnote.jvm.aop.agent.core.plugin;
 
+import com.fasnote.jvm.aop.agent.core.conf.Config;
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.StaticMethodsInterceptPoint;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.MethodMeta;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.InstanceMethodsInterceptV2Point;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.StaticMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.StaticMethodsInterceptV3Point;
 import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
-import com.fasnote.jvm.aop.agent.core.util.CollectionUtil;
 import com.fasnote.jvm.aop.util.StringUtil;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Basic abstract class of all sky-walking auto-instrumentation plugins.
@@ -47,6 +52,16 @@ public abstract class AbstractClassEnhancePluginDefine {
     public static final String CONTEXT_ATTR_NAME = "_$EnhancedClassField_ws";
     private static final ILog LOGGER = LogManager.getLogger(AbstractClassEnhancePluginDefine.class);
 
+    /**
+     * The name of the plugin declaring this define in JVMAop-plugin.def, null for the dynamic plugins.
+     */
+    private String pluginName;
+
+    /**
+     * The ids of the methods enhanced by the v3 intercept points of this plugin.
+     */
+    private final MethodMeta.Ids methodIds = new MethodMeta.Ids();
+
     /**
      * Main entrance of enhancing the class.
      *
@@ -66,27 +81,13 @@ public abstract class AbstractClassEnhancePluginDefine {
         }
 
         LOGGER.debug("prepare to enhance class {} by {}.", transformClassName, interceptorDefineClassName);
-        WitnessFinder finder = WitnessFinder.INSTANCE;
         /**
-         * find witness classes for enhance class
+         * find witness classes and methods for enhance class
          */
-        String[] witnessClasses = witnessClasses();
-        if (witnessClasses != null) {
-            for (String witnessClass : witnessClasses) {
-                if (!finder.exist(witnessClass, classLoader)) {
-                    LOGGER.warn("enhance class {} by plugin {} is not activated. Witness class {} does not exist.", transformClassName, interceptorDefineClassName, witnessClass);
-                    return null;
-                }
-            }
-        }
-        List<WitnessMethod> witnessMethods = witnessMethods();
-        if (!CollectionUtil.isEmpty(witnessMethods)) {
-            for (WitnessMethod witnessMethod : witnessMethods) {
-                if (!finder.exist(witnessMethod, classLoader)) {
-                    LOGGER.warn("enhance class {} by plugin {} is not activated. Witness method {} does not exist.", transformClassName, interceptorDefineClassName, witnessMethod);
-                    return null;
-                }
-            }
+        String missingWitness = WitnessFinder.INSTANCE.findMissingWitness(this, classLoader);
+        if (missingWitness != null) {
+            LOGGER.warn("enhance class {} by plugin {} is not activated. {} does not exist.", transformClassName, interceptorDefineClassName, missingWitness);
+            return null;
         }
 
         /**
@@ -95,6 +96,7 @@ public abstract class AbstractClassEnhancePluginDefine {
         DynamicType.Builder<?> newClassBuilder = this.enhance(typeDescription, builder, classLoader, context);
 
         context.initializationStageCompleted();
+        context.defineEnhanced(this);
         LOGGER.debug("enhance class {} by {} completely.", transformClassName, interceptorDefineClassName);
 
         return newClassBuilder;
@@ -109,7 +111,7 @@ public abstract class AbstractClassEnhancePluginDefine {
      */
     protected DynamicType.Builder<?> enhance(TypeDescription typeDescription, DynamicType.Builder<?> newClassBuilder,
                                              ClassLoader classLoader, EnhanceContext context) throws PluginException {
-        newClassBuilder = this.enhanceClass(typeDescription, newClassBuilder, classLoader);
+        newClassBuilder = this.enhanceClass(typeDescription, newClassBuilder, classLoader, context);
 
         newClassBuilder = this.enhanceInstance(typeDescription, newClassBuilder, classLoader, context);
 
@@ -135,7 +137,7 @@ public abstract class AbstractClassEnhancePluginDefine {
      * @return new byte-buddy's builder for further manipulation.
      */
     protected abstract DynamicType.Builder<?> enhanceClass(TypeDescription typeDescription, DynamicType.Builder<?> newClassBuilder,
-                                                           ClassLoader classLoader) throws PluginException;
+                                                           ClassLoader classLoader, EnhanceContext context) throws PluginException;
 
     /**
      * Define the {@link ClassMatch} for filtering class.
@@ -160,10 +162,96 @@ public abstract class AbstractClassEnhancePluginDefine {
         return null;
     }
 
+    /**
+     * @return true if all the witness classes and methods of this plugin exist through the given class loader, which
+     * means the plugin would be applied by {@link #define(TypeDescription, DynamicType.Builder, ClassLoader,
+     * EnhanceContext)}.
+     */
+    public boolean isWitnessed(ClassLoader classLoader) {
+        return WitnessFinder.INSTANCE.findMissingWitness(this, classLoader) == null;
+    }
+
     public boolean isBootstrapInstrumentation() {
         return false;
     }
 
+    /**
+     * The priority of this plugin, when more than one plugin enhance the same class. The plugins are applied in
+     * descending priority, then by the class name. When they intercept the same method, the interceptors of a higher
+     * priority plugin are called outside the lower ones. It could be overridden by {@link Config.Plugin#PRIORITY}.
+     *
+     * @return the priority, default is 0.
+     */
+    public int priority() {
+        return 0;
+    }
+
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    public void setPluginName(String pluginName) {
+        this.pluginName = pluginName;
+    }
+
+    /**
+     * @return the ids of the methods enhanced by the v3 intercept points of this plugin, see {@link
+     * MethodMeta#getId()}.
+     */
+    public MethodMeta.Ids getMethodIds() {
+        return methodIds;
+    }
+
+    /**
+     * @return the class names of the interceptors of all the intercept points.
+     */
+    public Set<String> interceptorClassNames() {
+        Set<String> names = new LinkedHashSet<>();
+        ConstructorInterceptPoint[] constructorPoints = getConstructorsInterceptPoints();
+        if (constructorPoints != null) {
+            for (ConstructorInterceptPoint point : constructorPoints) {
+                names.add(point.getConstructorInterceptor());
+            }
+        }
+        InstanceMethodsInterceptPoint[] instancePoints = getInstanceMethodsInterceptPoints();
+        if (instancePoints != null) {
+            for (InstanceMethodsInterceptPoint point : instancePoints) {
+                names.add(point.getMethodsInterceptor());
+            }
+        }
+        InstanceMethodsInterceptV2Point[] instanceV2Points = getInstanceMethodsInterceptV2Points();
+        if (instanceV2Points != null) {
+            for (InstanceMethodsInterceptV2Point point : instanceV2Points) {
+                names.add(point.getMethodsInterceptorV2());
+            }
+        }
+        InstanceMethodsInterceptV3Point[] instanceV3Points = getInstanceMethodsInterceptV3Points();
+        if (instanceV3Points != null) {
+            for (InstanceMethodsInterceptV3Point point : instanceV3Points) {
+                names.add(point.getMethodsInterceptorV3());
+            }
+        }
+        StaticMethodsInterceptPoint[] staticPoints = getStaticMethodsInterceptPoints();
+        if (staticPoints != null) {
+            for (StaticMethodsInterceptPoint point : staticPoints) {
+                names.add(point.getMethodsInterceptor());
+            }
+        }
+        StaticMethodsInterceptV2Point[] staticV2Points = getStaticMethodsInterceptV2Points();
+        if (staticV2Points != null) {
+            for (StaticMethodsInterceptV2Point point : staticV2Points) {
+                names.add(point.getMethodsInterceptorV2());
+            }
+        }
+        StaticMethodsInterceptV3Point[] staticV3Points = getStaticMethodsInterceptV3Points();
+        if (staticV3Points != null) {
+            for (StaticMethodsInterceptV3Point point : staticV3Points) {
+                names.add(point.getMethodsInterceptorV3());
+            }
+        }
+        return names;
+    }
+
     /**
      * Constructor methods intercept point. See {@link ConstructorInterceptPoint}
      *
@@ -198,4 +286,22 @@ public abstract class AbstractClassEnhancePluginDefine {
      * @return collections of {@link InstanceMethodsInterceptV2Point}
      */
     public abstract StaticMethodsInterceptV2Point[] getStaticMethodsInterceptV2Points();
+
+    /**
+     * Instance methods intercept v3 point. See {@link InstanceMethodsInterceptV3Point}
+     *
+     * @return collections of {@link InstanceMethodsInterceptV3Point}, null means enhance no v3 instance methods.
+     */
+    public InstanceMethodsInterceptV3Point[] getInstanceMethodsInterceptV3Points() {
+        return null;
+    }
+
+    /**
+     * Static methods intercept v3 point. See {@link StaticMethodsInterceptV3Point}
+     *
+     * @return collections of {@link StaticMethodsInterceptV3Point}, null means enhance no v3 static methods.
+     */
+    public StaticMethodsInterceptV3Point[] getStaticMethodsInterceptV3Points() {
+        return null;
+    }
 }
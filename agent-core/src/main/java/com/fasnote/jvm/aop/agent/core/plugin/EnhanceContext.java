@@ -19,6 +19,16 @@
 package com.fasnote.jvm.aop.agent.core.plugin;
 
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptableMethods;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain.InterceptorChainFusion;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * The <code>EnhanceContext</code> represents the context or status for processing a class.
@@ -33,6 +43,22 @@ public class EnhanceContext {
      */
     private boolean objectExtended = false;
 
+    /**
+     * The plugins which have enhanced the class, in the order of enhancing.
+     */
+    private final List<AbstractClassEnhancePluginDefine> enhancedDefines = new ArrayList<>();
+
+    /**
+     * The methods delegated to one interceptor chain by {@link InterceptorChainFusion}, the plugins leave them out.
+     */
+    private final Set<MethodDescription.SignatureToken> fusedMethods = new HashSet<>();
+
+    /**
+     * The interceptable methods of the class, only looked up when some methods are fused.
+     */
+    private List<MethodDescription> instanceMethods;
+    private List<MethodDescription> staticMethods;
+
     public boolean isEnhanced() {
         return isEnhanced;
     }
@@ -48,4 +74,65 @@ public class EnhanceContext {
     public void extendObjectCompleted() {
         objectExtended = true;
     }
+
+    public void defineEnhanced(AbstractClassEnhancePluginDefine define) {
+        enhancedDefines.add(define);
+    }
+
+    public List<AbstractClassEnhancePluginDefine> getEnhancedDefines() {
+        return enhancedDefines;
+    }
+
+    public void methodFused(MethodDescription method) {
+        fusedMethods.add(method.asSignatureToken());
+    }
+
+    public boolean isFused(MethodDescription method) {
+        return !fusedMethods.isEmpty() && fusedMethods.contains(method.asSignatureToken());
+    }
+
+    /**
+     * @return the matcher of the methods not fused, which the plugins could delegate by themselves.
+     */
+    public ElementMatcher.Junction<MethodDescription> notFused() {
+        return new ElementMatcher.Junction.AbstractBase<MethodDescription>() {
+            @Override
+            public boolean matches(MethodDescription target) {
+                return !isFused(target);
+            }
+        };
+    }
+
+    /**
+     * A byte-buddy delegation adds its bridge to the class, even if its matcher matches no method. The plugins check
+     * it before delegating the methods of an intercept point.
+     *
+     * @param matcher  the matcher of the intercept point.
+     * @param isStatic true for the static methods.
+     * @return false if all the methods matched by the matcher are fused, so there is nothing left to delegate.
+     */
+    public boolean hasMethodsToDelegate(TypeDescription typeDescription, ElementMatcher<MethodDescription> matcher,
+                                        boolean isStatic) {
+        if (fusedMethods.isEmpty()) {
+            return true;
+        }
+        List<MethodDescription> methods;
+        if (isStatic) {
+            if (staticMethods == null) {
+                staticMethods = InterceptableMethods.staticMethodsOf(typeDescription);
+            }
+            methods = staticMethods;
+        } else {
+            if (instanceMethods == null) {
+                instanceMethods = InterceptableMethods.instanceMethodsOf(typeDescription);
+            }
+            methods = instanceMethods;
+        }
+        for (MethodDescription method : methods) {
+            if (!isFused(method) && matcher.matches(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
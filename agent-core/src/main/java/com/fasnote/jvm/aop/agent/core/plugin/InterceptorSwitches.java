@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorHolder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turn the interceptors on and off at runtime, by the interceptor class name, or by the plugin name declared in
+ * JVMAop-plugin.def, which covers all the interceptors of the plugin. A dynamic plugin is known by the class name of its
+ * define.
+ * <p>
+ * The switches are shared by interceptor class name, so turning a plugin off also turns off an interceptor it shares
+ * with another plugin.
+ */
+public enum InterceptorSwitches {
+    INSTANCE;
+
+    private static final ILog LOGGER = LogManager.getLogger(InterceptorSwitches.class);
+
+    private final Map<String, Set<String>> pluginInterceptors = new ConcurrentHashMap<>();
+
+    /**
+     * The plugins turned off, so the interceptors of their defines loaded later are turned off too.
+     */
+    private final Set<String> disabledPlugins = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Remember the interceptors of the plugin. It doesn't touch the {@link InterceptorSwitch}, which must be loaded
+     * after the bootstrap injection, so the agent and the bootstrap templates share the same switches.
+     */
+    void index(AbstractClassEnhancePluginDefine define) {
+        String pluginName = define.getPluginName() != null ? define.getPluginName() : define.getClass().getName();
+        pluginInterceptors.computeIfAbsent(pluginName, name -> Collections.synchronizedSet(new TreeSet<>()))
+                          .addAll(define.interceptorClassNames());
+        if (disabledPlugins.contains(pluginName)) {
+            for (String interceptor : define.interceptorClassNames()) {
+                InterceptorSwitch.of(interceptor).setEnabled(false);
+            }
+        }
+    }
+
+    /**
+     * Remember a plugin whose defines are not loaded yet, see {@link LazyPluginDefine}.
+     */
+    void declare(String pluginName) {
+        pluginInterceptors.computeIfAbsent(pluginName, name -> Collections.synchronizedSet(new TreeSet<>()));
+    }
+
+    /**
+     * @return the names of the known plugins.
+     */
+    public Set<String> getPluginNames() {
+        return new TreeSet<>(pluginInterceptors.keySet());
+    }
+
+    /**
+     * @return the interceptor class names of the plugin, empty if the plugin is unknown.
+     */
+    public Set<String> getInterceptorClassNames(String pluginName) {
+        Set<String> interceptors = pluginInterceptors.get(pluginName);
+        if (interceptors == null) {
+            return Collections.emptySet();
+        }
+        synchronized (interceptors) {
+            return new TreeSet<>(interceptors);
+        }
+    }
+
+    /**
+     * @return false, if the plugin is unknown.
+     */
+    public boolean setPluginEnabled(String pluginName, boolean enabled) {
+        if (!pluginInterceptors.containsKey(pluginName)) {
+            return false;
+        }
+        if (enabled) {
+            disabledPlugins.remove(pluginName);
+        } else {
+            disabledPlugins.add(pluginName);
+        }
+        Set<String> interceptors = getInterceptorClassNames(pluginName);
+        for (String interceptor : interceptors) {
+            InterceptorSwitch.of(interceptor).setEnabled(enabled);
+        }
+        LOGGER.info("plugin {} is {}.", pluginName, enabled ? "enabled" : "disabled");
+        return true;
+    }
+
+    /**
+     * @return true, if any interceptor of the plugin is enabled, or none of its defines is loaded and it is not turned
+     * off.
+     */
+    public boolean isPluginEnabled(String pluginName) {
+        Set<String> interceptors = getInterceptorClassNames(pluginName);
+        if (interceptors.isEmpty()) {
+            return pluginInterceptors.containsKey(pluginName) && !disabledPlugins.contains(pluginName);
+        }
+        for (String interceptor : interceptors) {
+            if (InterceptorSwitch.of(interceptor).isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setInterceptorEnabled(String interceptorClassName, boolean enabled) {
+        InterceptorSwitch.of(interceptorClassName).setEnabled(enabled);
+        LOGGER.info("interceptor {} is {}.", interceptorClassName, enabled ? "enabled" : "disabled");
+    }
+
+    public boolean isInterceptorEnabled(String interceptorClassName) {
+        return InterceptorSwitch.of(interceptorClassName).isEnabled();
+    }
+
+    /**
+     * @return the states of all the interceptors, keyed by the interceptor class name.
+     */
+    public Map<String, Boolean> interceptorStates() {
+        Map<String, Boolean> states = new TreeMap<>();
+        for (Set<String> interceptors : pluginInterceptors.values()) {
+            synchronized (interceptors) {
+                for (String interceptor : interceptors) {
+                    states.put(interceptor, Boolean.TRUE);
+                }
+            }
+        }
+        states.putAll(InterceptorSwitch.states());
+        return states;
+    }
+
+    /**
+     * Turn off all the interceptors, and make the bridges drop them, so the enhanced classes left behind by the detach
+     * don't keep the interceptor classes and their class loaders. The plugins turned on again load their interceptors at
+     * the next invocation.
+     *
+     * @return the names of the plugins turned off by it.
+     */
+    public Set<String> releaseInterceptors() {
+        Set<String> released = new TreeSet<>();
+        for (String pluginName : getPluginNames()) {
+            if (isPluginEnabled(pluginName) && setPluginEnabled(pluginName, false)) {
+                released.add(pluginName);
+            }
+        }
+        int holders = InterceptorHolder.releaseAll();
+        LOGGER.info("{} plugins are disabled, {} bridges dropped their interceptors.", released.size(), holders);
+        return released;
+    }
+}
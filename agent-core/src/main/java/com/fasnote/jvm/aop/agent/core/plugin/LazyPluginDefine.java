@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.AgentClassLoader;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.PluginStartupIndex;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.IndirectMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import net.bytebuddy.description.type.TypeDescription;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+/**
+ * A plugin define declared by {@link PluginManifest}, or recorded matching by names in the fresh {@link
+ * PluginStartupIndex}. {@link PluginFinder} knows the class names it matches without loading it, and the define class
+ * is loaded and instantiated when one of the classes is transformed at the first time.
+ */
+public class LazyPluginDefine {
+    private static final ILog LOGGER = LogManager.getLogger(LazyPluginDefine.class);
+
+    private final String pluginName;
+
+    private final String defineClass;
+
+    private final List<String> targets;
+
+    private volatile AbstractClassEnhancePluginDefine define;
+
+    private volatile boolean failed;
+
+    public LazyPluginDefine(String pluginName, String defineClass, List<String> targets) {
+        this.pluginName = pluginName;
+        this.defineClass = defineClass;
+        this.targets = targets;
+    }
+
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    public String getDefineClass() {
+        return defineClass;
+    }
+
+    /**
+     * @return the class names declared by the manifest or the startup index.
+     */
+    public List<String> getTargets() {
+        return targets;
+    }
+
+    /**
+     * @return the define if it enhances the type, or null if it doesn't, or it fails to load.
+     */
+    AbstractClassEnhancePluginDefine resolve(TypeDescription typeDescription) {
+        AbstractClassEnhancePluginDefine define = load();
+        if (define == null) {
+            return null;
+        }
+        ClassMatch match = define.enhanceClass();
+        if (match instanceof NameMatch) {
+            if (((NameMatch) match).getClassName().equals(typeDescription.getTypeName())) {
+                return define;
+            }
+        } else if (match instanceof IndirectMatch && ((IndirectMatch) match).isMatch(typeDescription)) {
+            return define;
+        }
+        LOGGER.warn("plugin [{}] doesn't match {} declared by the manifest.", defineClass, typeDescription.getTypeName());
+        return null;
+    }
+
+    private AbstractClassEnhancePluginDefine load() {
+        AbstractClassEnhancePluginDefine define = this.define;
+        if (define != null || failed) {
+            return define;
+        }
+        synchronized (this) {
+            if (this.define != null || failed) {
+                return this.define;
+            }
+            try {
+                LOGGER.debug("loading plugin class {} lazily.", defineClass);
+                define = (AbstractClassEnhancePluginDefine) Class.forName(defineClass, true, AgentClassLoader.getDefault())
+                                                                 .getDeclaredConstructor()
+                                                                 .newInstance();
+                if (define.isBootstrapInstrumentation()) {
+                    failed = true;
+                    LOGGER.warn("plugin [{}] instruments bootstrap classes, it can't be declared by the manifest.", defineClass);
+                    return null;
+                }
+                define.setPluginName(pluginName);
+                InterceptorSwitches.INSTANCE.index(define);
+                this.define = define;
+                return define;
+            } catch (Throwable t) {
+                failed = true;
+                if (t instanceof InvocationTargetException && t.getCause() != null) {
+                    t = t.getCause();
+                }
+                LOGGER.error(t, "load plugin [{}] failure.", defineClass);
+                return null;
+            }
+        }
+    }
+}
@@ -19,12 +19,16 @@
 package com.fasnote.jvm.aop.agent.core.plugin;
 
 import com.fasnote.jvm.aop.agent.core.boot.AgentPackageNotFoundException;
+import com.fasnote.jvm.aop.agent.core.conf.Config;
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
 import com.fasnote.jvm.aop.agent.core.plugin.loader.AgentClassLoader;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.PluginStartupIndex;
 
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.List;
 
 /**
@@ -34,6 +38,8 @@ import java.util.List;
 public class PluginBootstrap {
     private static final ILog LOGGER = LogManager.getLogger(PluginBootstrap.class);
 
+    private final List<LazyPluginDefine> lazyPlugins = new ArrayList<>();
+
     /**
      * load all plugins.
      *
@@ -42,31 +48,58 @@ public class PluginBootstrap {
     public List<AbstractClassEnhancePluginDefine> loadPlugins() throws AgentPackageNotFoundException {
         AgentClassLoader.initDefaultLoader();
 
+        PluginStartupIndex startupIndex = AgentClassLoader.getDefault().getStartupIndex();
         PluginResourcesResolver resolver = new PluginResourcesResolver();
         List<URL> resources = resolver.getResources();
 
         if (resources == null || resources.size() == 0) {
             LOGGER.info("no plugin files (JVMAop-plugin.def) found, continue to start application.");
+            if (startupIndex != null) {
+                startupIndex.saveInBackground();
+            }
             return new ArrayList<AbstractClassEnhancePluginDefine>();
         }
 
+        boolean freshIndex = startupIndex != null && startupIndex.isFresh();
         for (URL pluginUrl : resources) {
             try {
-                PluginCfg.INSTANCE.load(pluginUrl.openStream());
+                // the files in the mount jars are read from the fresh index, the others are always read
+                List<PluginDefine> defines = freshIndex ? startupIndex.getPluginDefines(pluginUrl) : null;
+                if (defines != null) {
+                    PluginCfg.INSTANCE.load(defines);
+                    continue;
+                }
+                defines = PluginCfg.INSTANCE.load(pluginUrl.openStream());
+                if (startupIndex != null) {
+                    startupIndex.recordPluginDefines(pluginUrl, defines);
+                }
             } catch (Throwable t) {
                 LOGGER.error(t, "plugin file [{}] init failure.", pluginUrl);
             }
         }
 
         List<PluginDefine> pluginClassList = PluginCfg.INSTANCE.getPluginClassList();
+        PluginManifest manifest = loadManifest();
 
         List<AbstractClassEnhancePluginDefine> plugins = new ArrayList<AbstractClassEnhancePluginDefine>();
         for (PluginDefine pluginDefine : pluginClassList) {
+            List<String> targets = manifest.getTargets(pluginDefine.getDefineClass());
+            if (targets == null && freshIndex && Config.Plugin.LAZY_LOAD_DEFINES) {
+                targets = startupIndex.getTargets(pluginDefine.getDefineClass());
+            }
+            if (targets != null) {
+                lazyPlugins.add(new LazyPluginDefine(pluginDefine.getName(), pluginDefine.getDefineClass(), targets));
+                continue;
+            }
             try {
                 LOGGER.debug("loading plugin class {}.", pluginDefine.getDefineClass());
                 AbstractClassEnhancePluginDefine plugin = (AbstractClassEnhancePluginDefine) Class.forName(pluginDefine.getDefineClass(), true, AgentClassLoader
                         .getDefault()).newInstance();
+                plugin.setPluginName(pluginDefine.getName());
                 plugins.add(plugin);
+                if (startupIndex != null && !plugin.isBootstrapInstrumentation()) {
+                    startupIndex.recordTargets(pluginDefine.getDefineClass(), plugin.enhanceClass());
+                }
             } catch (Throwable t) {
                 LOGGER.error(t, "load plugin [{}] failure.", pluginDefine.getDefineClass());
             }
@@ -74,8 +107,41 @@ public class PluginBootstrap {
 
         plugins.addAll(DynamicPluginLoader.INSTANCE.load(AgentClassLoader.getDefault()));
 
+        if (startupIndex != null) {
+            startupIndex.saveInBackground();
+        }
+
+        LOGGER.info("{} plugin defines loaded, {} will be loaded lazily.", plugins.size(), lazyPlugins.size());
         return plugins;
 
     }
 
+    /**
+     * @return the plugin defines declared by the manifests, or recorded matching by names in the fresh startup index,
+     * not loaded by {@link #loadPlugins()}.
+     */
+    public List<LazyPluginDefine> getLazyPlugins() {
+        return lazyPlugins;
+    }
+
+    private PluginManifest loadManifest() {
+        PluginManifest manifest = new PluginManifest();
+        if (!Config.Plugin.LAZY_LOAD_DEFINES) {
+            return manifest;
+        }
+        try {
+            Enumeration<URL> urls = AgentClassLoader.getDefault().getResources(PluginManifest.FILE_NAME);
+            while (urls.hasMoreElements()) {
+                URL manifestUrl = urls.nextElement();
+                try {
+                    manifest.load(manifestUrl.openStream());
+                } catch (IOException e) {
+                    LOGGER.error(e, "plugin manifest [{}] init failure.", manifestUrl);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error(e, "read plugin manifests failure.");
+        }
+        return manifest;
+    }
 }
@@ -37,7 +37,11 @@ public enum PluginCfg {
     private List<PluginDefine> pluginClassList = new ArrayList<>();
     private PluginSelector pluginSelector = new PluginSelector();
 
-    void load(InputStream input) throws IOException {
+    /**
+     * @return the plugin defines read from the input.
+     */
+    List<PluginDefine> load(InputStream input) throws IOException {
+        List<PluginDefine> plugins = new ArrayList<>();
         try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(input));
             String pluginDefine;
@@ -48,6 +52,7 @@ public enum PluginCfg {
                     }
                     PluginDefine plugin = PluginDefine.build(pluginDefine);
                     pluginClassList.add(plugin);
+                    plugins.add(plugin);
                 } catch (IllegalPluginDefineException e) {
                     LOGGER.error(e, "Failed to format plugin({}) define.", pluginDefine);
                 }
@@ -55,6 +60,11 @@ public enum PluginCfg {
         } finally {
             input.close();
         }
+        return plugins;
+    }
+
+    void load(List<PluginDefine> plugins) {
+        pluginClassList.addAll(plugins);
     }
 
     public List<PluginDefine> getPluginClassList() {
@@ -18,41 +18,69 @@
 
 package com.fasnote.jvm.aop.agent.core.plugin;
 
-import com.fasnote.jvm.aop.agent.core.plugin.bytebuddy.AbstractJunction;
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import com.fasnote.jvm.aop.agent.core.meter.TransformProfiler;
 import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
 import com.fasnote.jvm.aop.agent.core.plugin.match.IndirectMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.IndirectMatchIndex;
 import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NegativeMatchCache;
 import com.fasnote.jvm.aop.agent.core.plugin.match.ProtectiveShieldMatcher;
-import net.bytebuddy.description.NamedElement;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-
-import static net.bytebuddy.matcher.ElementMatchers.isInterface;
-import static net.bytebuddy.matcher.ElementMatchers.not;
+import java.util.Set;
 
 /**
  * The <code>PluginFinder</code> represents a finder , which assist to find the one from the given {@link
  * AbstractClassEnhancePluginDefine} list.
  */
 public class PluginFinder {
+    /**
+     * Higher priority first, then by the class name, so the plugins of a class are always applied in the same order.
+     */
+    private static final Comparator<AbstractClassEnhancePluginDefine> PRIORITY_ORDER = Comparator
+            .comparingInt(PluginFinder::priorityOf).reversed()
+            .thenComparing(define -> define.getClass().getName());
+
     private static boolean IS_PLUGIN_INIT_COMPLETED = false;
     private final Map<String, LinkedList<AbstractClassEnhancePluginDefine>> nameMatchDefine = new HashMap<>();
     private final List<AbstractClassEnhancePluginDefine> signatureMatchDefine = new ArrayList<>();
+    private final IndirectMatchIndex<AbstractClassEnhancePluginDefine> signatureMatchIndex = new IndirectMatchIndex<>();
     private final List<AbstractClassEnhancePluginDefine> bootstrapClassMatchDefine = new ArrayList<>();
+    private final Map<String, List<LazyPluginDefine>> lazyNameMatchDefine = new HashMap<>();
 
     public PluginFinder(List<AbstractClassEnhancePluginDefine> plugins) {
+        this(plugins, Collections.emptyList());
+    }
+
+    /**
+     * @param lazyPlugins the plugins declared by the manifests, loaded when their classes are found.
+     */
+    public PluginFinder(List<AbstractClassEnhancePluginDefine> plugins, List<LazyPluginDefine> lazyPlugins) {
+        // the types unmatched by the plugins before may be matched by these ones
+        NegativeMatchCache.INSTANCE.invalidate();
+        for (LazyPluginDefine lazyPlugin : lazyPlugins) {
+            InterceptorSwitches.INSTANCE.declare(lazyPlugin.getPluginName());
+            for (String target : lazyPlugin.getTargets()) {
+                lazyNameMatchDefine.computeIfAbsent(target, name -> new ArrayList<>()).add(lazyPlugin);
+            }
+        }
         for (AbstractClassEnhancePluginDefine plugin : plugins) {
             ClassMatch match = plugin.enhanceClass();
 
             if (match == null) {
                 continue;
             }
+            InterceptorSwitches.INSTANCE.index(plugin);
 
             if (match instanceof NameMatch) {
                 NameMatch nameMatch = (NameMatch) match;
@@ -64,6 +92,7 @@ public class PluginFinder {
                 pluginDefines.add(plugin);
             } else {
                 signatureMatchDefine.add(plugin);
+                signatureMatchIndex.add((IndirectMatch) match, plugin);
             }
 
             if (plugin.isBootstrapInstrumentation()) {
@@ -81,37 +110,56 @@ public class PluginFinder {
     }
 
     public List<AbstractClassEnhancePluginDefine> find(TypeDescription typeDescription) {
+        long findStart = TransformProfiler.start();
         List<AbstractClassEnhancePluginDefine> matchedPlugins = new LinkedList<AbstractClassEnhancePluginDefine>();
         String typeName = typeDescription.getTypeName();
         if (nameMatchDefine.containsKey(typeName)) {
             matchedPlugins.addAll(nameMatchDefine.get(typeName));
         }
+        List<LazyPluginDefine> lazyDefines = lazyNameMatchDefine.get(typeName);
+        if (lazyDefines != null) {
+            for (LazyPluginDefine lazyDefine : lazyDefines) {
+                AbstractClassEnhancePluginDefine pluginDefine = lazyDefine.resolve(typeDescription);
+                if (pluginDefine != null) {
+                    matchedPlugins.add(pluginDefine);
+                }
+            }
+        }
 
-        for (AbstractClassEnhancePluginDefine pluginDefine : signatureMatchDefine) {
+        for (AbstractClassEnhancePluginDefine pluginDefine : signatureMatchIndex.candidates(typeDescription)) {
             IndirectMatch match = (IndirectMatch) pluginDefine.enhanceClass();
-            if (match.isMatch(typeDescription)) {
+            long start = TransformProfiler.start();
+            boolean matched = match.isMatch(typeDescription);
+            TransformProfiler.stop(start, TransformProfiler.Stage.FIND_DEFINE, pluginDefine.getClass().getName(), matched);
+            if (matched) {
                 matchedPlugins.add(pluginDefine);
             }
         }
 
+        matchedPlugins.sort(PRIORITY_ORDER);
+        TransformProfiler.stop(findStart, TransformProfiler.Stage.FIND, !matchedPlugins.isEmpty());
         return matchedPlugins;
     }
 
+    /**
+     * @return the priority of the plugin, {@link Config.Plugin#PRIORITY} first.
+     */
+    static int priorityOf(AbstractClassEnhancePluginDefine define) {
+        Integer priority = Config.Plugin.PRIORITY.get(define.getClass().getName());
+        return priority != null ? priority : define.priority();
+    }
+
     public ElementMatcher<? super TypeDescription> buildMatch() {
-        ElementMatcher.Junction judge = new AbstractJunction<NamedElement>() {
-            @Override
-            public boolean matches(NamedElement target) {
-                return nameMatchDefine.containsKey(target.getActualName());
-            }
-        };
-        judge = judge.and(not(isInterface()));
+        Set<String> names = new HashSet<>(nameMatchDefine.keySet());
+        names.addAll(lazyNameMatchDefine.keySet());
+        List<IndirectMatch> matches = new ArrayList<>(signatureMatchDefine.size());
         for (AbstractClassEnhancePluginDefine define : signatureMatchDefine) {
             ClassMatch match = define.enhanceClass();
             if (match instanceof IndirectMatch) {
-                judge = judge.or(((IndirectMatch) match).buildJunction());
+                matches.add((IndirectMatch) match);
             }
         }
-        return new ProtectiveShieldMatcher(judge);
+        return new ProtectiveShieldMatcher<>(new PluginTypeMatcher(names, matches));
     }
 
     public List<AbstractClassEnhancePluginDefine> getBootstrapClassMatchDefine() {
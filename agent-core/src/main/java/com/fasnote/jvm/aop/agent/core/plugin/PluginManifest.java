@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The optional manifest of a plugin jar, named 'JVMAop-plugin.manifest', generated at build time. Every line declares
+ * the class names matched by a plugin define, such as
+ * <pre>
+ * com.example.FooInstrumentation=com.example.Foo,com.example.Bar
+ * </pre>
+ * The defines listed here are loaded only when one of the classes shows up, see {@link LazyPluginDefine}. Only the
+ * defines matching by {@code NameMatch} or {@code MultiClassNameMatch} without bootstrap instrumentation may be listed.
+ */
+class PluginManifest {
+    static final String FILE_NAME = "JVMAop-plugin.manifest";
+
+    private static final ILog LOGGER = LogManager.getLogger(PluginManifest.class);
+
+    private final Map<String, List<String>> targets = new HashMap<>();
+
+    void load(InputStream input) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int separator = line.indexOf('=');
+                if (separator <= 0) {
+                    LOGGER.warn("Failed to format plugin manifest line({}).", line);
+                    continue;
+                }
+                List<String> classNames = new ArrayList<>();
+                for (String className : line.substring(separator + 1).split(",")) {
+                    if (!className.trim().isEmpty()) {
+                        classNames.add(className.trim());
+                    }
+                }
+                if (classNames.isEmpty()) {
+                    LOGGER.warn("Failed to format plugin manifest line({}).", line);
+                    continue;
+                }
+                targets.put(line.substring(0, separator).trim(), classNames);
+            }
+        }
+    }
+
+    /**
+     * @return the class names matched by the define, or null if it is not listed.
+     */
+    List<String> getTargets(String defineClass) {
+        return targets.get(defineClass);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.meter.TransformProfiler;
+import com.fasnote.jvm.aop.agent.core.plugin.bytebuddy.AbstractJunction;
+import com.fasnote.jvm.aop.agent.core.plugin.match.IndirectMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.IndirectMatchIndex;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The type matcher of the agent builder, the same as every name matched class and every junction of {@link
+ * IndirectMatch#buildJunction()} joined by or, but compiled for the classes matching nothing to be rejected cheaply.
+ * <p>
+ * The name matched classes are looked up in a hash set. The junctions are indexed by {@link IndirectMatchIndex}, so
+ * only the junctions of the candidates found by the name, the package prefixes, the annotations and the parent types of
+ * a class are evaluated. The lookups of annotations and parent types are skipped if no junction needs them. Every
+ * evaluation of a junction is profiled by {@link TransformProfiler}, keyed by the type of its match.
+ */
+class PluginTypeMatcher extends AbstractJunction<TypeDescription> {
+    private final Set<String> names;
+
+    private final IndirectMatchIndex<Candidate> junctions = new IndirectMatchIndex<>();
+
+    private final int junctionCount;
+
+    PluginTypeMatcher(Set<String> names, List<IndirectMatch> matches) {
+        this.names = new HashSet<>(names);
+        this.junctionCount = matches.size();
+        for (IndirectMatch match : matches) {
+            junctions.add(match, new Candidate(match.buildJunction(), match.getClass().getSimpleName()));
+        }
+    }
+
+    @Override
+    public boolean matches(TypeDescription target) {
+        if (names.contains(target.getActualName()) && !target.isInterface()) {
+            return true;
+        }
+        for (Candidate candidate : junctions.candidates(target)) {
+            long start = TransformProfiler.start();
+            boolean matched = candidate.junction.matches(target);
+            TransformProfiler.stop(start, TransformProfiler.Stage.MATCHER, candidate.key, matched);
+            if (matched) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "PluginTypeMatcher(" + names.size() + " names, " + junctionCount + " junctions)";
+    }
+
+    private static class Candidate {
+        private final ElementMatcher<? super TypeDescription> junction;
+        /**
+         * The key of the junction in the records of {@link TransformProfiler}.
+         */
+        private final String key;
+
+        Candidate(ElementMatcher<? super TypeDescription> junction, String key) {
+            this.junction = junction;
+            this.key = key;
+        }
+    }
+}
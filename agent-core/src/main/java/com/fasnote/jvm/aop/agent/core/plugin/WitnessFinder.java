@@ -18,19 +18,40 @@
 
 package com.fasnote.jvm.aop.agent.core.plugin;
 
+import com.fasnote.jvm.aop.agent.core.meter.TransformProfiler;
+import net.bytebuddy.dynamic.ClassFileLocator;
 import net.bytebuddy.pool.TypePool;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The <code>WitnessFinder</code> represents a pool of {@link TypePool}s, each {@link TypePool} matches a {@link
  * ClassLoader}, which helps to find the class declaration existed or not.
+ * <p>
+ * The class loaders are weakly held, neither the map nor the {@link TypePool}s keep them alive, and the types parsed by
+ * a {@link TypePool} are softly referenced, so they are evicted under memory pressure. The witnesses of a plugin define
+ * are checked once per class loader, see {@link #findMissingWitness(AbstractClassEnhancePluginDefine, ClassLoader)}.
  */
 public enum WitnessFinder {
     INSTANCE;
 
-    private final Map<ClassLoader, TypePool> poolMap = new HashMap<>();
+    /**
+     * The result of a plugin define whose witnesses all exist.
+     */
+    private static final String WITNESSED = "";
+
+    private final Map<ClassLoader, TypePool> poolMap = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private volatile TypePool bootstrapPool;
+
+    private final Map<ClassLoader, Map<AbstractClassEnhancePluginDefine, String>> witnessMap =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<AbstractClassEnhancePluginDefine, String> bootstrapWitnesses = new ConcurrentHashMap<>();
 
     /**
      * @param classLoader for finding the witnessClass
@@ -49,17 +70,25 @@ public enum WitnessFinder {
      * @return TypePool.Resolution
      */
     private TypePool.Resolution getResolution(String witnessClass, ClassLoader classLoader) {
-        ClassLoader mappingKey = classLoader == null ? NullClassLoader.INSTANCE : classLoader;
-        if (!poolMap.containsKey(mappingKey)) {
-            synchronized (poolMap) {
-                if (!poolMap.containsKey(mappingKey)) {
-                    TypePool classTypePool = classLoader == null ? TypePool.Default.ofBootLoader() : TypePool.Default.of(classLoader);
-                    poolMap.put(mappingKey, classTypePool);
-                }
+        return getTypePool(classLoader).describe(witnessClass);
+    }
+
+    private TypePool getTypePool(ClassLoader classLoader) {
+        if (classLoader == null) {
+            TypePool typePool = bootstrapPool;
+            if (typePool == null) {
+                typePool = newTypePool(ClassFileLocator.ForClassLoader.ofBootLoader());
+                bootstrapPool = typePool;
             }
+            return typePool;
         }
-        TypePool typePool = poolMap.get(mappingKey);
-        return typePool.describe(witnessClass);
+        return poolMap.computeIfAbsent(classLoader,
+                key -> newTypePool(ClassFileLocator.ForClassLoader.WeaklyReferenced.of(key)));
+    }
+
+    private static TypePool newTypePool(ClassFileLocator classFileLocator) {
+        return new TypePool.Default(new TypePool.CacheProvider.Simple.UsingSoftReference(), classFileLocator,
+                TypePool.Default.ReaderMode.FAST);
     }
 
     /**
@@ -77,8 +106,54 @@ public enum WitnessFinder {
                 .isEmpty();
     }
 
-}
+    /**
+     * Check the witness classes and methods of the plugin define. The result is remembered for the class loader, so
+     * the witnesses are only looked up for the first class of the class loader matched by the define.
+     *
+     * @return null, if all the witnesses exist through the given classLoader, otherwise the first missing one.
+     */
+    String findMissingWitness(AbstractClassEnhancePluginDefine define, ClassLoader classLoader) {
+        Map<AbstractClassEnhancePluginDefine, String> witnesses = classLoader == null
+                ? bootstrapWitnesses : witnessMap.computeIfAbsent(classLoader, key -> new ConcurrentHashMap<>());
+        String missingWitness = witnesses.get(define);
+        if (missingWitness == null) {
+            // checked out of the map, the type pool may load classes. Two threads may check the same define.
+            long start = TransformProfiler.start();
+            missingWitness = checkWitnesses(define, classLoader);
+            TransformProfiler.stop(start, TransformProfiler.Stage.WITNESS, define.getClass().getName(),
+                    missingWitness.isEmpty());
+            witnesses.put(define, missingWitness);
+        }
+        return missingWitness.isEmpty() ? null : missingWitness;
+    }
+
+    private String checkWitnesses(AbstractClassEnhancePluginDefine define, ClassLoader classLoader) {
+        String[] witnessClasses = define.witnessClasses();
+        if (witnessClasses != null) {
+            for (String witnessClass : witnessClasses) {
+                if (!exist(witnessClass, classLoader)) {
+                    return "Witness class " + witnessClass;
+                }
+            }
+        }
+        List<WitnessMethod> witnessMethods = define.witnessMethods();
+        if (witnessMethods != null) {
+            for (WitnessMethod witnessMethod : witnessMethods) {
+                if (!exist(witnessMethod, classLoader)) {
+                    return "Witness method " + witnessMethod;
+                }
+            }
+        }
+        return WITNESSED;
+    }
 
-final class NullClassLoader extends ClassLoader {
-    static NullClassLoader INSTANCE = new NullClassLoader();
+    /**
+     * Forget the type pools and the witnesses checked, when the agent is detached, so the plugin defines are released.
+     */
+    public void release() {
+        poolMap.clear();
+        bootstrapPool = null;
+        witnessMap.clear();
+        bootstrapWitnesses.clear();
+    }
 }
@@ -67,6 +67,9 @@ public class BootstrapInstrumentBoost {
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance",
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable",
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.MethodInterceptResult",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ParameterTypesCache",
 
             // interceptor v2
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.InstanceMethodsAroundInterceptorV2",
@@ -22,6 +22,7 @@ import com.fasnote.jvm.aop.agent.core.plugin.bootstrap.IBootstrapLog;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.BootstrapInterRuntimeAssist;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstanceConstructorInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 import net.bytebuddy.implementation.bind.annotation.This;
@@ -43,6 +44,7 @@ public class ConstructorInterTemplate {
     private static String TARGET_INTERCEPTOR;
 
     private static InstanceConstructorInterceptor INTERCEPTOR;
+    private static final InterceptorSwitch SWITCH = InterceptorSwitch.of(TARGET_INTERCEPTOR);
     private static IBootstrapLog LOGGER;
 
     /**
@@ -53,6 +55,9 @@ public class ConstructorInterTemplate {
      */
     @RuntimeType
     public static void intercept(@This Object obj, @AllArguments Object[] allArguments) {
+        if (!SWITCH.isEnabled()) {
+            return;
+        }
         try {
             prepare();
 
@@ -64,6 +69,7 @@ public class ConstructorInterTemplate {
             INTERCEPTOR.onConstruct(targetObject, allArguments);
         } catch (Throwable t) {
             LOGGER.error("ConstructorInter failure.", t);
+            SWITCH.failed();
         }
     }
 
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.bootstrap.template;
+
+import com.fasnote.jvm.aop.agent.core.plugin.bootstrap.IBootstrapLog;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.BootstrapInterRuntimeAssist;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstanceMethodsAroundInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.MethodInterceptResult;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ParameterTypesCache;
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+import net.bytebuddy.implementation.bind.annotation.SuperCall;
+import net.bytebuddy.implementation.bind.annotation.This;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+/**
+ * --------CLASS TEMPLATE---------
+ * <p>Author, Wu Sheng </p>
+ * <p>Comment, don't change this unless you are 100% sure the agent core mechanism for bootstrap class
+ * instrumentation.</p>
+ * <p>Date, 24th July 2019</p>
+ * -------------------------------
+ * <p>
+ * This class wouldn't be loaded in real env. This is a class template for dynamic class generation.
+ */
+public class InstanceMethodInterTemplate {
+    /**
+     * This field is never set in the template, but has value in the runtime.
+     */
+    private static String TARGET_INTERCEPTOR;
+
+    private static InstanceMethodsAroundInterceptor INTERCEPTOR;
+    private static final InterceptorSwitch SWITCH = InterceptorSwitch.of(TARGET_INTERCEPTOR);
+    private static IBootstrapLog LOGGER;
+    private static final ParameterTypesCache PARAMETER_TYPES = new ParameterTypesCache();
+
+    /**
+     * Intercept the target instance method.
+     *
+     * @param obj          target class instance.
+     * @param allArguments all method arguments
+     * @param method       method description.
+     * @param zuper        the origin call ref.
+     * @return the return value of target instance method.
+     * @throws Exception only throw exception because of zuper.call() or unexpected exception in sky-walking ( This is a
+     *                   bug, if anything triggers this condition ).
+     */
+    @RuntimeType
+    public static Object intercept(@This Object obj, @AllArguments Object[] allArguments, @SuperCall Callable<?> zuper,
+                                   @Origin Method method) throws Throwable {
+        if (!SWITCH.isEnabled()) {
+            return zuper.call();
+        }
+        EnhancedInstance targetObject = (EnhancedInstance) obj;
+
+        prepare();
+
+        Class<?>[] argumentsTypes = PARAMETER_TYPES.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInterceptResult result = contexts.acquire();
+        try {
+            if (INTERCEPTOR != null) {
+                INTERCEPTOR.beforeMethod(targetObject, method, allArguments, argumentsTypes, result);
+            }
+        } catch (Throwable t) {
+            if (LOGGER != null) {
+                LOGGER.error(t, "class[{}] before method[{}] intercept failure", obj.getClass(), method.getName());
+            }
+            SWITCH.failed();
+        }
+
+        Object ret = null;
+        try {
+            if (!result.isContinue()) {
+                ret = result._ret();
+            } else {
+                ret = zuper.call();
+            }
+        } catch (Throwable t) {
+            try {
+                if (INTERCEPTOR != null) {
+                    INTERCEPTOR.handleMethodException(targetObject, method, allArguments, argumentsTypes, t);
+                }
+            } catch (Throwable t2) {
+                if (LOGGER != null) {
+                    LOGGER.error(t2, "class[{}] handle method[{}] exception failure", obj.getClass(), method.getName());
+                }
+                SWITCH.failed();
+            }
+            throw t;
+        } finally {
+            try {
+                if (INTERCEPTOR != null) {
+                    ret = INTERCEPTOR.afterMethod(targetObject, method, allArguments, argumentsTypes, ret);
+                }
+            } catch (Throwable t) {
+                if (LOGGER != null) {
+                    LOGGER.error(t, "class[{}] after method[{}] intercept failure", obj.getClass(), method.getName());
+                }
+                SWITCH.failed();
+            }
+            contexts.release(result);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Prepare the context. Link to the agent core in AppClassLoader.
+     */
+    private static void prepare() {
+        if (INTERCEPTOR == null) {
+            ClassLoader loader = BootstrapInterRuntimeAssist.getAgentClassLoader();
+
+            if (loader != null) {
+                IBootstrapLog logger = BootstrapInterRuntimeAssist.getLogger(loader, TARGET_INTERCEPTOR);
+                if (logger != null) {
+                    LOGGER = logger;
+
+                    INTERCEPTOR = BootstrapInterRuntimeAssist.createInterceptor(loader, TARGET_INTERCEPTOR, LOGGER);
+                }
+            } else {
+                LOGGER.error("Runtime ClassLoader not found when create {}." + TARGET_INTERCEPTOR);
+            }
+        }
+    }
+}
+
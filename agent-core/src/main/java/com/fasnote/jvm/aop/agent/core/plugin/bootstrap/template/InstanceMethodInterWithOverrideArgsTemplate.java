@@ -22,8 +22,11 @@ import com.fasnote.jvm.aop.agent.core.plugin.bootstrap.IBootstrapLog;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.BootstrapInterRuntimeAssist;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstanceMethodsAroundInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.MethodInterceptResult;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ParameterTypesCache;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Morph;
 import net.bytebuddy.implementation.bind.annotation.Origin;
@@ -49,7 +52,9 @@ public class InstanceMethodInterWithOverrideArgsTemplate {
     private static String TARGET_INTERCEPTOR;
 
     private static InstanceMethodsAroundInterceptor INTERCEPTOR;
+    private static final InterceptorSwitch SWITCH = InterceptorSwitch.of(TARGET_INTERCEPTOR);
     private static IBootstrapLog LOGGER;
+    private static final ParameterTypesCache PARAMETER_TYPES = new ParameterTypesCache();
 
     /**
      * Intercept the target instance method.
@@ -65,19 +70,25 @@ public class InstanceMethodInterWithOverrideArgsTemplate {
     @RuntimeType
     public static Object intercept(@This Object obj, @AllArguments Object[] allArguments, @Morph OverrideCallable zuper,
                                    @Origin Method method) throws Throwable {
+        if (!SWITCH.isEnabled()) {
+            return zuper.call(allArguments);
+        }
         EnhancedInstance targetObject = (EnhancedInstance) obj;
 
         prepare();
 
-        MethodInterceptResult result = new MethodInterceptResult();
+        Class<?>[] argumentsTypes = PARAMETER_TYPES.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInterceptResult result = contexts.acquire();
         try {
             if (INTERCEPTOR != null) {
-                INTERCEPTOR.beforeMethod(targetObject, method, allArguments, method.getParameterTypes(), result);
+                INTERCEPTOR.beforeMethod(targetObject, method, allArguments, argumentsTypes, result);
             }
         } catch (Throwable t) {
             if (LOGGER != null) {
                 LOGGER.error(t, "class[{}] before method[{}] intercept failure", obj.getClass(), method.getName());
             }
+            SWITCH.failed();
         }
 
         Object ret = null;
@@ -90,24 +101,27 @@ public class InstanceMethodInterWithOverrideArgsTemplate {
         } catch (Throwable t) {
             try {
                 if (INTERCEPTOR != null) {
-                    INTERCEPTOR.handleMethodException(targetObject, method, allArguments, method.getParameterTypes(), t);
+                    INTERCEPTOR.handleMethodException(targetObject, method, allArguments, argumentsTypes, t);
                 }
             } catch (Throwable t2) {
                 if (LOGGER != null) {
                     LOGGER.error(t2, "class[{}] handle method[{}] exception failure", obj.getClass(), method.getName());
                 }
+                SWITCH.failed();
             }
             throw t;
         } finally {
             try {
                 if (INTERCEPTOR != null) {
-                    ret = INTERCEPTOR.afterMethod(targetObject, method, allArguments, method.getParameterTypes(), ret);
+                    ret = INTERCEPTOR.afterMethod(targetObject, method, allArguments, argumentsTypes, ret);
                 }
             } catch (Throwable t) {
                 if (LOGGER != null) {
                     LOGGER.error(t, "class[{}] after method[{}] intercept failure", obj.getClass(), method.getName());
                 }
+                SWITCH.failed();
             }
+            contexts.release(result);
         }
 
         return ret;
@@ -20,7 +20,10 @@ package com.fasnote.jvm.aop.agent.core.plugin.bootstrap.template;
 
 import com.fasnote.jvm.aop.agent.core.plugin.bootstrap.IBootstrapLog;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.BootstrapInterRuntimeAssist;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.MethodInterceptResult;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ParameterTypesCache;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.StaticMethodsAroundInterceptor;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Origin;
@@ -47,7 +50,9 @@ public class StaticMethodInterTemplate {
     private static String TARGET_INTERCEPTOR;
 
     private static StaticMethodsAroundInterceptor INTERCEPTOR;
+    private static final InterceptorSwitch SWITCH = InterceptorSwitch.of(TARGET_INTERCEPTOR);
     private static IBootstrapLog LOGGER;
+    private static final ParameterTypesCache PARAMETER_TYPES = new ParameterTypesCache();
 
     /**
      * Intercept the target static method.
@@ -63,15 +68,21 @@ public class StaticMethodInterTemplate {
     @RuntimeType
     public static Object intercept(@Origin Class<?> clazz, @AllArguments Object[] allArguments, @Origin Method method,
                                    @SuperCall Callable<?> zuper) throws Throwable {
+        if (!SWITCH.isEnabled()) {
+            return zuper.call();
+        }
         prepare();
 
-        MethodInterceptResult result = new MethodInterceptResult();
+        Class<?>[] argumentsTypes = PARAMETER_TYPES.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInterceptResult result = contexts.acquire();
         try {
             if (INTERCEPTOR != null) {
-                INTERCEPTOR.beforeMethod(clazz, method, allArguments, method.getParameterTypes(), result);
+                INTERCEPTOR.beforeMethod(clazz, method, allArguments, argumentsTypes, result);
             }
         } catch (Throwable t) {
             LOGGER.error(t, "class[{}] before static method[{}] intercept failure", clazz, method.getName());
+            SWITCH.failed();
         }
 
         Object ret = null;
@@ -84,20 +95,23 @@ public class StaticMethodInterTemplate {
         } catch (Throwable t) {
             try {
                 if (INTERCEPTOR != null) {
-                    INTERCEPTOR.handleMethodException(clazz, method, allArguments, method.getParameterTypes(), t);
+                    INTERCEPTOR.handleMethodException(clazz, method, allArguments, argumentsTypes, t);
                 }
             } catch (Throwable t2) {
                 LOGGER.error(t2, "class[{}] handle static method[{}] exception failure", clazz, method.getName(), t2.getMessage());
+                SWITCH.failed();
             }
             throw t;
         } finally {
             try {
                 if (INTERCEPTOR != null) {
-                    ret = INTERCEPTOR.afterMethod(clazz, method, allArguments, method.getParameterTypes(), ret);
+                    ret = INTERCEPTOR.afterMethod(clazz, method, allArguments, argumentsTypes, ret);
                 }
             } catch (Throwable t) {
                 LOGGER.error(t, "class[{}] after static method[{}] intercept failure:{}", clazz, method.getName(), t.getMessage());
+                SWITCH.failed();
             }
+            contexts.release(result);
         }
         return ret;
     }
@@ -20,6 +20,9 @@ package com.fasnote.jvm.aop.agent.core.plugin.bootstrap.template.v2;
 import com.fasnote.jvm.aop.agent.core.plugin.bootstrap.IBootstrapLog;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.BootstrapInterRuntimeAssist;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ParameterTypesCache;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.InstanceMethodsAroundInterceptorV2;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
@@ -42,7 +45,9 @@ public class InstanceMethodInterV2Template {
     private static String TARGET_INTERCEPTOR;
 
     private static InstanceMethodsAroundInterceptorV2 INTERCEPTOR;
+    private static final InterceptorSwitch SWITCH = InterceptorSwitch.of(TARGET_INTERCEPTOR);
     private static IBootstrapLog LOGGER;
+    private static final ParameterTypesCache PARAMETER_TYPES = new ParameterTypesCache();
 
     /**
      * Intercept the target instance method.
@@ -58,19 +63,25 @@ public class InstanceMethodInterV2Template {
     @RuntimeType
     public static Object intercept(@This Object obj, @AllArguments Object[] allArguments, @SuperCall Callable<?> zuper,
                                    @Origin Method method) throws Throwable {
+        if (!SWITCH.isEnabled()) {
+            return zuper.call();
+        }
         EnhancedInstance targetObject = (EnhancedInstance) obj;
 
         prepare();
 
-        MethodInvocationContext context = new MethodInvocationContext();
+        Class<?>[] argumentsTypes = PARAMETER_TYPES.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInvocationContext context = contexts.acquire();
         try {
             if (INTERCEPTOR != null) {
-                INTERCEPTOR.beforeMethod(targetObject, method, allArguments, method.getParameterTypes(), context);
+                INTERCEPTOR.beforeMethod(targetObject, method, allArguments, argumentsTypes, context);
             }
         } catch (Throwable t) {
             if (LOGGER != null) {
                 LOGGER.error(t, "class[{}] before method[{}] intercept failure", obj.getClass(), method.getName());
             }
+            SWITCH.failed();
         }
 
         Object ret = null;
@@ -83,24 +94,27 @@ public class InstanceMethodInterV2Template {
         } catch (Throwable t) {
             try {
                 if (INTERCEPTOR != null) {
-                    INTERCEPTOR.handleMethodException(targetObject, method, allArguments, method.getParameterTypes(), t, context);
+                    INTERCEPTOR.handleMethodException(targetObject, method, allArguments, argumentsTypes, t, context);
                 }
             } catch (Throwable t2) {
                 if (LOGGER != null) {
                     LOGGER.error(t2, "class[{}] handle method[{}] exception failure", obj.getClass(), method.getName());
                 }
+                SWITCH.failed();
             }
             throw t;
         } finally {
             try {
                 if (INTERCEPTOR != null) {
-                    ret = INTERCEPTOR.afterMethod(targetObject, method, allArguments, method.getParameterTypes(), ret, context);
+                    ret = INTERCEPTOR.afterMethod(targetObject, method, allArguments, argumentsTypes, ret, context);
                 }
             } catch (Throwable t) {
                 if (LOGGER != null) {
                     LOGGER.error(t, "class[{}] after method[{}] intercept failure", obj.getClass(), method.getName());
                 }
+                SWITCH.failed();
             }
+            contexts.release(context);
         }
 
         return ret;
@@ -20,7 +20,10 @@ package com.fasnote.jvm.aop.agent.core.plugin.bootstrap.template.v2;
 
 import com.fasnote.jvm.aop.agent.core.plugin.bootstrap.IBootstrapLog;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.BootstrapInterRuntimeAssist;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ParameterTypesCache;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.StaticMethodsAroundInterceptorV2;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
@@ -40,7 +43,9 @@ public class StaticMethodInterV2WithOverrideArgsTemplate {
     private static String TARGET_INTERCEPTOR;
 
     private static StaticMethodsAroundInterceptorV2 INTERCEPTOR;
+    private static final InterceptorSwitch SWITCH = InterceptorSwitch.of(TARGET_INTERCEPTOR);
     private static IBootstrapLog LOGGER;
+    private static final ParameterTypesCache PARAMETER_TYPES = new ParameterTypesCache();
 
     /**
      * Intercept the target static method.
@@ -56,15 +61,21 @@ public class StaticMethodInterV2WithOverrideArgsTemplate {
     @RuntimeType
     public static Object intercept(@Origin Class<?> clazz, @AllArguments Object[] allArguments, @Origin Method method,
                                    @Morph OverrideCallable zuper) throws Throwable {
+        if (!SWITCH.isEnabled()) {
+            return zuper.call(allArguments);
+        }
         prepare();
 
-        MethodInvocationContext context = new MethodInvocationContext();
+        Class<?>[] argumentsTypes = PARAMETER_TYPES.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInvocationContext context = contexts.acquire();
         try {
             if (INTERCEPTOR != null) {
-                INTERCEPTOR.beforeMethod(clazz, method, allArguments, method.getParameterTypes(), context);
+                INTERCEPTOR.beforeMethod(clazz, method, allArguments, argumentsTypes, context);
             }
         } catch (Throwable t) {
             LOGGER.error(t, "class[{}] before static method[{}] intercept failure", clazz, method.getName());
+            SWITCH.failed();
         }
 
         Object ret = null;
@@ -77,20 +88,23 @@ public class StaticMethodInterV2WithOverrideArgsTemplate {
         } catch (Throwable t) {
             try {
                 if (INTERCEPTOR != null) {
-                    INTERCEPTOR.handleMethodException(clazz, method, allArguments, method.getParameterTypes(), t, context);
+                    INTERCEPTOR.handleMethodException(clazz, method, allArguments, argumentsTypes, t, context);
                 }
             } catch (Throwable t2) {
                 LOGGER.error(t2, "class[{}] handle static method[{}] exception failure", clazz, method.getName(), t2.getMessage());
+                SWITCH.failed();
             }
             throw t;
         } finally {
             try {
                 if (INTERCEPTOR != null) {
-                    ret = INTERCEPTOR.afterMethod(clazz, method, allArguments, method.getParameterTypes(), ret, context);
+                    ret = INTERCEPTOR.afterMethod(clazz, method, allArguments, argumentsTypes, ret, context);
                 }
             } catch (Throwable t) {
                 LOGGER.error(t, "class[{}] after static method[{}] intercept failure:{}", clazz, method.getName(), t.getMessage());
+                SWITCH.failed();
             }
+            contexts.release(context);
         }
         return ret;
     }
@@ -18,6 +18,7 @@
 
 package com.fasnote.jvm.aop.agent.core.plugin.interceptor;
 
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.Sampler;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 
@@ -45,6 +46,27 @@ public interface InstanceMethodsInterceptPoint {
 
     boolean isOverrideArgs();
 
+    /**
+     * Sample the calls of the matched methods, for the interceptors which only need a part of them, such as the ones
+     * feeding statistics. The interceptor is not called for the calls not sampled. Bootstrap instrumentation doesn't
+     * support it.
+     *
+     * @return the sampler, such as {@link Sampler#oneIn(int)}, or null to intercept every call.
+     */
+    default Sampler getSampler() {
+        return null;
+    }
+
+    /**
+     * A cheap filter of the methods, which accepts every method matched by {@link #getMethodsMatcher()}. The methods
+     * matcher only runs on the methods it accepts.
+     *
+     * @return the pre-filter, or null to run the methods matcher on every method.
+     */
+    default MethodsPreFilter getMethodsPreFilter() {
+        return null;
+    }
+
     /**
      * To ensure that the hashCode for recreating the XxxInterceptPoint instance is the same as the previous instance,
      * each ElementMatcher implementation class needs to implement toString() method.
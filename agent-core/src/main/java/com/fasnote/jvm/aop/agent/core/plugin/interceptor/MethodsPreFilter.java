@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor;
+
+import com.fasnote.jvm.aop.agent.core.plugin.bytebuddy.AbstractJunction;
+import com.fasnote.jvm.aop.agent.core.plugin.bytebuddy.ArgumentTypeNameMatch;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A cheap filter of the methods an intercept point may intercept, by the exact names, the name prefixes and the number
+ * of the arguments. It must accept every method matched by the methods matcher of the intercept point. The methods
+ * matcher, such as {@link ArgumentTypeNameMatch} or one walking the parent types, only runs on the methods accepted,
+ * rather than on every method of the enhanced class.
+ * <p>
+ * e.g. {@code MethodsPreFilter.named("execute", "executeQuery").orNameStartsWith("prepare").takesArguments(1)}
+ */
+public final class MethodsPreFilter {
+    private static final int ANY_ARGUMENTS = -1;
+
+    private final Set<String> names;
+
+    private final List<String> prefixes;
+
+    private final int arguments;
+
+    private MethodsPreFilter(Set<String> names, List<String> prefixes, int arguments) {
+        this.names = names;
+        this.prefixes = prefixes;
+        this.arguments = arguments;
+    }
+
+    /**
+     * @param names the exact names of the methods.
+     */
+    public static MethodsPreFilter named(String... names) {
+        return new MethodsPreFilter(Collections.<String>emptySet(), Collections.<String>emptyList(), ANY_ARGUMENTS)
+                .orNamed(names);
+    }
+
+    /**
+     * @param prefixes the prefixes of the method names.
+     */
+    public static MethodsPreFilter nameStartsWith(String... prefixes) {
+        return new MethodsPreFilter(Collections.<String>emptySet(), Collections.<String>emptyList(), ANY_ARGUMENTS)
+                .orNameStartsWith(prefixes);
+    }
+
+    /**
+     * @return a filter accepting the methods of the names too.
+     */
+    public MethodsPreFilter orNamed(String... names) {
+        Set<String> newNames = new HashSet<>(this.names);
+        newNames.addAll(Arrays.asList(names));
+        return new MethodsPreFilter(Collections.unmodifiableSet(newNames), prefixes, arguments);
+    }
+
+    /**
+     * @return a filter accepting the methods of the name prefixes too.
+     */
+    public MethodsPreFilter orNameStartsWith(String... prefixes) {
+        List<String> newPrefixes = new ArrayList<>(this.prefixes);
+        newPrefixes.addAll(Arrays.asList(prefixes));
+        return new MethodsPreFilter(names, Collections.unmodifiableList(newPrefixes), arguments);
+    }
+
+    /**
+     * @return a filter only accepting the methods of the number of arguments.
+     */
+    public MethodsPreFilter takesArguments(int arguments) {
+        if (arguments < 0) {
+            throw new IllegalArgumentException("arguments is negative");
+        }
+        return new MethodsPreFilter(names, prefixes, arguments);
+    }
+
+    public Set<String> getNames() {
+        return names;
+    }
+
+    public List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * @return true, if the method of the name is accepted, regardless of its arguments.
+     */
+    public boolean acceptsName(String name) {
+        if (names.contains(name)) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean accepts(MethodDescription method) {
+        return acceptsName(method.getInternalName())
+                && (arguments == ANY_ARGUMENTS || method.getParameters().size() == arguments);
+    }
+
+    /**
+     * @param preFilter the pre-filter of the intercept point, could be null.
+     * @param matcher   the methods matcher of the intercept point.
+     * @return the matcher running the pre-filter first, or the methods matcher if there is no pre-filter.
+     */
+    public static ElementMatcher<MethodDescription> filter(final MethodsPreFilter preFilter,
+                                                           final ElementMatcher<MethodDescription> matcher) {
+        if (preFilter == null) {
+            return matcher;
+        }
+        return new AbstractJunction<MethodDescription>() {
+            @Override
+            public boolean matches(MethodDescription target) {
+                return preFilter.accepts(target) && matcher.matches(target);
+            }
+
+            @Override
+            public String toString() {
+                return preFilter + ".and(" + matcher + ")";
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "MethodsPreFilter{names=" + names + ", prefixes=" + prefixes + ", arguments=" + arguments + '}';
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
 
+import com.fasnote.jvm.aop.agent.core.conf.Config;
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
 import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
@@ -28,22 +29,34 @@ import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoi
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.DeclaredInstanceMethodsInterceptPoint;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.EnhanceException;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.MethodsPreFilter;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.StaticMethodsInterceptPoint;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.InstanceMethodsInterceptV2Point;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.StaticMethodsInterceptV2Point;
 import com.fasnote.jvm.aop.util.StringUtil;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.field.FieldDescription;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.LoadedTypeInitializer;
 import net.bytebuddy.implementation.MethodDelegation;
 import net.bytebuddy.implementation.SuperMethodCall;
 import net.bytebuddy.implementation.bind.annotation.Morph;
 import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.matcher.ElementMatchers;
 
+import java.util.Collections;
+
 import static net.bytebuddy.jar.asm.Opcodes.ACC_PRIVATE;
+import static net.bytebuddy.jar.asm.Opcodes.ACC_STATIC;
+import static net.bytebuddy.jar.asm.Opcodes.ACC_SYNTHETIC;
 import static net.bytebuddy.jar.asm.Opcodes.ACC_VOLATILE;
+import static net.bytebuddy.matcher.ElementMatchers.isAbstract;
+import static net.bytebuddy.matcher.ElementMatchers.isMethod;
+import static net.bytebuddy.matcher.ElementMatchers.isNative;
 import static net.bytebuddy.matcher.ElementMatchers.isStatic;
 import static net.bytebuddy.matcher.ElementMatchers.not;
 
@@ -136,10 +149,24 @@ public abstract class ClassEnhancePluginDefine extends AbstractClassEnhancePlugi
                 if (StringUtil.isEmpty(interceptor)) {
                     throw new EnhanceException("no InstanceMethodsAroundInterceptor define to enhance class " + enhanceOriginClassName);
                 }
-                ElementMatcher.Junction<MethodDescription> junction = not(isStatic()).and(instanceMethodsInterceptPoint.getMethodsMatcher());
+                if (isBootstrapInstrumentation() && instanceMethodsInterceptPoint.getSampler() != null) {
+                    LOGGER.warn("{} intercepts every call of class {}, bootstrap instrumentation doesn't support sampling.", interceptor, enhanceOriginClassName);
+                }
+                ElementMatcher.Junction<MethodDescription> junction = not(isStatic()).and(MethodsPreFilter.filter(instanceMethodsInterceptPoint.getMethodsPreFilter(), instanceMethodsInterceptPoint.getMethodsMatcher()));
                 if (instanceMethodsInterceptPoint instanceof DeclaredInstanceMethodsInterceptPoint) {
                     junction = junction.and(ElementMatchers.<MethodDescription>isDeclaredBy(typeDescription));
                 }
+                if (!isBootstrapInstrumentation() && isInlineAdviceDispatch()) {
+                    ElementMatcher.Junction<MethodDescription> adviceJunction = junction.and(adviceWovenMethods(typeDescription));
+                    newClassBuilder = enhanceInstanceMethodsByAdvice(typeDescription, newClassBuilder, classLoader,
+                            instanceMethodsInterceptPoint, adviceJunction, delegateNamingResolver);
+                    // inherited methods have no code to weave, keep them delegated.
+                    junction = junction.and(not(adviceJunction));
+                }
+                junction = junction.and(context.notFused());
+                if (!context.hasMethodsToDelegate(typeDescription, junction, false)) {
+                    continue;
+                }
                 if (instanceMethodsInterceptPoint.isOverrideArgs()) {
                     if (isBootstrapInstrumentation()) {
                         newClassBuilder = newClassBuilder.method(junction)
@@ -150,7 +177,7 @@ public abstract class ClassEnhancePluginDefine extends AbstractClassEnhancePlugi
                         newClassBuilder = newClassBuilder.method(junction)
                                 .intercept(MethodDelegation.withDefaultConfiguration()
                                         .withBinders(Morph.Binder.install(OverrideCallable.class))
-                                        .to(new InstMethodsInterWithOverrideArgs(interceptor, classLoader), delegateNamingResolver.resolve(instanceMethodsInterceptPoint)));
+                                        .to(new InstMethodsInterWithOverrideArgs(interceptor, classLoader, instanceMethodsInterceptPoint.getSampler()), delegateNamingResolver.resolve(instanceMethodsInterceptPoint)));
                     }
                 } else {
                     if (isBootstrapInstrumentation()) {
@@ -160,7 +187,7 @@ public abstract class ClassEnhancePluginDefine extends AbstractClassEnhancePlugi
                     } else {
                         newClassBuilder = newClassBuilder.method(junction)
                                 .intercept(MethodDelegation.withDefaultConfiguration()
-                                        .to(new InstMethodsInter(interceptor, classLoader), delegateNamingResolver.resolve(instanceMethodsInterceptPoint)));
+                                        .to(new InstMethodsInter(interceptor, classLoader, instanceMethodsInterceptPoint.getSampler()), delegateNamingResolver.resolve(instanceMethodsInterceptPoint)));
                     }
                 }
             }
@@ -169,6 +196,62 @@ public abstract class ClassEnhancePluginDefine extends AbstractClassEnhancePlugi
         return newClassBuilder;
     }
 
+    /**
+     * Weave the interceptor into every matched method declared by the enhanced class. Each method gets its own {@link
+     * InstMethodsAdviceDispatcher} in a static field, which is bound to the advice by {@link
+     * InstMethodsInterAdvice.Dispatcher}.
+     */
+    private DynamicType.Builder<?> enhanceInstanceMethodsByAdvice(TypeDescription typeDescription,
+                                                                  DynamicType.Builder<?> newClassBuilder,
+                                                                  ClassLoader classLoader,
+                                                                  InstanceMethodsInterceptPoint instanceMethodsInterceptPoint,
+                                                                  ElementMatcher.Junction<MethodDescription> adviceJunction,
+                                                                  DelegateNamingResolver delegateNamingResolver) {
+        Class<?> advice = instanceMethodsInterceptPoint.isOverrideArgs()
+                ? InstMethodsInterWithOverrideArgsAdvice.class : InstMethodsInterAdvice.class;
+        for (MethodDescription.InDefinedShape method : typeDescription.getDeclaredMethods().filter(adviceJunction)) {
+            String fieldName = delegateNamingResolver.resolve(instanceMethodsInterceptPoint, method);
+            int modifiers = ACC_PRIVATE | ACC_STATIC | ACC_VOLATILE | ACC_SYNTHETIC;
+            InstMethodsAdviceDispatcher dispatcher = new InstMethodsAdviceDispatcher(
+                    instanceMethodsInterceptPoint.getMethodsInterceptor(), classLoader,
+                    method.getInternalName(), method.getDescriptor(), instanceMethodsInterceptPoint.getSampler());
+            FieldDescription dispatcherField = new FieldDescription.Latent(typeDescription, fieldName, modifiers,
+                    TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(InstMethodsAdviceDispatcher.class),
+                    Collections.<AnnotationDescription>emptyList());
+            newClassBuilder = newClassBuilder.defineField(fieldName, InstMethodsAdviceDispatcher.class, modifiers)
+                    .initializer(new LoadedTypeInitializer.ForStaticField(fieldName, dispatcher))
+                    .visit(Advice.withCustomMapping()
+                            .bind(InstMethodsInterAdvice.Dispatcher.class, dispatcherField)
+                            .to(advice)
+                            .on(ElementMatchers.is(method)));
+        }
+        return newClassBuilder;
+    }
+
+    /**
+     * Whether to weave instance method interceptors inline by byte-buddy's advice, rather than delegating to {@link
+     * InstMethodsInter}. The behaviors of the interceptors are the same. Default is decided by {@link
+     * Config.Agent#INSTANCE_METHODS_INLINE_ADVICE}. Only methods declared by the enhanced class could be woven, the
+     * inherited ones are still delegated. Bootstrap instrumentation doesn't support it.
+     */
+    protected boolean isInlineAdviceDispatch() {
+        return Config.Agent.INSTANCE_METHODS_INLINE_ADVICE;
+    }
+
+    /**
+     * @return true if the given instance method, matched by an intercept point of this plugin, is woven by inline
+     * advice rather than delegated.
+     */
+    public boolean isAdviceWoven(TypeDescription typeDescription, MethodDescription method) {
+        return !isBootstrapInstrumentation() && isInlineAdviceDispatch()
+                && adviceWovenMethods(typeDescription).matches(method);
+    }
+
+    private static ElementMatcher.Junction<MethodDescription> adviceWovenMethods(TypeDescription typeDescription) {
+        return isMethod().and(ElementMatchers.<MethodDescription>isDeclaredBy(typeDescription))
+                .and(not(isAbstract().or(isNative())));
+    }
+
     /**
      * Enhance a class to intercept class static methods.
      *
@@ -178,7 +261,7 @@ public abstract class ClassEnhancePluginDefine extends AbstractClassEnhancePlugi
      */
     @Override
     protected DynamicType.Builder<?> enhanceClass(TypeDescription typeDescription, DynamicType.Builder<?> newClassBuilder,
-                                                  ClassLoader classLoader) throws PluginException {
+                                                  ClassLoader classLoader, EnhanceContext context) throws PluginException {
         StaticMethodsInterceptPoint[] staticMethodsInterceptPoints = getStaticMethodsInterceptPoints();
         String enhanceOriginClassName = typeDescription.getTypeName();
         if (staticMethodsInterceptPoints == null || staticMethodsInterceptPoints.length == 0) {
@@ -191,28 +274,36 @@ public abstract class ClassEnhancePluginDefine extends AbstractClassEnhancePlugi
             if (StringUtil.isEmpty(interceptor)) {
                 throw new EnhanceException("no StaticMethodsAroundInterceptor define to enhance class " + enhanceOriginClassName);
             }
+            if (isBootstrapInstrumentation() && staticMethodsInterceptPoint.getSampler() != null) {
+                LOGGER.warn("{} intercepts every call of class {}, bootstrap instrumentation doesn't support sampling.", interceptor, enhanceOriginClassName);
+            }
+            ElementMatcher.Junction<MethodDescription> junction = isStatic().and(MethodsPreFilter.filter(staticMethodsInterceptPoint.getMethodsPreFilter(), staticMethodsInterceptPoint.getMethodsMatcher()))
+                    .and(context.notFused());
+            if (!context.hasMethodsToDelegate(typeDescription, junction, true)) {
+                continue;
+            }
 
             if (staticMethodsInterceptPoint.isOverrideArgs()) {
                 if (isBootstrapInstrumentation()) {
-                    newClassBuilder = newClassBuilder.method(isStatic().and(staticMethodsInterceptPoint.getMethodsMatcher()))
+                    newClassBuilder = newClassBuilder.method(junction)
                             .intercept(MethodDelegation.withDefaultConfiguration()
                                     .withBinders(Morph.Binder.install(OverrideCallable.class))
                                     .to(BootstrapInstrumentBoost.forInternalDelegateClass(interceptor)));
                 } else {
-                    newClassBuilder = newClassBuilder.method(isStatic().and(staticMethodsInterceptPoint.getMethodsMatcher()))
+                    newClassBuilder = newClassBuilder.method(junction)
                             .intercept(MethodDelegation.withDefaultConfiguration()
                                     .withBinders(Morph.Binder.install(OverrideCallable.class))
-                                    .to(new StaticMethodsInterWithOverrideArgs(interceptor), delegateNamingResolver.resolve(staticMethodsInterceptPoint)));
+                                    .to(new StaticMethodsInterWithOverrideArgs(interceptor, staticMethodsInterceptPoint.getSampler()), delegateNamingResolver.resolve(staticMethodsInterceptPoint)));
                 }
             } else {
                 if (isBootstrapInstrumentation()) {
-                    newClassBuilder = newClassBuilder.method(isStatic().and(staticMethodsInterceptPoint.getMethodsMatcher()))
+                    newClassBuilder = newClassBuilder.method(junction)
                             .intercept(MethodDelegation.withDefaultConfiguration()
                                     .to(BootstrapInstrumentBoost.forInternalDelegateClass(interceptor)));
                 } else {
-                    newClassBuilder = newClassBuilder.method(isStatic().and(staticMethodsInterceptPoint.getMethodsMatcher()))
+                    newClassBuilder = newClassBuilder.method(junction)
                             .intercept(MethodDelegation.withDefaultConfiguration()
-                                    .to(new StaticMethodsInter(interceptor), delegateNamingResolver.resolve(staticMethodsInterceptPoint)));
+                                    .to(new StaticMethodsInter(interceptor, staticMethodsInterceptPoint.getSampler()), delegateNamingResolver.resolve(staticMethodsInterceptPoint)));
                 }
             }
 
@@ -21,7 +21,6 @@ package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
 import com.fasnote.jvm.aop.agent.core.plugin.PluginException;
-import com.fasnote.jvm.aop.agent.core.plugin.loader.InterceptorInstanceLoader;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 import net.bytebuddy.implementation.bind.annotation.This;
@@ -38,17 +37,16 @@ public class ConstructorInter {
      * type will trigger classloader failure. If you want to know more, please check on books about Classloader or
      * Classloader appointment mechanism.
      */
-    private InstanceConstructorInterceptor interceptor;
+    private final InterceptorHolder<InstanceConstructorInterceptor> interceptor;
+
+    private final InterceptorSwitch interceptorSwitch;
 
     /**
      * @param constructorInterceptorClassName class full name.
      */
     public ConstructorInter(String constructorInterceptorClassName, ClassLoader classLoader) throws PluginException {
-        try {
-            interceptor = InterceptorInstanceLoader.load(constructorInterceptorClassName, classLoader);
-        } catch (Throwable t) {
-            throw new PluginException("Can't create InstanceConstructorInterceptorV2.", t);
-        }
+        this.interceptorSwitch = InterceptorSwitch.of(constructorInterceptorClassName);
+        interceptor = InterceptorHolder.load(constructorInterceptorClassName, classLoader);
     }
 
     /**
@@ -59,12 +57,16 @@ public class ConstructorInter {
      */
     @RuntimeType
     public void intercept(@This Object obj, @AllArguments Object[] allArguments) {
+        if (!interceptorSwitch.isEnabled()) {
+            return;
+        }
         try {
             EnhancedInstance targetObject = (EnhancedInstance) obj;
 
-            interceptor.onConstruct(targetObject, allArguments);
+            interceptor.get().onConstruct(targetObject, allArguments);
         } catch (Throwable t) {
             LOGGER.error("ConstructorInter failure.", t);
+            interceptorSwitch.failed();
         }
 
     }
@@ -26,6 +26,9 @@ import com.fasnote.jvm.aop.agent.core.plugin.interceptor.StaticMethodsInterceptP
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.ConstructorInterceptV2Point;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.InstanceMethodsInterceptV2Point;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.StaticMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.StaticMethodsInterceptV3Point;
+import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.utility.RandomString;
 
 import java.util.Objects;
@@ -58,6 +61,14 @@ public class DelegateNamingResolver {
         return fieldNamePrefix + RandomString.hashOf(interceptPoint.computeHashCode());
     }
 
+    /**
+     * Resolve the field name for one method of the intercept point, used when a delegate is created per method, such
+     * as the advice dispatchers and the v3 bridges.
+     */
+    public String resolve(InstanceMethodsInterceptPoint interceptPoint, MethodDescription method) {
+        return resolve(interceptPoint) + methodSuffix(method);
+    }
+
     public String resolve(InstanceMethodsInterceptV2Point interceptPoint) {
         Objects.requireNonNull(interceptPoint, "interceptPoint cannot be null");
         return fieldNamePrefix + RandomString.hashOf(interceptPoint.computeHashCode());
@@ -72,4 +83,26 @@ public class DelegateNamingResolver {
         Objects.requireNonNull(interceptPoint, "interceptPoint cannot be null");
         return fieldNamePrefix + RandomString.hashOf(interceptPoint.computeHashCode());
     }
+
+    public String resolve(InstanceMethodsInterceptV3Point interceptPoint, MethodDescription method) {
+        Objects.requireNonNull(interceptPoint, "interceptPoint cannot be null");
+        return fieldNamePrefix + RandomString.hashOf(interceptPoint.computeHashCode()) + methodSuffix(method);
+    }
+
+    public String resolve(StaticMethodsInterceptV3Point interceptPoint, MethodDescription method) {
+        Objects.requireNonNull(interceptPoint, "interceptPoint cannot be null");
+        return fieldNamePrefix + RandomString.hashOf(interceptPoint.computeHashCode()) + methodSuffix(method);
+    }
+
+    /**
+     * Resolve the field name of the fused interceptor chain of a method, which doesn't belong to any plugin.
+     */
+    public static String resolveChain(String className, MethodDescription method) {
+        return Constants.NAME_TRAIT + PREFIX + RandomString.hashOf(className.hashCode()) + "$chain" + methodSuffix(method);
+    }
+
+    private static String methodSuffix(MethodDescription method) {
+        Objects.requireNonNull(method, "method cannot be null");
+        return "$" + RandomString.hashOf((method.getInternalName() + method.getDescriptor()).hashCode());
+    }
 }
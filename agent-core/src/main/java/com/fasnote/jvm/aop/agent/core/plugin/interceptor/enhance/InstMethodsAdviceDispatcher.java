@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.PluginException;
+import net.bytebuddy.jar.asm.Type;
+
+import java.lang.reflect.Method;
+
+/**
+ * The runtime counterpart of {@link InstMethodsInterAdvice} and {@link InstMethodsInterWithOverrideArgsAdvice}. One
+ * dispatcher is created for every enhanced method, and kept in a static field of the enhanced class, the same way as
+ * the delegate of {@link InstMethodsInter}. The inlined advice code only calls this class, so it keeps the generated
+ * code small, and every interceptor failure is caught here.
+ */
+public class InstMethodsAdviceDispatcher {
+    private static final ILog LOGGER = LogManager.getLogger(InstMethodsAdviceDispatcher.class);
+
+    /**
+     * An {@link InstanceMethodsAroundInterceptor} This name should only stay in {@link String}, the real {@link Class}
+     * type will trigger classloader failure. If you want to know more, please check on books about Classloader or
+     * Classloader appointment mechanism.
+     */
+    private final InterceptorHolder<InstanceMethodsAroundInterceptor> interceptor;
+
+    private final InterceptorSwitch interceptorSwitch;
+
+    /**
+     * Null, if every call is intercepted.
+     */
+    private final Sampler sampler;
+
+    private final String methodName;
+
+    private final String methodDescriptor;
+
+    /**
+     * The enhanced method, resolved at the first invocation. Advice can't bind {@link Method} without a reflective
+     * lookup on every call.
+     */
+    private volatile Method method;
+
+    /**
+     * Parameter types of {@link #method}, written before the method is published.
+     */
+    private Class<?>[] argumentsTypes;
+
+    /**
+     * @param instanceMethodsAroundInterceptorClassName class full name.
+     * @param methodName       name of the enhanced method.
+     * @param methodDescriptor JVM descriptor of the enhanced method.
+     * @param sampler          the sampler of the intercept point, null to intercept every call.
+     */
+    public InstMethodsAdviceDispatcher(String instanceMethodsAroundInterceptorClassName, ClassLoader classLoader,
+                                       String methodName, String methodDescriptor, Sampler sampler) {
+        this.sampler = sampler;
+        this.interceptorSwitch = InterceptorSwitch.of(instanceMethodsAroundInterceptorClassName);
+        interceptor = InterceptorHolder.load(instanceMethodsAroundInterceptorClassName, classLoader);
+        this.methodName = methodName;
+        this.methodDescriptor = methodDescriptor;
+    }
+
+    /**
+     * Called once for every invocation, before {@link #beforeMethod}.
+     *
+     * @return false, if the interceptor is switched off or the invocation is not sampled, and the advice should skip
+     * both beforeMethod and afterMethod.
+     */
+    public boolean shouldIntercept() {
+        return interceptorSwitch.isEnabled() && (sampler == null || sampler.isSampled());
+    }
+
+    /**
+     * Call {@link InstanceMethodsAroundInterceptor#beforeMethod}.
+     *
+     * @param obj          target class instance.
+     * @param clazz        the enhanced class, which declares the method.
+     * @param allArguments all method arguments
+     * @return the result, if the interceptor requires to skip the origin method. Otherwise, null.
+     */
+    public MethodInterceptResult beforeMethod(Object obj, Class<?> clazz, Object[] allArguments) {
+        Method method = resolveMethod(clazz);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInterceptResult result = contexts.acquire();
+        try {
+            interceptor.get().beforeMethod((EnhancedInstance) obj, method, allArguments, argumentsTypes, result);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] before method[{}] intercept failure", obj.getClass(), methodName);
+            interceptorSwitch.failed();
+        }
+        MethodInterceptResult skipped = null;
+        if (!result.isContinue()) {
+            // the pooled result can't be carried to the exit advice, it is rarely required
+            skipped = new MethodInterceptResult();
+            skipped.defineReturnValue(result._ret());
+        }
+        contexts.release(result);
+        return skipped;
+    }
+
+    /**
+     * Call {@link InstanceMethodsAroundInterceptor#handleMethodException} if the origin method threw, then {@link
+     * InstanceMethodsAroundInterceptor#afterMethod}.
+     *
+     * @param skipped the result returned by {@link #beforeMethod}, null if the origin method has been invoked.
+     * @param ret     the return value of the origin method.
+     * @param thrown  the exception thrown by the origin method, or null.
+     * @return the method's actual return value. Ignored by the advice if the origin method threw.
+     */
+    public Object afterMethod(Object obj, Class<?> clazz, Object[] allArguments, MethodInterceptResult skipped,
+                              Object ret, Throwable thrown) {
+        Method method = resolveMethod(clazz);
+        if (skipped != null) {
+            ret = skipped._ret();
+        }
+        if (thrown != null) {
+            ret = null;
+            try {
+                interceptor.get().handleMethodException((EnhancedInstance) obj, method, allArguments, argumentsTypes, thrown);
+            } catch (Throwable t) {
+                LOGGER.error(t, "class[{}] handle method[{}] exception failure", obj.getClass(), methodName);
+                interceptorSwitch.failed();
+            }
+        }
+        try {
+            ret = interceptor.get().afterMethod((EnhancedInstance) obj, method, allArguments, argumentsTypes, ret);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] after method[{}] intercept failure", obj.getClass(), methodName);
+            interceptorSwitch.failed();
+        }
+        return ret;
+    }
+
+    private Method resolveMethod(Class<?> clazz) {
+        Method resolved = method;
+        if (resolved == null) {
+            for (Method declaredMethod : clazz.getDeclaredMethods()) {
+                if (declaredMethod.getName().equals(methodName)
+                        && Type.getMethodDescriptor(declaredMethod).equals(methodDescriptor)) {
+                    resolved = declaredMethod;
+                    break;
+                }
+            }
+            if (resolved == null) {
+                throw new PluginException("Can't find method " + methodName + methodDescriptor + " in " + clazz.getName());
+            }
+            argumentsTypes = resolved.getParameterTypes();
+            method = resolved;
+        }
+        return resolved;
+    }
+}
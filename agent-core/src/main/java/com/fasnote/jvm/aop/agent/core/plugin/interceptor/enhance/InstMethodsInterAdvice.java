@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The byte-buddy's advice which is woven into the enhanced instance method, as the inline alternative of {@link
+ * InstMethodsInter}. No auxiliary callable is generated, and the origin method runs in its own frame.
+ * <p>
+ * The advice code is copied into the target class, so it only calls the {@link InstMethodsAdviceDispatcher} bound by
+ * {@link Dispatcher}.
+ */
+public class InstMethodsInterAdvice {
+
+    /**
+     * Bind the {@link InstMethodsAdviceDispatcher} of the enhanced method, which is kept in a static field of the
+     * enhanced class.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface Dispatcher {
+    }
+
+    /**
+     * @return not null, if the interceptor defines the return value, and the origin method should be skipped.
+     */
+    @Advice.OnMethodEnter(skipOn = Advice.OnNonDefaultValue.class, suppress = Throwable.class)
+    public static MethodInterceptResult enter(@Dispatcher InstMethodsAdviceDispatcher dispatcher,
+                                              @Advice.This Object obj,
+                                              @Advice.Origin Class<?> clazz,
+                                              @Advice.AllArguments Object[] allArguments,
+                                              @Advice.Local("allArguments") Object[] arguments) {
+        if (dispatcher == null || !dispatcher.shouldIntercept()) {
+            // the exit advice skips the interceptor as well, as the arguments are not kept
+            return null;
+        }
+        arguments = allArguments;
+        return dispatcher.beforeMethod(obj, clazz, arguments);
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
+    public static void exit(@Dispatcher InstMethodsAdviceDispatcher dispatcher,
+                            @Advice.This Object obj,
+                            @Advice.Origin Class<?> clazz,
+                            @Advice.Local("allArguments") Object[] arguments,
+                            @Advice.Enter MethodInterceptResult skipped,
+                            @Advice.Return(readOnly = false, typing = Assigner.Typing.DYNAMIC) Object ret,
+                            @Advice.Thrown Throwable thrown) {
+        if (dispatcher != null && arguments != null) {
+            ret = dispatcher.afterMethod(obj, clazz, arguments, skipped, ret, thrown);
+        }
+    }
+}
@@ -20,8 +20,7 @@ package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
 
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
-import com.fasnote.jvm.aop.agent.core.plugin.PluginException;
-import com.fasnote.jvm.aop.agent.core.plugin.loader.InterceptorInstanceLoader;
+import com.fasnote.jvm.aop.agent.core.meter.InterceptorMeter;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Morph;
 import net.bytebuddy.implementation.bind.annotation.Origin;
@@ -42,17 +41,38 @@ public class InstMethodsInterWithOverrideArgs {
      * type will trigger classloader failure. If you want to know more, please check on books about Classloader or
      * Classloader appointment mechanism.
      */
-    private InstanceMethodsAroundInterceptor interceptor;
+    private final InterceptorHolder<InstanceMethodsAroundInterceptor> interceptor;
+
+    private final InterceptorSwitch interceptorSwitch;
+
+    /**
+     * Null, if the time is not recorded.
+     */
+    private final InterceptorMeter meter;
+
+    /**
+     * Null, if every call is intercepted.
+     */
+    private final Sampler sampler;
+
+    private final ParameterTypesCache parameterTypes = new ParameterTypesCache();
 
     /**
      * @param instanceMethodsAroundInterceptorClassName class full name.
      */
     public InstMethodsInterWithOverrideArgs(String instanceMethodsAroundInterceptorClassName, ClassLoader classLoader) {
-        try {
-            interceptor = InterceptorInstanceLoader.load(instanceMethodsAroundInterceptorClassName, classLoader);
-        } catch (Throwable t) {
-            throw new PluginException("Can't create InstanceMethodsAroundInterceptor.", t);
-        }
+        this(instanceMethodsAroundInterceptorClassName, classLoader, null);
+    }
+
+    /**
+     * @param instanceMethodsAroundInterceptorClassName class full name.
+     * @param sampler the sampler of the intercept point, null to intercept every call.
+     */
+    public InstMethodsInterWithOverrideArgs(String instanceMethodsAroundInterceptorClassName, ClassLoader classLoader, Sampler sampler) {
+        this.sampler = sampler;
+        this.interceptorSwitch = InterceptorSwitch.of(instanceMethodsAroundInterceptorClassName);
+        this.meter = InterceptorMeter.of(instanceMethodsAroundInterceptorClassName);
+        interceptor = InterceptorHolder.load(instanceMethodsAroundInterceptorClassName, classLoader);
     }
 
     /**
@@ -69,13 +89,25 @@ public class InstMethodsInterWithOverrideArgs {
     @RuntimeType
     public Object intercept(@This Object obj, @AllArguments Object[] allArguments, @Origin Method method,
                             @Morph OverrideCallable zuper) throws Throwable {
+        if (!interceptorSwitch.isEnabled() || sampler != null && !sampler.isSampled()) {
+            return zuper.call(allArguments);
+        }
         EnhancedInstance targetObject = (EnhancedInstance) obj;
+        InstanceMethodsAroundInterceptor interceptor = this.interceptor.get();
 
-        MethodInterceptResult result = new MethodInterceptResult();
+        Class<?>[] argumentsTypes = parameterTypes.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInterceptResult result = contexts.acquire();
+        InterceptorMeter meter = this.meter;
+        long time = meter != null ? System.nanoTime() : 0L;
         try {
-            interceptor.beforeMethod(targetObject, method, allArguments, method.getParameterTypes(), result);
+            interceptor.beforeMethod(targetObject, method, allArguments, argumentsTypes, result);
         } catch (Throwable t) {
             LOGGER.error(t, "class[{}] before method[{}] intercept failure", obj.getClass(), method.getName());
+            interceptorSwitch.failed();
+        }
+        if (meter != null) {
+            time = meter.beforeMethodDone(time);
         }
 
         Object ret = null;
@@ -85,19 +117,31 @@ public class InstMethodsInterWithOverrideArgs {
             } else {
                 ret = zuper.call(allArguments);
             }
+            if (meter != null) {
+                time = meter.originDone(time);
+            }
         } catch (Throwable t) {
+            if (meter != null) {
+                time = meter.originDone(time);
+            }
             try {
-                interceptor.handleMethodException(targetObject, method, allArguments, method.getParameterTypes(), t);
+                interceptor.handleMethodException(targetObject, method, allArguments, argumentsTypes, t);
             } catch (Throwable t2) {
                 LOGGER.error(t2, "class[{}] handle method[{}] exception failure", obj.getClass(), method.getName());
+                interceptorSwitch.failed();
             }
             throw t;
         } finally {
             try {
-                ret = interceptor.afterMethod(targetObject, method, allArguments, method.getParameterTypes(), ret);
+                ret = interceptor.afterMethod(targetObject, method, allArguments, argumentsTypes, ret);
             } catch (Throwable t) {
                 LOGGER.error(t, "class[{}] after method[{}] intercept failure", obj.getClass(), method.getName());
+                interceptorSwitch.failed();
+            }
+            if (meter != null) {
+                meter.afterMethodDone(time);
             }
+            contexts.release(result);
         }
         return ret;
     }
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+/**
+ * The inline alternative of {@link InstMethodsInterWithOverrideArgs}. The arguments changed by the interceptor in
+ * {@link InstanceMethodsAroundInterceptor#beforeMethod} are written back to the parameters of the origin method.
+ */
+public class InstMethodsInterWithOverrideArgsAdvice {
+
+    /**
+     * @return not null, if the interceptor defines the return value, and the origin method should be skipped.
+     */
+    @Advice.OnMethodEnter(skipOn = Advice.OnNonDefaultValue.class, suppress = Throwable.class)
+    public static MethodInterceptResult enter(@InstMethodsInterAdvice.Dispatcher InstMethodsAdviceDispatcher dispatcher,
+                                              @Advice.This Object obj,
+                                              @Advice.Origin Class<?> clazz,
+                                              @Advice.AllArguments(readOnly = false, typing = Assigner.Typing.DYNAMIC) Object[] allArguments,
+                                              @Advice.Local("allArguments") Object[] arguments) {
+        if (dispatcher == null || !dispatcher.shouldIntercept()) {
+            // the exit advice skips the interceptor as well, as the arguments are not kept
+            return null;
+        }
+        arguments = allArguments;
+        MethodInterceptResult result = dispatcher.beforeMethod(obj, clazz, arguments);
+        // write the arguments back, as OverrideCallable#call(Object[]) does
+        allArguments = arguments;
+        return result;
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
+    public static void exit(@InstMethodsInterAdvice.Dispatcher InstMethodsAdviceDispatcher dispatcher,
+                            @Advice.This Object obj,
+                            @Advice.Origin Class<?> clazz,
+                            @Advice.Local("allArguments") Object[] arguments,
+                            @Advice.Enter MethodInterceptResult skipped,
+                            @Advice.Return(readOnly = false, typing = Assigner.Typing.DYNAMIC) Object ret,
+                            @Advice.Thrown Throwable thrown) {
+        if (dispatcher != null && arguments != null) {
+            ret = dispatcher.afterMethod(obj, clazz, arguments, skipped, ret, thrown);
+        }
+    }
+}
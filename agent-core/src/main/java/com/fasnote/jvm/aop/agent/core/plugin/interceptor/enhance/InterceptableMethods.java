@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.scaffold.MethodGraph;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enumerate the methods, which could be intercepted in the enhanced class, for the enhancements which work on every
+ * single method rather than a method matcher.
+ */
+public final class InterceptableMethods {
+
+    private InterceptableMethods() {
+    }
+
+    /**
+     * @return the declared instance methods, and the inherited ones which could be overridden.
+     */
+    public static List<MethodDescription> instanceMethodsOf(TypeDescription typeDescription) {
+        Map<MethodDescription.SignatureToken, MethodDescription> methods = new LinkedHashMap<>();
+        for (MethodDescription method : typeDescription.getDeclaredMethods().filter(ElementMatchers.isMethod())) {
+            if (!method.isStatic()) {
+                methods.put(method.asSignatureToken(), method);
+            }
+        }
+        for (MethodGraph.Node node : MethodGraph.Compiler.DEFAULT.compile((TypeDefinition) typeDescription, typeDescription).listNodes()) {
+            MethodDescription method = node.getRepresentative();
+            if (node.getSort().isResolved() && method.isMethod() && !method.isFinal()
+                    && method.isVisibleTo(typeDescription)) {
+                methods.putIfAbsent(method.asSignatureToken(), method);
+            }
+        }
+        return new ArrayList<>(methods.values());
+    }
+
+    /**
+     * @return the declared static methods.
+     */
+    public static List<MethodDescription> staticMethodsOf(TypeDescription typeDescription) {
+        return new ArrayList<MethodDescription>(typeDescription.getDeclaredMethods()
+                .filter(ElementMatchers.isMethod().and(ElementMatchers.isStatic())));
+    }
+}
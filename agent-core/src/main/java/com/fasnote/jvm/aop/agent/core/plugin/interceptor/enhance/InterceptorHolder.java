@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import com.fasnote.jvm.aop.agent.core.plugin.PluginException;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.AgentClassLoader;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.InterceptorInstanceLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The interceptor instance of a bridge. The enhanced classes keep their bridges as long as they live, also after the
+ * agent is detached, so the bridges don't refer to the interceptors directly. {@link #releaseAll()} drops the
+ * interceptors of all the bridges when the agent is detached, then nothing in the enhanced classes keeps the
+ * interceptor classes and their {@link AgentClassLoader}s. A released holder loads the interceptor again at its next
+ * use, which only happens once the agent is launched again and the interceptor is switched on.
+ */
+public final class InterceptorHolder<T> {
+    /**
+     * All the holders, kept weakly, so they go along with their bridges.
+     */
+    private static final Set<InterceptorHolder<?>> HOLDERS = Collections.newSetFromMap(new WeakHashMap<InterceptorHolder<?>, Boolean>());
+
+    private final String interceptorClassName;
+
+    /**
+     * The class loader of the enhanced class, null if it is only known at the invocation.
+     */
+    private final ClassLoader classLoader;
+
+    private volatile T interceptor;
+
+    /**
+     * @param interceptorClassName the class full name of the interceptor, loaded at the first {@link
+     *                             #get(ClassLoader)}.
+     */
+    public InterceptorHolder(String interceptorClassName) {
+        this(interceptorClassName, null);
+    }
+
+    private InterceptorHolder(String interceptorClassName, ClassLoader classLoader) {
+        this.interceptorClassName = interceptorClassName;
+        this.classLoader = classLoader;
+        synchronized (HOLDERS) {
+            HOLDERS.add(this);
+        }
+    }
+
+    /**
+     * Load the interceptor straight away, so a missing interceptor fails the enhancement.
+     *
+     * @param interceptorClassName the class full name of the interceptor.
+     * @param classLoader          the class loader of the enhanced class.
+     */
+    public static <T> InterceptorHolder<T> load(String interceptorClassName, ClassLoader classLoader) throws PluginException {
+        InterceptorHolder<T> holder = new InterceptorHolder<T>(interceptorClassName, classLoader);
+        holder.get();
+        return holder;
+    }
+
+    /**
+     * @return the interceptor, loaded by the class loader given at {@link #load(String, ClassLoader)}.
+     */
+    public T get() throws PluginException {
+        return get(classLoader);
+    }
+
+    /**
+     * @param classLoader the class loader of the enhanced class, only used if the interceptor isn't loaded yet, or it
+     *                    has been released.
+     * @return the interceptor.
+     */
+    public T get(ClassLoader classLoader) throws PluginException {
+        T current = interceptor;
+        if (current == null) {
+            try {
+                current = InterceptorInstanceLoader.load(interceptorClassName, classLoader);
+            } catch (Throwable t) {
+                throw new PluginException("Can't create interceptor " + interceptorClassName + ".", t);
+            }
+            interceptor = current;
+        }
+        return current;
+    }
+
+    public String getInterceptorClassName() {
+        return interceptorClassName;
+    }
+
+    /**
+     * @return true, if the interceptor is not loaded, or has been released.
+     */
+    public boolean isReleased() {
+        return interceptor == null;
+    }
+
+    /**
+     * Drop the interceptors of all the bridges. The invocations already in an interceptor finish with it.
+     *
+     * @return the number of the holders released.
+     */
+    public static int releaseAll() {
+        List<InterceptorHolder<?>> holders;
+        synchronized (HOLDERS) {
+            holders = new ArrayList<InterceptorHolder<?>>(HOLDERS);
+        }
+        int released = 0;
+        for (InterceptorHolder<?> holder : holders) {
+            if (holder.interceptor != null) {
+                holder.interceptor = null;
+                released++;
+            }
+        }
+        return released;
+    }
+}
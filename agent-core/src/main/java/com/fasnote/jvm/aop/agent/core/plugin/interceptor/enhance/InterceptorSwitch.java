@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * The runtime on/off switch of an interceptor. Every bridge holds the switch of its interceptor, and checks it once
+ * per invocation. A disabled interceptor is not called at all, the bridge calls the origin method straight away, so the
+ * cost is one read of a field which is almost never written, and a well predicted branch.
+ * <p>
+ * There is one switch for every interceptor class name, shared by all the enhanced methods and classes using the
+ * interceptor. Switches are enabled when created.
+ * <p>
+ * The switch is also a circuit breaker. The bridges report every failure of the interceptor by {@link #failed()}. When
+ * the interceptor fails too many times in a short window, the circuit opens: the interceptor is bypassed as if it is
+ * switched off, and one summary is reported instead of the error log of every call. After a while, the calls go to the
+ * interceptor again, and one more failure in the window opens the circuit again.
+ * <p>
+ * This class is injected into the bootstrap class loader along with the templates, so it must not depend on anything
+ * other than JDK and the other injected classes.
+ */
+public final class InterceptorSwitch {
+    private static final ConcurrentMap<String, InterceptorSwitch> SWITCHES = new ConcurrentHashMap<String, InterceptorSwitch>();
+
+    private static final AtomicLongFieldUpdater<InterceptorSwitch> OPEN_UNTIL = AtomicLongFieldUpdater.newUpdater(InterceptorSwitch.class, "openUntil");
+
+    /**
+     * The failures in a window to open the circuit, 0 or negative means the circuit never opens.
+     */
+    private static volatile int FAILURE_THRESHOLD = 10;
+
+    private static volatile long FAILURE_WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+    private static volatile long OPEN_DURATION = TimeUnit.SECONDS.toNanos(60);
+
+    private static volatile Consumer<String> TRIP_LISTENER;
+
+    /**
+     * The time source of the circuit breaker in nanoseconds, replaced by the tests.
+     */
+    static volatile LongSupplier CLOCK = System::nanoTime;
+
+    private final String interceptorClassName;
+
+    private volatile boolean enabled = true;
+
+    /**
+     * The {@link #CLOCK} time when the open circuit lets the calls go again, 0 if the circuit is closed.
+     */
+    private volatile long openUntil;
+
+    private volatile long windowStart = CLOCK.getAsLong();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicInteger trips = new AtomicInteger();
+
+    private InterceptorSwitch(String interceptorClassName) {
+        this.interceptorClassName = interceptorClassName;
+    }
+
+    /**
+     * @param interceptorClassName the class full name of the interceptor.
+     * @return the switch of the interceptor, created if absent.
+     */
+    public static InterceptorSwitch of(String interceptorClassName) {
+        InterceptorSwitch interceptorSwitch = SWITCHES.get(interceptorClassName);
+        if (interceptorSwitch == null) {
+            interceptorSwitch = new InterceptorSwitch(interceptorClassName);
+            InterceptorSwitch previous = SWITCHES.putIfAbsent(interceptorClassName, interceptorSwitch);
+            if (previous != null) {
+                interceptorSwitch = previous;
+            }
+        }
+        return interceptorSwitch;
+    }
+
+    /**
+     * @param failureThreshold the failures in a window to open the circuit, 0 never opens it.
+     * @param windowMillis     the length of the window counting the failures.
+     * @param openMillis       how long the interceptor is bypassed, once the circuit opens.
+     */
+    public static void setCircuitBreaker(int failureThreshold, long windowMillis, long openMillis) {
+        FAILURE_THRESHOLD = failureThreshold;
+        FAILURE_WINDOW = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        OPEN_DURATION = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * @param listener called with a summary, when a circuit opens.
+     */
+    public static void setTripListener(Consumer<String> listener) {
+        TRIP_LISTENER = listener;
+    }
+
+    /**
+     * @return the states of all the known switches, keyed by the interceptor class name.
+     */
+    public static Map<String, Boolean> states() {
+        Map<String, Boolean> states = new TreeMap<String, Boolean>();
+        for (InterceptorSwitch interceptorSwitch : SWITCHES.values()) {
+            states.put(interceptorSwitch.interceptorClassName, interceptorSwitch.enabled && !interceptorSwitch.isOpen());
+        }
+        return states;
+    }
+
+    public String getInterceptorClassName() {
+        return interceptorClassName;
+    }
+
+    /**
+     * Called once for every invocation, before the interceptor.
+     *
+     * @return false, if the interceptor is switched off, or its circuit is open.
+     */
+    public boolean isEnabled() {
+        return enabled && (openUntil == 0L || halfOpen());
+    }
+
+    /**
+     * @return true, if the circuit is open, and the calls bypass the interceptor for now.
+     */
+    public boolean isOpen() {
+        long until = openUntil;
+        return until != 0L && CLOCK.getAsLong() - until < 0;
+    }
+
+    /**
+     * @return how many times the circuit opened.
+     */
+    public int getTrips() {
+        return trips.get();
+    }
+
+    /**
+     * Report a failure of the interceptor, such as beforeMethod throwing an exception.
+     */
+    public void failed() {
+        int threshold = FAILURE_THRESHOLD;
+        if (threshold <= 0) {
+            return;
+        }
+        long now = CLOCK.getAsLong();
+        if (now - windowStart > FAILURE_WINDOW) {
+            // a racy reset only loses the failures counted at the same moment
+            windowStart = now;
+            failures.set(0);
+        }
+        if (failures.incrementAndGet() < threshold || openUntil != 0L) {
+            return;
+        }
+        long until = now + OPEN_DURATION;
+        if (OPEN_UNTIL.compareAndSet(this, 0L, until == 0L ? 1L : until)) {
+            int failed = failures.getAndSet(0);
+            trips.incrementAndGet();
+            Consumer<String> listener = TRIP_LISTENER;
+            if (listener != null) {
+                listener.accept("Interceptor " + interceptorClassName + " failed " + failed + " times in "
+                        + TimeUnit.NANOSECONDS.toMillis(FAILURE_WINDOW) + "ms, bypass it for "
+                        + TimeUnit.NANOSECONDS.toMillis(OPEN_DURATION) + "ms.");
+            }
+        }
+    }
+
+    /**
+     * Close the circuit if it has been open long enough. Only one more failure in the window opens it again.
+     */
+    private boolean halfOpen() {
+        long until = openUntil;
+        if (until == 0L) {
+            return true;
+        }
+        long now = CLOCK.getAsLong();
+        if (now - until < 0) {
+            return false;
+        }
+        if (OPEN_UNTIL.compareAndSet(this, until, 0L)) {
+            windowStart = now;
+            failures.set(Math.max(0, FAILURE_THRESHOLD - 1));
+        }
+        return true;
+    }
+
+    /**
+     * Invocations already in the interceptor are not affected, they finish with the interceptor. It also closes the
+     * circuit.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        openUntil = 0L;
+        failures.set(0);
+    }
+}
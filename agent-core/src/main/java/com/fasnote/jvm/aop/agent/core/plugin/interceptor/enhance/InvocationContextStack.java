@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+
+import java.util.Arrays;
+
+/**
+ * A per-thread stack of reusable {@link MethodInvocationContext}s. The bridges of V1 and V2 interceptors take the
+ * context from here, rather than allocating a new {@link MethodInterceptResult} or {@link MethodInvocationContext} for
+ * every call. A nested interception, such as an intercepted method called by the interceptor or by the origin method,
+ * takes the next slot of the stack, so one context is never shared by two invocations in flight.
+ * <p>
+ * The context is only valid during the invocation. Interceptors must not keep it after afterMethod or
+ * handleMethodException, as it is reset and handed to the next invocation of the same thread.
+ * <p>
+ * This class is injected into the bootstrap class loader along with the templates, so it must not depend on anything
+ * other than JDK and the other injected classes.
+ */
+public final class InvocationContextStack {
+    private static final ThreadLocal<InvocationContextStack> STACKS = new ThreadLocal<InvocationContextStack>();
+
+    private static final int INITIAL_DEPTH = 8;
+
+    /**
+     * Beyond this depth, the contexts are not pooled anymore. It only happens on deep recursion of intercepted methods,
+     * or when a bridge fails to release its context.
+     */
+    private static final int MAX_DEPTH = 256;
+
+    private static volatile boolean REUSABLE = true;
+
+    private MethodInvocationContext[] contexts = new MethodInvocationContext[INITIAL_DEPTH];
+
+    private int depth;
+
+    private InvocationContextStack() {
+    }
+
+    /**
+     * @return the stack of the current thread.
+     */
+    public static InvocationContextStack current() {
+        InvocationContextStack stack = STACKS.get();
+        if (stack == null) {
+            stack = new InvocationContextStack();
+            STACKS.set(stack);
+        }
+        return stack;
+    }
+
+    /**
+     * @param reusable false, every {@link #acquire()} allocates a new context, as the bridges did before.
+     */
+    public static void setReusable(boolean reusable) {
+        REUSABLE = reusable;
+    }
+
+    /**
+     * @return a clean context for a new invocation. It must be passed to {@link #release(MethodInterceptResult)} in
+     * the same thread when the invocation finishes.
+     */
+    public MethodInvocationContext acquire() {
+        int depth = this.depth;
+        if (!REUSABLE || depth >= MAX_DEPTH) {
+            return new MethodInvocationContext();
+        }
+        MethodInvocationContext[] contexts = this.contexts;
+        if (depth == contexts.length) {
+            contexts = Arrays.copyOf(contexts, depth * 2);
+            this.contexts = contexts;
+        }
+        MethodInvocationContext context = contexts[depth];
+        if (context == null) {
+            context = new MethodInvocationContext();
+            contexts[depth] = context;
+        }
+        this.depth = depth + 1;
+        return context;
+    }
+
+    /**
+     * Acquire one context for every interceptor of a fused chain. The contexts are pushed on the stack together, and
+     * must be given back by {@link #releaseAll(int)}.
+     *
+     * @param count the number of the interceptors.
+     * @return the index of the first context, see {@link #get(int)}.
+     */
+    public int acquireAll(int count) {
+        int base = this.depth;
+        MethodInvocationContext[] contexts = this.contexts;
+        if (base + count > contexts.length) {
+            contexts = Arrays.copyOf(contexts, Math.max(contexts.length * 2, base + count));
+            this.contexts = contexts;
+        }
+        for (int i = base; i < base + count; i++) {
+            if (!REUSABLE || contexts[i] == null) {
+                contexts[i] = new MethodInvocationContext();
+            }
+        }
+        this.depth = base + count;
+        return base;
+    }
+
+    /**
+     * @param index the index of the context, from {@link #acquireAll(int)}.
+     */
+    public MethodInvocationContext get(int index) {
+        return contexts[index];
+    }
+
+    /**
+     * Give back the contexts acquired by {@link #acquireAll(int)}.
+     *
+     * @param base the index returned by {@link #acquireAll(int)}.
+     */
+    public void releaseAll(int base) {
+        MethodInvocationContext[] contexts = this.contexts;
+        for (int i = this.depth - 1; i >= base; i--) {
+            if (REUSABLE) {
+                ((MethodInterceptResult) contexts[i]).reset();
+            } else {
+                contexts[i] = null;
+            }
+        }
+        this.depth = base;
+    }
+
+    /**
+     * Give the context back, and drop the references it holds. A context which is not on the top of the stack, such as
+     * the unpooled ones, is ignored.
+     */
+    public void release(MethodInterceptResult context) {
+        int depth = this.depth;
+        if (depth > 0 && contexts[depth - 1] == context) {
+            context.reset();
+            this.depth = depth - 1;
+        }
+    }
+}
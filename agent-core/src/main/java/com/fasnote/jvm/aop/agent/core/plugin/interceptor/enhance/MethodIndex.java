@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.MethodsPreFilter;
+import net.bytebuddy.description.method.MethodDescription;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The methods of an enhanced class, indexed by their names, such as the ones of {@link InterceptableMethods}. It is
+ * built once for the class, then the methods accepted by the {@link MethodsPreFilter} of every intercept point are
+ * looked up by the names, rather than running the methods matcher of the intercept point on every method.
+ */
+public final class MethodIndex {
+    private final List<MethodDescription> methods;
+
+    private final Map<String, List<Integer>> positions = new HashMap<>();
+
+    public MethodIndex(List<MethodDescription> methods) {
+        this.methods = methods;
+        for (int i = 0; i < methods.size(); i++) {
+            positions.computeIfAbsent(methods.get(i).getInternalName(), name -> new ArrayList<>(1)).add(i);
+        }
+    }
+
+    public List<MethodDescription> getMethods() {
+        return methods;
+    }
+
+    /**
+     * @param preFilter the pre-filter of the intercept point, could be null.
+     * @return the methods accepted by the pre-filter, all the methods if it is null, in their order.
+     */
+    public List<MethodDescription> candidates(MethodsPreFilter preFilter) {
+        if (preFilter == null) {
+            return methods;
+        }
+        BitSet candidates = new BitSet(methods.size());
+        if (preFilter.getPrefixes().isEmpty() && preFilter.getNames().size() < positions.size()) {
+            for (String name : preFilter.getNames()) {
+                addAll(candidates, positions.get(name));
+            }
+        } else {
+            for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+                if (preFilter.acceptsName(entry.getKey())) {
+                    addAll(candidates, entry.getValue());
+                }
+            }
+        }
+        List<MethodDescription> result = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            MethodDescription method = methods.get(i);
+            if (preFilter.accepts(method)) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    private static void addAll(BitSet candidates, List<Integer> ids) {
+        if (ids != null) {
+            for (int id : ids) {
+                candidates.set(id);
+            }
+        }
+    }
+}
@@ -56,4 +56,13 @@ public class MethodInterceptResult {
     public Object _ret() {
         return ret;
     }
+
+    /**
+     * Restore the initial state, so the result could be reused by another invocation. See {@link
+     * InvocationContextStack}.
+     */
+    protected void reset() {
+        this.isContinue = true;
+        this.ret = null;
+    }
 }
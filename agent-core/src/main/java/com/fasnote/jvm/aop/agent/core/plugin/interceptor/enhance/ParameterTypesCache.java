@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Method#getParameterTypes()} clones the array on every call. The bridges keep one cache each, as a bridge only
+ * serves the methods of one enhanced class, the cached methods go away along with the class.
+ * <p>
+ * The arrays are shared by all invocations, interceptors must treat the argumentsTypes as read only.
+ */
+public final class ParameterTypesCache {
+    private final ConcurrentHashMap<Method, Class<?>[]> parameterTypes = new ConcurrentHashMap<Method, Class<?>[]>(4);
+
+    public Class<?>[] of(Method method) {
+        Class<?>[] types = parameterTypes.get(method);
+        if (types == null) {
+            types = method.getParameterTypes();
+            Class<?>[] previous = parameterTypes.putIfAbsent(method, types);
+            if (previous != null) {
+                types = previous;
+            }
+        }
+        return types;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decide whether an invocation is sampled, for the interceptors which don't need to see every call. The interceptor is
+ * not called at all for an invocation which is not sampled, neither beforeMethod nor afterMethod, and the bridge calls
+ * the origin method straight away.
+ * <p>
+ * Every thread keeps its own state, so sampling takes no lock and writes nothing shared. The rate is applied per
+ * thread, and a sampler is shared by all the methods of its intercept point.
+ */
+public abstract class Sampler {
+
+    /**
+     * @param n sample one call in every n calls of a thread. The first call of a thread is sampled.
+     */
+    public static Sampler oneIn(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("The sampling interval should be positive, but " + n);
+        }
+        return new OneIn(n);
+    }
+
+    /**
+     * @param limit sample at most limit calls of a thread in every second.
+     */
+    public static Sampler perSecond(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The sampling limit per second should be positive, but " + limit);
+        }
+        return new PerSecond(limit);
+    }
+
+    /**
+     * Called once for every invocation, in the invoking thread.
+     *
+     * @return true, if the interceptor should intercept this invocation.
+     */
+    public abstract boolean isSampled();
+
+    private static class OneIn extends Sampler {
+        private final int n;
+
+        /**
+         * The calls to skip before the next sampled one.
+         */
+        private final ThreadLocal<int[]> countdown = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[1];
+            }
+        };
+
+        OneIn(int n) {
+            this.n = n;
+        }
+
+        @Override
+        public boolean isSampled() {
+            int[] remaining = countdown.get();
+            if (remaining[0] > 0) {
+                remaining[0]--;
+                return false;
+            }
+            remaining[0] = n - 1;
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "1/" + n;
+        }
+    }
+
+    private static class PerSecond extends Sampler {
+        private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+        private final int limit;
+
+        private final ThreadLocal<Window> windows = new ThreadLocal<Window>() {
+            @Override
+            protected Window initialValue() {
+                return new Window();
+            }
+        };
+
+        PerSecond(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean isSampled() {
+            Window window = windows.get();
+            long now = System.nanoTime();
+            if (window.count == 0 || now - window.start >= WINDOW) {
+                window.start = now;
+                window.count = 1;
+                return true;
+            }
+            if (window.count < limit) {
+                window.count++;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return limit + "/s";
+        }
+    }
+
+    private static class Window {
+        private long start;
+
+        private int count;
+    }
+}
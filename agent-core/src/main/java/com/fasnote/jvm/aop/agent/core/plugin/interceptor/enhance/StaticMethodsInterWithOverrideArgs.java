@@ -20,7 +20,7 @@ package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
 
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
-import com.fasnote.jvm.aop.agent.core.plugin.loader.InterceptorInstanceLoader;
+import com.fasnote.jvm.aop.agent.core.meter.InterceptorMeter;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Morph;
 import net.bytebuddy.implementation.bind.annotation.Origin;
@@ -42,13 +42,47 @@ public class StaticMethodsInterWithOverrideArgs {
      */
     private String staticMethodsAroundInterceptorClassName;
 
+    /**
+     * The interceptor instance, loaded at the first invocation. The bridge only serves one enhanced class, so the class
+     * loader never changes.
+     */
+    private final InterceptorHolder<StaticMethodsAroundInterceptor> interceptor;
+
+    private final InterceptorSwitch interceptorSwitch;
+
+    /**
+     * Null, if the time is not recorded.
+     */
+    private final InterceptorMeter meter;
+
+    /**
+     * Null, if every call is intercepted.
+     */
+    private final Sampler sampler;
+
+    private final ParameterTypesCache parameterTypes = new ParameterTypesCache();
+
     /**
      * Set the name of {@link StaticMethodsInterWithOverrideArgs#staticMethodsAroundInterceptorClassName}
      *
      * @param staticMethodsAroundInterceptorClassName class full name.
      */
     public StaticMethodsInterWithOverrideArgs(String staticMethodsAroundInterceptorClassName) {
+        this(staticMethodsAroundInterceptorClassName, null);
+    }
+
+    /**
+     * Set the name of {@link StaticMethodsInterWithOverrideArgs#staticMethodsAroundInterceptorClassName}
+     *
+     * @param staticMethodsAroundInterceptorClassName class full name.
+     * @param sampler the sampler of the intercept point, null to intercept every call.
+     */
+    public StaticMethodsInterWithOverrideArgs(String staticMethodsAroundInterceptorClassName, Sampler sampler) {
+        this.sampler = sampler;
+        this.interceptorSwitch = InterceptorSwitch.of(staticMethodsAroundInterceptorClassName);
+        this.meter = InterceptorMeter.of(staticMethodsAroundInterceptorClassName);
         this.staticMethodsAroundInterceptorClassName = staticMethodsAroundInterceptorClassName;
+        this.interceptor = new InterceptorHolder<>(staticMethodsAroundInterceptorClassName);
     }
 
     /**
@@ -65,14 +99,24 @@ public class StaticMethodsInterWithOverrideArgs {
     @RuntimeType
     public Object intercept(@Origin Class<?> clazz, @AllArguments Object[] allArguments, @Origin Method method,
                             @Morph OverrideCallable zuper) throws Throwable {
-        StaticMethodsAroundInterceptor interceptor = InterceptorInstanceLoader.load(staticMethodsAroundInterceptorClassName, clazz
-                .getClassLoader());
+        if (!interceptorSwitch.isEnabled() || sampler != null && !sampler.isSampled()) {
+            return zuper.call(allArguments);
+        }
+        StaticMethodsAroundInterceptor interceptor = this.interceptor.get(clazz.getClassLoader());
 
-        MethodInterceptResult result = new MethodInterceptResult();
+        Class<?>[] argumentsTypes = parameterTypes.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInterceptResult result = contexts.acquire();
+        InterceptorMeter meter = this.meter;
+        long time = meter != null ? System.nanoTime() : 0L;
         try {
-            interceptor.beforeMethod(clazz, method, allArguments, method.getParameterTypes(), result);
+            interceptor.beforeMethod(clazz, method, allArguments, argumentsTypes, result);
         } catch (Throwable t) {
             LOGGER.error(t, "class[{}] before static method[{}] intercept failure", clazz, method.getName());
+            interceptorSwitch.failed();
+        }
+        if (meter != null) {
+            time = meter.beforeMethodDone(time);
         }
 
         Object ret = null;
@@ -82,19 +126,31 @@ public class StaticMethodsInterWithOverrideArgs {
             } else {
                 ret = zuper.call(allArguments);
             }
+            if (meter != null) {
+                time = meter.originDone(time);
+            }
         } catch (Throwable t) {
+            if (meter != null) {
+                time = meter.originDone(time);
+            }
             try {
-                interceptor.handleMethodException(clazz, method, allArguments, method.getParameterTypes(), t);
+                interceptor.handleMethodException(clazz, method, allArguments, argumentsTypes, t);
             } catch (Throwable t2) {
                 LOGGER.error(t2, "class[{}] handle static method[{}] exception failure", clazz, method.getName(), t2.getMessage());
+                interceptorSwitch.failed();
             }
             throw t;
         } finally {
             try {
-                ret = interceptor.afterMethod(clazz, method, allArguments, method.getParameterTypes(), ret);
+                ret = interceptor.afterMethod(clazz, method, allArguments, argumentsTypes, ret);
             } catch (Throwable t) {
                 LOGGER.error(t, "class[{}] after static method[{}] intercept failure:{}", clazz, method.getName(), t.getMessage());
+                interceptorSwitch.failed();
+            }
+            if (meter != null) {
+                meter.afterMethodDone(time);
             }
+            contexts.release(result);
         }
         return ret;
     }
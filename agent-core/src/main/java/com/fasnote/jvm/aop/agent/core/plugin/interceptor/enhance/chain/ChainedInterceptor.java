@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.Sampler;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.MethodMeta;
+
+/**
+ * One interceptor of an {@link InterceptorChain}. It adapts the interceptors of all versions, instance or static, to
+ * one shape, see {@link ChainedInterceptors}.
+ */
+public interface ChainedInterceptor {
+    /**
+     * @param target the enhanced instance, null for static methods.
+     * @param clazz  the enhanced class.
+     */
+    void beforeMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                      MethodInvocationContext context) throws Throwable;
+
+    Object afterMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                       MethodInvocationContext context) throws Throwable;
+
+    void handleMethodException(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments, Throwable t,
+                               MethodInvocationContext context);
+
+    /**
+     * @return the class name of the adapted interceptor, for logging.
+     */
+    String getInterceptorClassName();
+
+    /**
+     * @return the sampler of the intercept point, or null if every call is intercepted.
+     */
+    default Sampler getSampler() {
+        return null;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstanceMethodsAroundInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorHolder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.Sampler;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.StaticMethodsAroundInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.InstanceMethodsAroundInterceptorV2;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.StaticMethodsAroundInterceptorV2;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.InstanceMethodsAroundInterceptorV3;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.MethodMeta;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.StaticMethodsAroundInterceptorV3;
+
+/**
+ * Adapt the interceptors of every version to {@link ChainedInterceptor}. V1 and V2 interceptors take the method and
+ * the parameter types from the {@link MethodMeta} of the chain, so they are not cloned for every call. V3 interceptors
+ * keep their own {@link MethodMeta}, which carries the attributes of their intercept point.
+ */
+public final class ChainedInterceptors {
+
+    private ChainedInterceptors() {
+    }
+
+    /**
+     * @param sampler the sampler of the intercept point, null to intercept every call.
+     */
+    public static ChainedInterceptor instanceV1(String interceptorClassName, ClassLoader classLoader, Sampler sampler) {
+        return new InstanceV1(interceptorClassName, InterceptorHolder.load(interceptorClassName, classLoader), sampler);
+    }
+
+    public static ChainedInterceptor instanceV2(String interceptorClassName, ClassLoader classLoader) {
+        return new InstanceV2(interceptorClassName, InterceptorHolder.load(interceptorClassName, classLoader));
+    }
+
+    /**
+     * @param meta the metadata of the method with the attributes attached by the v3 intercept point, rather than the
+     *             one of the chain.
+     */
+    public static ChainedInterceptor instanceV3(String interceptorClassName, ClassLoader classLoader, MethodMeta meta) {
+        return new InstanceV3(interceptorClassName, InterceptorHolder.load(interceptorClassName, classLoader), meta);
+    }
+
+    /**
+     * @param sampler the sampler of the intercept point, null to intercept every call.
+     */
+    public static ChainedInterceptor staticV1(String interceptorClassName, ClassLoader classLoader, Sampler sampler) {
+        return new StaticV1(interceptorClassName, InterceptorHolder.load(interceptorClassName, classLoader), sampler);
+    }
+
+    public static ChainedInterceptor staticV2(String interceptorClassName, ClassLoader classLoader) {
+        return new StaticV2(interceptorClassName, InterceptorHolder.load(interceptorClassName, classLoader));
+    }
+
+    /**
+     * @param meta the metadata of the method with the attributes attached by the v3 intercept point, rather than the
+     *             one of the chain.
+     */
+    public static ChainedInterceptor staticV3(String interceptorClassName, ClassLoader classLoader, MethodMeta meta) {
+        return new StaticV3(interceptorClassName, InterceptorHolder.load(interceptorClassName, classLoader), meta);
+    }
+
+    private abstract static class Adapter<T> implements ChainedInterceptor {
+        private final String interceptorClassName;
+
+        protected final InterceptorHolder<T> interceptor;
+
+        Adapter(String interceptorClassName, InterceptorHolder<T> interceptor) {
+            this.interceptorClassName = interceptorClassName;
+            this.interceptor = interceptor;
+        }
+
+        @Override
+        public String getInterceptorClassName() {
+            return interceptorClassName;
+        }
+    }
+
+    private static class InstanceV1 extends Adapter<InstanceMethodsAroundInterceptor> {
+        private final Sampler sampler;
+
+        InstanceV1(String interceptorClassName, InterceptorHolder<InstanceMethodsAroundInterceptor> interceptor, Sampler sampler) {
+            super(interceptorClassName, interceptor);
+            this.sampler = sampler;
+        }
+
+        @Override
+        public Sampler getSampler() {
+            return sampler;
+        }
+
+        @Override
+        public void beforeMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) throws Throwable {
+            interceptor.get().beforeMethod((EnhancedInstance) target, meta.getMethod(), allArguments, meta.getParameterTypes(), context);
+        }
+
+        @Override
+        public Object afterMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) throws Throwable {
+            return interceptor.get().afterMethod((EnhancedInstance) target, meta.getMethod(), allArguments, meta.getParameterTypes(), ret);
+        }
+
+        @Override
+        public void handleMethodException(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                          Throwable t, MethodInvocationContext context) {
+            interceptor.get().handleMethodException((EnhancedInstance) target, meta.getMethod(), allArguments, meta.getParameterTypes(), t);
+        }
+    }
+
+    private static class InstanceV2 extends Adapter<InstanceMethodsAroundInterceptorV2> {
+        InstanceV2(String interceptorClassName, InterceptorHolder<InstanceMethodsAroundInterceptorV2> interceptor) {
+            super(interceptorClassName, interceptor);
+        }
+
+        @Override
+        public void beforeMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) throws Throwable {
+            interceptor.get().beforeMethod((EnhancedInstance) target, meta.getMethod(), allArguments, meta.getParameterTypes(), context);
+        }
+
+        @Override
+        public Object afterMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) throws Throwable {
+            return interceptor.get().afterMethod((EnhancedInstance) target, meta.getMethod(), allArguments, meta.getParameterTypes(), ret, context);
+        }
+
+        @Override
+        public void handleMethodException(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                          Throwable t, MethodInvocationContext context) {
+            interceptor.get().handleMethodException((EnhancedInstance) target, meta.getMethod(), allArguments, meta.getParameterTypes(), t, context);
+        }
+    }
+
+    private static class InstanceV3 extends Adapter<InstanceMethodsAroundInterceptorV3> {
+        private final MethodMeta meta;
+
+        InstanceV3(String interceptorClassName, InterceptorHolder<InstanceMethodsAroundInterceptorV3> interceptor, MethodMeta meta) {
+            super(interceptorClassName, interceptor);
+            this.meta = meta;
+        }
+
+        @Override
+        public void beforeMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) throws Throwable {
+            interceptor.get().beforeMethod((EnhancedInstance) target, this.meta.bind(meta.getMethod()), allArguments, context);
+        }
+
+        @Override
+        public Object afterMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) throws Throwable {
+            return interceptor.get().afterMethod((EnhancedInstance) target, this.meta.bind(meta.getMethod()), allArguments, ret, context);
+        }
+
+        @Override
+        public void handleMethodException(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                          Throwable t, MethodInvocationContext context) {
+            interceptor.get().handleMethodException((EnhancedInstance) target, this.meta.bind(meta.getMethod()), allArguments, t, context);
+        }
+    }
+
+    private static class StaticV1 extends Adapter<StaticMethodsAroundInterceptor> {
+        private final Sampler sampler;
+
+        StaticV1(String interceptorClassName, InterceptorHolder<StaticMethodsAroundInterceptor> interceptor, Sampler sampler) {
+            super(interceptorClassName, interceptor);
+            this.sampler = sampler;
+        }
+
+        @Override
+        public Sampler getSampler() {
+            return sampler;
+        }
+
+        @Override
+        public void beforeMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) {
+            interceptor.get().beforeMethod(clazz, meta.getMethod(), allArguments, meta.getParameterTypes(), context);
+        }
+
+        @Override
+        public Object afterMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) {
+            return interceptor.get().afterMethod(clazz, meta.getMethod(), allArguments, meta.getParameterTypes(), ret);
+        }
+
+        @Override
+        public void handleMethodException(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                          Throwable t, MethodInvocationContext context) {
+            interceptor.get().handleMethodException(clazz, meta.getMethod(), allArguments, meta.getParameterTypes(), t);
+        }
+    }
+
+    private static class StaticV2 extends Adapter<StaticMethodsAroundInterceptorV2> {
+        StaticV2(String interceptorClassName, InterceptorHolder<StaticMethodsAroundInterceptorV2> interceptor) {
+            super(interceptorClassName, interceptor);
+        }
+
+        @Override
+        public void beforeMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) {
+            interceptor.get().beforeMethod(clazz, meta.getMethod(), allArguments, meta.getParameterTypes(), context);
+        }
+
+        @Override
+        public Object afterMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) {
+            return interceptor.get().afterMethod(clazz, meta.getMethod(), allArguments, meta.getParameterTypes(), ret, context);
+        }
+
+        @Override
+        public void handleMethodException(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                          Throwable t, MethodInvocationContext context) {
+            interceptor.get().handleMethodException(clazz, meta.getMethod(), allArguments, meta.getParameterTypes(), t, context);
+        }
+    }
+
+    private static class StaticV3 extends Adapter<StaticMethodsAroundInterceptorV3> {
+        private final MethodMeta meta;
+
+        StaticV3(String interceptorClassName, InterceptorHolder<StaticMethodsAroundInterceptorV3> interceptor, MethodMeta meta) {
+            super(interceptorClassName, interceptor);
+            this.meta = meta;
+        }
+
+        @Override
+        public void beforeMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) {
+            interceptor.get().beforeMethod(clazz, this.meta.bind(meta.getMethod()), allArguments, context);
+        }
+
+        @Override
+        public Object afterMethod(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) {
+            return interceptor.get().afterMethod(clazz, this.meta.bind(meta.getMethod()), allArguments, ret, context);
+        }
+
+        @Override
+        public void handleMethodException(Object target, Class<?> clazz, MethodMeta meta, Object[] allArguments,
+                                          Throwable t, MethodInvocationContext context) {
+            interceptor.get().handleMethodException(clazz, this.meta.bind(meta.getMethod()), allArguments, t, context);
+        }
+    }
+}
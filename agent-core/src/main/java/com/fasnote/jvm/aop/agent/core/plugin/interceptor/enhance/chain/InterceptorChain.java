@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.Sampler;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.MethodMeta;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * The interceptors of all plugins which intercept the same method, called around one invocation of the origin method.
+ * <p>
+ * The interceptors are called like an onion. The first one is the outermost: its beforeMethod is called first, and its
+ * afterMethod and handleMethodException are called last. If an interceptor skips the origin method, the interceptors
+ * after it are not called at all, and the ones before it see its return value as the method's return value. Every
+ * interceptor has its own {@link MethodInvocationContext}.
+ * <p>
+ * An interceptor switched off by its {@link InterceptorSwitch}, or not sampling the invocation by its {@link Sampler},
+ * is left out of the invocation, the others still run.
+ */
+public final class InterceptorChain {
+    private static final ILog LOGGER = LogManager.getLogger(InterceptorChain.class);
+
+    private final ChainedInterceptor[] interceptors;
+
+    private final InterceptorSwitch[] switches;
+
+    private final Sampler[] samplers;
+
+    private final MethodMeta meta;
+
+    public InterceptorChain(List<ChainedInterceptor> interceptors, MethodMeta meta) {
+        this.interceptors = interceptors.toArray(new ChainedInterceptor[0]);
+        this.switches = new InterceptorSwitch[this.interceptors.length];
+        this.samplers = new Sampler[this.interceptors.length];
+        for (int i = 0; i < this.interceptors.length; i++) {
+            switches[i] = InterceptorSwitch.of(this.interceptors[i].getInterceptorClassName());
+            samplers[i] = this.interceptors[i].getSampler();
+        }
+        this.meta = meta;
+    }
+
+    /**
+     * @param target        the enhanced instance, null for static methods.
+     * @param zuper         the origin call ref, or null if the arguments could be overridden.
+     * @param overrideZuper the origin call ref taking the arguments, used if zuper is null.
+     * @return the return value of the target method.
+     */
+    public Object intercept(Object target, Class<?> clazz, Method method, Object[] allArguments, Callable<?> zuper,
+                            OverrideCallable overrideZuper) throws Throwable {
+        MethodMeta meta = this.meta.bind(method);
+        ChainedInterceptor[] interceptors = this.interceptors;
+        InvocationContextStack contexts = InvocationContextStack.current();
+        int base = contexts.acquireAll(interceptors.length);
+        // only the interceptors whose beforeMethod has been called are called after the method
+        int entered = 0;
+        // the interceptors left out of the invocation, by bits, or by the array if there are too many of them
+        long leftOutBits = 0L;
+        boolean[] leftOutArray = interceptors.length > Long.SIZE ? new boolean[interceptors.length] : null;
+        MethodInvocationContext skipped = null;
+        Object ret = null;
+        try {
+            while (entered < interceptors.length) {
+                Sampler sampler = samplers[entered];
+                if (!switches[entered].isEnabled() || sampler != null && !sampler.isSampled()) {
+                    if (leftOutArray == null) {
+                        leftOutBits |= 1L << entered;
+                    } else {
+                        leftOutArray[entered] = true;
+                    }
+                    entered++;
+                    continue;
+                }
+                MethodInvocationContext context = contexts.get(base + entered);
+                try {
+                    interceptors[entered].beforeMethod(target, clazz, meta, allArguments, context);
+                } catch (Throwable t) {
+                    LOGGER.error(t, "class[{}] before method[{}] intercept failure by {}", clazz, meta.getName(),
+                            interceptors[entered].getInterceptorClassName());
+                    switches[entered].failed();
+                }
+                entered++;
+                if (!context.isContinue()) {
+                    skipped = context;
+                    break;
+                }
+            }
+
+            try {
+                if (skipped != null) {
+                    ret = skipped._ret();
+                } else if (zuper != null) {
+                    ret = zuper.call();
+                } else {
+                    ret = overrideZuper.call(allArguments);
+                }
+            } catch (Throwable t) {
+                for (int i = entered - 1; i >= 0; i--) {
+                    if (isLeftOut(i, leftOutBits, leftOutArray)) {
+                        continue;
+                    }
+                    try {
+                        interceptors[i].handleMethodException(target, clazz, meta, allArguments, t, contexts.get(base + i));
+                    } catch (Throwable t2) {
+                        LOGGER.error(t2, "class[{}] handle method[{}] exception failure by {}", clazz, meta.getName(),
+                                interceptors[i].getInterceptorClassName());
+                        switches[i].failed();
+                    }
+                }
+                throw t;
+            } finally {
+                for (int i = entered - 1; i >= 0; i--) {
+                    if (isLeftOut(i, leftOutBits, leftOutArray)) {
+                        continue;
+                    }
+                    try {
+                        ret = interceptors[i].afterMethod(target, clazz, meta, allArguments, ret, contexts.get(base + i));
+                    } catch (Throwable t) {
+                        LOGGER.error(t, "class[{}] after method[{}] intercept failure by {}", clazz, meta.getName(),
+                                interceptors[i].getInterceptorClassName());
+                        switches[i].failed();
+                    }
+                }
+            }
+        } finally {
+            contexts.releaseAll(base);
+        }
+        return ret;
+    }
+
+    private static boolean isLeftOut(int index, long leftOutBits, boolean[] leftOutArray) {
+        return leftOutArray == null ? (leftOutBits & 1L << index) != 0 : leftOutArray[index];
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.EnhanceContext;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.DeclaredInstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.MethodsPreFilter;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.StaticMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.DelegateNamingResolver;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptableMethods;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.MethodIndex;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.Sampler;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.MethodMeta;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.DeclaredInstanceMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.InstanceMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.StaticMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.DeclaredInstanceMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.StaticMethodsInterceptV3Point;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bind.annotation.Morph;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static net.bytebuddy.matcher.ElementMatchers.hasSignature;
+import static net.bytebuddy.matcher.ElementMatchers.isStatic;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+/**
+ * Every plugin delegates the methods matched by its intercept points by itself. When more than one intercept point
+ * matches the same method, only the last delegation would take effect. This class finds these methods before the
+ * plugins of the class are applied, and delegates each of them to one {@link InterceptorChain}, which calls all the
+ * interceptors around a single invocation of the origin method.
+ * <p>
+ * The fused methods are marked in the {@link EnhanceContext}, the plugins leave them out, so every method has one
+ * dispatcher. The interceptors are ordered as the plugins are applied, see {@link
+ * AbstractClassEnhancePluginDefine#priority()}, then as the intercept points are declared. The plugins missing their
+ * witnesses are not applied, so they are not fused either. Methods woven by inline advice are not delegated, they are
+ * left to the advice. Constructors are not fused.
+ */
+public final class InterceptorChainFusion {
+    private static final ILog LOGGER = LogManager.getLogger(InterceptorChainFusion.class);
+
+    private InterceptorChainFusion() {
+    }
+
+    /**
+     * @param typeDescription target class description.
+     * @param newClassBuilder the builder, before the plugins of the class are applied.
+     * @param defines         the plugins of the class, in the order to be applied.
+     * @param classLoader     load the given transformClass.
+     * @param context         the context, which remembers the fused methods for the plugins.
+     * @return new byte-buddy's builder for further manipulation.
+     */
+    public static DynamicType.Builder<?> fuse(TypeDescription typeDescription, DynamicType.Builder<?> newClassBuilder,
+                                              List<AbstractClassEnhancePluginDefine> defines, ClassLoader classLoader,
+                                              EnhanceContext context) {
+        if (classLoader == null) {
+            // the bridges can't be found by the classes of the bootstrap class loader
+            return newClassBuilder;
+        }
+        List<Entry> instanceEntries = new ArrayList<>();
+        List<Entry> staticEntries = new ArrayList<>();
+        for (AbstractClassEnhancePluginDefine define : defines) {
+            if (define.isWitnessed(classLoader)) {
+                collect(typeDescription, define, instanceEntries, staticEntries);
+            }
+        }
+
+        if (instanceEntries.size() > 1) {
+            newClassBuilder = fuse(typeDescription, newClassBuilder, classLoader, context,
+                    new MethodIndex(InterceptableMethods.instanceMethodsOf(typeDescription)), instanceEntries, false);
+        }
+        if (staticEntries.size() > 1) {
+            newClassBuilder = fuse(typeDescription, newClassBuilder, classLoader, context,
+                    new MethodIndex(InterceptableMethods.staticMethodsOf(typeDescription)), staticEntries, true);
+        }
+        return newClassBuilder;
+    }
+
+    private static DynamicType.Builder<?> fuse(TypeDescription typeDescription, DynamicType.Builder<?> newClassBuilder,
+                                               ClassLoader classLoader, EnhanceContext context,
+                                               MethodIndex methods, List<Entry> entries, boolean isStatic) {
+        Map<MethodDescription, List<Entry>> matchedEntries = new IdentityHashMap<>();
+        for (Entry entry : entries) {
+            for (MethodDescription method : methods.candidates(entry.preFilter)) {
+                if (entry.matcher.matches(method) && !entry.isAdviceWoven(typeDescription, method)) {
+                    matchedEntries.computeIfAbsent(method, key -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+        for (MethodDescription method : methods.getMethods()) {
+            List<Entry> matched = matchedEntries.get(method);
+            if (matched == null || matched.size() < 2) {
+                continue;
+            }
+
+            boolean overrideArgs = false;
+            List<ChainedInterceptor> interceptors = new ArrayList<>(matched.size());
+            for (Entry entry : matched) {
+                overrideArgs |= entry.overrideArgs;
+                interceptors.add(entry.create(typeDescription, method, classLoader));
+            }
+            InterceptorChain chain = new InterceptorChain(interceptors,
+                    MethodMeta.of(typeDescription, method, Collections.<String, Object>emptyMap(), null));
+            String fieldName = DelegateNamingResolver.resolveChain(typeDescription.getTypeName(), method);
+            ElementMatcher.Junction<MethodDescription> junction = (isStatic ? isStatic() : not(isStatic()))
+                    .and(hasSignature(method.asSignatureToken()));
+
+            if (overrideArgs) {
+                Object bridge = isStatic
+                        ? new StaticMethodsChainInterWithOverrideArgs(chain)
+                        : new InstMethodsChainInterWithOverrideArgs(chain);
+                newClassBuilder = newClassBuilder.method(junction)
+                        .intercept(MethodDelegation.withDefaultConfiguration()
+                                .withBinders(Morph.Binder.install(OverrideCallable.class))
+                                .to(bridge, fieldName));
+            } else {
+                Object bridge = isStatic ? new StaticMethodsChainInter(chain) : new InstMethodsChainInter(chain);
+                newClassBuilder = newClassBuilder.method(junction)
+                        .intercept(MethodDelegation.withDefaultConfiguration()
+                                .to(bridge, fieldName));
+            }
+            context.methodFused(method);
+            LOGGER.debug("Fuse {} interceptors of method {} in class {}.", matched.size(), method.getName(),
+                    typeDescription.getTypeName());
+        }
+        return newClassBuilder;
+    }
+
+    private static void collect(TypeDescription typeDescription, AbstractClassEnhancePluginDefine define,
+                                List<Entry> instanceEntries, List<Entry> staticEntries) {
+        InstanceMethodsInterceptPoint[] instanceMethodsInterceptPoints = define.getInstanceMethodsInterceptPoints();
+        if (instanceMethodsInterceptPoints != null) {
+            for (InstanceMethodsInterceptPoint point : instanceMethodsInterceptPoints) {
+                ElementMatcher.Junction<MethodDescription> junction = not(isStatic()).and(point.getMethodsMatcher());
+                if (point instanceof DeclaredInstanceMethodsInterceptPoint) {
+                    junction = junction.and(ElementMatchers.isDeclaredBy(typeDescription));
+                }
+                instanceEntries.add(new V1Entry(define, junction, point.getMethodsPreFilter(), point.getMethodsInterceptor(), point.isOverrideArgs(), false, point.getSampler()));
+            }
+        }
+        InstanceMethodsInterceptV2Point[] instanceMethodsInterceptV2Points = define.getInstanceMethodsInterceptV2Points();
+        if (instanceMethodsInterceptV2Points != null) {
+            for (InstanceMethodsInterceptV2Point point : instanceMethodsInterceptV2Points) {
+                ElementMatcher.Junction<MethodDescription> junction = not(isStatic()).and(point.getMethodsMatcher());
+                if (point instanceof DeclaredInstanceMethodsInterceptV2Point) {
+                    junction = junction.and(ElementMatchers.isDeclaredBy(typeDescription));
+                }
+                instanceEntries.add(new V2Entry(define, junction, point.getMethodsPreFilter(), point.getMethodsInterceptorV2(), point.isOverrideArgs(), false));
+            }
+        }
+        InstanceMethodsInterceptV3Point[] instanceMethodsInterceptV3Points = define.getInstanceMethodsInterceptV3Points();
+        if (instanceMethodsInterceptV3Points != null) {
+            for (InstanceMethodsInterceptV3Point point : instanceMethodsInterceptV3Points) {
+                ElementMatcher.Junction<MethodDescription> junction = not(isStatic()).and(point.getMethodsMatcher());
+                if (point instanceof DeclaredInstanceMethodsInterceptV3Point) {
+                    junction = junction.and(ElementMatchers.isDeclaredBy(typeDescription));
+                }
+                instanceEntries.add(new V3Entry(define, junction, point.getMethodsPreFilter(), point.getMethodsInterceptorV3(), point.isOverrideArgs(), false, point::getMethodAttributes));
+            }
+        }
+
+        StaticMethodsInterceptPoint[] staticMethodsInterceptPoints = define.getStaticMethodsInterceptPoints();
+        if (staticMethodsInterceptPoints != null) {
+            for (StaticMethodsInterceptPoint point : staticMethodsInterceptPoints) {
+                staticEntries.add(new V1Entry(define, isStatic().and(point.getMethodsMatcher()), point.getMethodsPreFilter(), point.getMethodsInterceptor(), point.isOverrideArgs(), true, point.getSampler()));
+            }
+        }
+        StaticMethodsInterceptV2Point[] staticMethodsInterceptV2Points = define.getStaticMethodsInterceptV2Points();
+        if (staticMethodsInterceptV2Points != null) {
+            for (StaticMethodsInterceptV2Point point : staticMethodsInterceptV2Points) {
+                staticEntries.add(new V2Entry(define, isStatic().and(point.getMethodsMatcher()), point.getMethodsPreFilter(), point.getMethodsInterceptorV2(), point.isOverrideArgs(), true));
+            }
+        }
+        StaticMethodsInterceptV3Point[] staticMethodsInterceptV3Points = define.getStaticMethodsInterceptV3Points();
+        if (staticMethodsInterceptV3Points != null) {
+            for (StaticMethodsInterceptV3Point point : staticMethodsInterceptV3Points) {
+                staticEntries.add(new V3Entry(define, isStatic().and(point.getMethodsMatcher()), point.getMethodsPreFilter(), point.getMethodsInterceptorV3(), point.isOverrideArgs(), true, point::getMethodAttributes));
+            }
+        }
+    }
+
+    /**
+     * One intercept point of a plugin.
+     */
+    private abstract static class Entry {
+        final AbstractClassEnhancePluginDefine define;
+        final ElementMatcher<MethodDescription> matcher;
+        final MethodsPreFilter preFilter;
+        final String interceptor;
+        final boolean overrideArgs;
+        final boolean isStatic;
+
+        Entry(AbstractClassEnhancePluginDefine define, ElementMatcher<MethodDescription> matcher,
+              MethodsPreFilter preFilter, String interceptor, boolean overrideArgs, boolean isStatic) {
+            this.define = define;
+            this.matcher = matcher;
+            this.preFilter = preFilter;
+            this.interceptor = interceptor;
+            this.overrideArgs = overrideArgs;
+            this.isStatic = isStatic;
+        }
+
+        boolean isAdviceWoven(TypeDescription typeDescription, MethodDescription method) {
+            return false;
+        }
+
+        abstract ChainedInterceptor create(TypeDescription typeDescription, MethodDescription method,
+                                           ClassLoader classLoader);
+    }
+
+    private static class V1Entry extends Entry {
+        private final Sampler sampler;
+
+        V1Entry(AbstractClassEnhancePluginDefine define, ElementMatcher<MethodDescription> matcher,
+                MethodsPreFilter preFilter, String interceptor, boolean overrideArgs, boolean isStatic,
+                Sampler sampler) {
+            super(define, matcher, preFilter, interceptor, overrideArgs, isStatic);
+            this.sampler = sampler;
+        }
+
+        @Override
+        boolean isAdviceWoven(TypeDescription typeDescription, MethodDescription method) {
+            return !isStatic && define instanceof ClassEnhancePluginDefine
+                    && ((ClassEnhancePluginDefine) define).isAdviceWoven(typeDescription, method);
+        }
+
+        @Override
+        ChainedInterceptor create(TypeDescription typeDescription, MethodDescription method, ClassLoader classLoader) {
+            return isStatic
+                    ? ChainedInterceptors.staticV1(interceptor, classLoader, sampler)
+                    : ChainedInterceptors.instanceV1(interceptor, classLoader, sampler);
+        }
+    }
+
+    private static class V2Entry extends Entry {
+        V2Entry(AbstractClassEnhancePluginDefine define, ElementMatcher<MethodDescription> matcher,
+                MethodsPreFilter preFilter, String interceptor, boolean overrideArgs, boolean isStatic) {
+            super(define, matcher, preFilter, interceptor, overrideArgs, isStatic);
+        }
+
+        @Override
+        ChainedInterceptor create(TypeDescription typeDescription, MethodDescription method, ClassLoader classLoader) {
+            return isStatic
+                    ? ChainedInterceptors.staticV2(interceptor, classLoader)
+                    : ChainedInterceptors.instanceV2(interceptor, classLoader);
+        }
+    }
+
+    private static class V3Entry extends Entry {
+        /**
+         * The method attributes of the v3 intercept point, see {@link InstanceMethodsInterceptV3Point#getMethodAttributes(MethodDescription)}.
+         */
+        private final Function<MethodDescription, Map<String, Object>> methodAttributes;
+
+        V3Entry(AbstractClassEnhancePluginDefine define, ElementMatcher<MethodDescription> matcher,
+                MethodsPreFilter preFilter, String interceptor, boolean overrideArgs, boolean isStatic,
+                Function<MethodDescription, Map<String, Object>> methodAttributes) {
+            super(define, matcher, preFilter, interceptor, overrideArgs, isStatic);
+            this.methodAttributes = methodAttributes;
+        }
+
+        @Override
+        ChainedInterceptor create(TypeDescription typeDescription, MethodDescription method, ClassLoader classLoader) {
+            MethodMeta meta = MethodMeta.of(typeDescription, method, methodAttributes.apply(method),
+                    define.getMethodIds());
+            return isStatic
+                    ? ChainedInterceptors.staticV3(interceptor, classLoader, meta)
+                    : ChainedInterceptors.instanceV3(interceptor, classLoader, meta);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable;
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Morph;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+
+import java.lang.reflect.Method;
+
+/**
+ * The byte-buddy's interceptor for a static method intercepted by more than one plugin, and at least one of them
+ * overrides the arguments.
+ */
+public class StaticMethodsChainInterWithOverrideArgs {
+    private final InterceptorChain chain;
+
+    public StaticMethodsChainInterWithOverrideArgs(InterceptorChain chain) {
+        this.chain = chain;
+    }
+
+    @RuntimeType
+    public Object intercept(@Origin Class<?> clazz, @AllArguments Object[] allArguments, @Origin Method method,
+                            @Morph OverrideCallable zuper) throws Throwable {
+        return chain.intercept(null, clazz, method, allArguments, null, zuper);
+    }
+}
@@ -24,6 +24,7 @@ import com.fasnote.jvm.aop.agent.core.plugin.bootstrap.BootstrapInstrumentBoost;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.EnhanceException;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.MethodsPreFilter;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.StaticMethodsInterceptPoint;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ConstructorInter;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.DelegateNamingResolver;
@@ -60,7 +61,7 @@ public abstract class ClassEnhancePluginDefineV2 extends AbstractClassEnhancePlu
     @Override
     protected DynamicType.Builder<?> enhanceClass(TypeDescription typeDescription,
                                                   DynamicType.Builder<?> newClassBuilder,
-                                                  ClassLoader classLoader) throws PluginException {
+                                                  ClassLoader classLoader, EnhanceContext context) throws PluginException {
         StaticMethodsInterceptV2Point[] staticMethodsInterceptV2Points = getStaticMethodsInterceptV2Points();
         String enhanceOriginClassName = typeDescription.getTypeName();
         if (staticMethodsInterceptV2Points == null || staticMethodsInterceptV2Points.length == 0) {
@@ -74,30 +75,32 @@ public abstract class ClassEnhancePluginDefineV2 extends AbstractClassEnhancePlu
                 throw new EnhanceException(
                         "no StaticMethodsAroundInterceptorV2 define to enhance class " + enhanceOriginClassName);
             }
+            ElementMatcher.Junction<MethodDescription> junction = isStatic().and(
+                    MethodsPreFilter.filter(staticMethodsInterceptV2Point.getMethodsPreFilter(), staticMethodsInterceptV2Point.getMethodsMatcher()))
+                    .and(context.notFused());
+            if (!context.hasMethodsToDelegate(typeDescription, junction, true)) {
+                continue;
+            }
 
             if (staticMethodsInterceptV2Point.isOverrideArgs()) {
                 if (isBootstrapInstrumentation()) {
-                    newClassBuilder = newClassBuilder.method(
-                                    isStatic().and(staticMethodsInterceptV2Point.getMethodsMatcher()))
+                    newClassBuilder = newClassBuilder.method(junction)
                             .intercept(MethodDelegation.withDefaultConfiguration()
                                     .withBinders(Morph.Binder.install(OverrideCallable.class))
                                     .to(BootstrapInstrumentBoost.forInternalDelegateClass(interceptor)));
                 } else {
-                    newClassBuilder = newClassBuilder.method(
-                                    isStatic().and(staticMethodsInterceptV2Point.getMethodsMatcher()))
+                    newClassBuilder = newClassBuilder.method(junction)
                             .intercept(MethodDelegation.withDefaultConfiguration()
                                     .withBinders(Morph.Binder.install(OverrideCallable.class))
                                     .to(new StaticMethodsInterV2WithOverrideArgs(interceptor), delegateNamingResolver.resolve(staticMethodsInterceptV2Point)));
                 }
             } else {
                 if (isBootstrapInstrumentation()) {
-                    newClassBuilder = newClassBuilder.method(
-                                    isStatic().and(staticMethodsInterceptV2Point.getMethodsMatcher()))
+                    newClassBuilder = newClassBuilder.method(junction)
                             .intercept(MethodDelegation.withDefaultConfiguration()
                                     .to(BootstrapInstrumentBoost.forInternalDelegateClass(interceptor)));
                 } else {
-                    newClassBuilder = newClassBuilder.method(
-                                    isStatic().and(staticMethodsInterceptV2Point.getMethodsMatcher()))
+                    newClassBuilder = newClassBuilder.method(junction)
                             .intercept(MethodDelegation.withDefaultConfiguration()
                                     .to(new StaticMethodsInterV2(interceptor), delegateNamingResolver.resolve(staticMethodsInterceptV2Point)));
                 }
@@ -159,10 +162,14 @@ public abstract class ClassEnhancePluginDefineV2 extends AbstractClassEnhancePlu
                             "no InstanceMethodsAroundInterceptorV2 define to enhance class " + enhanceOriginClassName);
                 }
                 ElementMatcher.Junction<MethodDescription> junction = not(isStatic()).and(
-                        instanceMethodsInterceptV2Point.getMethodsMatcher());
+                        MethodsPreFilter.filter(instanceMethodsInterceptV2Point.getMethodsPreFilter(), instanceMethodsInterceptV2Point.getMethodsMatcher()));
                 if (instanceMethodsInterceptV2Point instanceof DeclaredInstanceMethodsInterceptV2Point) {
                     junction = junction.and(ElementMatchers.isDeclaredBy(typeDescription));
                 }
+                junction = junction.and(context.notFused());
+                if (!context.hasMethodsToDelegate(typeDescription, junction, false)) {
+                    continue;
+                }
                 if (instanceMethodsInterceptV2Point.isOverrideArgs()) {
                     if (isBootstrapInstrumentation()) {
                         newClassBuilder = newClassBuilder.method(junction)
@@ -20,10 +20,13 @@ package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2;
 
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
-import com.fasnote.jvm.aop.agent.core.plugin.PluginException;
+import com.fasnote.jvm.aop.agent.core.meter.InterceptorMeter;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorHolder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable;
-import com.fasnote.jvm.aop.agent.core.plugin.loader.InterceptorInstanceLoader;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ParameterTypesCache;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Morph;
 import net.bytebuddy.implementation.bind.annotation.Origin;
@@ -44,17 +47,24 @@ public class InstMethodsInterV2WithOverrideArgs {
      * type will trigger classloader failure. If you want to know more, please check on books about Classloader or
      * Classloader appointment mechanism.
      */
-    private InstanceMethodsAroundInterceptorV2 interceptor;
+    private final InterceptorHolder<InstanceMethodsAroundInterceptorV2> interceptor;
+
+    private final InterceptorSwitch interceptorSwitch;
+
+    /**
+     * Null, if the time is not recorded.
+     */
+    private final InterceptorMeter meter;
+
+    private final ParameterTypesCache parameterTypes = new ParameterTypesCache();
 
     /**
      * @param instanceMethodsAroundInterceptorClassName class full name.
      */
     public InstMethodsInterV2WithOverrideArgs(String instanceMethodsAroundInterceptorClassName, ClassLoader classLoader) {
-        try {
-            interceptor = InterceptorInstanceLoader.load(instanceMethodsAroundInterceptorClassName, classLoader);
-        } catch (Throwable t) {
-            throw new PluginException("Can't create InstanceMethodsAroundInterceptor.", t);
-        }
+        this.interceptorSwitch = InterceptorSwitch.of(instanceMethodsAroundInterceptorClassName);
+        this.meter = InterceptorMeter.of(instanceMethodsAroundInterceptorClassName);
+        interceptor = InterceptorHolder.load(instanceMethodsAroundInterceptorClassName, classLoader);
     }
 
     /**
@@ -71,13 +81,25 @@ public class InstMethodsInterV2WithOverrideArgs {
     @RuntimeType
     public Object intercept(@This Object obj, @AllArguments Object[] allArguments, @Origin Method method,
                             @Morph OverrideCallable zuper) throws Throwable {
+        if (!interceptorSwitch.isEnabled()) {
+            return zuper.call(allArguments);
+        }
         EnhancedInstance targetObject = (EnhancedInstance) obj;
+        InstanceMethodsAroundInterceptorV2 interceptor = this.interceptor.get();
 
-        MethodInvocationContext context = new MethodInvocationContext();
+        Class<?>[] argumentsTypes = parameterTypes.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInvocationContext context = contexts.acquire();
+        InterceptorMeter meter = this.meter;
+        long time = meter != null ? System.nanoTime() : 0L;
         try {
-            interceptor.beforeMethod(targetObject, method, allArguments, method.getParameterTypes(), context);
+            interceptor.beforeMethod(targetObject, method, allArguments, argumentsTypes, context);
         } catch (Throwable t) {
             LOGGER.error(t, "class[{}] before method[{}] intercept failure", obj.getClass(), method.getName());
+            interceptorSwitch.failed();
+        }
+        if (meter != null) {
+            time = meter.beforeMethodDone(time);
         }
 
         Object ret = null;
@@ -87,19 +109,31 @@ public class InstMethodsInterV2WithOverrideArgs {
             } else {
                 ret = zuper.call(allArguments);
             }
+            if (meter != null) {
+                time = meter.originDone(time);
+            }
         } catch (Throwable t) {
+            if (meter != null) {
+                time = meter.originDone(time);
+            }
             try {
-                interceptor.handleMethodException(targetObject, method, allArguments, method.getParameterTypes(), t, context);
+                interceptor.handleMethodException(targetObject, method, allArguments, argumentsTypes, t, context);
             } catch (Throwable t2) {
                 LOGGER.error(t2, "class[{}] handle method[{}] exception failure", obj.getClass(), method.getName());
+                interceptorSwitch.failed();
             }
             throw t;
         } finally {
             try {
-                ret = interceptor.afterMethod(targetObject, method, allArguments, method.getParameterTypes(), ret, context);
+                ret = interceptor.afterMethod(targetObject, method, allArguments, argumentsTypes, ret, context);
             } catch (Throwable t) {
                 LOGGER.error(t, "class[{}] after method[{}] intercept failure", obj.getClass(), method.getName());
+                interceptorSwitch.failed();
+            }
+            if (meter != null) {
+                meter.afterMethodDone(time);
             }
+            contexts.release(context);
         }
         return ret;
     }
@@ -31,4 +31,10 @@ public class MethodInvocationContext extends MethodInterceptResult {
      * A pointer for the propagating context
      */
     private Object context;
+
+    @Override
+    protected void reset() {
+        super.reset();
+        this.context = null;
+    }
 }
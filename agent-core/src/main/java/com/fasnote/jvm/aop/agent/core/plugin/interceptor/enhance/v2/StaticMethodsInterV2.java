@@ -20,7 +20,11 @@ package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2;
 
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
-import com.fasnote.jvm.aop.agent.core.plugin.loader.InterceptorInstanceLoader;
+import com.fasnote.jvm.aop.agent.core.meter.InterceptorMeter;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorHolder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ParameterTypesCache;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Origin;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
@@ -43,13 +47,31 @@ public class StaticMethodsInterV2 {
      */
     private String staticMethodsAroundInterceptorClassName;
 
+    /**
+     * The interceptor instance, loaded at the first invocation. The bridge only serves one enhanced class, so the class
+     * loader never changes.
+     */
+    private final InterceptorHolder<StaticMethodsAroundInterceptorV2> interceptor;
+
+    private final InterceptorSwitch interceptorSwitch;
+
+    /**
+     * Null, if the time is not recorded.
+     */
+    private final InterceptorMeter meter;
+
+    private final ParameterTypesCache parameterTypes = new ParameterTypesCache();
+
     /**
      * Set the name of {@link StaticMethodsInterV2#staticMethodsAroundInterceptorClassName}
      *
      * @param staticMethodsAroundInterceptorClassName class full name.
      */
     public StaticMethodsInterV2(String staticMethodsAroundInterceptorClassName) {
+        this.interceptorSwitch = InterceptorSwitch.of(staticMethodsAroundInterceptorClassName);
+        this.meter = InterceptorMeter.of(staticMethodsAroundInterceptorClassName);
         this.staticMethodsAroundInterceptorClassName = staticMethodsAroundInterceptorClassName;
+        this.interceptor = new InterceptorHolder<>(staticMethodsAroundInterceptorClassName);
     }
 
     /**
@@ -66,14 +88,24 @@ public class StaticMethodsInterV2 {
     @RuntimeType
     public Object intercept(@Origin Class<?> clazz, @AllArguments Object[] allArguments, @Origin Method method,
                             @SuperCall Callable<?> zuper) throws Throwable {
-        StaticMethodsAroundInterceptorV2 interceptor = InterceptorInstanceLoader.load(staticMethodsAroundInterceptorClassName,
-                clazz.getClassLoader());
+        if (!interceptorSwitch.isEnabled()) {
+            return zuper.call();
+        }
+        StaticMethodsAroundInterceptorV2 interceptor = this.interceptor.get(clazz.getClassLoader());
 
-        MethodInvocationContext context = new MethodInvocationContext();
+        Class<?>[] argumentsTypes = parameterTypes.of(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInvocationContext context = contexts.acquire();
+        InterceptorMeter meter = this.meter;
+        long time = meter != null ? System.nanoTime() : 0L;
         try {
-            interceptor.beforeMethod(clazz, method, allArguments, method.getParameterTypes(), context);
+            interceptor.beforeMethod(clazz, method, allArguments, argumentsTypes, context);
         } catch (Throwable t) {
             LOGGER.error(t, "class[{}] before static method[{}] intercept failure", clazz, method.getName());
+            interceptorSwitch.failed();
+        }
+        if (meter != null) {
+            time = meter.beforeMethodDone(time);
         }
 
         Object ret = null;
@@ -83,19 +115,31 @@ public class StaticMethodsInterV2 {
             } else {
                 ret = zuper.call();
             }
+            if (meter != null) {
+                time = meter.originDone(time);
+            }
         } catch (Throwable t) {
+            if (meter != null) {
+                time = meter.originDone(time);
+            }
             try {
-                interceptor.handleMethodException(clazz, method, allArguments, method.getParameterTypes(), t, context);
+                interceptor.handleMethodException(clazz, method, allArguments, argumentsTypes, t, context);
             } catch (Throwable t2) {
                 LOGGER.error(t2, "class[{}] handle static method[{}] exception failure", clazz, method.getName(), t2.getMessage());
+                interceptorSwitch.failed();
             }
             throw t;
         } finally {
             try {
-                ret = interceptor.afterMethod(clazz, method, allArguments, method.getParameterTypes(), ret, context);
+                ret = interceptor.afterMethod(clazz, method, allArguments, argumentsTypes, ret, context);
             } catch (Throwable t) {
                 LOGGER.error(t, "class[{}] after static method[{}] intercept failure:{}", clazz, method.getName(), t.getMessage());
+                interceptorSwitch.failed();
+            }
+            if (meter != null) {
+                meter.afterMethodDone(time);
             }
+            contexts.release(context);
         }
         return ret;
     }
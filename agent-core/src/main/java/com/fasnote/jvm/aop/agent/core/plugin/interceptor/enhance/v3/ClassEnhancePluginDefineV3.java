@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3;
+
+import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.EnhanceContext;
+import com.fasnote.jvm.aop.agent.core.plugin.PluginException;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.EnhanceException;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.StaticMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ConstructorInter;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.DelegateNamingResolver;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptableMethods;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.MethodIndex;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.InstanceMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.StaticMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.DeclaredInstanceMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.StaticMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.util.StringUtil;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.SuperMethodCall;
+import net.bytebuddy.implementation.bind.annotation.Morph;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import static net.bytebuddy.jar.asm.Opcodes.ACC_PRIVATE;
+import static net.bytebuddy.jar.asm.Opcodes.ACC_VOLATILE;
+import static net.bytebuddy.matcher.ElementMatchers.hasSignature;
+import static net.bytebuddy.matcher.ElementMatchers.isStatic;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+/**
+ * This class controls all enhance operations, including enhance constructors, instance methods and static methods. All
+ * the enhances base on three types interceptor point: {@link ConstructorInterceptPoint}, {@link
+ * InstanceMethodsInterceptV3Point} and {@link StaticMethodsInterceptV3Point} If plugin is going to enhance
+ * constructors, instance methods, or both, {@link ClassEnhancePluginDefineV3} will add a field of {@link Object} type.
+ * <p>
+ * Different from v2, the methods matched by a point are enhanced one by one, each of them gets its own bridge holding
+ * the {@link MethodMeta} of the method. Bootstrap instrumentation is not supported.
+ */
+public abstract class ClassEnhancePluginDefineV3 extends AbstractClassEnhancePluginDefine {
+
+    @Override
+    protected DynamicType.Builder<?> enhanceClass(TypeDescription typeDescription,
+                                                  DynamicType.Builder<?> newClassBuilder,
+                                                  ClassLoader classLoader, EnhanceContext context) throws PluginException {
+        StaticMethodsInterceptV3Point[] staticMethodsInterceptV3Points = getStaticMethodsInterceptV3Points();
+        String enhanceOriginClassName = typeDescription.getTypeName();
+        if (staticMethodsInterceptV3Points == null || staticMethodsInterceptV3Points.length == 0) {
+            return newClassBuilder;
+        }
+        checkNotBootstrap(enhanceOriginClassName);
+        DelegateNamingResolver delegateNamingResolver = new DelegateNamingResolver(typeDescription.getTypeName(), this);
+        MethodIndex staticMethods = new MethodIndex(InterceptableMethods.staticMethodsOf(typeDescription));
+
+        for (StaticMethodsInterceptV3Point staticMethodsInterceptV3Point : staticMethodsInterceptV3Points) {
+            String interceptor = staticMethodsInterceptV3Point.getMethodsInterceptorV3();
+            if (StringUtil.isEmpty(interceptor)) {
+                throw new EnhanceException(
+                        "no StaticMethodsAroundInterceptorV3 define to enhance class " + enhanceOriginClassName);
+            }
+            ElementMatcher.Junction<MethodDescription> junction = isStatic().and(
+                    staticMethodsInterceptV3Point.getMethodsMatcher());
+
+            for (MethodDescription method : staticMethods.candidates(staticMethodsInterceptV3Point.getMethodsPreFilter())) {
+                if (!junction.matches(method) || context.isFused(method)) {
+                    continue;
+                }
+                MethodMeta meta = MethodMeta.of(typeDescription, method,
+                        staticMethodsInterceptV3Point.getMethodAttributes(method), getMethodIds());
+                String fieldName = delegateNamingResolver.resolve(staticMethodsInterceptV3Point, method);
+                if (staticMethodsInterceptV3Point.isOverrideArgs()) {
+                    newClassBuilder = newClassBuilder.method(hasSignature(method.asSignatureToken()).and(junction))
+                            .intercept(MethodDelegation.withDefaultConfiguration()
+                                    .withBinders(Morph.Binder.install(OverrideCallable.class))
+                                    .to(new StaticMethodsInterV3WithOverrideArgs(interceptor, meta), fieldName));
+                } else {
+                    newClassBuilder = newClassBuilder.method(hasSignature(method.asSignatureToken()).and(junction))
+                            .intercept(MethodDelegation.withDefaultConfiguration()
+                                    .to(new StaticMethodsInterV3(interceptor, meta), fieldName));
+                }
+            }
+        }
+
+        return newClassBuilder;
+    }
+
+    @Override
+    protected DynamicType.Builder<?> enhanceInstance(TypeDescription typeDescription,
+                                                     DynamicType.Builder<?> newClassBuilder, ClassLoader classLoader,
+                                                     EnhanceContext context) throws PluginException {
+        ConstructorInterceptPoint[] constructorInterceptPoints = getConstructorsInterceptPoints();
+        InstanceMethodsInterceptV3Point[] instanceMethodsInterceptV3Points = getInstanceMethodsInterceptV3Points();
+        String enhanceOriginClassName = typeDescription.getTypeName();
+        DelegateNamingResolver fieldNamingResolver = new DelegateNamingResolver(typeDescription.getTypeName(), this);
+
+        boolean existedConstructorInterceptPoint = constructorInterceptPoints != null && constructorInterceptPoints.length > 0;
+        boolean existedMethodsInterceptV3Points = instanceMethodsInterceptV3Points != null && instanceMethodsInterceptV3Points.length > 0;
+
+        if (!existedConstructorInterceptPoint && !existedMethodsInterceptV3Points) {
+            return newClassBuilder;
+        }
+        checkNotBootstrap(enhanceOriginClassName);
+
+        if (!typeDescription.isAssignableTo(EnhancedInstance.class)) {
+            if (!context.isObjectExtended()) {
+                newClassBuilder = newClassBuilder.defineField(
+                                CONTEXT_ATTR_NAME, Object.class, ACC_PRIVATE | ACC_VOLATILE)
+                        .implement(EnhancedInstance.class)
+                        .intercept(FieldAccessor.ofField(CONTEXT_ATTR_NAME));
+                context.extendObjectCompleted();
+            }
+        }
+
+        if (existedConstructorInterceptPoint) {
+            for (ConstructorInterceptPoint constructorInterceptPoint : constructorInterceptPoints) {
+                newClassBuilder = newClassBuilder.constructor(constructorInterceptPoint.getConstructorMatcher())
+                        .intercept(SuperMethodCall.INSTANCE.andThen(MethodDelegation.withDefaultConfiguration()
+                                .to(new ConstructorInter(constructorInterceptPoint
+                                        .getConstructorInterceptor(), classLoader), fieldNamingResolver.resolve(constructorInterceptPoint))));
+            }
+        }
+
+        if (existedMethodsInterceptV3Points) {
+            MethodIndex instanceMethods = new MethodIndex(InterceptableMethods.instanceMethodsOf(typeDescription));
+            for (InstanceMethodsInterceptV3Point instanceMethodsInterceptV3Point : instanceMethodsInterceptV3Points) {
+                String interceptor = instanceMethodsInterceptV3Point.getMethodsInterceptorV3();
+                if (StringUtil.isEmpty(interceptor)) {
+                    throw new EnhanceException(
+                            "no InstanceMethodsAroundInterceptorV3 define to enhance class " + enhanceOriginClassName);
+                }
+                ElementMatcher.Junction<MethodDescription> junction = not(isStatic()).and(
+                        instanceMethodsInterceptV3Point.getMethodsMatcher());
+                if (instanceMethodsInterceptV3Point instanceof DeclaredInstanceMethodsInterceptV3Point) {
+                    junction = junction.and(ElementMatchers.isDeclaredBy(typeDescription));
+                }
+
+                for (MethodDescription method : instanceMethods.candidates(instanceMethodsInterceptV3Point.getMethodsPreFilter())) {
+                    if (!junction.matches(method) || context.isFused(method)) {
+                        continue;
+                    }
+                    MethodMeta meta = MethodMeta.of(typeDescription, method,
+                            instanceMethodsInterceptV3Point.getMethodAttributes(method), getMethodIds());
+                    String fieldName = fieldNamingResolver.resolve(instanceMethodsInterceptV3Point, method);
+                    if (instanceMethodsInterceptV3Point.isOverrideArgs()) {
+                        newClassBuilder = newClassBuilder.method(hasSignature(method.asSignatureToken()).and(junction))
+                                .intercept(MethodDelegation.withDefaultConfiguration()
+                                        .withBinders(Morph.Binder.install(OverrideCallable.class))
+                                        .to(new InstMethodsInterV3WithOverrideArgs(interceptor, classLoader, meta), fieldName));
+                    } else {
+                        newClassBuilder = newClassBuilder.method(hasSignature(method.asSignatureToken()).and(junction))
+                                .intercept(MethodDelegation.withDefaultConfiguration()
+                                        .to(new InstMethodsInterV3(interceptor, classLoader, meta), fieldName));
+                    }
+                }
+            }
+        }
+
+        return newClassBuilder;
+    }
+
+    private void checkNotBootstrap(String enhanceOriginClassName) {
+        if (isBootstrapInstrumentation()) {
+            throw new EnhanceException(
+                    "v3 interceptors don't support bootstrap instrumentation, can't enhance class " + enhanceOriginClassName);
+        }
+    }
+
+    @Override
+    public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+        return null;
+    }
+
+    @Override
+    public StaticMethodsInterceptPoint[] getStaticMethodsInterceptPoints() {
+        return null;
+    }
+
+    @Override
+    public InstanceMethodsInterceptV2Point[] getInstanceMethodsInterceptV2Points() {
+        return null;
+    }
+
+    @Override
+    public StaticMethodsInterceptV2Point[] getStaticMethodsInterceptV2Points() {
+        return null;
+    }
+}
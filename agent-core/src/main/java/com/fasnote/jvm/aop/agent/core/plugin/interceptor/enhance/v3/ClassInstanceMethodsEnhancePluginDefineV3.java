@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.StaticMethodsInterceptV3Point;
+
+/**
+ * Plugins, which only need enhance class instance methods. Actually, inherit from {@link
+ * ClassInstanceMethodsEnhancePluginDefineV3} has no differences with inherit from {@link ClassEnhancePluginDefineV3}.
+ * Just override {@link ClassEnhancePluginDefineV3#getStaticMethodsInterceptV3Points}, and return NULL, which means
+ * nothing to enhance.
+ */
+public abstract class ClassInstanceMethodsEnhancePluginDefineV3 extends ClassEnhancePluginDefineV3 {
+
+    /**
+     * @return null, means enhance no v3 static methods.
+     */
+    @Override
+    public StaticMethodsInterceptV3Point[] getStaticMethodsInterceptV3Points() {
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorHolder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.OverrideCallable;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Morph;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+import net.bytebuddy.implementation.bind.annotation.This;
+
+import java.lang.reflect.Method;
+
+/**
+ * The actual byte-buddy's interceptor to intercept class instance methods. In this class, it provides a bridge between
+ * byte-buddy and sky-walking plugin.
+ */
+public class InstMethodsInterV3WithOverrideArgs {
+    private static final ILog LOGGER = LogManager.getLogger(InstMethodsInterV3WithOverrideArgs.class);
+
+    /**
+     * An {@link InstanceMethodsAroundInterceptorV3} This name should only stay in {@link String}, the real {@link Class}
+     * type will trigger classloader failure. If you want to know more, please check on books about Classloader or
+     * Classloader appointment mechanism.
+     */
+    private final InterceptorHolder<InstanceMethodsAroundInterceptorV3> interceptor;
+
+    private final InterceptorSwitch interceptorSwitch;
+
+    /**
+     * The metadata of the only method served by this bridge. One bridge is created for every intercepted method.
+     */
+    private final MethodMeta meta;
+
+    /**
+     * @param instanceMethodsAroundInterceptorClassName class full name.
+     */
+    public InstMethodsInterV3WithOverrideArgs(String instanceMethodsAroundInterceptorClassName, ClassLoader classLoader, MethodMeta meta) {
+        this.interceptorSwitch = InterceptorSwitch.of(instanceMethodsAroundInterceptorClassName);
+        this.meta = meta;
+        interceptor = InterceptorHolder.load(instanceMethodsAroundInterceptorClassName, classLoader);
+    }
+
+    /**
+     * Intercept the target instance method.
+     *
+     * @param obj          target class instance.
+     * @param allArguments all method arguments
+     * @param method       method description.
+     * @param zuper        the origin call ref.
+     * @return the return value of target instance method.
+     * @throws Exception only throw exception because of zuper.call() or unexpected exception in sky-walking ( This is a
+     *                   bug, if anything triggers this condition ).
+     */
+    @RuntimeType
+    public Object intercept(@This Object obj, @AllArguments Object[] allArguments, @Origin Method method,
+                            @Morph OverrideCallable zuper) throws Throwable {
+        if (!interceptorSwitch.isEnabled()) {
+            return zuper.call(allArguments);
+        }
+        EnhancedInstance targetObject = (EnhancedInstance) obj;
+        InstanceMethodsAroundInterceptorV3 interceptor = this.interceptor.get();
+
+        MethodMeta meta = this.meta.bind(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInvocationContext context = contexts.acquire();
+        try {
+            interceptor.beforeMethod(targetObject, meta, allArguments, context);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] before method[{}] intercept failure", obj.getClass(), meta.getName());
+            interceptorSwitch.failed();
+        }
+
+        Object ret = null;
+        try {
+            if (!context.isContinue()) {
+                ret = context._ret();
+            } else {
+                ret = zuper.call(allArguments);
+            }
+        } catch (Throwable t) {
+            try {
+                interceptor.handleMethodException(targetObject, meta, allArguments, t, context);
+            } catch (Throwable t2) {
+                LOGGER.error(t2, "class[{}] handle method[{}] exception failure", obj.getClass(), meta.getName());
+                interceptorSwitch.failed();
+            }
+            throw t;
+        } finally {
+            try {
+                ret = interceptor.afterMethod(targetObject, meta, allArguments, ret, context);
+            } catch (Throwable t) {
+                LOGGER.error(t, "class[{}] after method[{}] intercept failure", obj.getClass(), meta.getName());
+                interceptorSwitch.failed();
+            }
+            contexts.release(context);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+
+/**
+ * A v3 interceptor, which intercepts the instance methods. Instead of {@link java.lang.reflect.Method} and the
+ * parameter types, it receives the {@link MethodMeta} of the intercepted method, which is resolved at transform time.
+ */
+public interface InstanceMethodsAroundInterceptorV3 {
+    /**
+     * called before target method invocation.
+     *
+     * @param meta    the metadata of the intercepted method.
+     * @param context the method invocation context including result context.
+     */
+    void beforeMethod(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments,
+                      MethodInvocationContext context) throws Throwable;
+
+    /**
+     * called after target method invocation. Even method's invocation triggers an exception.
+     *
+     * @param ret the method's original return value. May be null if the method triggers an exception.
+     * @return the method's actual return value.
+     */
+    Object afterMethod(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments, Object ret,
+                       MethodInvocationContext context) throws Throwable;
+
+    /**
+     * called when occur exception.
+     *
+     * @param t the exception occur.
+     */
+    void handleMethodException(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments, Throwable t,
+                               MethodInvocationContext context);
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3;
+
+import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The metadata of one intercepted method, created once for every matched method at transform time and held by the v3
+ * bridge of the method. The interceptors get it in every invocation, instead of {@link Method} and the parameter types
+ * array, so the hot path does no reflection and no array cloning.
+ * <p>
+ * The names, the id and the attributes are immutable. The {@link Method} and parameter types are bound once at the
+ * first invocation, as the enhanced class hasn't been loaded at transform time.
+ */
+public final class MethodMeta {
+    /**
+     * The id of the metadata which isn't numbered, such as the one of an interceptor chain.
+     */
+    public static final int NO_ID = -1;
+
+    private final int id;
+
+    private final String declaringClassName;
+
+    private final String name;
+
+    private final String descriptor;
+
+    private final List<String> parameterTypeNames;
+
+    private final Map<String, Object> attributes;
+
+    private volatile Method method;
+
+    /**
+     * Written before {@link #method} is published.
+     */
+    private Class<?>[] parameterTypes;
+
+    public MethodMeta(int id, String declaringClassName, String name, String descriptor,
+                      List<String> parameterTypeNames, Map<String, Object> attributes) {
+        this.id = id;
+        this.declaringClassName = declaringClassName;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.parameterTypeNames = Collections.unmodifiableList(new ArrayList<String>(parameterTypeNames));
+        this.attributes = attributes == null || attributes.isEmpty()
+                ? Collections.<String, Object>emptyMap()
+                : Collections.unmodifiableMap(new HashMap<String, Object>(attributes));
+    }
+
+    /**
+     * @param enhancedType the type being enhanced. Inherited methods are overridden by it, so it is the declaring type
+     *                     of every intercepted method.
+     * @param method       the matched method.
+     * @param attributes   the plugin attached attributes.
+     * @param ids          the ids of the plugin enhancing the method, null to leave the metadata unnumbered.
+     */
+    public static MethodMeta of(TypeDescription enhancedType, MethodDescription method, Map<String, Object> attributes,
+                                Ids ids) {
+        List<String> parameterTypeNames = new ArrayList<String>();
+        for (TypeDefinition parameterType : method.getParameters().asTypeList()) {
+            parameterTypeNames.add(parameterType.asErasure().getName());
+        }
+        String declaringClassName = enhancedType.getName();
+        int id = ids == null ? NO_ID : ids.idOf(declaringClassName + "#" + method.getInternalName() + method.getDescriptor());
+        return new MethodMeta(id, declaringClassName, method.getInternalName(), method.getDescriptor(),
+                parameterTypeNames, attributes);
+    }
+
+    /**
+     * Bind the reflective method at the first invocation. Only called by the bridges, and the interceptor chains.
+     *
+     * @param origin the enhanced method, cached by byte-buddy in the enhanced class.
+     * @return this
+     */
+    public MethodMeta bind(Method origin) {
+        if (method == null) {
+            parameterTypes = origin.getParameterTypes();
+            method = origin;
+        }
+        return this;
+    }
+
+    /**
+     * @return the id of the method within the plugin enhancing it, see {@link Ids}. {@link #NO_ID} if it isn't
+     * numbered.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getDeclaringClassName() {
+        return declaringClassName;
+    }
+
+    public Class<?> getDeclaringClass() {
+        return method.getDeclaringClass();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the JVM descriptor of the method, such as {@code (Ljava/lang/String;)V}.
+     */
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the parameter types, shared by all invocations. Don't modify it.
+     */
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public List<String> getParameterTypeNames() {
+        return parameterTypeNames;
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String key) {
+        return (T) attributes.get(key);
+    }
+
+    @Override
+    public String toString() {
+        return declaringClassName + "." + name + descriptor;
+    }
+
+    /**
+     * The ids of the methods enhanced by one plugin, see {@link AbstractClassEnhancePluginDefine#getMethodIds()}. The
+     * same signature always gets the same id from the plugin, even if the class is enhanced again or loaded by another
+     * class loader. The ids are dense, start from 0, so they could be used as array indexes by the interceptors of the
+     * plugin. They go along with the plugin, such as when the agent is detached.
+     */
+    public static final class Ids {
+        private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+        private final AtomicInteger nextId = new AtomicInteger();
+
+        int idOf(String signature) {
+            Integer id = ids.get(signature);
+            if (id == null) {
+                Integer newId = nextId.getAndIncrement();
+                id = ids.putIfAbsent(signature, newId);
+                if (id == null) {
+                    id = newId;
+                }
+            }
+            return id;
+        }
+
+        /**
+         * @return the number of the ids given out.
+         */
+        public int size() {
+            return ids.size();
+        }
+    }
+}
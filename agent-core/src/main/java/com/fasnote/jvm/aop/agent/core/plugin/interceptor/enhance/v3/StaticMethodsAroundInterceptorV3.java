@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+
+/**
+ * The static method's interceptor v3 interface. Any plugin, which wants to intercept static methods by the {@link
+ * MethodMeta}, must implement this interface.
+ */
+public interface StaticMethodsAroundInterceptorV3 {
+    /**
+     * called before target method invocation.
+     *
+     * @param meta    the metadata of the intercepted method.
+     * @param context the method invocation context including result context.
+     */
+    void beforeMethod(Class clazz, MethodMeta meta, Object[] allArguments, MethodInvocationContext context);
+
+    /**
+     * called after target method invocation. Even method's invocation triggers an exception.
+     *
+     * @param ret the method's original return value.
+     * @return the method's actual return value.
+     */
+    Object afterMethod(Class clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                       MethodInvocationContext context);
+
+    /**
+     * called when occur exception.
+     *
+     * @param t the exception occur.
+     */
+    void handleMethodException(Class clazz, MethodMeta meta, Object[] allArguments, Throwable t,
+                               MethodInvocationContext context);
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorHolder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+import net.bytebuddy.implementation.bind.annotation.SuperCall;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+/**
+ * The actual byte-buddy's interceptor to intercept class instance methods. In this class, it provides a bridge between
+ * byte-buddy and sky-walking plugin.
+ */
+public class StaticMethodsInterV3 {
+    private static final ILog LOGGER = LogManager.getLogger(StaticMethodsInterV3.class);
+
+    /**
+     * A class full name, and instanceof {@link StaticMethodsAroundInterceptorV3} This name should only stay in {@link
+     * String}, the real {@link Class} type will trigger classloader failure. If you want to know more, please check on
+     * books about Classloader or Classloader appointment mechanism.
+     */
+    private String staticMethodsAroundInterceptorClassName;
+
+    /**
+     * The interceptor instance, loaded at the first invocation. The bridge only serves one enhanced class, so the class
+     * loader never changes.
+     */
+    private final InterceptorHolder<StaticMethodsAroundInterceptorV3> interceptor;
+
+    private final InterceptorSwitch interceptorSwitch;
+
+    /**
+     * The metadata of the only method served by this bridge. One bridge is created for every intercepted method.
+     */
+    private final MethodMeta meta;
+
+    /**
+     * Set the name of {@link StaticMethodsInterV3#staticMethodsAroundInterceptorClassName}
+     *
+     * @param staticMethodsAroundInterceptorClassName class full name.
+     * @param meta                                    the metadata of the intercepted method.
+     */
+    public StaticMethodsInterV3(String staticMethodsAroundInterceptorClassName, MethodMeta meta) {
+        this.interceptorSwitch = InterceptorSwitch.of(staticMethodsAroundInterceptorClassName);
+        this.staticMethodsAroundInterceptorClassName = staticMethodsAroundInterceptorClassName;
+        this.interceptor = new InterceptorHolder<>(staticMethodsAroundInterceptorClassName);
+        this.meta = meta;
+    }
+
+    /**
+     * Intercept the target static method.
+     *
+     * @param clazz        target class
+     * @param allArguments all method arguments
+     * @param method       method description.
+     * @param zuper        the origin call ref.
+     * @return the return value of target static method.
+     * @throws Exception only throw exception because of zuper.call() or unexpected exception in sky-walking ( This is a
+     *                   bug, if anything triggers this condition ).
+     */
+    @RuntimeType
+    public Object intercept(@Origin Class<?> clazz, @AllArguments Object[] allArguments, @Origin Method method,
+                            @SuperCall Callable<?> zuper) throws Throwable {
+        if (!interceptorSwitch.isEnabled()) {
+            return zuper.call();
+        }
+        StaticMethodsAroundInterceptorV3 interceptor = this.interceptor.get(clazz.getClassLoader());
+
+        MethodMeta meta = this.meta.bind(method);
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInvocationContext context = contexts.acquire();
+        try {
+            interceptor.beforeMethod(clazz, meta, allArguments, context);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] before static method[{}] intercept failure", clazz, meta.getName());
+            interceptorSwitch.failed();
+        }
+
+        Object ret = null;
+        try {
+            if (!context.isContinue()) {
+                ret = context._ret();
+            } else {
+                ret = zuper.call();
+            }
+        } catch (Throwable t) {
+            try {
+                interceptor.handleMethodException(clazz, meta, allArguments, t, context);
+            } catch (Throwable t2) {
+                LOGGER.error(t2, "class[{}] handle static method[{}] exception failure", clazz, meta.getName(), t2.getMessage());
+                interceptorSwitch.failed();
+            }
+            throw t;
+        } finally {
+            try {
+                ret = interceptor.afterMethod(clazz, meta, allArguments, ret, context);
+            } catch (Throwable t) {
+                LOGGER.error(t, "class[{}] after static method[{}] intercept failure:{}", clazz, meta.getName(), t.getMessage());
+                interceptorSwitch.failed();
+            }
+            contexts.release(context);
+        }
+        return ret;
+    }
+}
@@ -19,6 +19,7 @@
 package com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2;
 
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.MethodsPreFilter;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 
@@ -46,6 +47,16 @@ public interface InstanceMethodsInterceptV2Point {
 
     boolean isOverrideArgs();
 
+    /**
+     * A cheap filter of the methods, which accepts every method matched by {@link #getMethodsMatcher()}. The methods
+     * matcher only runs on the methods it accepts.
+     *
+     * @return the pre-filter, or null to run the methods matcher on every method.
+     */
+    default MethodsPreFilter getMethodsPreFilter() {
+        return null;
+    }
+
     /**
      * To ensure that the hashCode for recreating the XxxInterceptPoint instance is the same as the previous instance,
      * each ElementMatcher implementation class needs to implement toString() method.
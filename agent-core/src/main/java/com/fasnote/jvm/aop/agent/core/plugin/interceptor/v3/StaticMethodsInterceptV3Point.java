@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.MethodsPreFilter;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.MethodMeta;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One of the three "Intercept Point". "Intercept Point" is a definition about where and how intercept happens. In this
+ * "Intercept Point", the definition targets class's static methods, and the interceptor.
+ * <p>
+ * Different from the v2 point, every matched method gets its own {@link MethodMeta}, which is resolved at transform
+ * time.
+ * <p>
+ * ref to two others: {@link ConstructorInterceptPoint} and {@link InstanceMethodsInterceptV3Point}
+ * <p>
+ */
+public interface StaticMethodsInterceptV3Point {
+    /**
+     * static methods matcher.
+     *
+     * @return matcher instance.
+     */
+    ElementMatcher<MethodDescription> getMethodsMatcher();
+
+    /**
+     * @return represents a class name, the class instance must instanceof StaticMethodsAroundInterceptorV3.
+     */
+    String getMethodsInterceptorV3();
+
+    boolean isOverrideArgs();
+
+    /**
+     * Attributes attached to the {@link MethodMeta} of the given method, such as an operation name computed from the
+     * method signature. Called once for every matched method at transform time.
+     *
+     * @param method the matched method.
+     * @return the attributes, never null.
+     */
+    default Map<String, Object> getMethodAttributes(MethodDescription method) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * A cheap filter of the methods, which accepts every method matched by {@link #getMethodsMatcher()}. The methods
+     * matcher only runs on the methods it accepts.
+     *
+     * @return the pre-filter, or null to run the methods matcher on every method.
+     */
+    default MethodsPreFilter getMethodsPreFilter() {
+        return null;
+    }
+
+    /**
+     * To ensure that the hashCode for recreating the XxxInterceptPoint instance is the same as the previous instance,
+     * each ElementMatcher implementation class needs to implement toString() method.
+     *
+     * @return hashCode of this intercept point
+     */
+    default int computeHashCode() {
+        return Objects.hash(this.getClass().getName(), this.getMethodsMatcher().toString(), this.getMethodsInterceptorV3(), this.isOverrideArgs());
+    }
+}
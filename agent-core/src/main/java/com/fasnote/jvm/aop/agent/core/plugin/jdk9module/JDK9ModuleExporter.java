@@ -40,8 +40,17 @@ public class JDK9ModuleExporter {
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ConstructorInter",
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstMethodsInter",
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstMethodsInterWithOverrideArgs",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstMethodsAdviceDispatcher",
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.StaticMethodsInter",
             "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.StaticMethodsInterWithOverrideArgs",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain.InstMethodsChainInter",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain.InstMethodsChainInterWithOverrideArgs",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain.StaticMethodsChainInter",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain.StaticMethodsChainInterWithOverrideArgs",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.InstMethodsInterV3",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.InstMethodsInterV3WithOverrideArgs",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.StaticMethodsInterV3",
+            "com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.StaticMethodsInterV3WithOverrideArgs",
     };
 
     /**
@@ -23,31 +23,21 @@ import com.fasnote.jvm.aop.agent.core.boot.AgentPackagePath;
 import com.fasnote.jvm.aop.agent.core.boot.PluginConfig;
 import com.fasnote.jvm.aop.agent.core.conf.Config;
 import com.fasnote.jvm.aop.agent.core.conf.SnifferConfigInitializer;
-import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
-import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
 import com.fasnote.jvm.aop.agent.core.plugin.PluginBootstrap;
-import lombok.RequiredArgsConstructor;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 /**
  * The <code>AgentClassLoader</code> represents a classloader, which is in charge of finding plugins and interceptors.
  */
 public class AgentClassLoader extends ClassLoader {
 
-    private static final ILog LOGGER = LogManager.getLogger(AgentClassLoader.class);
     /**
      * The default class loader for the agent.
      */
@@ -61,8 +51,7 @@ public class AgentClassLoader extends ClassLoader {
     }
 
     private final List<File> classpath;
-    private final ReentrantLock jarScanLock = new ReentrantLock();
-    private List<Jar> allJars;
+    private volatile PluginJars pluginJars;
 
     public AgentClassLoader(ClassLoader parent) throws AgentPackageNotFoundException {
         super(parent);
@@ -92,59 +81,22 @@ public class AgentClassLoader extends ClassLoader {
 
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
-        List<Jar> allJars = getAllJars();
         String path = name.replace('.', '/').concat(".class");
-        for (Jar jar : allJars) {
-            JarEntry entry = jar.jarFile.getJarEntry(path);
-            if (entry == null) {
-                continue;
-            }
-            try {
-                URL classFileUrl = new URL("jar:file:" + jar.sourceFile.getAbsolutePath() + "!/" + path);
-                byte[] data;
-                try (final BufferedInputStream is = new BufferedInputStream(
-                        classFileUrl.openStream()); final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                    int ch;
-                    while ((ch = is.read()) != -1) {
-                        baos.write(ch);
-                    }
-                    data = baos.toByteArray();
-                }
-                return processLoadedClass(defineClass(name, data, 0, data.length));
-            } catch (IOException e) {
-                LOGGER.error(e, "find class fail.");
-            }
+        byte[] data = getPluginJars().readClass(path);
+        if (data == null) {
+            throw new ClassNotFoundException("Can't find " + name);
         }
-        throw new ClassNotFoundException("Can't find " + name);
+        return processLoadedClass(defineClass(name, data, 0, data.length));
     }
 
     @Override
     protected URL findResource(String name) {
-        List<Jar> allJars = getAllJars();
-        for (Jar jar : allJars) {
-            JarEntry entry = jar.jarFile.getJarEntry(name);
-            if (entry != null) {
-                try {
-                    return new URL("jar:file:" + jar.sourceFile.getAbsolutePath() + "!/" + name);
-                } catch (MalformedURLException ignored) {
-                }
-            }
-        }
-        return null;
+        return getPluginJars().findResource(name);
     }
 
     @Override
     protected Enumeration<URL> findResources(String name) throws IOException {
-        List<URL> allResources = new LinkedList<>();
-        List<Jar> allJars = getAllJars();
-        for (Jar jar : allJars) {
-            JarEntry entry = jar.jarFile.getJarEntry(name);
-            if (entry != null) {
-                allResources.add(new URL("jar:file:" + jar.sourceFile.getAbsolutePath() + "!/" + name));
-            }
-        }
-
-        final Iterator<URL> iterator = allResources.iterator();
+        final Iterator<URL> iterator = getPluginJars().findResources(name).iterator();
         return new Enumeration<>() {
             @Override
             public boolean hasMoreElements() {
@@ -170,44 +122,23 @@ public class AgentClassLoader extends ClassLoader {
         return loadedClass;
     }
 
-    private List<Jar> getAllJars() {
-        if (allJars == null) {
-            jarScanLock.lock();
-            try {
-                if (allJars == null) {
-                    allJars = doGetJars();
-                }
-            } finally {
-                jarScanLock.unlock();
-            }
-        }
-
-        return allJars;
+    /**
+     * @return the persisted index of the plugin jars, or null if it is disabled.
+     */
+    public PluginStartupIndex getStartupIndex() {
+        return getPluginJars().getStartupIndex();
     }
 
-    private LinkedList<Jar> doGetJars() {
-        LinkedList<Jar> jars = new LinkedList<>();
-        for (File path : classpath) {
-            if (path.exists() && path.isDirectory()) {
-                String[] jarFileNames = path.list((dir, name) -> name.endsWith(".jar"));
-                for (String fileName : jarFileNames) {
-                    try {
-                        File file = new File(path, fileName);
-                        Jar jar = new Jar(new JarFile(file), file);
-                        jars.add(jar);
-                        LOGGER.info("{} loaded.", file.toString());
-                    } catch (IOException e) {
-                        LOGGER.error(e, "{} jar file can't be resolved", fileName);
-                    }
-                }
-            }
+    /**
+     * The jars are shared by all the class loaders mounting the same folders, but every class loader defines the
+     * classes of its own.
+     */
+    private PluginJars getPluginJars() {
+        PluginJars pluginJars = this.pluginJars;
+        if (pluginJars == null) {
+            pluginJars = PluginJars.of(classpath);
+            this.pluginJars = pluginJars;
         }
-        return jars;
-    }
-
-    @RequiredArgsConstructor
-    private static class Jar {
-        private final JarFile jarFile;
-        private final File sourceFile;
+        return pluginJars;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.loader;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * A map key of a class loader, which doesn't hold the class loader strongly. The class loaders are compared by
+ * identity, as a class loader may override equals and hashCode. Once the class loader is collected, the key only
+ * equals to itself, for it to be removed from the map by the reference queue. The bootstrap class loader is null, its
+ * keys equal to each other.
+ */
+public final class ClassLoaderKey extends WeakReference<ClassLoader> {
+    private final int hashCode;
+
+    private final boolean bootstrap;
+
+    /**
+     * A key to look up the map.
+     */
+    public ClassLoaderKey(ClassLoader classLoader) {
+        this(classLoader, null);
+    }
+
+    /**
+     * A key to put into the map, enqueued once the class loader is collected.
+     */
+    public ClassLoaderKey(ClassLoader classLoader, ReferenceQueue<? super ClassLoader> queue) {
+        super(classLoader, queue);
+        this.hashCode = System.identityHashCode(classLoader);
+        this.bootstrap = classLoader == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ClassLoaderKey)) {
+            return false;
+        }
+        ClassLoaderKey other = (ClassLoaderKey) obj;
+        if (bootstrap || other.bootstrap) {
+            return bootstrap && other.bootstrap;
+        }
+        ClassLoader classLoader = get();
+        return classLoader != null && classLoader == other.get();
+    }
+}
@@ -15,15 +15,15 @@
  * limitations under the License.
  *
  */
-
 package com.fasnote.jvm.aop.agent.core.plugin.loader;
 
 import com.fasnote.jvm.aop.agent.core.boot.AgentPackageNotFoundException;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The <code>InterceptorInstanceLoader</code> is a classes finder and container.
@@ -31,12 +31,30 @@ import java.util.concurrent.locks.ReentrantLock;
  * This is a very important class in sky-walking's auto-instrumentation mechanism. If you want to fully understand why
  * need this, and how it works, you need have knowledge about Classloader appointment mechanism.
  * <p>
+ * Nothing here holds the application class loaders strongly. The {@link AgentClassLoader} of a target class loader is
+ * only kept by the interceptor classes it defined, which are kept by the enhanced classes, and the interceptor
+ * instances are kept along with their classes. So they are all released with the application class loader, such as on
+ * the redeployment of a webapp.
  */
 public class InterceptorInstanceLoader {
 
-    private static ConcurrentHashMap<String, Object> INSTANCE_CACHE = new ConcurrentHashMap<String, Object>();
-    private static ReentrantLock INSTANCE_LOAD_LOCK = new ReentrantLock();
-    private static Map<ClassLoader, ClassLoader> EXTEND_PLUGIN_CLASSLOADERS = new HashMap<ClassLoader, ClassLoader>();
+    /**
+     * The singleton of every interceptor class. An interceptor class defined by the {@link AgentClassLoader} of a
+     * target class loader is only visible to the target, so it has one instance per target class loader.
+     */
+    private static final ClassValue<AtomicReference<Object>> INSTANCES = new ClassValue<AtomicReference<Object>>() {
+        @Override
+        protected AtomicReference<Object> computeValue(Class<?> type) {
+            return new AtomicReference<Object>();
+        }
+    };
+
+    /**
+     * The {@link AgentClassLoader} of every target class loader, with weak identity keys and weak values.
+     */
+    private static final ConcurrentHashMap<ClassLoaderKey, WeakReference<AgentClassLoader>> EXTEND_PLUGIN_CLASSLOADERS = new ConcurrentHashMap<ClassLoaderKey, WeakReference<AgentClassLoader>>();
+
+    private static final ReferenceQueue<ClassLoader> COLLECTED_CLASSLOADERS = new ReferenceQueue<ClassLoader>();
 
     /**
      * Load an instance of interceptor, and keep it singleton. Create {@link AgentClassLoader} for each
@@ -52,28 +70,56 @@ public class InterceptorInstanceLoader {
         if (targetClassLoader == null) {
             targetClassLoader = InterceptorInstanceLoader.class.getClassLoader();
         }
-        String instanceKey = className + "_OF_" + targetClassLoader.getClass()
-                .getName() + "@" + Integer.toHexString(targetClassLoader
-                .hashCode());
-        Object inst = INSTANCE_CACHE.get(instanceKey);
+        Class<?> interceptorClass = Class.forName(className, true, getPluginLoader(targetClassLoader));
+        AtomicReference<Object> holder = INSTANCES.get(interceptorClass);
+        Object inst = holder.get();
         if (inst == null) {
-            INSTANCE_LOAD_LOCK.lock();
-            ClassLoader pluginLoader;
-            try {
-                pluginLoader = EXTEND_PLUGIN_CLASSLOADERS.get(targetClassLoader);
-                if (pluginLoader == null) {
-                    pluginLoader = new AgentClassLoader(targetClassLoader);
-                    EXTEND_PLUGIN_CLASSLOADERS.put(targetClassLoader, pluginLoader);
+            // locked by the interceptor class only, the constructor may load the other interceptors
+            synchronized (holder) {
+                inst = holder.get();
+                if (inst == null) {
+                    inst = interceptorClass.newInstance();
+                    holder.set(inst);
                 }
-            } finally {
-                INSTANCE_LOAD_LOCK.unlock();
-            }
-            inst = Class.forName(className, true, pluginLoader).newInstance();
-            if (inst != null) {
-                INSTANCE_CACHE.put(instanceKey, inst);
             }
         }
 
         return (T) inst;
     }
+
+    /**
+     * Forget the {@link AgentClassLoader}s of the target class loaders, and release the plugin jars they share, when the
+     * agent is detached. An interceptor instance goes along with its class, once no enhanced class refers to it.
+     */
+    public static void release() {
+        EXTEND_PLUGIN_CLASSLOADERS.clear();
+        expungeCollectedLoaders();
+        PluginJars.releaseAll();
+    }
+
+    private static AgentClassLoader getPluginLoader(ClassLoader targetClassLoader) throws AgentPackageNotFoundException {
+        WeakReference<AgentClassLoader> reference = EXTEND_PLUGIN_CLASSLOADERS.get(new ClassLoaderKey(targetClassLoader));
+        AgentClassLoader pluginLoader = reference == null ? null : reference.get();
+        if (pluginLoader != null) {
+            return pluginLoader;
+        }
+
+        expungeCollectedLoaders();
+        AgentClassLoader newLoader = new AgentClassLoader(targetClassLoader);
+        while (true) {
+            reference = EXTEND_PLUGIN_CLASSLOADERS.compute(new ClassLoaderKey(targetClassLoader, COLLECTED_CLASSLOADERS),
+                    (key, current) -> current != null && current.get() != null ? current : new WeakReference<AgentClassLoader>(newLoader));
+            pluginLoader = reference.get();
+            if (pluginLoader != null) {
+                return pluginLoader;
+            }
+        }
+    }
+
+    private static void expungeCollectedLoaders() {
+        Reference<? extends ClassLoader> collected;
+        while ((collected = COLLECTED_CLASSLOADERS.poll()) != null) {
+            EXTEND_PLUGIN_CLASSLOADERS.remove(collected);
+        }
+    }
 }
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.loader;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * The jars of the mount folders, shared by all the {@link AgentClassLoader}s mounting the same folders. The folders are
+ * scanned and every jar is opened only once in the process, rather than once for every application class loader.
+ * <p>
+ * The entries of the jars are indexed by {@link PluginStartupIndex} if it is fresh, without opening the jars.
+ * <p>
+ * The bytes of the classes recently read are cached, up to {@link Config.Plugin#CLASS_BYTES_CACHE_SIZE}, as one
+ * interceptor is usually loaded by the {@link AgentClassLoader}s of several application class loaders.
+ */
+final class PluginJars {
+    private static final ILog LOGGER = LogManager.getLogger(PluginJars.class);
+
+    private static final Map<List<File>, PluginJars> SHARED = new ConcurrentHashMap<>();
+
+    /**
+     * The jars containing every entry, in the order of the mount folders. It is never changed after the scan.
+     */
+    private final Map<String, List<Jar>> index;
+
+    private final PluginStartupIndex startupIndex;
+
+    private final ClassBytesCache classBytesCache = new ClassBytesCache(Config.Plugin.CLASS_BYTES_CACHE_SIZE);
+
+    private PluginJars(Map<String, List<Jar>> index, PluginStartupIndex startupIndex) {
+        this.index = index;
+        this.startupIndex = startupIndex;
+    }
+
+    /**
+     * @param classpath the mount folders.
+     * @return the jars of the folders, scanned at the first time.
+     */
+    static PluginJars of(List<File> classpath) {
+        return SHARED.computeIfAbsent(Collections.unmodifiableList(new ArrayList<>(classpath)), PluginJars::scan);
+    }
+
+    /**
+     * Forget the shared jars, drop the cached class bytes and close the jar files. The {@link AgentClassLoader}s still
+     * in use keep their jars, which are opened again when another class is read from them.
+     */
+    static void releaseAll() {
+        for (PluginJars pluginJars : SHARED.values()) {
+            pluginJars.classBytesCache.clear();
+            Set<Jar> jars = Collections.newSetFromMap(new IdentityHashMap<>());
+            pluginJars.index.values().forEach(jars::addAll);
+            for (Jar jar : jars) {
+                jar.close();
+            }
+        }
+        SHARED.clear();
+    }
+
+    private static PluginJars scan(List<File> classpath) {
+        List<File> jarFiles = new ArrayList<>();
+        for (File path : classpath) {
+            if (path.exists() && path.isDirectory()) {
+                String[] jarFileNames = path.list((dir, name) -> name.endsWith(".jar"));
+                for (String fileName : jarFileNames) {
+                    jarFiles.add(new File(path, fileName));
+                }
+            }
+        }
+
+        PluginStartupIndex startupIndex = Config.Plugin.STARTUP_INDEX ? PluginStartupIndex.load(jarFiles) : null;
+        Map<String, List<Jar>> index = new HashMap<>();
+        for (File file : jarFiles) {
+            List<String> entries = startupIndex != null ? startupIndex.getEntries(file) : null;
+            Jar jar;
+            if (entries != null) {
+                // opened when a class is read from it
+                jar = new Jar(null, file);
+            } else {
+                try {
+                    JarFile jarFile = new JarFile(file);
+                    entries = new ArrayList<>();
+                    Enumeration<JarEntry> jarEntries = jarFile.entries();
+                    while (jarEntries.hasMoreElements()) {
+                        entries.add(jarEntries.nextElement().getName());
+                    }
+                    jar = new Jar(jarFile, file);
+                    LOGGER.info("{} loaded.", file.toString());
+                } catch (IOException e) {
+                    LOGGER.error(e, "{} jar file can't be resolved", file.getName());
+                    continue;
+                }
+                if (startupIndex != null) {
+                    startupIndex.recordEntries(file, entries);
+                }
+            }
+            for (String entry : entries) {
+                index.computeIfAbsent(entry, name -> new ArrayList<>(1)).add(jar);
+            }
+        }
+        return new PluginJars(index, startupIndex);
+    }
+
+    /**
+     * @return the persisted index of the jars, or null if it is disabled.
+     */
+    PluginStartupIndex getStartupIndex() {
+        return startupIndex;
+    }
+
+    /**
+     * @param path the path of the class file, such as {@code com/example/Foo.class}.
+     * @return the bytes of the class in the first jar containing it, or null if not found.
+     */
+    byte[] readClass(String path) {
+        byte[] data = classBytesCache.get(path);
+        if (data != null) {
+            return data;
+        }
+        for (Jar jar : find(path)) {
+            try {
+                data = jar.read(path);
+            } catch (IOException e) {
+                LOGGER.error(e, "find class fail.");
+                continue;
+            }
+            if (data == null) {
+                continue;
+            }
+            classBytesCache.put(path, data);
+            return data;
+        }
+        return null;
+    }
+
+    /**
+     * @return the url of the resource in the first jar containing it, or null if not found.
+     */
+    URL findResource(String name) {
+        for (Jar jar : find(name)) {
+            try {
+                return jar.getResource(name);
+            } catch (MalformedURLException ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the urls of the resource in all the jars containing it.
+     */
+    List<URL> findResources(String name) throws IOException {
+        List<URL> allResources = new ArrayList<>();
+        for (Jar jar : find(name)) {
+            allResources.add(jar.getResource(name));
+        }
+        return allResources;
+    }
+
+    private List<Jar> find(String name) {
+        return index.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * A jar file, opened when an entry is read from it. The entries are read under the monitor of the jar, so it is
+     * never closed by {@link #releaseAll()} in the middle of a read.
+     */
+    private static class Jar {
+        private JarFile jarFile;
+        private final File sourceFile;
+
+        private Jar(JarFile jarFile, File sourceFile) {
+            this.jarFile = jarFile;
+            this.sourceFile = sourceFile;
+        }
+
+        /**
+         * @return the bytes of the entry, or null if the jar doesn't contain it.
+         */
+        private synchronized byte[] read(String path) throws IOException {
+            if (jarFile == null) {
+                jarFile = new JarFile(sourceFile);
+                LOGGER.info("{} loaded.", sourceFile.toString());
+            }
+            JarEntry entry = jarFile.getJarEntry(path);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream is = jarFile.getInputStream(entry)) {
+                return is.readAllBytes();
+            }
+        }
+
+        private synchronized void close() {
+            JarFile jarFile = this.jarFile;
+            this.jarFile = null;
+            if (jarFile != null) {
+                try {
+                    jarFile.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Close {} failure. {}", sourceFile.toString(), e);
+                }
+            }
+        }
+
+        private URL getResource(String name) throws MalformedURLException {
+            return new URL("jar:file:" + sourceFile.getAbsolutePath() + "!/" + name);
+        }
+    }
+
+    /**
+     * The least recently used class bytes are evicted, once the total size exceeds the limit.
+     */
+    private static class ClassBytesCache {
+        private final long maxSize;
+
+        private final LinkedHashMap<String, byte[]> classes = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long size;
+
+        private ClassBytesCache(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private synchronized byte[] get(String path) {
+            return classes.get(path);
+        }
+
+        private synchronized void clear() {
+            classes.clear();
+            size = 0;
+        }
+
+        private synchronized void put(String path, byte[] data) {
+            if (data.length > maxSize) {
+                return;
+            }
+            byte[] previous = classes.put(path, data);
+            size += data.length - (previous == null ? 0 : previous.length);
+            Iterator<byte[]> eldest = classes.values().iterator();
+            while (size > maxSize) {
+                size -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.loader;
+
+import com.fasnote.jvm.aop.agent.core.boot.AgentPackageNotFoundException;
+import com.fasnote.jvm.aop.agent.core.boot.AgentPackagePath;
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.PluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.exception.IllegalPluginDefineException;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.MultiClassNameMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The index of the plugin jars, persisted in the agent directory to speed up the next start. It records the entries of
+ * every jar, the plugin defines declared by the jar, and the class names matched by the defines using {@link NameMatch}
+ * or {@link MultiClassNameMatch}.
+ * <p>
+ * The index is fresh if the jars of the mount folders have the same paths, sizes and modified time as recorded. Then
+ * the jars are indexed and their plugin defines are read without opening the jars, and the defines matching by names
+ * are loaded lazily. Otherwise, the jars are scanned as usual, and the index is recorded along the way and written in
+ * the background.
+ */
+public class PluginStartupIndex {
+    private static final ILog LOGGER = LogManager.getLogger(PluginStartupIndex.class);
+
+    static final String FILE_NAME = "plugin-startup-index.json";
+
+    private static final int VERSION = 1;
+
+    private static final Gson GSON = new Gson();
+
+    private final File file;
+
+    private final Index index;
+
+    private final boolean fresh;
+
+    private PluginStartupIndex(File file, Index index, boolean fresh) {
+        this.file = file;
+        this.index = index;
+        this.fresh = fresh;
+    }
+
+    /**
+     * @return the index in the agent directory, or null if the agent directory is not found.
+     */
+    static PluginStartupIndex load(List<File> jarFiles) {
+        try {
+            return load(new File(AgentPackagePath.getPath(), FILE_NAME), jarFiles);
+        } catch (AgentPackageNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param file     the index file.
+     * @param jarFiles the jars of the mount folders, in the order of the scan.
+     * @return a fresh index if the jars are not changed since it was written, otherwise an empty one to be recorded.
+     */
+    static PluginStartupIndex load(File file, List<File> jarFiles) {
+        if (file.isFile()) {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                Index index = GSON.fromJson(reader, Index.class);
+                if (index != null && index.isFresh(jarFiles)) {
+                    return new PluginStartupIndex(file, index, true);
+                }
+                LOGGER.info("Plugin startup index {} is stale, it will be rebuilt.", file);
+            } catch (IOException | JsonParseException e) {
+                LOGGER.warn(e, "Failed to read plugin startup index {}, it will be rebuilt.", file);
+            }
+        }
+        return new PluginStartupIndex(file, new Index(), false);
+    }
+
+    /**
+     * @return true if the index is read from the file and matches the current jars. A fresh index is never recorded.
+     */
+    public boolean isFresh() {
+        return fresh;
+    }
+
+    /**
+     * @return the entries of the jar, or null if the index is not fresh.
+     */
+    List<String> getEntries(File jarFile) {
+        JarRecord record = fresh ? index.find(jarFile.getAbsolutePath()) : null;
+        return record == null ? null : record.entries;
+    }
+
+    /**
+     * Record the entries of a jar, in the order of the scan.
+     */
+    synchronized void recordEntries(File jarFile, List<String> entries) {
+        if (fresh) {
+            return;
+        }
+        JarRecord record = new JarRecord();
+        record.path = jarFile.getAbsolutePath();
+        record.size = jarFile.length();
+        record.lastModified = jarFile.lastModified();
+        record.entries = entries;
+        index.jars.add(record);
+    }
+
+    /**
+     * @param defineFile the url of a plugin define file.
+     * @return the plugin defines recorded for the file, or null if the index is not fresh, or the file is not in a jar
+     * of the mount folders, such as the ones in the agent jar or on the system classpath. Those are read from the file.
+     */
+    public List<PluginDefine> getPluginDefines(URL defineFile) {
+        JarRecord record = fresh ? find(defineFile) : null;
+        if (record == null) {
+            return null;
+        }
+        List<PluginDefine> defines = new ArrayList<>();
+        for (DefineRecord define : record.plugins) {
+            try {
+                defines.add(PluginDefine.build(define.name + "=" + define.defineClass));
+            } catch (IllegalPluginDefineException e) {
+                LOGGER.error(e, "Failed to format plugin({}) define.", define.name);
+            }
+        }
+        return defines;
+    }
+
+    /**
+     * Record the plugin defines read from the plugin define file of a jar. The files out of the jars of the mount
+     * folders are not recorded.
+     *
+     * @param defineFile the url of the plugin define file, in the jar.
+     */
+    public synchronized void recordPluginDefines(URL defineFile, List<PluginDefine> defines) {
+        if (fresh) {
+            return;
+        }
+        JarRecord record = find(defineFile);
+        if (record == null) {
+            return;
+        }
+        for (PluginDefine define : defines) {
+            DefineRecord defineRecord = new DefineRecord();
+            defineRecord.name = define.getName();
+            defineRecord.defineClass = define.getDefineClass();
+            record.plugins.add(defineRecord);
+        }
+    }
+
+    private JarRecord find(URL defineFile) {
+        String url = defineFile.toString();
+        int separator = url.indexOf("!/");
+        if (!url.startsWith("jar:file:") || separator < 0) {
+            return null;
+        }
+        return index.find(url.substring("jar:file:".length(), separator));
+    }
+
+    /**
+     * Record the class names matched by a plugin define, if it matches by names.
+     */
+    public synchronized void recordTargets(String defineClass, ClassMatch match) {
+        if (fresh) {
+            return;
+        }
+        List<String> targets = null;
+        if (match instanceof NameMatch) {
+            targets = Collections.singletonList(((NameMatch) match).getClassName());
+        } else if (match instanceof MultiClassNameMatch) {
+            targets = new ArrayList<>(((MultiClassNameMatch) match).getMatchClassNames());
+        }
+        DefineRecord define = index.findDefine(defineClass);
+        if (define != null) {
+            define.targets = targets;
+        }
+    }
+
+    /**
+     * @return the class names matched by the plugin define, or null if it doesn't match by names, it is unknown, or
+     * the index is not fresh.
+     */
+    public List<String> getTargets(String defineClass) {
+        DefineRecord define = fresh ? index.findDefine(defineClass) : null;
+        return define == null ? null : define.targets;
+    }
+
+    /**
+     * Write the recorded index in a daemon thread, if it is not fresh.
+     */
+    public void saveInBackground() {
+        if (fresh) {
+            return;
+        }
+        Thread writer = new Thread(this::save, "JVMAop plugin startup index writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    synchronized void save() {
+        index.version = VERSION;
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                GSON.toJson(index, writer);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Plugin startup index {} is written.", file);
+        } catch (IOException e) {
+            LOGGER.warn(e, "Failed to write plugin startup index {}.", file);
+            temp.delete();
+        }
+    }
+
+    private static class Index {
+        private int version;
+        private List<JarRecord> jars = new ArrayList<>();
+
+        private boolean isFresh(List<File> jarFiles) {
+            if (version != VERSION || jars == null || jars.size() != jarFiles.size()) {
+                return false;
+            }
+            for (int i = 0; i < jarFiles.size(); i++) {
+                File jarFile = jarFiles.get(i);
+                JarRecord record = jars.get(i);
+                if (record == null || record.entries == null || record.plugins == null
+                        || !jarFile.getAbsolutePath().equals(record.path)
+                        || jarFile.length() != record.size || jarFile.lastModified() != record.lastModified) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private JarRecord find(String path) {
+            for (JarRecord record : jars) {
+                if (record.path.equals(path)) {
+                    return record;
+                }
+            }
+            return null;
+        }
+
+        private DefineRecord findDefine(String defineClass) {
+            for (JarRecord record : jars) {
+                for (DefineRecord define : record.plugins) {
+                    if (define.defineClass.equals(defineClass)) {
+                        return define;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class JarRecord {
+        private String path;
+        private long size;
+        private long lastModified;
+        private List<String> entries;
+        private List<DefineRecord> plugins = new ArrayList<>();
+    }
+
+    private static class DefineRecord {
+        private String name;
+        private String defineClass;
+        private List<String> targets;
+    }
+}
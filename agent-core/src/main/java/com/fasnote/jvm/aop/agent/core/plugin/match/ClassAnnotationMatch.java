@@ -49,6 +49,10 @@ public class ClassAnnotationMatch implements IndirectMatch {
         return new ClassAnnotationMatch(annotations);
     }
 
+    public List<String> getAnnotations() {
+        return Arrays.asList(annotations);
+    }
+
     @Override
     public ElementMatcher.Junction buildJunction() {
         ElementMatcher.Junction junction = null;
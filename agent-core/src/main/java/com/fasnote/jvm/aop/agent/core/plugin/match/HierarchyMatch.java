@@ -18,21 +18,17 @@
 
 package com.fasnote.jvm.aop.agent.core.plugin.match;
 
+import com.fasnote.jvm.aop.agent.core.plugin.bytebuddy.AbstractJunction;
 import net.bytebuddy.description.type.TypeDescription;
-import net.bytebuddy.description.type.TypeList;
 import net.bytebuddy.matcher.ElementMatcher;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-
-import static net.bytebuddy.matcher.ElementMatchers.hasSuperType;
-import static net.bytebuddy.matcher.ElementMatchers.isInterface;
-import static net.bytebuddy.matcher.ElementMatchers.named;
-import static net.bytebuddy.matcher.ElementMatchers.not;
+import java.util.Set;
 
 /**
- * Match the class by the given super class or interfaces.
+ * Match the class by the given super class or interfaces. The parent types of the class are resolved by {@link
+ * SuperTypeCache}.
  */
 public class HierarchyMatch implements IndirectMatch {
     private String[] parentTypes;
@@ -48,55 +44,39 @@ public class HierarchyMatch implements IndirectMatch {
         return new HierarchyMatch(parentTypes);
     }
 
+    public List<String> getParentTypes() {
+        return Arrays.asList(parentTypes);
+    }
+
     @Override
     public ElementMatcher.Junction buildJunction() {
-        ElementMatcher.Junction junction = null;
-        for (String superTypeName : parentTypes) {
-            if (junction == null) {
-                junction = buildSuperClassMatcher(superTypeName);
-            } else {
-                junction = junction.and(buildSuperClassMatcher(superTypeName));
+        return new AbstractJunction<TypeDescription>() {
+            @Override
+            public boolean matches(TypeDescription target) {
+                if (target.isInterface()) {
+                    return false;
+                }
+                // byte-buddy's hasSuperType, which matches the type itself too
+                String typeName = target.getTypeName();
+                Set<String> superTypeNames = SuperTypeCache.INSTANCE.getSuperTypeNames(target);
+                for (String parentType : parentTypes) {
+                    if (!parentType.equals(typeName) && !superTypeNames.contains(parentType)) {
+                        return false;
+                    }
+                }
+                return true;
             }
-        }
-        junction = junction.and(not(isInterface()));
-        return junction;
-    }
-
-    private ElementMatcher.Junction buildSuperClassMatcher(String superTypeName) {
-        return hasSuperType(named(superTypeName));
+        };
     }
 
     @Override
     public boolean isMatch(TypeDescription typeDescription) {
-        List<String> parentTypes = new ArrayList<String>(Arrays.asList(this.parentTypes));
-
-        TypeList.Generic implInterfaces = typeDescription.getInterfaces();
-        for (TypeDescription.Generic implInterface : implInterfaces) {
-            matchHierarchyClass(implInterface, parentTypes);
-        }
-
-        if (typeDescription.getSuperClass() != null) {
-            matchHierarchyClass(typeDescription.getSuperClass(), parentTypes);
-        }
-
-        return parentTypes.size() == 0;
-
-    }
-
-    private void matchHierarchyClass(TypeDescription.Generic clazz, List<String> parentTypes) {
-        parentTypes.remove(clazz.asRawType().getTypeName());
-        if (parentTypes.size() == 0) {
-            return;
-        }
-
-        for (TypeDescription.Generic generic : clazz.getInterfaces()) {
-            matchHierarchyClass(generic, parentTypes);
-        }
-
-        TypeDescription.Generic superClazz = clazz.getSuperClass();
-        if (superClazz != null && !clazz.getTypeName().equals("java.lang.Object")) {
-            matchHierarchyClass(superClazz, parentTypes);
+        Set<String> superTypeNames = SuperTypeCache.INSTANCE.getSuperTypeNames(typeDescription);
+        for (String parentType : parentTypes) {
+            if (!superTypeNames.contains(parentType)) {
+                return false;
+            }
         }
-
+        return true;
     }
 }
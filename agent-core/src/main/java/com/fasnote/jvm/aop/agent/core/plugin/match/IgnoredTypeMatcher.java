@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.match;
+
+import com.fasnote.jvm.aop.agent.core.plugin.bytebuddy.AbstractJunction;
+import net.bytebuddy.description.type.TypeDescription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The types never transformed by the agent, evaluated by the agent builder before any plugin matching. The name
+ * prefixes are compiled into a trie, and the name fragments into an Aho-Corasick automaton, so a type name is scanned
+ * at most twice whatever the number of the rules. Synthetic types are always ignored.
+ * <p>
+ * Every rule counts the types it ignores, see {@link #getIgnoredCounts()}. A type ignored by more than one rule is
+ * counted once, by the shortest prefix, else by the fragment ending first in the name, else as a synthetic type.
+ */
+public class IgnoredTypeMatcher extends AbstractJunction<TypeDescription> {
+    private static final String SYNTHETIC_RULE = "isSynthetic";
+
+    private final Node prefixes = new Node();
+
+    private final Node fragments = new Node();
+
+    private final List<String> rules = new ArrayList<>();
+
+    private final LongAdder[] counters;
+
+    /**
+     * @param prefixes  the prefixes of the names of the ignored types.
+     * @param fragments the fragments, any name containing one of which is ignored.
+     */
+    public IgnoredTypeMatcher(List<String> prefixes, List<String> fragments) {
+        for (String prefix : prefixes) {
+            add(this.prefixes, prefix, "nameStartsWith ");
+        }
+        for (String fragment : fragments) {
+            add(this.fragments, fragment, "nameContains ");
+        }
+        linkFailures(this.fragments);
+        rules.add(SYNTHETIC_RULE);
+        counters = new LongAdder[rules.size()];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    private void add(Node root, String pattern, String ruleName) {
+        pattern = pattern.trim();
+        if (pattern.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < pattern.length(); i++) {
+            node = node.childOrAdd(pattern.charAt(i));
+        }
+        if (node.rule < 0) {
+            node.rule = rules.size();
+            rules.add(ruleName + pattern);
+        }
+    }
+
+    /**
+     * Link every node of the fragments to the node of its longest proper suffix, breadth first, and inherit the rule
+     * of the suffix if the node ends no fragment itself.
+     */
+    private static void linkFailures(Node root) {
+        Queue<Node> queue = new ArrayDeque<>();
+        for (int i = 0; i < root.size; i++) {
+            root.children[i].failure = root;
+            queue.add(root.children[i]);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (int i = 0; i < node.size; i++) {
+                char c = node.keys[i];
+                Node child = node.children[i];
+                Node failure = node.failure;
+                while (failure != root && failure.child(c) == null) {
+                    failure = failure.failure;
+                }
+                Node next = failure.child(c);
+                child.failure = next != null ? next : root;
+                if (child.rule < 0) {
+                    child.rule = child.failure.rule;
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(TypeDescription target) {
+        int rule = ruleOf(target.getActualName());
+        if (rule < 0 && target.isSynthetic()) {
+            rule = rules.size() - 1;
+        }
+        if (rule < 0) {
+            return false;
+        }
+        counters[rule].increment();
+        return true;
+    }
+
+    /**
+     * @return the index of the first rule ignoring the name, -1 if none.
+     */
+    int ruleOf(String name) {
+        Node node = prefixes;
+        for (int i = 0; i < name.length() && node.size > 0; i++) {
+            node = node.child(name.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.rule >= 0) {
+                return node.rule;
+            }
+        }
+
+        Node root = fragments;
+        if (root.size == 0) {
+            return -1;
+        }
+        node = root;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            Node next = node.child(c);
+            while (next == null && node != root) {
+                node = node.failure;
+                next = node.child(c);
+            }
+            node = next != null ? next : root;
+            if (node.rule >= 0) {
+                return node.rule;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of the types ignored by every rule, in the order of the rules.
+     */
+    public Map<String, Long> getIgnoredCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < counters.length; i++) {
+            counts.put(rules.get(i), counters[i].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "IgnoredTypeMatcher" + getIgnoredCounts();
+    }
+
+    private static class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int size;
+        /**
+         * The rule ending at this node, -1 if none.
+         */
+        private int rule = -1;
+        private Node failure;
+
+        Node child(char c) {
+            char[] keys = this.keys;
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrAdd(char c) {
+            Node child = child(c);
+            if (child == null) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, Math.max(2, size * 2));
+                    children = Arrays.copyOf(children, keys.length);
+                }
+                child = new Node();
+                keys[size] = c;
+                children[size++] = child;
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.match;
+
+import com.fasnote.jvm.aop.agent.core.plugin.match.logical.LogicalAndMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.logical.LogicalOrMatch;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index the {@link IndirectMatch}es by what a class must have to match them, so only the candidates are checked by
+ * {@link IndirectMatch#isMatch(TypeDescription)}, rather than every one of them.
+ * <p>
+ * A match is indexed by the class names of {@link MultiClassNameMatch}, the prefixes of {@link PrefixMatch}, the literal
+ * prefixes of the expressions of {@link RegexMatch}, one of the annotations of {@link ClassAnnotationMatch} and {@link
+ * MethodAnnotationMatch}, or one of the parent types of {@link HierarchyMatch}. {@link LogicalAndMatch} is indexed by
+ * the one of its matches with the fewest keys, and {@link LogicalOrMatch} by the keys of all its matches. The others,
+ * such as a {@link RegexMatch} starting with a wildcard, are candidates of every class.
+ * <p>
+ * The prefixes of {@link PrefixMatch} and {@link RegexMatch} share one trie, so the candidates of both are collected in
+ * one pass over the class name, and only the expressions of the candidates are evaluated.
+ * <p>
+ * The index is not thread safe while matches are added. Once built, it could be read concurrently.
+ *
+ * @param <T> the value of the match, such as the plugin define.
+ */
+public class IndirectMatchIndex<T> {
+    private final List<T> values = new ArrayList<>();
+
+    private final BitSet unindexed = new BitSet();
+
+    private final Map<String, List<Integer>> names = new HashMap<>();
+
+    private final PrefixTrie prefixes = new PrefixTrie();
+
+    private final Map<String, List<Integer>> classAnnotations = new HashMap<>();
+
+    private final Map<String, List<Integer>> methodAnnotations = new HashMap<>();
+
+    private final Map<String, List<Integer>> superTypes = new HashMap<>();
+
+    public void add(IndirectMatch match, T value) {
+        int id = values.size();
+        values.add(value);
+        List<Key> keys = keysOf(match);
+        if (keys == null) {
+            unindexed.set(id);
+            return;
+        }
+        for (Key key : keys) {
+            switch (key.type) {
+                case NAME:
+                    names.computeIfAbsent(key.value, k -> new ArrayList<>(1)).add(id);
+                    break;
+                case PREFIX:
+                    prefixes.put(key.value, id);
+                    break;
+                case CLASS_ANNOTATION:
+                    classAnnotations.computeIfAbsent(key.value, k -> new ArrayList<>(1)).add(id);
+                    break;
+                case METHOD_ANNOTATION:
+                    methodAnnotations.computeIfAbsent(key.value, k -> new ArrayList<>(1)).add(id);
+                    break;
+                default:
+                    superTypes.computeIfAbsent(key.value, k -> new ArrayList<>(1)).add(id);
+            }
+        }
+    }
+
+    /**
+     * @return the values whose matches may match the type, in the order they are added. They still need to be checked
+     * by {@link IndirectMatch#isMatch(TypeDescription)}.
+     */
+    public List<T> candidates(TypeDescription typeDescription) {
+        BitSet candidates = (BitSet) unindexed.clone();
+        addAll(candidates, names.get(typeDescription.getTypeName()));
+        prefixes.collect(typeDescription.getName(), candidates);
+        if (!classAnnotations.isEmpty()) {
+            for (AnnotationDescription annotation : typeDescription.getDeclaredAnnotations()) {
+                addAll(candidates, classAnnotations.get(annotation.getAnnotationType().getActualName()));
+            }
+        }
+        if (!methodAnnotations.isEmpty()) {
+            for (MethodDescription.InDefinedShape method : typeDescription.getDeclaredMethods()) {
+                for (AnnotationDescription annotation : method.getDeclaredAnnotations()) {
+                    addAll(candidates, methodAnnotations.get(annotation.getAnnotationType().getActualName()));
+                }
+            }
+        }
+        if (!superTypes.isEmpty()) {
+            // the type itself too, as byte-buddy's hasSuperType of HierarchyMatch#buildJunction matches it
+            addAll(candidates, superTypes.get(typeDescription.getTypeName()));
+            for (String superTypeName : SuperTypeCache.INSTANCE.getSuperTypeNames(typeDescription)) {
+                addAll(candidates, superTypes.get(superTypeName));
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>(candidates.cardinality());
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            result.add(values.get(id));
+        }
+        return result;
+    }
+
+    private static void addAll(BitSet candidates, List<Integer> ids) {
+        if (ids != null) {
+            for (int id : ids) {
+                candidates.set(id);
+            }
+        }
+    }
+
+    /**
+     * @return the keys, one of which a class must have to match, or null if the match can't be indexed.
+     */
+    private static List<Key> keysOf(IndirectMatch match) {
+        List<Key> keys = new ArrayList<>();
+        if (match instanceof MultiClassNameMatch) {
+            for (String name : ((MultiClassNameMatch) match).getMatchClassNames()) {
+                keys.add(new Key(KeyType.NAME, name));
+            }
+        } else if (match instanceof PrefixMatch) {
+            for (String prefix : ((PrefixMatch) match).getPrefixes()) {
+                keys.add(new Key(KeyType.PREFIX, prefix));
+            }
+        } else if (match instanceof RegexMatch) {
+            List<String> prefixes = ((RegexMatch) match).getLiteralPrefixes();
+            if (prefixes == null) {
+                return null;
+            }
+            for (String prefix : prefixes) {
+                keys.add(new Key(KeyType.PREFIX, prefix));
+            }
+        } else if (match instanceof ClassAnnotationMatch) {
+            keys.add(new Key(KeyType.CLASS_ANNOTATION, ((ClassAnnotationMatch) match).getAnnotations().get(0)));
+        } else if (match instanceof MethodAnnotationMatch) {
+            keys.add(new Key(KeyType.METHOD_ANNOTATION, ((MethodAnnotationMatch) match).getAnnotations().get(0)));
+        } else if (match instanceof HierarchyMatch) {
+            keys.add(new Key(KeyType.SUPER_TYPE, ((HierarchyMatch) match).getParentTypes().get(0)));
+        } else if (match instanceof LogicalAndMatch) {
+            keys = null;
+            for (IndirectMatch indirectMatch : ((LogicalAndMatch) match).getIndirectMatches()) {
+                List<Key> matchKeys = keysOf(indirectMatch);
+                if (matchKeys != null && (keys == null || matchKeys.size() < keys.size())) {
+                    keys = matchKeys;
+                }
+            }
+        } else if (match instanceof LogicalOrMatch) {
+            for (IndirectMatch indirectMatch : ((LogicalOrMatch) match).getIndirectMatches()) {
+                List<Key> matchKeys = keysOf(indirectMatch);
+                if (matchKeys == null) {
+                    return null;
+                }
+                keys.addAll(matchKeys);
+            }
+        } else {
+            return null;
+        }
+        return keys;
+    }
+
+    private enum KeyType {
+        NAME, PREFIX, CLASS_ANNOTATION, METHOD_ANNOTATION, SUPER_TYPE
+    }
+
+    private static class Key {
+        private final KeyType type;
+        private final String value;
+
+        private Key(KeyType type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A character trie of the prefixes, collecting the ids of all the prefixes of a name in one pass over the name.
+     */
+    private static class PrefixTrie {
+        private final Map<Character, PrefixTrie> children = new HashMap<>();
+
+        private final List<Integer> ids = new ArrayList<>(0);
+
+        private void put(String prefix, int id) {
+            PrefixTrie node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PrefixTrie());
+            }
+            node.ids.add(id);
+        }
+
+        private void collect(String name, BitSet candidates) {
+            PrefixTrie node = this;
+            addAll(candidates, node.ids);
+            for (int i = 0; i < name.length() && !node.children.isEmpty(); i++) {
+                node = node.children.get(name.charAt(i));
+                if (node == null) {
+                    return;
+                }
+                addAll(candidates, node.ids);
+            }
+        }
+    }
+}
@@ -51,6 +51,10 @@ public class MethodAnnotationMatch implements IndirectMatch {
         return new MethodAnnotationMatch(annotations);
     }
 
+    public List<String> getAnnotations() {
+        return Arrays.asList(annotations);
+    }
+
     @Override
     public ElementMatcher.Junction buildJunction() {
         ElementMatcher.Junction junction = null;
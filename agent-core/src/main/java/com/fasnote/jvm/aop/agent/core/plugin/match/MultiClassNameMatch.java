@@ -44,6 +44,10 @@ public class MultiClassNameMatch implements IndirectMatch {
         return new MultiClassNameMatch(classNames);
     }
 
+    public List<String> getMatchClassNames() {
+        return matchClassNames;
+    }
+
     @Override
     public ElementMatcher.Junction buildJunction() {
         ElementMatcher.Junction junction = null;
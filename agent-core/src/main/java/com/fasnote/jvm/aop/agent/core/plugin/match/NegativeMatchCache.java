@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.match;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.ClassLoaderKey;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The types proven to be matched by no plugin, per class loader. A type is matched again whenever it is retransformed,
+ * by this agent or by any other one, and the result is the same as long as the plugins are the same, so the matcher
+ * looks here first.
+ * <p>
+ * Only a 64-bit hash of the type name is kept, rather than the name. A false hit would leave a type unenhanced, so
+ * there is no probabilistic structure such as a bloom filter here, the chance of two names colliding in one class
+ * loader is negligible. The class loaders are weakly held, and the cache of each one is cleared when it reaches {@link
+ * Config.Plugin#NEGATIVE_MATCH_CACHE_SIZE} types.
+ * <p>
+ * Nothing here takes a lock. A type recorded at the same moment as a resize or a clear may be lost, which only costs
+ * one more match of it.
+ * <p>
+ * The cache must be invalidated whenever the plugins change, such as a new {@code PluginFinder}. The results matched
+ * before the invalidation are not recorded, see {@link #getGeneration()}.
+ */
+public enum NegativeMatchCache {
+    INSTANCE;
+
+    private final ConcurrentHashMap<ClassLoaderKey, NameHashSet> caches = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<ClassLoader> collectedLoaders = new ReferenceQueue<>();
+
+    private final NameHashSet bootstrapCache = new NameHashSet();
+
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final LongAdder lookups = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @return the current generation of the cache, to be passed to {@link #recordUnmatched(ClassLoader, String, int)}.
+     * Take it before matching the type.
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @return true, if the type of the class loader is known to be matched by no plugin.
+     */
+    public boolean isUnmatched(ClassLoader classLoader, String typeName) {
+        if (Config.Plugin.NEGATIVE_MATCH_CACHE_SIZE <= 0) {
+            return false;
+        }
+        lookups.increment();
+        NameHashSet cache = classLoader == null ? bootstrapCache : caches.get(new ClassLoaderKey(classLoader));
+        if (cache != null && cache.contains(hash(typeName))) {
+            hits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remember the type matched by no plugin. It is ignored if the cache has been invalidated since the generation.
+     */
+    public void recordUnmatched(ClassLoader classLoader, String typeName, int generation) {
+        if (Config.Plugin.NEGATIVE_MATCH_CACHE_SIZE <= 0 || generation != this.generation.get()) {
+            return;
+        }
+        NameHashSet cache = classLoader == null ? bootstrapCache : caches.get(new ClassLoaderKey(classLoader));
+        if (cache == null) {
+            expungeCollectedLoaders();
+            cache = caches.computeIfAbsent(new ClassLoaderKey(classLoader, collectedLoaders), key -> new NameHashSet());
+        }
+        cache.add(hash(typeName), generation);
+    }
+
+    private void expungeCollectedLoaders() {
+        Reference<? extends ClassLoader> collected;
+        while ((collected = collectedLoaders.poll()) != null) {
+            caches.remove(collected);
+        }
+    }
+
+    /**
+     * Forget all the types, as the plugins have changed.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        invalidations.increment();
+        caches.clear();
+        bootstrapCache.clear();
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the ratio of the lookups hitting the cache, 0 if nothing is looked up.
+     */
+    public double getHitRate() {
+        long lookupCount = lookups.sum();
+        return lookupCount == 0 ? 0 : (double) hits.sum() / lookupCount;
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return the number of the types cached, of all the class loaders.
+     */
+    public int size() {
+        int size = bootstrapCache.size();
+        for (NameHashSet cache : caches.values()) {
+            size += cache.size();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lookups=%d hits=%d hitRate=%.2f%% size=%d invalidations=%d",
+                getLookupCount(), getHitCount(), getHitRate() * 100, size(), getInvalidationCount());
+    }
+
+    /**
+     * FNV-1a over the chars of the name, then the finalizer of MurmurHash3 to spread the bits. 0 marks the empty slots
+     * of {@link NameHashSet}, so it is never returned.
+     */
+    static long hash(String typeName) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < typeName.length(); i++) {
+            hash ^= typeName.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * An open addressing set of the name hashes, with linear probing. The slots are read and claimed by CAS, and the
+     * table is replaced by a copy when it is half full, or by an empty one when the cache is full.
+     */
+    private class NameHashSet {
+        private final AtomicReference<Table> table = new AtomicReference<>(new Table(64));
+
+        boolean contains(long hash) {
+            AtomicLongArray slots = table.get().slots;
+            int mask = slots.length() - 1;
+            int i = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++, i = (i + 1) & mask) {
+                long slot = slots.get(i);
+                if (slot == hash) {
+                    return true;
+                }
+                if (slot == 0) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        void add(long hash, int generation) {
+            Table table = this.table.get();
+            // the cache may have been invalidated after the check of the caller, the table is read before the check
+            if (generation != NegativeMatchCache.this.generation.get()) {
+                return;
+            }
+            if (table.size.get() >= Config.Plugin.NEGATIVE_MATCH_CACHE_SIZE) {
+                Table cleared = new Table(64);
+                table = this.table.compareAndSet(table, cleared) ? cleared : this.table.get();
+            }
+            if (table.insert(hash) && table.size.incrementAndGet() * 2 > table.slots.length()) {
+                Table resized = new Table(table.slots.length() * 2);
+                for (int i = 0; i < table.slots.length(); i++) {
+                    long slot = table.slots.get(i);
+                    if (slot != 0 && resized.insert(slot)) {
+                        resized.size.incrementAndGet();
+                    }
+                }
+                this.table.compareAndSet(table, resized);
+            }
+        }
+
+        void clear() {
+            table.set(new Table(64));
+        }
+
+        int size() {
+            return table.get().size.get();
+        }
+    }
+
+    private static final class Table {
+        private final AtomicLongArray slots;
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        Table(int capacity) {
+            this.slots = new AtomicLongArray(capacity);
+        }
+
+        /**
+         * @return false, if the hash is there already, or there is no empty slot left.
+         */
+        boolean insert(long hash) {
+            int mask = slots.length() - 1;
+            int i = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++, i = (i + 1) & mask) {
+                long slot = slots.get(i);
+                if (slot == hash) {
+                    return false;
+                }
+                if (slot == 0) {
+                    if (slots.compareAndSet(i, 0, hash)) {
+                        return true;
+                    }
+                    // claimed by another thread at the same time, it may be the same hash
+                    if (slots.get(i) == hash) {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -22,6 +22,9 @@ import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.matcher.ElementMatchers;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Match classes by any one of the given {@link #prefixes}
  */
@@ -40,6 +43,10 @@ public class PrefixMatch implements IndirectMatch {
         return new PrefixMatch(prefixes);
     }
 
+    public List<String> getPrefixes() {
+        return Arrays.asList(prefixes);
+    }
+
     @Override
     public ElementMatcher.Junction buildJunction() {
         ElementMatcher.Junction junction = null;
@@ -18,50 +18,152 @@
 
 package com.fasnote.jvm.aop.agent.core.plugin.match;
 
+import com.fasnote.jvm.aop.agent.core.plugin.bytebuddy.AbstractJunction;
+import net.bytebuddy.description.NamedElement;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 
-import static net.bytebuddy.matcher.ElementMatchers.nameMatches;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
 
 /**
- * Match the class by given class name regex expression.
+ * Match the class by given class name regex expression. The expressions are compiled once, and a class name must match
+ * the whole expression, the same as {@link String#matches(String)}.
  */
 public class RegexMatch implements IndirectMatch {
+    /**
+     * The characters having special meanings in an expression, out of a character class.
+     */
+    private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
     private String[] regexExpressions;
 
+    private Pattern[] patterns;
+
     private RegexMatch(String... regexExpressions) {
         if (regexExpressions == null || regexExpressions.length == 0) {
             throw new IllegalArgumentException("annotations is null");
         }
         this.regexExpressions = regexExpressions;
+        this.patterns = new Pattern[regexExpressions.length];
+        for (int i = 0; i < regexExpressions.length; i++) {
+            patterns[i] = Pattern.compile(regexExpressions[i]);
+        }
     }
 
     public static RegexMatch byRegexMatch(String... regexExpressions) {
         return new RegexMatch(regexExpressions);
     }
 
+    public List<String> getRegexExpressions() {
+        return Arrays.asList(regexExpressions);
+    }
+
     @Override
     public ElementMatcher.Junction buildJunction() {
-        ElementMatcher.Junction regexJunction = null;
-        for (String regexExpression : regexExpressions) {
-            if (regexJunction == null) {
-                regexJunction = nameMatches(regexExpression);
-            } else {
-                regexJunction = regexJunction.or(nameMatches(regexExpression));
+        return new AbstractJunction<NamedElement>() {
+            @Override
+            public boolean matches(NamedElement target) {
+                return matchesAny(target.getActualName());
             }
-        }
-        return regexJunction;
+        };
     }
 
     @Override
     public boolean isMatch(TypeDescription typeDescription) {
-        boolean isMatch = false;
-        for (String matchExpression : regexExpressions) {
-            isMatch = typeDescription.getTypeName().matches(matchExpression);
-            if (isMatch) {
+        return matchesAny(typeDescription.getTypeName());
+    }
+
+    private boolean matchesAny(String name) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the literal prefixes, one of which a class name must start with to match, or null if any expression
+     * doesn't have one, such as {@code .*Controller}.
+     */
+    public List<String> getLiteralPrefixes() {
+        List<String> prefixes = new ArrayList<>();
+        for (String regexExpression : regexExpressions) {
+            List<String> alternatives = splitAlternatives(regexExpression);
+            if (alternatives == null) {
+                return null;
+            }
+            for (String alternative : alternatives) {
+                String prefix = literalPrefixOf(alternative);
+                if (prefix.isEmpty()) {
+                    return null;
+                }
+                prefixes.add(prefix);
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Split the expression by the top level {@code |}, out of any group.
+     *
+     * @return null, if the expression has both {@code |} and character classes or quotes, which are not parsed.
+     */
+    private static List<String> splitAlternatives(String regexExpression) {
+        if (regexExpression.indexOf('|') >= 0
+                && (regexExpression.indexOf('[') >= 0 || regexExpression.contains("\\Q"))) {
+            return null;
+        }
+        List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < regexExpression.length(); i++) {
+            char c = regexExpression.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                alternatives.add(regexExpression.substring(start, i));
+                start = i + 1;
+            }
+        }
+        alternatives.add(regexExpression.substring(start));
+        return alternatives;
+    }
+
+    /**
+     * @return the literal characters the expression starts with, which every matched name starts with too. It stops at
+     * the first character with a special meaning, and leaves out the last literal character if it is optional, such as
+     * {@code com\.foo?}. An escaped letter or digit, such as {@code \w}, stops it too.
+     */
+    private static String literalPrefixOf(String alternative) {
+        StringBuilder prefix = new StringBuilder();
+        int i = alternative.startsWith("^") ? 1 : 0;
+        while (i < alternative.length()) {
+            char c = alternative.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= alternative.length() || Character.isLetterOrDigit(alternative.charAt(i + 1))) {
+                    break;
+                }
+                c = alternative.charAt(i + 1);
+                i += 2;
+            } else if (META_CHARACTERS.indexOf(c) >= 0) {
+                break;
+            } else {
+                i++;
+            }
+            if (i < alternative.length() && "?*{".indexOf(alternative.charAt(i)) >= 0) {
+                // the character is optional
                 break;
             }
+            prefix.append(c);
         }
-        return isMatch;
+        return prefix.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.match;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.ClassLoaderKey;
+import net.bytebuddy.description.type.TypeDescription;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The names of all the parent types of a type, the super classes and the interfaces, transitively. They are cached per
+ * class loader, so the parent types shared by many classes, such as the base classes of a framework, are walked only
+ * once, rather than once for every class and every {@link HierarchyMatch}. The names of a type are not cached until it
+ * is walked as the parent of another type.
+ * <p>
+ * A type description doesn't tell its class loader, so the caller tells the class loader of the types being matched by
+ * {@link #enter(ClassLoader)}, such as the type matcher and the transformer of the agent builder. Out of it, the names
+ * are resolved without caching. The class loaders are weakly held, and the cache of each one is bounded by {@link
+ * Config.Plugin#SUPER_TYPE_CACHE_SIZE} types, about a quarter of them are evicted when it is full.
+ * <p>
+ * A lookup takes no lock and writes nothing, as every type being matched looks up the names of its parent types.
+ */
+public enum SuperTypeCache {
+    INSTANCE;
+
+    private static final Object BOOTSTRAP = new Object();
+
+    private final ThreadLocal<Object> currentLoader = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<ClassLoaderKey, LoaderCache> caches = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<ClassLoader> collectedLoaders = new ReferenceQueue<>();
+
+    private final LoaderCache bootstrapCache = new LoaderCache();
+
+    /**
+     * Resolve the types of the given class loader in the current thread, until {@link #exit(Object)}.
+     *
+     * @return the class loader entered before, to be passed to {@link #exit(Object)}.
+     */
+    public Object enter(ClassLoader classLoader) {
+        Object previous = currentLoader.get();
+        currentLoader.set(classLoader == null ? BOOTSTRAP : classLoader);
+        return previous;
+    }
+
+    /**
+     * @param previous the value returned by {@link #enter(ClassLoader)}.
+     */
+    public void exit(Object previous) {
+        if (previous == null) {
+            currentLoader.remove();
+        } else {
+            currentLoader.set(previous);
+        }
+    }
+
+    /**
+     * @return the names of the parent types, the same as walked by {@link HierarchyMatch#isMatch(TypeDescription)}. The
+     * type itself is not included.
+     */
+    public Set<String> getSuperTypeNames(TypeDescription typeDescription) {
+        // the type itself is usually matched only when it is loaded, so only the names of its parent types are cached
+        return superTypeNames(typeDescription, currentCache(), false);
+    }
+
+    /**
+     * @return the number of the types cached for the class loader.
+     */
+    int size(ClassLoader classLoader) {
+        LoaderCache cache = classLoader == null ? bootstrapCache : caches.get(new ClassLoaderKey(classLoader));
+        return cache == null ? 0 : cache.size();
+    }
+
+    private LoaderCache currentCache() {
+        Object loader = currentLoader.get();
+        if (loader == null) {
+            return null;
+        }
+        if (loader == BOOTSTRAP) {
+            return bootstrapCache;
+        }
+        LoaderCache cache = caches.get(new ClassLoaderKey((ClassLoader) loader));
+        if (cache == null) {
+            expungeCollectedLoaders();
+            cache = caches.computeIfAbsent(new ClassLoaderKey((ClassLoader) loader, collectedLoaders), key -> new LoaderCache());
+        }
+        return cache;
+    }
+
+    private void expungeCollectedLoaders() {
+        Reference<? extends ClassLoader> collected;
+        while ((collected = collectedLoaders.poll()) != null) {
+            caches.remove(collected);
+        }
+    }
+
+    private static Set<String> superTypeNames(TypeDescription type, LoaderCache cache, boolean cacheable) {
+        String name = type.getName();
+        Set<String> names = cache == null ? null : cache.get(name);
+        if (names != null) {
+            return names;
+        }
+        names = new HashSet<>();
+        TypeDescription.Generic superClass = type.getSuperClass();
+        if (superClass != null && !name.equals("java.lang.Object")) {
+            addSuperType(superClass.asErasure(), names, cache);
+        }
+        for (TypeDescription implInterface : type.getInterfaces().asErasures()) {
+            addSuperType(implInterface, names, cache);
+        }
+        names = Collections.unmodifiableSet(names);
+        if (cache != null && cacheable) {
+            cache.put(name, names);
+        }
+        return names;
+    }
+
+    private static void addSuperType(TypeDescription superType, Set<String> names, LoaderCache cache) {
+        if (names.add(superType.getName())) {
+            names.addAll(superTypeNames(superType, cache, true));
+        }
+    }
+
+    private static class LoaderCache {
+        private final ConcurrentHashMap<String, Set<String>> superTypes = new ConcurrentHashMap<>();
+
+        private final AtomicBoolean evicting = new AtomicBoolean();
+
+        private Set<String> get(String name) {
+            return superTypes.get(name);
+        }
+
+        private void put(String name, Set<String> names) {
+            int maxSize = Config.Plugin.SUPER_TYPE_CACHE_SIZE;
+            if (superTypes.size() >= maxSize && evicting.compareAndSet(false, true)) {
+                try {
+                    // the order of the hash table is about random, the other threads keep putting in the meantime
+                    int evicted = superTypes.size() - maxSize * 3 / 4;
+                    Iterator<String> iterator = superTypes.keySet().iterator();
+                    while (evicted-- > 0 && iterator.hasNext()) {
+                        iterator.next();
+                        iterator.remove();
+                    }
+                } finally {
+                    evicting.set(false);
+                }
+            }
+            superTypes.put(name, names);
+        }
+
+        private int size() {
+            return superTypes.size();
+        }
+    }
+}
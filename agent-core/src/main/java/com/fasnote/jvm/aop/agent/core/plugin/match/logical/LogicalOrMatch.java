@@ -22,6 +22,9 @@ import com.fasnote.jvm.aop.agent.core.plugin.match.IndirectMatch;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Match classes by multiple criteria with OR conjunction
  */
@@ -37,6 +40,10 @@ public class LogicalOrMatch implements IndirectMatch {
         this.indirectMatches = indirectMatches;
     }
 
+    public List<IndirectMatch> getIndirectMatches() {
+        return Arrays.asList(indirectMatches);
+    }
+
     @Override
     public ElementMatcher.Junction buildJunction() {
         ElementMatcher.Junction junction = null;
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.meter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StripedHistogramTest {
+
+    @Test
+    public void testQuantiles() {
+        StripedHistogram histogram = new StripedHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1_000_000);
+
+        StripedHistogram.Snapshot snapshot = histogram.drain();
+        Assert.assertEquals(100, snapshot.getCount());
+        Assert.assertEquals(99 * 1000 + 1_000_000, snapshot.getSum());
+        Assert.assertEquals(1023, snapshot.getQuantile(0.5));
+        Assert.assertEquals(1023, snapshot.getQuantile(0.99));
+        Assert.assertEquals((1 << 20) - 1, snapshot.getMax());
+    }
+
+    @Test
+    public void testDrain() throws InterruptedException {
+        StripedHistogram histogram = new StripedHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    histogram.record(j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(40_000, histogram.drain().getCount());
+        Assert.assertEquals(0, histogram.drain().getCount());
+        Assert.assertEquals(0, histogram.drain().getQuantile(0.99));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.meter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TransformProfilerTest {
+
+    @After
+    public void tearDown() {
+        TransformProfiler.setSampleRate(0);
+        TransformProfiler.reset();
+    }
+
+    @Test
+    public void testSampling() {
+        TransformProfiler.setSampleRate(2);
+        for (int i = 0; i < 4; i++) {
+            TransformProfiler.beginClass();
+            long start = TransformProfiler.start();
+            TransformProfiler.stop(start, TransformProfiler.Stage.FIND_DEFINE, "foo", i == 0);
+            TransformProfiler.beginMake();
+            TransformProfiler.endMake();
+            TransformProfiler.endClass();
+        }
+
+        List<TransformProfiler.Record> records = TransformProfiler.records();
+        Assert.assertEquals(3, records.size());
+        for (TransformProfiler.Record record : records) {
+            Assert.assertEquals(2, record.getCount());
+            if (record.getStage() == TransformProfiler.Stage.FIND_DEFINE) {
+                Assert.assertEquals("foo", record.getKey());
+                Assert.assertEquals(1, record.getHits());
+            } else {
+                Assert.assertEquals(2, record.getHits());
+            }
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        TransformProfiler.beginClass();
+        Assert.assertEquals(TransformProfiler.NOT_SAMPLED, TransformProfiler.start());
+        TransformProfiler.stop(TransformProfiler.start(), TransformProfiler.Stage.FIND, true);
+        TransformProfiler.endClass();
+        Assert.assertTrue(TransformProfiler.records().isEmpty());
+    }
+}
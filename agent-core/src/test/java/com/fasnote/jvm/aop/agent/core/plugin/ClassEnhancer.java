@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain.InterceptorChainFusion;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Enhance a class by the plugins the way the agent transformer does, and load the enhanced class by a child first class
+ * loader, so the class of the test stays untouched.
+ */
+public final class ClassEnhancer {
+
+    private ClassEnhancer() {
+    }
+
+    public static Class<?> enhance(Class<?> type, AbstractClassEnhancePluginDefine... defines) {
+        return enhance(type, false, Arrays.asList(defines));
+    }
+
+    /**
+     * @param fuse    true, to fuse the interceptors of the methods matched by more than one intercept point.
+     * @param defines the plugins, in the order to be applied.
+     */
+    public static Class<?> enhance(Class<?> type, boolean fuse, List<AbstractClassEnhancePluginDefine> defines) {
+        ClassLoader classLoader = type.getClassLoader();
+        TypeDescription typeDescription = TypeDescription.ForLoadedType.of(type);
+        DynamicType.Builder<?> builder = new ByteBuddy().rebase(type, ClassFileLocator.ForClassLoader.of(classLoader));
+        EnhanceContext context = new EnhanceContext();
+        if (fuse) {
+            builder = InterceptorChainFusion.fuse(typeDescription, builder, defines, classLoader, context);
+        }
+        for (AbstractClassEnhancePluginDefine define : defines) {
+            DynamicType.Builder<?> newBuilder = define.define(typeDescription, builder, classLoader, context);
+            if (newBuilder != null) {
+                builder = newBuilder;
+            }
+        }
+        return builder.make().load(classLoader, ClassLoadingStrategy.Default.CHILD_FIRST).getLoaded();
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ClassInstanceMethodsEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstanceConstructorInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstanceMethodsAroundInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorHolder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.MethodInterceptResult;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.ClassInstanceMethodsEnhancePluginDefineV2;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.InstanceMethodsAroundInterceptorV2;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.InstanceMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static net.bytebuddy.matcher.ElementMatchers.any;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+public class InterceptorSwitchesTest {
+
+    public static final List<String> EVENTS = new CopyOnWriteArrayList<>();
+
+    public static class Greeter {
+        public String greet() {
+            EVENTS.add("greet");
+            return "hello";
+        }
+
+        public String farewell() {
+            EVENTS.add("farewell");
+            return "bye";
+        }
+    }
+
+    public static class ConstructInterceptor implements InstanceConstructorInterceptor {
+        @Override
+        public void onConstruct(EnhancedInstance objInst, Object[] allArguments) {
+            EVENTS.add("construct");
+        }
+    }
+
+    public static class GreetInterceptor implements InstanceMethodsAroundInterceptor {
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                 Class<?>[] argumentsTypes, MethodInterceptResult result) {
+            EVENTS.add("v1 before");
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                  Class<?>[] argumentsTypes, Object ret) {
+            EVENTS.add("v1 after");
+            return ret;
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                          Class<?>[] argumentsTypes, Throwable t) {
+        }
+    }
+
+    public static class FarewellInterceptor implements InstanceMethodsAroundInterceptorV2 {
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                 Class<?>[] argumentsTypes, MethodInvocationContext context) {
+            EVENTS.add("v2 before");
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                  Class<?>[] argumentsTypes, Object ret, MethodInvocationContext context) {
+            EVENTS.add("v2 after");
+            return ret;
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                          Class<?>[] argumentsTypes, Throwable t, MethodInvocationContext context) {
+        }
+    }
+
+    public static class GreeterDefine extends ClassInstanceMethodsEnhancePluginDefine {
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(Greeter.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return new ConstructorInterceptPoint[]{
+                    new ConstructorInterceptPoint() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getConstructorMatcher() {
+                            return any();
+                        }
+
+                        @Override
+                        public String getConstructorInterceptor() {
+                            return ConstructInterceptor.class.getName();
+                        }
+                    }
+            };
+        }
+
+        @Override
+        public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+            return new InstanceMethodsInterceptPoint[]{
+                    new InstanceMethodsInterceptPoint() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                            return named("greet");
+                        }
+
+                        @Override
+                        public String getMethodsInterceptor() {
+                            return GreetInterceptor.class.getName();
+                        }
+
+                        @Override
+                        public boolean isOverrideArgs() {
+                            return false;
+                        }
+                    }
+            };
+        }
+
+        @Override
+        protected boolean isInlineAdviceDispatch() {
+            return false;
+        }
+    }
+
+    public static class FarewellDefine extends ClassInstanceMethodsEnhancePluginDefineV2 {
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(Greeter.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return null;
+        }
+
+        @Override
+        public InstanceMethodsInterceptV2Point[] getInstanceMethodsInterceptV2Points() {
+            return new InstanceMethodsInterceptV2Point[]{
+                    new InstanceMethodsInterceptV2Point() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                            return named("farewell");
+                        }
+
+                        @Override
+                        public String getMethodsInterceptorV2() {
+                            return FarewellInterceptor.class.getName();
+                        }
+
+                        @Override
+                        public boolean isOverrideArgs() {
+                            return false;
+                        }
+                    }
+            };
+        }
+    }
+
+    @Before
+    public void setUp() {
+        EVENTS.clear();
+    }
+
+    @After
+    public void tearDown() {
+        for (String pluginName : InterceptorSwitches.INSTANCE.getPluginNames()) {
+            InterceptorSwitches.INSTANCE.setPluginEnabled(pluginName, true);
+        }
+    }
+
+    @Test
+    public void testPluginSwitch() {
+        GreeterDefine define = new GreeterDefine();
+        define.setPluginName("switches-test-greeter");
+        InterceptorSwitches switches = InterceptorSwitches.INSTANCE;
+        switches.index(define);
+        Assert.assertEquals(define.interceptorClassNames(), switches.getInterceptorClassNames("switches-test-greeter"));
+        Assert.assertTrue(switches.isPluginEnabled("switches-test-greeter"));
+
+        Assert.assertTrue(switches.setPluginEnabled("switches-test-greeter", false));
+        Assert.assertFalse(switches.isPluginEnabled("switches-test-greeter"));
+        Assert.assertFalse(InterceptorSwitch.of(ConstructInterceptor.class.getName()).isEnabled());
+        Assert.assertFalse(InterceptorSwitch.of(GreetInterceptor.class.getName()).isEnabled());
+        Assert.assertEquals(Boolean.FALSE, switches.interceptorStates().get(GreetInterceptor.class.getName()));
+
+        Assert.assertTrue(switches.setPluginEnabled("switches-test-greeter", true));
+        Assert.assertTrue(switches.isPluginEnabled("switches-test-greeter"));
+        Assert.assertTrue(InterceptorSwitch.of(ConstructInterceptor.class.getName()).isEnabled());
+        Assert.assertTrue(InterceptorSwitch.of(GreetInterceptor.class.getName()).isEnabled());
+
+        Assert.assertFalse(switches.setPluginEnabled("switches-test-unknown", false));
+        Assert.assertEquals(Collections.emptySet(), switches.getInterceptorClassNames("switches-test-unknown"));
+    }
+
+    @Test
+    public void testLazyDefineDisabled() {
+        InterceptorSwitches switches = InterceptorSwitches.INSTANCE;
+        switches.declare("switches-test-lazy");
+        Assert.assertTrue(switches.isPluginEnabled("switches-test-lazy"));
+        Assert.assertTrue(switches.setPluginEnabled("switches-test-lazy", false));
+        Assert.assertFalse(switches.isPluginEnabled("switches-test-lazy"));
+
+        // the define is loaded after the plugin is turned off
+        FarewellDefine define = new FarewellDefine();
+        define.setPluginName("switches-test-lazy");
+        switches.index(define);
+        Assert.assertFalse(InterceptorSwitch.of(FarewellInterceptor.class.getName()).isEnabled());
+        Assert.assertFalse(switches.isPluginEnabled("switches-test-lazy"));
+
+        Assert.assertTrue(switches.setPluginEnabled("switches-test-lazy", true));
+        Assert.assertTrue(InterceptorSwitch.of(FarewellInterceptor.class.getName()).isEnabled());
+    }
+
+    @Test
+    public void testDisabledBridges() throws Exception {
+        Class<?> type = ClassEnhancer.enhance(Greeter.class, new GreeterDefine(), new FarewellDefine());
+        InterceptorSwitches switches = InterceptorSwitches.INSTANCE;
+        switches.setInterceptorEnabled(ConstructInterceptor.class.getName(), false);
+        switches.setInterceptorEnabled(GreetInterceptor.class.getName(), false);
+        switches.setInterceptorEnabled(FarewellInterceptor.class.getName(), false);
+
+        Object greeter = type.getDeclaredConstructor().newInstance();
+        Assert.assertEquals("hello", type.getMethod("greet").invoke(greeter));
+        Assert.assertEquals("bye", type.getMethod("farewell").invoke(greeter));
+        Assert.assertEquals(Arrays.asList("greet", "farewell"), EVENTS);
+
+        EVENTS.clear();
+        switches.setInterceptorEnabled(ConstructInterceptor.class.getName(), true);
+        switches.setInterceptorEnabled(GreetInterceptor.class.getName(), true);
+        switches.setInterceptorEnabled(FarewellInterceptor.class.getName(), true);
+        greeter = type.getDeclaredConstructor().newInstance();
+        Assert.assertEquals("hello", type.getMethod("greet").invoke(greeter));
+        Assert.assertEquals("bye", type.getMethod("farewell").invoke(greeter));
+        Assert.assertEquals(Arrays.asList(
+                "construct", "v1 before", "greet", "v1 after", "v2 before", "farewell", "v2 after"), EVENTS);
+    }
+
+    @Test
+    public void testReleaseInterceptors() throws Exception {
+        GreeterDefine greeterDefine = new GreeterDefine();
+        greeterDefine.setPluginName("switches-test-release-greeter");
+        FarewellDefine farewellDefine = new FarewellDefine();
+        farewellDefine.setPluginName("switches-test-release-farewell");
+        InterceptorSwitches switches = InterceptorSwitches.INSTANCE;
+        switches.index(greeterDefine);
+        switches.index(farewellDefine);
+        Class<?> type = ClassEnhancer.enhance(Greeter.class, greeterDefine, farewellDefine);
+        List<InterceptorHolder<?>> holders = interceptorHolders(type);
+        Assert.assertEquals(3, holders.size());
+        for (InterceptorHolder<?> holder : holders) {
+            Assert.assertFalse(holder.isReleased());
+        }
+
+        switches.releaseInterceptors();
+        Assert.assertFalse(switches.isPluginEnabled("switches-test-release-greeter"));
+        Assert.assertFalse(switches.isPluginEnabled("switches-test-release-farewell"));
+        // the enhanced class keeps its bridges, but nothing refers to the interceptors any more
+        for (InterceptorHolder<?> holder : holders) {
+            Assert.assertTrue(holder.getInterceptorClassName(), holder.isReleased());
+        }
+        Object greeter = type.getDeclaredConstructor().newInstance();
+        Assert.assertEquals("hello", type.getMethod("greet").invoke(greeter));
+        Assert.assertEquals("bye", type.getMethod("farewell").invoke(greeter));
+        Assert.assertEquals(Arrays.asList("greet", "farewell"), EVENTS);
+        for (InterceptorHolder<?> holder : holders) {
+            Assert.assertTrue(holder.isReleased());
+        }
+
+        // turned on again, the bridges load the interceptors at the next invocation
+        EVENTS.clear();
+        switches.setPluginEnabled("switches-test-release-greeter", true);
+        switches.setPluginEnabled("switches-test-release-farewell", true);
+        greeter = type.getDeclaredConstructor().newInstance();
+        Assert.assertEquals("hello", type.getMethod("greet").invoke(greeter));
+        Assert.assertEquals("bye", type.getMethod("farewell").invoke(greeter));
+        Assert.assertEquals(Arrays.asList(
+                "construct", "v1 before", "greet", "v1 after", "v2 before", "farewell", "v2 after"), EVENTS);
+        for (InterceptorHolder<?> holder : holders) {
+            Assert.assertFalse(holder.isReleased());
+        }
+    }
+
+    /**
+     * @return the interceptor holders of the bridges kept in the static fields of the enhanced class.
+     */
+    private static List<InterceptorHolder<?>> interceptorHolders(Class<?> type) throws IllegalAccessException {
+        List<InterceptorHolder<?>> holders = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                continue;
+            }
+            field.setAccessible(true);
+            Object bridge = field.get(null);
+            if (bridge == null) {
+                continue;
+            }
+            for (Field bridgeField : bridge.getClass().getDeclaredFields()) {
+                if (bridgeField.getType() == InterceptorHolder.class) {
+                    bridgeField.setAccessible(true);
+                    holders.add((InterceptorHolder<?>) bridgeField.get(bridge));
+                }
+            }
+        }
+        return holders;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ClassInstanceMethodsEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.AgentClassLoader;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import net.bytebuddy.description.type.TypeDescription;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyPluginDefineTest {
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public static class Target {
+    }
+
+    public static class Other {
+    }
+
+    public static class TargetInstrumentation extends ClassInstanceMethodsEnhancePluginDefine {
+        public TargetInstrumentation() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(Target.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return new ConstructorInterceptPoint[0];
+        }
+
+        @Override
+        public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+            return new InstanceMethodsInterceptPoint[0];
+        }
+    }
+
+    public static class FailingInstrumentation extends TargetInstrumentation {
+        public FailingInstrumentation() {
+            throw new IllegalStateException("failure of the constructor");
+        }
+    }
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        AgentClassLoader.initDefaultLoader();
+    }
+
+    @Test
+    public void testLazyLoad() {
+        LazyPluginDefine lazyDefine = new LazyPluginDefine("lazy-test", TargetInstrumentation.class.getName(),
+                Collections.singletonList(Target.class.getName()));
+        PluginFinder finder = new PluginFinder(Collections.emptyList(), Collections.singletonList(lazyDefine));
+        int instances = INSTANCES.get();
+        Assert.assertTrue(InterceptorSwitches.INSTANCE.isPluginEnabled("lazy-test"));
+
+        TypeDescription target = TypeDescription.ForLoadedType.of(Target.class);
+        Assert.assertTrue(finder.buildMatch().matches(target));
+        Assert.assertFalse(finder.buildMatch().matches(TypeDescription.ForLoadedType.of(Other.class)));
+        Assert.assertEquals(instances, INSTANCES.get());
+
+        List<AbstractClassEnhancePluginDefine> defines = finder.find(target);
+        Assert.assertEquals(1, defines.size());
+        Assert.assertTrue(defines.get(0) instanceof TargetInstrumentation);
+        Assert.assertEquals("lazy-test", defines.get(0).getPluginName());
+        Assert.assertSame(defines.get(0), finder.find(target).get(0));
+        Assert.assertEquals(instances + 1, INSTANCES.get());
+    }
+
+    @Test
+    public void testManifestMismatch() {
+        LazyPluginDefine lazyDefine = new LazyPluginDefine("lazy-mismatch", TargetInstrumentation.class.getName(),
+                Collections.singletonList(Other.class.getName()));
+        PluginFinder finder = new PluginFinder(Collections.emptyList(), Collections.singletonList(lazyDefine));
+        Assert.assertTrue(finder.find(TypeDescription.ForLoadedType.of(Other.class)).isEmpty());
+    }
+
+    @Test
+    public void testLoadFailure() {
+        LazyPluginDefine lazyDefine = new LazyPluginDefine("lazy-missing", "com.example.NotExistsInstrumentation",
+                Collections.singletonList(Target.class.getName()));
+        PluginFinder finder = new PluginFinder(Collections.emptyList(), Collections.singletonList(lazyDefine));
+        Assert.assertTrue(finder.find(TypeDescription.ForLoadedType.of(Target.class)).isEmpty());
+    }
+
+    @Test
+    public void testConstructorFailure() {
+        LazyPluginDefine lazyDefine = new LazyPluginDefine("lazy-failing", FailingInstrumentation.class.getName(),
+                Collections.singletonList(Target.class.getName()));
+        PluginFinder finder = new PluginFinder(Collections.emptyList(), Collections.singletonList(lazyDefine));
+        int instances = INSTANCES.get();
+        TypeDescription target = TypeDescription.ForLoadedType.of(Target.class);
+        Assert.assertTrue(finder.find(target).isEmpty());
+        // the failed define is not loaded again
+        Assert.assertTrue(finder.find(target).isEmpty());
+        Assert.assertEquals(instances + 1, INSTANCES.get());
+    }
+}
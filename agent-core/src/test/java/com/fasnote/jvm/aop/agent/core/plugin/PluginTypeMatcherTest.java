@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.plugin.bytebuddy.AbstractJunction;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassAnnotationMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.HierarchyMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.IndirectMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.MethodAnnotationMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.MultiClassNameMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.PrefixMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.RegexMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.logical.LogicalMatchOperation;
+import net.bytebuddy.description.NamedElement;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static net.bytebuddy.matcher.ElementMatchers.isInterface;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+public class PluginTypeMatcherTest {
+
+    private static final String OUTER = PluginTypeMatcherTest.class.getName();
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marked {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Traced {
+    }
+
+    public interface Named {
+    }
+
+    public abstract static class BaseTask implements Callable<String> {
+    }
+
+    @Marked
+    public static class MarkedTask extends BaseTask {
+        @Override
+        public String call() {
+            return null;
+        }
+    }
+
+    public static class PlainTask extends BaseTask {
+        @Override
+        public String call() {
+            return null;
+        }
+    }
+
+    public static class TracedService implements Serializable {
+        @Traced
+        public void serve() {
+        }
+    }
+
+    public static class SubService extends TracedService {
+    }
+
+    public static class NamedService {
+    }
+
+    public static class Unrelated {
+    }
+
+    public static class UnrelatedHandler {
+    }
+
+    @Test
+    public void testSameAsOrChain() {
+        Set<String> names = new HashSet<>(Arrays.asList(
+                NamedService.class.getName(), Named.class.getName(), OUTER + "$Missing"));
+        List<IndirectMatch> matches = Arrays.asList(
+                PrefixMatch.nameStartsWith(OUTER + "$Traced"),
+                RegexMatch.byRegexMatch(OUTER.replace(".", "\\.") + "\\$.*Handler"),
+                RegexMatch.byRegexMatch(".*Plain.*"),
+                ClassAnnotationMatch.byClassAnnotationMatch(Marked.class.getName()),
+                MethodAnnotationMatch.byMethodAnnotationMatch(Traced.class.getName()),
+                HierarchyMatch.byHierarchyMatch(Callable.class.getName()),
+                HierarchyMatch.byHierarchyMatch(BaseTask.class.getName()),
+                MultiClassNameMatch.byMultiClassMatch(Unrelated.class.getName(), "com.example.Absent"),
+                LogicalMatchOperation.and(RegexMatch.byRegexMatch(".*Task"),
+                        ClassAnnotationMatch.byClassAnnotationMatch(Marked.class.getName())),
+                LogicalMatchOperation.or(PrefixMatch.nameStartsWith("com.example."),
+                        HierarchyMatch.byHierarchyMatch(Serializable.class.getName())),
+                LogicalMatchOperation.not(PrefixMatch.nameStartsWith("java.", "javax.", "com.", "net.", "org."))
+        );
+
+        PluginTypeMatcher compiled = new PluginTypeMatcher(names, matches);
+        ElementMatcher<? super TypeDescription> orChain = orChain(names, matches);
+
+        List<Class<?>> types = Arrays.asList(
+                Named.class, BaseTask.class, MarkedTask.class, PlainTask.class, TracedService.class, SubService.class,
+                NamedService.class, Unrelated.class, UnrelatedHandler.class, Marked.class, Traced.class,
+                PluginTypeMatcherTest.class, String.class, ArrayList.class, Runnable.class, Callable.class,
+                Serializable.class, Thread.class, int[].class, Object.class);
+        int matched = 0;
+        for (Class<?> type : types) {
+            TypeDescription typeDescription = TypeDescription.ForLoadedType.of(type);
+            boolean expected = orChain.matches(typeDescription);
+            Assert.assertEquals(type.getName(), expected, compiled.matches(typeDescription));
+            if (expected) {
+                matched++;
+            }
+        }
+        // both the matched and the rejected classes are covered
+        Assert.assertTrue(matched > 0 && matched < types.size());
+    }
+
+    /**
+     * The type matcher built by {@link PluginFinder#buildMatch()} before it was compiled: every junction joined by or.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ElementMatcher<? super TypeDescription> orChain(Set<String> names, List<IndirectMatch> matches) {
+        ElementMatcher.Junction judge = new AbstractJunction<NamedElement>() {
+            @Override
+            public boolean matches(NamedElement target) {
+                return names.contains(target.getActualName());
+            }
+        };
+        judge = judge.and(not(isInterface()));
+        for (IndirectMatch match : matches) {
+            judge = judge.or(match.buildJunction());
+        }
+        return judge;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ClassInstanceMethodsEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+public class WitnessFinderTest {
+
+    @Test
+    public void testExist() {
+        ClassLoader classLoader = WitnessFinderTest.class.getClassLoader();
+        Assert.assertTrue(WitnessFinder.INSTANCE.exist(WitnessFinderTest.class.getName(), classLoader));
+        Assert.assertTrue(WitnessFinder.INSTANCE.exist("java.lang.String", null));
+        Assert.assertFalse(WitnessFinder.INSTANCE.exist("com.example.NotExists", classLoader));
+        Assert.assertTrue(WitnessFinder.INSTANCE.exist(
+                new WitnessMethod("java.lang.String", named("isEmpty")), null));
+        Assert.assertFalse(WitnessFinder.INSTANCE.exist(
+                new WitnessMethod("java.lang.String", named("notExists")), null));
+    }
+
+    @Test
+    public void testFindMissingWitnessOncePerClassLoader() {
+        WitnessDefine define = new WitnessDefine(WitnessFinderTest.class.getName());
+        ClassLoader classLoader = WitnessFinderTest.class.getClassLoader();
+        Assert.assertNull(WitnessFinder.INSTANCE.findMissingWitness(define, classLoader));
+        Assert.assertNull(WitnessFinder.INSTANCE.findMissingWitness(define, classLoader));
+        Assert.assertEquals(1, define.checks.get());
+
+        // not visible to the bootstrap class loader
+        Assert.assertEquals("Witness class " + WitnessFinderTest.class.getName(),
+                WitnessFinder.INSTANCE.findMissingWitness(define, null));
+        Assert.assertEquals(2, define.checks.get());
+
+        Assert.assertNull(WitnessFinder.INSTANCE.findMissingWitness(define, new URLClassLoader(new URL[0], classLoader)));
+        Assert.assertEquals(3, define.checks.get());
+    }
+
+    private static class WitnessDefine extends ClassInstanceMethodsEnhancePluginDefine {
+        private final String witnessClass;
+
+        private final AtomicInteger checks = new AtomicInteger();
+
+        WitnessDefine(String witnessClass) {
+            this.witnessClass = witnessClass;
+        }
+
+        @Override
+        protected String[] witnessClasses() {
+            checks.incrementAndGet();
+            return new String[] {witnessClass};
+        }
+
+        @Override
+        protected List<WitnessMethod> witnessMethods() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName("com.example.Foo");
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return new ConstructorInterceptPoint[0];
+        }
+
+        @Override
+        public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+            return new InstanceMethodsInterceptPoint[0];
+        }
+    }
+}
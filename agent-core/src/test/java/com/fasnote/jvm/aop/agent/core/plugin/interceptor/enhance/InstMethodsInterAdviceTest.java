@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import com.fasnote.jvm.aop.agent.core.plugin.ClassEnhancer;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+public class InstMethodsInterAdviceTest {
+
+    public static final List<String> EVENTS = new CopyOnWriteArrayList<>();
+
+    public static class Greeter {
+        public String greet(String name) {
+            EVENTS.add("origin " + name);
+            return "hello " + name;
+        }
+
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    public static class RecordingInterceptor implements InstanceMethodsAroundInterceptor {
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                 Class<?>[] argumentsTypes, MethodInterceptResult result) {
+            EVENTS.add("before " + method.getName() + " " + allArguments[0]);
+            if ("skip".equals(allArguments[0])) {
+                result.defineReturnValue("skipped");
+            } else if ("override".equals(allArguments[0])) {
+                allArguments[0] = "overridden";
+            }
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                  Class<?>[] argumentsTypes, Object ret) {
+            EVENTS.add("after " + ret);
+            return ret;
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                          Class<?>[] argumentsTypes, Throwable t) {
+            EVENTS.add("exception " + t.getMessage());
+        }
+    }
+
+    public static class InlineAdviceDefine extends ClassInstanceMethodsEnhancePluginDefine {
+        private final boolean overrideArgs;
+
+        InlineAdviceDefine(boolean overrideArgs) {
+            this.overrideArgs = overrideArgs;
+        }
+
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(Greeter.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return null;
+        }
+
+        @Override
+        public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+            return new InstanceMethodsInterceptPoint[]{
+                    new InstanceMethodsInterceptPoint() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                            return named("greet").or(named("fail"));
+                        }
+
+                        @Override
+                        public String getMethodsInterceptor() {
+                            return RecordingInterceptor.class.getName();
+                        }
+
+                        @Override
+                        public boolean isOverrideArgs() {
+                            return overrideArgs;
+                        }
+                    }
+            };
+        }
+
+        @Override
+        protected boolean isInlineAdviceDispatch() {
+            return true;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        EVENTS.clear();
+    }
+
+    @Test
+    public void testDispatcherInitializedBeforeFirstCall() throws Exception {
+        Class<?> type = ClassEnhancer.enhance(Greeter.class, new InlineAdviceDefine(false));
+        int dispatchers = 0;
+        for (Field field : type.getDeclaredFields()) {
+            if (field.getType() == InstMethodsAdviceDispatcher.class) {
+                Assert.assertTrue(Modifier.isStatic(field.getModifiers()));
+                field.setAccessible(true);
+                Assert.assertNotNull(field.get(null));
+                dispatchers++;
+            }
+        }
+        Assert.assertEquals(2, dispatchers);
+
+        Assert.assertEquals("hello world", invoke(type, "greet", "world"));
+        Assert.assertEquals(Arrays.asList("before greet world", "origin world", "after hello world"), EVENTS);
+    }
+
+    @Test
+    public void testSkipOriginMethod() throws Exception {
+        Class<?> type = ClassEnhancer.enhance(Greeter.class, new InlineAdviceDefine(false));
+        Assert.assertEquals("skipped", invoke(type, "greet", "skip"));
+        Assert.assertEquals(Arrays.asList("before greet skip", "after skipped"), EVENTS);
+    }
+
+    @Test
+    public void testOverrideArgs() throws Exception {
+        Class<?> type = ClassEnhancer.enhance(Greeter.class, new InlineAdviceDefine(true));
+        Assert.assertEquals("hello overridden", invoke(type, "greet", "override"));
+        Assert.assertEquals(Arrays.asList("before greet override", "origin overridden", "after hello overridden"), EVENTS);
+
+        // the arguments are not written back, unless the intercept point overrides them
+        EVENTS.clear();
+        type = ClassEnhancer.enhance(Greeter.class, new InlineAdviceDefine(false));
+        Assert.assertEquals("hello override", invoke(type, "greet", "override"));
+        Assert.assertEquals(Collections.singletonList("origin override"), EVENTS.subList(1, 2));
+    }
+
+    @Test
+    public void testHandleMethodException() throws Exception {
+        Class<?> type = ClassEnhancer.enhance(Greeter.class, new InlineAdviceDefine(false));
+        try {
+            invoke(type, "fail", "boom");
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            Assert.assertEquals("boom", e.getCause().getMessage());
+        }
+        Assert.assertEquals(Arrays.asList("before fail boom", "exception boom", "after null"), EVENTS);
+    }
+
+    private static Object invoke(Class<?> type, String methodName, String argument) throws Exception {
+        Object instance = type.getDeclaredConstructor().newInstance();
+        Assert.assertTrue(instance instanceof EnhancedInstance);
+        return type.getMethod(methodName, String.class).invoke(instance, argument);
+    }
+}
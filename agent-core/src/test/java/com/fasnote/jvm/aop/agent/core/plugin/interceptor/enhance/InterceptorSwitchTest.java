@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InterceptorSwitchTest {
+
+    @After
+    public void tearDown() {
+        InterceptorSwitch.setCircuitBreaker(10, 10_000, 60_000);
+        InterceptorSwitch.setTripListener(null);
+        InterceptorSwitch.CLOCK = System::nanoTime;
+    }
+
+    @Test
+    public void testSwitch() {
+        InterceptorSwitch interceptorSwitch = InterceptorSwitch.of("test.SwitchInterceptor");
+        Assert.assertSame(interceptorSwitch, InterceptorSwitch.of("test.SwitchInterceptor"));
+        Assert.assertTrue(interceptorSwitch.isEnabled());
+
+        interceptorSwitch.setEnabled(false);
+        Assert.assertFalse(interceptorSwitch.isEnabled());
+        Assert.assertEquals(Boolean.FALSE, InterceptorSwitch.states().get("test.SwitchInterceptor"));
+        interceptorSwitch.setEnabled(true);
+        Assert.assertTrue(interceptorSwitch.isEnabled());
+    }
+
+    @Test
+    public void testCircuitBreaker() {
+        AtomicLong now = new AtomicLong(System.nanoTime());
+        InterceptorSwitch.CLOCK = now::get;
+        List<String> trips = new ArrayList<>();
+        InterceptorSwitch.setCircuitBreaker(3, 10_000, 50);
+        InterceptorSwitch.setTripListener(trips::add);
+        InterceptorSwitch interceptorSwitch = InterceptorSwitch.of("test.FailingInterceptor");
+
+        interceptorSwitch.failed();
+        interceptorSwitch.failed();
+        Assert.assertTrue(interceptorSwitch.isEnabled());
+        interceptorSwitch.failed();
+        Assert.assertFalse(interceptorSwitch.isEnabled());
+        Assert.assertTrue(interceptorSwitch.isOpen());
+        Assert.assertEquals(1, trips.size());
+
+        // failures of the calls in flight don't trip it again
+        interceptorSwitch.failed();
+        Assert.assertEquals(1, trips.size());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(49));
+        Assert.assertFalse(interceptorSwitch.isEnabled());
+        Assert.assertTrue(interceptorSwitch.isOpen());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assert.assertTrue(interceptorSwitch.isEnabled());
+        Assert.assertFalse(interceptorSwitch.isOpen());
+
+        // half open, one more failure opens it again
+        interceptorSwitch.failed();
+        Assert.assertFalse(interceptorSwitch.isEnabled());
+        Assert.assertEquals(2, interceptorSwitch.getTrips());
+
+        interceptorSwitch.setEnabled(true);
+        Assert.assertTrue(interceptorSwitch.isEnabled());
+    }
+
+    @Test
+    public void testCircuitBreakerOff() {
+        InterceptorSwitch.setCircuitBreaker(0, 10_000, 60_000);
+        InterceptorSwitch interceptorSwitch = InterceptorSwitch.of("test.NeverBypassedInterceptor");
+        for (int i = 0; i < 100; i++) {
+            interceptorSwitch.failed();
+        }
+        Assert.assertTrue(interceptorSwitch.isEnabled());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.InstMethodsInterV2;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.InstanceMethodsAroundInterceptorV2;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+public class InvocationContextStackTest {
+    private static final int CALLS = 100_000;
+
+    @Test
+    public void testNestedAcquire() {
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInvocationContext outer = contexts.acquire();
+        outer.setContext("outer");
+        outer.defineReturnValue("ret");
+
+        MethodInvocationContext inner = contexts.acquire();
+        Assert.assertNotSame(outer, inner);
+        Assert.assertTrue(inner.isContinue());
+        Assert.assertNull(inner.getContext());
+        contexts.release(inner);
+
+        Assert.assertEquals("outer", outer.getContext());
+        Assert.assertFalse(outer.isContinue());
+        contexts.release(outer);
+
+        Assert.assertTrue(outer.isContinue());
+        Assert.assertNull(outer._ret());
+        Assert.assertNull(outer.getContext());
+        Assert.assertSame(outer, contexts.acquire());
+        contexts.release(outer);
+    }
+
+    @Test
+    public void testDeepRecursion() {
+        InvocationContextStack contexts = InvocationContextStack.current();
+        MethodInvocationContext[] acquired = new MethodInvocationContext[300];
+        for (int i = 0; i < acquired.length; i++) {
+            acquired[i] = contexts.acquire();
+        }
+        for (int i = acquired.length - 1; i >= 0; i--) {
+            contexts.release(acquired[i]);
+        }
+        Assert.assertSame(acquired[0], contexts.acquire());
+        contexts.release(acquired[0]);
+    }
+
+    @Test
+    public void testBridgeAllocation() throws Throwable {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocation.isThreadAllocatedMemorySupported());
+
+        InstMethodsInterV2 inter = new InstMethodsInterV2(
+                CountingInterceptor.class.getName(), InvocationContextStackTest.class.getClassLoader());
+        Target target = new Target();
+        Object[] allArguments = new Object[] {"arg"};
+        Callable<?> zuper = target;
+        Method method = Target.class.getMethod("call");
+
+        // warm up, so the per-thread stack, the parameter types and the JIT are all settled
+        for (int i = 0; i < CALLS; i++) {
+            inter.intercept(target, allArguments, zuper, method);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocation.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < CALLS; i++) {
+            inter.intercept(target, allArguments, zuper, method);
+        }
+        long allocated = allocation.getThreadAllocatedBytes(threadId) - before;
+
+        Assert.assertEquals(CALLS * 2L, CountingInterceptor.COUNT);
+        // leave some room for the allocations of the measurement itself
+        Assert.assertTrue("allocated " + allocated + " bytes in " + CALLS + " calls", allocated < CALLS / 10);
+    }
+
+    public static class Target implements EnhancedInstance, Callable<Object> {
+        private static final Object RET = new Object();
+
+        @Override
+        public Object call() {
+            return RET;
+        }
+
+        @Override
+        public Object getDynamicField() {
+            return null;
+        }
+
+        @Override
+        public void setDynamicField(Object value) {
+        }
+    }
+
+    public static class CountingInterceptor implements InstanceMethodsAroundInterceptorV2 {
+        static long COUNT;
+
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                 Class<?>[] argumentsTypes, MethodInvocationContext context) {
+            COUNT++;
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                  Class<?>[] argumentsTypes, Object ret, MethodInvocationContext context) {
+            return ret;
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                          Class<?>[] argumentsTypes, Throwable t, MethodInvocationContext context) {
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.MethodsPreFilter;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
+
+public class MethodIndexTest {
+
+    public static class Dao {
+        public void save(Object entity) {
+        }
+
+        public void save(Object entity, boolean flush) {
+        }
+
+        public Object findById(long id) {
+            return null;
+        }
+
+        public Object findByName(String name) {
+            return null;
+        }
+
+        public void delete(Object entity) {
+        }
+    }
+
+    @Test
+    public void testCandidates() {
+        TypeDescription type = TypeDescription.ForLoadedType.of(Dao.class);
+        MethodIndex index = new MethodIndex(InterceptableMethods.instanceMethodsOf(type));
+
+        Assert.assertSame(index.getMethods(), index.candidates(null));
+        Assert.assertEquals(2, index.candidates(MethodsPreFilter.named("save")).size());
+        Assert.assertEquals(1, index.candidates(MethodsPreFilter.named("save", "notExists").takesArguments(2)).size());
+        Assert.assertEquals(0, index.candidates(MethodsPreFilter.named("notExists")).size());
+        List<String> names = new ArrayList<>();
+        for (MethodDescription method : index.candidates(MethodsPreFilter.nameStartsWith("find").orNamed("delete"))) {
+            names.add(method.getName());
+        }
+        names.sort(null);
+        Assert.assertEquals("[delete, findById, findByName]", names.toString());
+    }
+
+    @Test
+    public void testFilter() {
+        ElementMatcher<MethodDescription> matcher = named("save");
+        Assert.assertSame(matcher, MethodsPreFilter.filter(null, matcher));
+
+        ElementMatcher<MethodDescription> filtered = MethodsPreFilter.filter(
+                MethodsPreFilter.named("save").takesArguments(1), takesArguments(1));
+        TypeDescription type = TypeDescription.ForLoadedType.of(Dao.class);
+        int matched = 0;
+        for (MethodDescription method : type.getDeclaredMethods()) {
+            if (filtered.matches(method)) {
+                Assert.assertEquals("save", method.getName());
+                matched++;
+            }
+        }
+        Assert.assertEquals(1, matched);
+    }
+}
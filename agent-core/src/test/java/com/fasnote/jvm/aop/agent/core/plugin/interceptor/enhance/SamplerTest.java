@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SamplerTest {
+
+    @Test
+    public void testOneIn() {
+        Sampler sampler = Sampler.oneIn(4);
+        int sampled = 0;
+        for (int i = 0; i < 100; i++) {
+            if (sampler.isSampled()) {
+                Assert.assertEquals(0, i % 4);
+                sampled++;
+            }
+        }
+        Assert.assertEquals(25, sampled);
+    }
+
+    @Test
+    public void testOneInPerThread() throws InterruptedException {
+        Sampler sampler = Sampler.oneIn(1000);
+        Assert.assertTrue(sampler.isSampled());
+        Assert.assertFalse(sampler.isSampled());
+
+        AtomicInteger sampled = new AtomicInteger();
+        Thread thread = new Thread(() -> {
+            if (sampler.isSampled()) {
+                sampled.incrementAndGet();
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertEquals(1, sampled.get());
+    }
+
+    @Test
+    public void testPerSecond() {
+        Sampler sampler = Sampler.perSecond(10);
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (sampler.isSampled()) {
+                sampled++;
+            }
+        }
+        // the loop may cross a window
+        Assert.assertTrue(sampled >= 10 && sampled <= 20);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInterval() {
+        Sampler.oneIn(0);
+    }
+}
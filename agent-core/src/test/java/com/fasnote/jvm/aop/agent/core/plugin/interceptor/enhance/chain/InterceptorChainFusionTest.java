@@ -0,0 +1,399 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import com.fasnote.jvm.aop.agent.core.conf.Constants;
+import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.ClassEnhancer;
+import com.fasnote.jvm.aop.agent.core.plugin.PluginFinder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ClassInstanceMethodsEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstanceMethodsAroundInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.MethodInterceptResult;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.ClassInstanceMethodsEnhancePluginDefineV2;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.InstanceMethodsAroundInterceptorV2;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.ClassInstanceMethodsEnhancePluginDefineV3;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.InstanceMethodsAroundInterceptorV3;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3.MethodMeta;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v2.InstanceMethodsInterceptV2Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+public class InterceptorChainFusionTest {
+
+    public static final List<String> EVENTS = new CopyOnWriteArrayList<>();
+
+    public static class Service {
+        public String call(String argument) {
+            if ("fail".equals(argument)) {
+                throw new IllegalStateException("failure of origin");
+            }
+            EVENTS.add("origin");
+            return "origin";
+        }
+    }
+
+    /**
+     * Every interceptor records the calls, and skips the origin method if the argument is "skip " with its tag.
+     */
+    static void before(String tag, Object[] allArguments, MethodInterceptResult result) {
+        EVENTS.add(tag + " before");
+        if (("skip " + tag).equals(allArguments[0])) {
+            result.defineReturnValue("skipped by " + tag);
+        }
+    }
+
+    static Object after(String tag, Object ret) {
+        EVENTS.add(tag + " after " + ret);
+        return ret;
+    }
+
+    static void exception(String tag, Throwable t) {
+        EVENTS.add(tag + " exception " + t.getMessage());
+    }
+
+    public static class V1Interceptor implements InstanceMethodsAroundInterceptor {
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                 Class<?>[] argumentsTypes, MethodInterceptResult result) {
+            before("v1", allArguments, result);
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                  Class<?>[] argumentsTypes, Object ret) {
+            return after("v1", ret);
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                          Class<?>[] argumentsTypes, Throwable t) {
+            exception("v1", t);
+        }
+    }
+
+    public static class V2Interceptor implements InstanceMethodsAroundInterceptorV2 {
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                 Class<?>[] argumentsTypes, MethodInvocationContext context) {
+            before("v2", allArguments, context);
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                  Class<?>[] argumentsTypes, Object ret, MethodInvocationContext context) {
+            return after("v2", ret);
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                          Class<?>[] argumentsTypes, Throwable t, MethodInvocationContext context) {
+            exception("v2", t);
+        }
+    }
+
+    public static class V3Interceptor implements InstanceMethodsAroundInterceptorV3 {
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) {
+            before("v3", allArguments, context);
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) {
+            return after("v3", ret);
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments,
+                                          Throwable t, MethodInvocationContext context) {
+            exception("v3", t);
+        }
+    }
+
+    public static class V1Define extends ClassInstanceMethodsEnhancePluginDefine {
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(Service.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return null;
+        }
+
+        @Override
+        public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+            return new InstanceMethodsInterceptPoint[]{
+                    new InstanceMethodsInterceptPoint() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                            return named("call");
+                        }
+
+                        @Override
+                        public String getMethodsInterceptor() {
+                            return V1Interceptor.class.getName();
+                        }
+
+                        @Override
+                        public boolean isOverrideArgs() {
+                            return false;
+                        }
+                    }
+            };
+        }
+
+        @Override
+        public int priority() {
+            return 10;
+        }
+
+        @Override
+        protected boolean isInlineAdviceDispatch() {
+            return false;
+        }
+    }
+
+    public static class InlineAdviceV1Define extends V1Define {
+        @Override
+        protected boolean isInlineAdviceDispatch() {
+            return true;
+        }
+    }
+
+    public static class V2Define extends ClassInstanceMethodsEnhancePluginDefineV2 {
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(Service.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return null;
+        }
+
+        @Override
+        public InstanceMethodsInterceptV2Point[] getInstanceMethodsInterceptV2Points() {
+            return new InstanceMethodsInterceptV2Point[]{
+                    new InstanceMethodsInterceptV2Point() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                            return named("call");
+                        }
+
+                        @Override
+                        public String getMethodsInterceptorV2() {
+                            return V2Interceptor.class.getName();
+                        }
+
+                        @Override
+                        public boolean isOverrideArgs() {
+                            return false;
+                        }
+                    }
+            };
+        }
+    }
+
+    public static class V3Define extends ClassInstanceMethodsEnhancePluginDefineV3 {
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(Service.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return null;
+        }
+
+        @Override
+        public InstanceMethodsInterceptV3Point[] getInstanceMethodsInterceptV3Points() {
+            return new InstanceMethodsInterceptV3Point[]{
+                    new InstanceMethodsInterceptV3Point() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                            return named("call");
+                        }
+
+                        @Override
+                        public String getMethodsInterceptorV3() {
+                            return V3Interceptor.class.getName();
+                        }
+
+                        @Override
+                        public boolean isOverrideArgs() {
+                            return false;
+                        }
+                    }
+            };
+        }
+    }
+
+    @Before
+    public void setUp() {
+        EVENTS.clear();
+    }
+
+    @After
+    public void tearDown() {
+        Config.Plugin.PRIORITY.clear();
+        InterceptorSwitch.of(V2Interceptor.class.getName()).setEnabled(true);
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        Class<?> type = enhance(new V3Define(), new V2Define(), new V1Define());
+        Assert.assertEquals("origin", call(type, "hello"));
+        Assert.assertEquals(Arrays.asList(
+                "v1 before", "v2 before", "v3 before",
+                "origin",
+                "v3 after origin", "v2 after origin", "v1 after origin"), EVENTS);
+    }
+
+    @Test
+    public void testPriorityOverride() throws Exception {
+        Config.Plugin.PRIORITY.put(V3Define.class.getName(), 20);
+        Config.Plugin.PRIORITY.put(V1Define.class.getName(), -1);
+        Class<?> type = enhance(new V1Define(), new V2Define(), new V3Define());
+        Assert.assertEquals("origin", call(type, "hello"));
+        Assert.assertEquals(Arrays.asList(
+                "v3 before", "v2 before", "v1 before",
+                "origin",
+                "v1 after origin", "v2 after origin", "v3 after origin"), EVENTS);
+    }
+
+    @Test
+    public void testSkipOriginMethod() throws Exception {
+        Class<?> type = enhance(new V1Define(), new V2Define(), new V3Define());
+        Assert.assertEquals("skipped by v2", call(type, "skip v2"));
+        // v3 is inside v2, it isn't called at all
+        Assert.assertEquals(Arrays.asList(
+                "v1 before", "v2 before",
+                "v2 after skipped by v2", "v1 after skipped by v2"), EVENTS);
+    }
+
+    @Test
+    public void testExceptionPropagation() throws Exception {
+        Class<?> type = enhance(new V1Define(), new V2Define(), new V3Define());
+        try {
+            call(type, "fail");
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            Assert.assertEquals("failure of origin", e.getCause().getMessage());
+        }
+        Assert.assertEquals(Arrays.asList(
+                "v1 before", "v2 before", "v3 before",
+                "v3 exception failure of origin", "v2 exception failure of origin", "v1 exception failure of origin",
+                "v3 after null", "v2 after null", "v1 after null"), EVENTS);
+    }
+
+    @Test
+    public void testSwitchedOffInterceptorLeftOut() throws Exception {
+        Class<?> type = enhance(new V1Define(), new V2Define(), new V3Define());
+        InterceptorSwitch.of(V2Interceptor.class.getName()).setEnabled(false);
+        Assert.assertEquals("skipped by v3", call(type, "skip v3"));
+        Assert.assertEquals(Arrays.asList(
+                "v1 before", "v3 before",
+                "v3 after skipped by v3", "v1 after skipped by v3"), EVENTS);
+
+        // the left out interceptor doesn't leave anything in the pooled contexts
+        EVENTS.clear();
+        InterceptorSwitch.of(V2Interceptor.class.getName()).setEnabled(true);
+        Assert.assertEquals("origin", call(type, "hello"));
+        Assert.assertEquals(Arrays.asList(
+                "v1 before", "v2 before", "v3 before",
+                "origin",
+                "v3 after origin", "v2 after origin", "v1 after origin"), EVENTS);
+    }
+
+    @Test
+    public void testAdviceWovenMethodsNotFused() throws Exception {
+        Assert.assertTrue(hasChain(enhance(new V1Define(), new V2Define())));
+        Class<?> type = enhance(new InlineAdviceV1Define(), new V2Define());
+        Assert.assertFalse(hasChain(type));
+        Assert.assertEquals("origin", call(type, "hello"));
+        // the advice is woven into the code of the method, around the delegation of v2
+        Assert.assertEquals(Arrays.asList(
+                "v1 before", "v2 before", "origin", "v2 after origin", "v1 after origin"), EVENTS);
+    }
+
+    @Test
+    public void testOneDispatcherPerFusedMethod() throws Exception {
+        Class<?> type = enhance(new V1Define(), new V2Define(), new V3Define());
+        List<Class<?>> dispatchers = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (field.getName().startsWith(Constants.NAME_TRAIT)) {
+                dispatchers.add(field.getType());
+            }
+        }
+        // the plugins leave the fused method out, none of their bridges is generated
+        Assert.assertEquals(Collections.<Class<?>>singletonList(InstMethodsChainInter.class), dispatchers);
+    }
+
+    /**
+     * Apply the plugins in the order of {@link PluginFinder}, and fuse the interceptors.
+     */
+    private static Class<?> enhance(AbstractClassEnhancePluginDefine... defines) {
+        PluginFinder finder = new PluginFinder(Arrays.asList(defines));
+        List<AbstractClassEnhancePluginDefine> found = finder.find(TypeDescription.ForLoadedType.of(Service.class));
+        Assert.assertEquals(defines.length, found.size());
+        return ClassEnhancer.enhance(Service.class, true, new ArrayList<>(found));
+    }
+
+    private static Object call(Class<?> type, String argument) throws Exception {
+        Object service = type.getDeclaredConstructor().newInstance();
+        return type.getMethod("call", String.class).invoke(service, argument);
+    }
+
+    private static boolean hasChain(Class<?> type) {
+        for (Field field : type.getDeclaredFields()) {
+            if (field.getType() == InstMethodsChainInter.class) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
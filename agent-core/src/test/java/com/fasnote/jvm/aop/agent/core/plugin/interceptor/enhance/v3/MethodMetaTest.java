@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v3;
+
+import com.fasnote.jvm.aop.agent.core.plugin.ClassEnhancer;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.v2.MethodInvocationContext;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.v3.StaticMethodsInterceptV3Point;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+public class MethodMetaTest {
+
+    public static final List<MethodMeta> METAS = new CopyOnWriteArrayList<>();
+
+    public static final List<Throwable> EXCEPTIONS = new CopyOnWriteArrayList<>();
+
+    public static class Calculator {
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        public String echo(String message) {
+            if ("fail".equals(message)) {
+                throw new IllegalArgumentException(message);
+            }
+            return message;
+        }
+
+        public static String version() {
+            return "1.0";
+        }
+    }
+
+    public static class RecordingInterceptor implements InstanceMethodsAroundInterceptorV3 {
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) {
+            METAS.add(meta);
+            if ("skip".equals(allArguments[0])) {
+                context.defineReturnValue("skipped");
+            }
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) {
+            return ret;
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, MethodMeta meta, Object[] allArguments,
+                                          Throwable t, MethodInvocationContext context) {
+            EXCEPTIONS.add(t);
+        }
+    }
+
+    public static class StaticRecordingInterceptor implements StaticMethodsAroundInterceptorV3 {
+        @Override
+        public void beforeMethod(Class clazz, MethodMeta meta, Object[] allArguments,
+                                 MethodInvocationContext context) {
+            METAS.add(meta);
+        }
+
+        @Override
+        public Object afterMethod(Class clazz, MethodMeta meta, Object[] allArguments, Object ret,
+                                  MethodInvocationContext context) {
+            return ret + "-" + meta.getAttribute("suffix");
+        }
+
+        @Override
+        public void handleMethodException(Class clazz, MethodMeta meta, Object[] allArguments, Throwable t,
+                                          MethodInvocationContext context) {
+        }
+    }
+
+    public static class CalculatorDefine extends ClassEnhancePluginDefineV3 {
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(Calculator.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return null;
+        }
+
+        @Override
+        public InstanceMethodsInterceptV3Point[] getInstanceMethodsInterceptV3Points() {
+            return new InstanceMethodsInterceptV3Point[]{
+                    new InstanceMethodsInterceptV3Point() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                            return named("add").or(named("echo"));
+                        }
+
+                        @Override
+                        public String getMethodsInterceptorV3() {
+                            return RecordingInterceptor.class.getName();
+                        }
+
+                        @Override
+                        public boolean isOverrideArgs() {
+                            return false;
+                        }
+
+                        @Override
+                        public Map<String, Object> getMethodAttributes(MethodDescription method) {
+                            return Collections.<String, Object>singletonMap("operation", "calc/" + method.getName());
+                        }
+                    }
+            };
+        }
+
+        @Override
+        public StaticMethodsInterceptV3Point[] getStaticMethodsInterceptV3Points() {
+            return new StaticMethodsInterceptV3Point[]{
+                    new StaticMethodsInterceptV3Point() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                            return named("version");
+                        }
+
+                        @Override
+                        public String getMethodsInterceptorV3() {
+                            return StaticRecordingInterceptor.class.getName();
+                        }
+
+                        @Override
+                        public boolean isOverrideArgs() {
+                            return false;
+                        }
+
+                        @Override
+                        public Map<String, Object> getMethodAttributes(MethodDescription method) {
+                            return Collections.<String, Object>singletonMap("suffix", "patched");
+                        }
+                    }
+            };
+        }
+    }
+
+    @Before
+    public void setUp() {
+        METAS.clear();
+        EXCEPTIONS.clear();
+    }
+
+    @Test
+    public void testIds() throws Exception {
+        CalculatorDefine define = new CalculatorDefine();
+        List<Integer> ids = callAll(ClassEnhancer.enhance(Calculator.class, define));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), new HashSet<>(ids));
+        Assert.assertEquals(3, define.getMethodIds().size());
+
+        // the same signature gets the same id, when the class is enhanced again
+        Assert.assertEquals(ids, callAll(ClassEnhancer.enhance(Calculator.class, define)));
+        Assert.assertEquals(3, define.getMethodIds().size());
+
+        // the ids are numbered by every plugin
+        CalculatorDefine anotherDefine = new CalculatorDefine();
+        Assert.assertEquals(ids, callAll(ClassEnhancer.enhance(Calculator.class, anotherDefine)));
+        Assert.assertEquals(3, anotherDefine.getMethodIds().size());
+    }
+
+    @Test
+    public void testInstanceBridge() throws Exception {
+        Class<?> type = ClassEnhancer.enhance(Calculator.class, new CalculatorDefine());
+        Object calculator = type.getDeclaredConstructor().newInstance();
+
+        Assert.assertEquals(3, type.getMethod("add", int.class, int.class).invoke(calculator, 1, 2));
+        Assert.assertEquals(2, type.getMethod("add", int.class, int.class).invoke(calculator, 1, 1));
+        Assert.assertEquals(2, METAS.size());
+        MethodMeta meta = METAS.get(0);
+        // one metadata for every method, bound at the first invocation
+        Assert.assertSame(meta, METAS.get(1));
+        Assert.assertEquals(Calculator.class.getName(), meta.getDeclaringClassName());
+        Assert.assertEquals("add", meta.getName());
+        Assert.assertEquals("(II)I", meta.getDescriptor());
+        Assert.assertEquals(Arrays.asList("int", "int"), meta.getParameterTypeNames());
+        Assert.assertSame(type, meta.getDeclaringClass());
+        Assert.assertEquals("add", meta.getMethod().getName());
+        Assert.assertArrayEquals(new Class<?>[]{int.class, int.class}, meta.getParameterTypes());
+        Assert.assertEquals("calc/add", meta.getAttribute("operation"));
+
+        Assert.assertEquals("skipped", type.getMethod("echo", String.class).invoke(calculator, "skip"));
+        try {
+            type.getMethod("echo", String.class).invoke(calculator, "fail");
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+            Assert.assertEquals(Collections.singletonList(e.getCause()), EXCEPTIONS);
+        }
+    }
+
+    @Test
+    public void testStaticBridge() throws Exception {
+        Class<?> type = ClassEnhancer.enhance(Calculator.class, new CalculatorDefine());
+        Assert.assertEquals("1.0-patched", type.getMethod("version").invoke(null));
+        Assert.assertEquals(1, METAS.size());
+        Assert.assertEquals("version", METAS.get(0).getMethod().getName());
+        Assert.assertEquals(0, METAS.get(0).getParameterTypes().length);
+    }
+
+    /**
+     * @return the ids of add, echo and version.
+     */
+    private static List<Integer> callAll(Class<?> type) throws Exception {
+        METAS.clear();
+        Object calculator = type.getDeclaredConstructor().newInstance();
+        type.getMethod("add", int.class, int.class).invoke(calculator, 1, 2);
+        type.getMethod("echo", String.class).invoke(calculator, "hello");
+        type.getMethod("version").invoke(null);
+        Set<MethodMeta> distinct = new HashSet<>(METAS);
+        Assert.assertEquals(3, distinct.size());
+        List<Integer> ids = new ArrayList<>();
+        for (MethodMeta meta : METAS) {
+            ids.add(meta.getId());
+        }
+        return ids;
+    }
+}
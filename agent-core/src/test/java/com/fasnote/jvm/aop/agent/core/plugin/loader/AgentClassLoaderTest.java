@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.loader;
+
+import com.fasnote.jvm.aop.agent.core.boot.AgentPackagePath;
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class AgentClassLoaderTest {
+    private static final String MOUNT = "../test-plugins";
+
+    public static class PluginClass {
+    }
+
+    private List<String> mount;
+
+    @BeforeClass
+    public static void createPluginJar() throws Exception {
+        File folder = new File(AgentPackagePath.getPath(), MOUNT);
+        folder.mkdirs();
+        String classFile = PluginClass.class.getName().replace('.', '/') + ".class";
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(new File(folder, "test-plugin.jar")));
+             InputStream is = PluginClass.class.getClassLoader().getResourceAsStream(classFile)) {
+            jar.putNextEntry(new JarEntry(classFile));
+            jar.write(is.readAllBytes());
+            jar.putNextEntry(new JarEntry("test-plugin.def"));
+            jar.write("test=PluginClass".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mount = Config.Plugin.MOUNT;
+        Config.Plugin.MOUNT = Collections.singletonList(MOUNT);
+    }
+
+    @After
+    public void tearDown() {
+        Config.Plugin.MOUNT = mount;
+    }
+
+    @Test
+    public void testFindClass() throws Exception {
+        // no parent, so the class is loaded from the jar
+        AgentClassLoader classLoader = new AgentClassLoader(null);
+        Class<?> type = classLoader.loadClass(PluginClass.class.getName());
+        Assert.assertSame(classLoader, type.getClassLoader());
+        Assert.assertNotSame(PluginClass.class, type);
+        Assert.assertSame(type, classLoader.loadClass(PluginClass.class.getName()));
+
+        try {
+            classLoader.loadClass("com.fasnote.jvm.aop.NotExists");
+            Assert.fail();
+        } catch (ClassNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testFindResources() throws Exception {
+        AgentClassLoader classLoader = new AgentClassLoader(null);
+        URL resource = classLoader.getResource("test-plugin.def");
+        Assert.assertNotNull(resource);
+        try (InputStream is = resource.openStream()) {
+            Assert.assertEquals("test=PluginClass", new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(Collections.singletonList(resource), Collections.list(classLoader.getResources("test-plugin.def")));
+        Assert.assertNull(classLoader.getResource("not-exists.def"));
+    }
+
+    @Test
+    public void testSharedPluginJars() throws Exception {
+        AgentClassLoader classLoader = new AgentClassLoader(null);
+        AgentClassLoader anotherClassLoader = new AgentClassLoader(null);
+        Class<?> type = classLoader.loadClass(PluginClass.class.getName());
+        Class<?> anotherType = anotherClassLoader.loadClass(PluginClass.class.getName());
+        Assert.assertNotSame(type, anotherType);
+        Assert.assertSame(anotherClassLoader, anotherType.getClassLoader());
+
+        List<File> classpath = Collections.singletonList(new File(AgentPackagePath.getPath(), MOUNT));
+        Assert.assertSame(PluginJars.of(classpath), PluginJars.of(classpath));
+    }
+}
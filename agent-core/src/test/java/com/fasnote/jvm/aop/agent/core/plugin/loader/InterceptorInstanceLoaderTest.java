@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.loader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InterceptorInstanceLoaderTest {
+
+    public static class TestInterceptor {
+    }
+
+    public static class SlowInterceptor {
+        public static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+        public SlowInterceptor() throws InterruptedException {
+            CONSTRUCTED.incrementAndGet();
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void testSingleton() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        Object interceptor = InterceptorInstanceLoader.load(TestInterceptor.class.getName(), classLoader);
+        Assert.assertTrue(interceptor instanceof TestInterceptor);
+        Assert.assertSame(interceptor, InterceptorInstanceLoader.load(TestInterceptor.class.getName(), classLoader));
+    }
+
+    @Test
+    public void testConstructedOnce() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return InterceptorInstanceLoader.load(SlowInterceptor.class.getName(), classLoader);
+                }));
+            }
+            start.countDown();
+            Object interceptor = futures.get(0).get();
+            for (Future<Object> future : futures) {
+                Assert.assertSame(interceptor, future.get());
+            }
+            Assert.assertEquals(1, SlowInterceptor.CONSTRUCTED.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testReleaseClassLoader() throws Exception {
+        WeakReference<ClassLoader> reference = loadByTemporaryClassLoader();
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(reference.get());
+    }
+
+    private WeakReference<ClassLoader> loadByTemporaryClassLoader() throws Exception {
+        ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Assert.assertNotNull(InterceptorInstanceLoader.load(TestInterceptor.class.getName(), classLoader));
+        return new WeakReference<>(classLoader);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.loader;
+
+import com.fasnote.jvm.aop.agent.core.plugin.PluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PluginStartupIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFreshIndex() throws Exception {
+        File indexFile = new File(folder.getRoot(), PluginStartupIndex.FILE_NAME);
+        File jar = folder.newFile("test-plugin.jar");
+        Files.write(jar.toPath(), new byte[]{1, 2, 3});
+        List<File> jars = Collections.singletonList(jar);
+
+        PluginStartupIndex index = PluginStartupIndex.load(indexFile, jars);
+        Assert.assertFalse(index.isFresh());
+        Assert.assertNull(index.getEntries(jar));
+        URL defineFile = new URL("jar:file:" + jar.getAbsolutePath() + "!/JVMAop-plugin.def");
+        // a plugin define file on the system classpath, out of the mount folders
+        URL classpathDefineFile = new File(folder.getRoot(), "JVMAop-plugin.def").toURI().toURL();
+        index.recordEntries(jar, Arrays.asList("JVMAop-plugin.def", "com/example/FooInstrumentation.class"));
+        index.recordPluginDefines(defineFile,
+                Collections.singletonList(PluginDefine.build("foo=com.example.FooInstrumentation")));
+        index.recordPluginDefines(classpathDefineFile,
+                Collections.singletonList(PluginDefine.build("bar=com.example.BarInstrumentation")));
+        Assert.assertNull(index.getPluginDefines(defineFile));
+        index.recordTargets("com.example.FooInstrumentation", NameMatch.byName("com.example.Foo"));
+        index.save();
+
+        index = PluginStartupIndex.load(indexFile, jars);
+        Assert.assertTrue(index.isFresh());
+        Assert.assertEquals(Arrays.asList("JVMAop-plugin.def", "com/example/FooInstrumentation.class"), index.getEntries(jar));
+        List<PluginDefine> defines = index.getPluginDefines(defineFile);
+        Assert.assertEquals(1, defines.size());
+        Assert.assertEquals("foo", defines.get(0).getName());
+        Assert.assertEquals("com.example.FooInstrumentation", defines.get(0).getDefineClass());
+        Assert.assertEquals(Collections.singletonList("com.example.Foo"), index.getTargets("com.example.FooInstrumentation"));
+        // not recorded, it is read from the file at every start
+        Assert.assertNull(index.getPluginDefines(classpathDefineFile));
+        Assert.assertNull(index.getTargets("com.example.BarInstrumentation"));
+
+        Files.write(jar.toPath(), new byte[]{1, 2, 3, 4});
+        Assert.assertFalse(PluginStartupIndex.load(indexFile, jars).isFresh());
+    }
+
+    @Test
+    public void testCorruptedIndex() throws Exception {
+        File indexFile = folder.newFile(PluginStartupIndex.FILE_NAME);
+        Files.write(indexFile.toPath(), "{jars:".getBytes());
+        Assert.assertFalse(PluginStartupIndex.load(indexFile, Collections.emptyList()).isFresh());
+    }
+}
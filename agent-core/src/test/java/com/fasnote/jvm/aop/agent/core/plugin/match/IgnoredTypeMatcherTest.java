@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.match;
+
+import net.bytebuddy.description.type.TypeDescription;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public class IgnoredTypeMatcherTest {
+
+    @Test
+    public void testRules() {
+        IgnoredTypeMatcher matcher = new IgnoredTypeMatcher(Arrays.asList("net.bytebuddy.", "sun.reflect", "net."),
+                Arrays.asList("javassist", ".asm.", "sm.", "$$Proxy"));
+
+        Assert.assertTrue(matcher.matches(TypeDescription.ForLoadedType.of(TypeDescription.class)));
+        Assert.assertTrue(matcher.ruleOf("net.Foo") >= 0);
+        Assert.assertTrue(matcher.ruleOf("sun.reflect.GeneratedMethodAccessor1") >= 0);
+        Assert.assertTrue(matcher.ruleOf("org.springframework.asm.ClassReader") >= 0);
+        Assert.assertTrue(matcher.ruleOf("com.example.Foo$$ProxyBar") >= 0);
+        Assert.assertTrue(matcher.ruleOf("org.javassist.Foo") >= 0);
+        // the failure links find the fragment inside a partial match of another one
+        Assert.assertTrue(matcher.ruleOf("com.example.asm.Foo") >= 0);
+        Assert.assertTrue(matcher.ruleOf("com.example.Prism.Foo") >= 0);
+
+        Assert.assertEquals(-1, matcher.ruleOf("ne"));
+        Assert.assertEquals(-1, matcher.ruleOf("com.example.Foo"));
+        Assert.assertEquals(-1, matcher.ruleOf("com.example.javassis"));
+        Assert.assertFalse(matcher.matches(TypeDescription.ForLoadedType.of(IgnoredTypeMatcherTest.class)));
+
+        Map<String, Long> counts = matcher.getIgnoredCounts();
+        Assert.assertEquals(Long.valueOf(1), counts.get("nameStartsWith net."));
+        Assert.assertEquals(Long.valueOf(0), counts.get("nameStartsWith net.bytebuddy."));
+        Assert.assertEquals(Long.valueOf(0), counts.get("isSynthetic"));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.match;
+
+import com.fasnote.jvm.aop.agent.core.plugin.match.logical.LogicalMatchOperation;
+import net.bytebuddy.description.type.TypeDescription;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class IndirectMatchIndexTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marked {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Traced {
+    }
+
+    public abstract static class BaseTask implements Callable<String> {
+    }
+
+    @Marked
+    public static class MarkedTask extends BaseTask {
+        @Override
+        public String call() {
+            return null;
+        }
+    }
+
+    public static class TracedService implements Serializable {
+        @Traced
+        public void serve() {
+        }
+    }
+
+    public static class Unrelated {
+    }
+
+    @Test
+    public void testCandidates() {
+        String prefix = IndirectMatchIndexTest.class.getName() + "$Traced";
+        List<IndirectMatch> matches = Arrays.asList(
+                PrefixMatch.nameStartsWith(prefix),
+                ClassAnnotationMatch.byClassAnnotationMatch(Marked.class.getName()),
+                MethodAnnotationMatch.byMethodAnnotationMatch(Traced.class.getName()),
+                HierarchyMatch.byHierarchyMatch(Callable.class.getName()),
+                HierarchyMatch.byHierarchyMatch(BaseTask.class.getName(), Callable.class.getName()),
+                HierarchyMatch.byHierarchyMatch(BaseTask.class.getName()),
+                MultiClassNameMatch.byMultiClassMatch(Unrelated.class.getName()),
+                LogicalMatchOperation.and(RegexMatch.byRegexMatch(".*Task"),
+                        ClassAnnotationMatch.byClassAnnotationMatch(Marked.class.getName())),
+                LogicalMatchOperation.or(PrefixMatch.nameStartsWith("com.example."),
+                        HierarchyMatch.byHierarchyMatch(Serializable.class.getName())),
+                RegexMatch.byRegexMatch(".*Unrelated")
+        );
+        IndirectMatchIndex<IndirectMatch> index = new IndirectMatchIndex<>();
+        for (IndirectMatch match : matches) {
+            index.add(match, match);
+        }
+
+        for (Class<?> type : Arrays.asList(MarkedTask.class, TracedService.class, Unrelated.class, BaseTask.class)) {
+            TypeDescription typeDescription = TypeDescription.ForLoadedType.of(type);
+            List<IndirectMatch> expected = new ArrayList<>();
+            for (IndirectMatch match : matches) {
+                if (match.isMatch(typeDescription)) {
+                    expected.add(match);
+                }
+            }
+            List<IndirectMatch> candidates = index.candidates(typeDescription);
+            List<IndirectMatch> actual = new ArrayList<>();
+            for (IndirectMatch match : candidates) {
+                if (match.isMatch(typeDescription)) {
+                    actual.add(match);
+                }
+            }
+            Assert.assertEquals(type.getName(), expected, actual);
+
+            List<IndirectMatch> expectedJunctions = new ArrayList<>();
+            for (IndirectMatch match : matches) {
+                if (match.buildJunction().matches(typeDescription)) {
+                    expectedJunctions.add(match);
+                }
+            }
+            List<IndirectMatch> actualJunctions = new ArrayList<>();
+            for (IndirectMatch match : candidates) {
+                if (match.buildJunction().matches(typeDescription)) {
+                    actualJunctions.add(match);
+                }
+            }
+            Assert.assertEquals(type.getName(), expectedJunctions, actualJunctions);
+            Assert.assertTrue(type.getName(), candidates.size() < matches.size());
+        }
+
+        List<IndirectMatch> unrelated = index.candidates(TypeDescription.ForLoadedType.of(Unrelated.class));
+        Assert.assertEquals(Arrays.asList(matches.get(6), matches.get(9)), unrelated);
+    }
+
+    @Test
+    public void testRegexCandidates() {
+        Assert.assertEquals(Arrays.asList("com.foo."), RegexMatch.byRegexMatch("com\\.foo\\..*").getLiteralPrefixes());
+        Assert.assertEquals(Arrays.asList("com.fo", "org.bar$"),
+                RegexMatch.byRegexMatch("^com\\.foo?.*|org\\.bar\\$(Inner)?").getLiteralPrefixes());
+        Assert.assertEquals(Arrays.asList("com.", "a"),
+                RegexMatch.byRegexMatch("com\\.\\w+", "a+b").getLiteralPrefixes());
+        Assert.assertNull(RegexMatch.byRegexMatch("com\\..*", ".*Controller").getLiteralPrefixes());
+        Assert.assertNull(RegexMatch.byRegexMatch("(?i)com\\..*").getLiteralPrefixes());
+        Assert.assertNull(RegexMatch.byRegexMatch("com[.]a|org.*").getLiteralPrefixes());
+
+        String outer = IndirectMatchIndexTest.class.getName();
+        List<IndirectMatch> matches = Arrays.asList(
+                RegexMatch.byRegexMatch(outer.replace(".", "\\.") + "\\$.*Task"),
+                RegexMatch.byRegexMatch("com\\.example\\..*|" + outer.replace(".", "\\.") + "\\$Unrelated"),
+                RegexMatch.byRegexMatch("com\\.example\\..*"),
+                PrefixMatch.nameStartsWith(outer + "$Marked")
+        );
+        IndirectMatchIndex<IndirectMatch> index = new IndirectMatchIndex<>();
+        for (IndirectMatch match : matches) {
+            index.add(match, match);
+        }
+        Assert.assertEquals(Arrays.asList(matches.get(0), matches.get(3)),
+                index.candidates(TypeDescription.ForLoadedType.of(MarkedTask.class)));
+        Assert.assertEquals(Arrays.asList(matches.get(0), matches.get(1)),
+                index.candidates(TypeDescription.ForLoadedType.of(Unrelated.class)));
+        Assert.assertTrue(matches.get(0).isMatch(TypeDescription.ForLoadedType.of(MarkedTask.class)));
+        Assert.assertTrue(matches.get(1).buildJunction().matches(TypeDescription.ForLoadedType.of(Unrelated.class)));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent.core.plugin.match;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class NegativeMatchCacheTest {
+
+    @Test
+    public void testUnmatched() {
+        NegativeMatchCache cache = NegativeMatchCache.INSTANCE;
+        cache.invalidate();
+        ClassLoader classLoader = new URLClassLoader(new URL[0]);
+        Assert.assertFalse(cache.isUnmatched(classLoader, "com.example.Foo"));
+
+        cache.recordUnmatched(classLoader, "com.example.Foo", cache.getGeneration());
+        Assert.assertTrue(cache.isUnmatched(classLoader, "com.example.Foo"));
+        Assert.assertFalse(cache.isUnmatched(classLoader, "com.example.Bar"));
+        Assert.assertFalse(cache.isUnmatched(null, "com.example.Foo"));
+        Assert.assertFalse(cache.isUnmatched(new URLClassLoader(new URL[0]), "com.example.Foo"));
+
+        long hits = cache.getHitCount();
+        Assert.assertTrue(cache.isUnmatched(classLoader, "com.example.Foo"));
+        Assert.assertEquals(hits + 1, cache.getHitCount());
+        Assert.assertTrue(cache.getHitRate() > 0);
+    }
+
+    @Test
+    public void testInvalidate() {
+        NegativeMatchCache cache = NegativeMatchCache.INSTANCE;
+        int generation = cache.getGeneration();
+        cache.recordUnmatched(null, "com.example.Foo", generation);
+        Assert.assertTrue(cache.isUnmatched(null, "com.example.Foo"));
+
+        cache.invalidate();
+        Assert.assertFalse(cache.isUnmatched(null, "com.example.Foo"));
+        // matched by the plugins before the invalidation
+        cache.recordUnmatched(null, "com.example.Foo", generation);
+        Assert.assertFalse(cache.isUnmatched(null, "com.example.Foo"));
+    }
+
+    @Test
+    public void testResize() {
+        NegativeMatchCache cache = NegativeMatchCache.INSTANCE;
+        cache.invalidate();
+        ClassLoader classLoader = new URLClassLoader(new URL[0]);
+        for (int i = 0; i < 1000; i++) {
+            cache.recordUnmatched(classLoader, "com.example.Foo" + i, cache.getGeneration());
+        }
+        Assert.assertEquals(1000, cache.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(cache.isUnmatched(classLoader, "com.example.Foo" + i));
+        }
+        Assert.assertFalse(cache.isUnmatched(classLoader, "com.example.Bar"));
+    }
+
+    @Test
+    public void testClearedWhenFull() {
+        int maxSize = Config.Plugin.NEGATIVE_MATCH_CACHE_SIZE;
+        Config.Plugin.NEGATIVE_MATCH_CACHE_SIZE = 100;
+        try {
+            NegativeMatchCache cache = NegativeMatchCache.INSTANCE;
+            cache.invalidate();
+            ClassLoader classLoader = new URLClassLoader(new URL[0]);
+            for (int i = 0; i < 100; i++) {
+                cache.recordUnmatched(classLoader, "com.example.Foo" + i, cache.getGeneration());
+            }
+            Assert.assertEquals(100, cache.size());
+            cache.recordUnmatched(classLoader, "com.example.Bar", cache.getGeneration());
+            Assert.assertEquals(1, cache.size());
+            Assert.assertTrue(cache.isUnmatched(classLoader, "com.example.Bar"));
+            Assert.assertFalse(cache.isUnmatched(classLoader, "com.example.Foo0"));
+        } finally {
+            Config.Plugin.NEGATIVE_MATCH_CACHE_SIZE = maxSize;
+        }
+    }
+
+    @Test
+    public void testConcurrentRecords() throws Exception {
+        NegativeMatchCache cache = NegativeMatchCache.INSTANCE;
+        cache.invalidate();
+        ClassLoader classLoader = new URLClassLoader(new URL[0]);
+        int threads = 4;
+        int names = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = thread; i < names; i += threads) {
+                        cache.recordUnmatched(classLoader, "com.example.Foo" + i, cache.getGeneration());
+                        cache.isUnmatched(classLoader, "com.example.Foo" + (i / 2));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // a record racing with a resize may be lost, but nothing is ever hit falsely
+        int hits = 0;
+        for (int i = 0; i < names; i++) {
+            if (cache.isUnmatched(classLoader, "com.example.Foo" + i)) {
+                hits++;
+            }
+            Assert.assertFalse(cache.isUnmatched(classLoader, "com.example.Bar" + i));
+        }
+        Assert.assertTrue(hits > 0);
+        Assert.assertTrue(cache.size() <= names);
+
+        cache.recordUnmatched(classLoader, "com.example.Foo0", cache.getGeneration());
+        Assert.assertTrue(cache.isUnmatched(classLoader, "com.example.Foo0"));
+    }
+}
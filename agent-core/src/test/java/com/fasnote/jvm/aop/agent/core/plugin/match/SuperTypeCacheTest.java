@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent.core.plugin.match;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+
+public class SuperTypeCacheTest {
+
+    @Test
+    public void testSuperTypeNames() {
+        Set<String> names = SuperTypeCache.INSTANCE.getSuperTypeNames(TypeDescription.ForLoadedType.of(ArrayList.class));
+        for (Class<?> superType : Arrays.asList(AbstractList.class, List.class, Collection.class, Iterable.class,
+                RandomAccess.class, Serializable.class, Object.class)) {
+            Assert.assertTrue(superType.getName(), names.contains(superType.getName()));
+        }
+        Assert.assertFalse(names.contains(ArrayList.class.getName()));
+    }
+
+    @Test
+    public void testCachedPerClassLoader() {
+        // AbstractList is cached as the parent of ArrayList
+        TypeDescription type = TypeDescription.ForLoadedType.of(AbstractList.class);
+        Assert.assertNotSame(SuperTypeCache.INSTANCE.getSuperTypeNames(type),
+                SuperTypeCache.INSTANCE.getSuperTypeNames(type));
+
+        Object previous = SuperTypeCache.INSTANCE.enter(null);
+        try {
+            Assert.assertNotSame(SuperTypeCache.INSTANCE.getSuperTypeNames(type),
+                    SuperTypeCache.INSTANCE.getSuperTypeNames(type));
+            SuperTypeCache.INSTANCE.getSuperTypeNames(TypeDescription.ForLoadedType.of(ArrayList.class));
+            Assert.assertSame(SuperTypeCache.INSTANCE.getSuperTypeNames(type),
+                    SuperTypeCache.INSTANCE.getSuperTypeNames(type));
+        } finally {
+            SuperTypeCache.INSTANCE.exit(previous);
+        }
+    }
+
+    @Test
+    public void testSameAsHasSuperType() {
+        List<String> parentTypes = Arrays.asList(ArrayList.class.getName(), AbstractList.class.getName(),
+                Collection.class.getName(), RandomAccess.class.getName(), Runnable.class.getName());
+        for (Class<?> type : Arrays.asList(ArrayList.class, AbstractList.class, Thread.class, List.class)) {
+            TypeDescription typeDescription = TypeDescription.ForLoadedType.of(type);
+            for (String parentType : parentTypes) {
+                boolean expected = ElementMatchers.hasSuperType(ElementMatchers.named(parentType))
+                        .and(ElementMatchers.not(ElementMatchers.isInterface()))
+                        .matches(typeDescription);
+                Assert.assertEquals(type.getName() + " " + parentType, expected,
+                        HierarchyMatch.byHierarchyMatch(parentType).buildJunction().matches(typeDescription));
+            }
+        }
+    }
+
+    @Test
+    public void testBoundedPerClassLoader() {
+        int maxSize = Config.Plugin.SUPER_TYPE_CACHE_SIZE;
+        Config.Plugin.SUPER_TYPE_CACHE_SIZE = 8;
+        ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Object previous = SuperTypeCache.INSTANCE.enter(classLoader);
+        try {
+            for (Class<?> type : Arrays.asList(ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class,
+                    TreeMap.class, HashSet.class, TreeSet.class, ConcurrentHashMap.class, CopyOnWriteArrayList.class)) {
+                SuperTypeCache.INSTANCE.getSuperTypeNames(TypeDescription.ForLoadedType.of(type));
+                Assert.assertTrue(SuperTypeCache.INSTANCE.size(classLoader) <= 8);
+            }
+            Assert.assertTrue(SuperTypeCache.INSTANCE.size(classLoader) > 0);
+            // the evicted types are walked again
+            Set<String> names = SuperTypeCache.INSTANCE.getSuperTypeNames(TypeDescription.ForLoadedType.of(ArrayList.class));
+            Assert.assertTrue(names.contains(AbstractList.class.getName()));
+            Assert.assertTrue(names.contains(Iterable.class.getName()));
+        } finally {
+            SuperTypeCache.INSTANCE.exit(previous);
+            Config.Plugin.SUPER_TYPE_CACHE_SIZE = maxSize;
+        }
+    }
+}
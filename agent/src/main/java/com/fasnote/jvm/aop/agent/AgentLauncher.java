@@ -22,52 +22,137 @@ import com.fasnote.jvm.aop.agent.bytebuddy.AuxiliaryTypeNamingStrategy;
 import com.fasnote.jvm.aop.agent.bytebuddy.MethodGraphCompilerDelegate;
 import com.fasnote.jvm.aop.agent.bytebuddy.MethodNameTransformer;
 import com.fasnote.jvm.aop.agent.core.boot.AgentPackageNotFoundException;
+import com.fasnote.jvm.aop.agent.core.boot.BootService;
 import com.fasnote.jvm.aop.agent.core.boot.ServiceManager;
 import com.fasnote.jvm.aop.agent.core.conf.Config;
 import com.fasnote.jvm.aop.agent.core.conf.SnifferConfigInitializer;
 import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
 import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.meter.TransformProfileReporter;
+import com.fasnote.jvm.aop.agent.core.meter.TransformProfiler;
 import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
 import com.fasnote.jvm.aop.agent.core.plugin.EnhanceContext;
 import com.fasnote.jvm.aop.agent.core.plugin.InstrumentDebuggingClass;
+import com.fasnote.jvm.aop.agent.core.plugin.InterceptorSwitches;
 import com.fasnote.jvm.aop.agent.core.plugin.PluginBootstrap;
 import com.fasnote.jvm.aop.agent.core.plugin.PluginException;
 import com.fasnote.jvm.aop.agent.core.plugin.PluginFinder;
+import com.fasnote.jvm.aop.agent.core.plugin.WitnessFinder;
 import com.fasnote.jvm.aop.agent.core.plugin.bootstrap.BootstrapInstrumentBoost;
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.DelegateNamingResolver;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorSwitch;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InvocationContextStack;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.chain.InterceptorChainFusion;
 import com.fasnote.jvm.aop.agent.core.plugin.jdk9module.JDK9ModuleExporter;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.AgentClassLoader;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.InterceptorInstanceLoader;
+import com.fasnote.jvm.aop.agent.core.plugin.match.IgnoredTypeMatcher;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NegativeMatchCache;
+import com.fasnote.jvm.aop.agent.core.plugin.match.SuperTypeCache;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.agent.builder.AgentBuilderDefault;
 import net.bytebuddy.agent.builder.DescriptionStrategy;
 import net.bytebuddy.agent.builder.NativeMethodStrategy;
-import net.bytebuddy.description.NamedElement;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.dynamic.scaffold.MethodGraph;
 import net.bytebuddy.dynamic.scaffold.TypeValidation;
 import net.bytebuddy.implementation.ImplementationContextFactory;
 import net.bytebuddy.matcher.ElementMatcher;
-import net.bytebuddy.matcher.ElementMatchers;
 import net.bytebuddy.utility.JavaModule;
 
 import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.fasnote.jvm.aop.agent.core.conf.Constants.NAME_TRAIT;
-import static net.bytebuddy.matcher.ElementMatchers.nameContains;
-import static net.bytebuddy.matcher.ElementMatchers.nameStartsWith;
+import static net.bytebuddy.matcher.ElementMatchers.not;
 
 public class AgentLauncher {
     private static ILog LOGGER = LogManager.getLogger(AgentLauncher.class);
 
+    /**
+     * Byte-buddy discovers no loaded class to retransform, they are left to {@link LoadedClassRetransformer}.
+     */
+    private static final AgentBuilder.RedefinitionStrategy.DiscoveryStrategy NO_LOADED_CLASSES =
+            instrumentation -> Collections.emptyList();
+
+    /**
+     * The agent options of attaching, to detach the agent. See {@link #detach()}.
+     */
+    private static final String DETACH_OPTION = "detach";
+
+    private static final String PROFILE_OPTION = "profile";
+
+    private static final String JVM_AOP_PACKAGE = "com.fasnote.jvm.aop.";
+
+    private static boolean LAUNCHED = false;
+
+    private static Instrumentation INSTRUMENTATION;
+
+    private static PluginFinder PLUGIN_FINDER;
+
+    private static ResettableClassFileTransformer TRANSFORMER;
+
+    private static Thread SHUTDOWN_HOOK;
+
+    private static IgnoredTypeMatcher IGNORED_TYPES;
+
+    /**
+     * The plugins disabled by the last detach, enabled again at the next launch.
+     */
+    private static final Set<String> DETACHED_PLUGINS = new HashSet<>();
+
     /**
      * Main entrance. Use byte-buddy transform to enhance all classes, which define in plugins.
      */
     public static void premain(String agentArgs, Instrumentation instrumentation) throws PluginException {
+        launch(agentArgs, instrumentation, false);
+    }
+
+    /**
+     * Entrance of attaching to a running JVM. Besides the classes loaded later, the loaded classes matched by plugins
+     * are retransformed, in parallel batches. See {@link Config.Agent#RETRANSFORM_THREADS}. The JVM doesn't allow a
+     * retransformation to add fields, methods or interfaces, so only the loaded classes left enhanced by the last
+     * detach are retransformed, the others stay as they are.
+     * <p>
+     * Attaching again with the agent options {@code detach} detaches the agent, see {@link #detach()}. With the agent
+     * options {@code profile}, the transform profile is logged, see {@link TransformProfileReporter}.
+     */
+    public static void agentmain(String agentArgs, Instrumentation instrumentation) throws PluginException {
+        if (agentArgs != null && DETACH_OPTION.equals(agentArgs.trim())) {
+            try {
+                detach();
+            } catch (Exception e) {
+                LOGGER.error(e, "JVMAop agent detach failure.");
+            }
+            return;
+        }
+        if (agentArgs != null && PROFILE_OPTION.equals(agentArgs.trim())) {
+            if (LAUNCHED) {
+                ServiceManager.INSTANCE.findService(TransformProfileReporter.class).report();
+            }
+            return;
+        }
+        launch(agentArgs, instrumentation, true);
+    }
+
+    private static synchronized void launch(String agentArgs, Instrumentation instrumentation, boolean attached) {
+        if (LAUNCHED) {
+            LOGGER.warn("JVMAop agent has been launched, ignore the launch again.");
+            return;
+        }
+        LAUNCHED = true;
         final PluginFinder pluginFinder;
         try {
             SnifferConfigInitializer.initializeCoreConfig(agentArgs);
@@ -87,7 +172,8 @@ public class AgentLauncher {
         }
 
         try {
-            pluginFinder = new PluginFinder(new PluginBootstrap().loadPlugins());
+            PluginBootstrap pluginBootstrap = new PluginBootstrap();
+            pluginFinder = new PluginFinder(pluginBootstrap.loadPlugins(), pluginBootstrap.getLazyPlugins());
         } catch (AgentPackageNotFoundException ape) {
             LOGGER.error(ape, "Locate agent.jar failure. Shutting down.");
             return;
@@ -97,7 +183,7 @@ public class AgentLauncher {
         }
 
         try {
-            installClassTransformer(instrumentation, pluginFinder);
+            installClassTransformer(instrumentation, pluginFinder, attached);
         } catch (Exception e) {
             LOGGER.error(e, "JVMAop agent installed class transformer failure.");
         }
@@ -108,23 +194,120 @@ public class AgentLauncher {
             LOGGER.error(e, "JVMAop agent boot failure.");
         }
 
-        Runtime.getRuntime()
-                .addShutdownHook(new Thread(ServiceManager.INSTANCE::shutdown, "JVMAop service shutdown thread"));
+        SHUTDOWN_HOOK = new Thread(() -> {
+            ServiceManager.INSTANCE.shutdown();
+            LOGGER.info("JVMAop negative match cache: {}", NegativeMatchCache.INSTANCE);
+            LOGGER.info("JVMAop ignored types: {}", IGNORED_TYPES);
+        }, "JVMAop service shutdown thread");
+        Runtime.getRuntime().addShutdownHook(SHUTDOWN_HOOK);
+    }
+
+    /**
+     * Detach the agent. The class transformer is removed, all the interceptors are turned off, the {@link
+     * AgentClassLoader}s and the plugin jars are released, and the {@link BootService}s are shut down. The agent could
+     * be launched again after it.
+     * <p>
+     * The JVM doesn't allow a retransformation to remove the fields, methods and interfaces added by the enhancement, so
+     * only the matched classes without added members are retransformed back to their original bytecode. Every class
+     * delegating to a bridge has the field of the bridge, so in practice the enhanced classes, and the classes failing
+     * to be restored, are left enhanced. Their bridges drop the interceptors and call the origin methods only, see {@link
+     * InterceptorSwitches#releaseInterceptors()}, so they don't keep the {@link AgentClassLoader}s. Their original shapes
+     * are kept in the type cache of {@link DescriptionStrategy}, for them to be enhanced in the same shape at the next
+     * launch.
+     */
+    public static synchronized void detach() throws InterruptedException {
+        if (TRANSFORMER == null) {
+            LOGGER.warn("JVMAop agent transformer isn't installed, nothing to detach.");
+            return;
+        }
+        LOGGER.info("JVMAop agent begin to detach ...");
+
+        DETACHED_PLUGINS.addAll(InterceptorSwitches.INSTANCE.releaseInterceptors());
+
+        TRANSFORMER.reset(INSTRUMENTATION, AgentBuilder.RedefinitionStrategy.DISABLED);
+        RetransformListener listener = new RetransformListener();
+        LoadedClassRetransformer retransformer = new LoadedClassRetransformer(INSTRUMENTATION,
+                new RetransformBatchAllocator(Config.Agent.RETRANSFORM_BATCH_SIZE), listener,
+                Config.Agent.RETRANSFORM_THREADS);
+        List<Class<?>> restorableTypes = new ArrayList<>();
+        Set<Class<?>> enhancedTypes = new HashSet<>();
+        for (Class<?> type : retransformer.collect(not(IGNORED_TYPES).and(PLUGIN_FINDER.buildMatch()))) {
+            if (hasAddedMembers(type)) {
+                enhancedTypes.add(type);
+            } else {
+                restorableTypes.add(type);
+            }
+        }
+        listener.onSkipped(enhancedTypes);
+        retransformer.retransform(restorableTypes);
+        enhancedTypes.addAll(listener.getFailedTypes());
+        DescriptionStrategy.retainTypeCache(enhancedTypes);
+        LOGGER.info("JVMAop negative match cache: {}", NegativeMatchCache.INSTANCE);
+        LOGGER.info("JVMAop ignored types: {}", IGNORED_TYPES);
+        NegativeMatchCache.INSTANCE.invalidate();
+
+        InterceptorInstanceLoader.release();
+        WitnessFinder.INSTANCE.release();
+        ServiceManager.INSTANCE.shutdown();
+        if (SHUTDOWN_HOOK != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(SHUTDOWN_HOOK);
+            } catch (IllegalStateException ignored) {
+                // the JVM is shutting down
+            }
+        }
+
+        TRANSFORMER = null;
+        PLUGIN_FINDER = null;
+        INSTRUMENTATION = null;
+        SHUTDOWN_HOOK = null;
+        LAUNCHED = false;
+        LOGGER.info("JVMAop agent has detached, {} classes were left enhanced, calling their origin methods only.",
+                enhancedTypes.size());
+    }
+
+    /**
+     * @return true, if the enhancement added fields, methods or interfaces to the loaded class, or it can't tell.
+     */
+    static boolean hasAddedMembers(Class<?> type) {
+        try {
+            for (Class<?> anInterface : type.getInterfaces()) {
+                if (EnhancedInstance.class.getName().equals(anInterface.getName())) {
+                    return true;
+                }
+            }
+            for (Field field : type.getDeclaredFields()) {
+                if (field.getName().contains(NAME_TRAIT)
+                        || AbstractClassEnhancePluginDefine.CONTEXT_ATTR_NAME.equals(field.getName())) {
+                    return true;
+                }
+            }
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.getName().contains(NAME_TRAIT)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (Throwable t) {
+            LOGGER.debug("Inspect the members of class {} failure. {}", type.getName(), t);
+            return true;
+        }
     }
 
     static void installClassTransformer(Instrumentation instrumentation, PluginFinder pluginFinder) throws Exception {
+        installClassTransformer(instrumentation, pluginFinder, false);
+    }
+
+    /**
+     * @param attached true, the agent is attached to a running JVM, the loaded classes are retransformed by {@link
+     *                 LoadedClassRetransformer} in parallel, rather than by byte-buddy on this thread.
+     */
+    static void installClassTransformer(Instrumentation instrumentation, PluginFinder pluginFinder,
+                                        boolean attached) throws Exception {
         LOGGER.info("JVMAop agent begin to install transformer ...");
 
-        AgentBuilder agentBuilder = newAgentBuilder().ignore(
-                nameStartsWith("net.bytebuddy.")
-                        .or(nameStartsWith("org.slf4j."))
-                        .or(nameStartsWith("org.groovy."))
-                        .or(nameContains("javassist"))
-                        .or(nameContains(".asm."))
-                        .or(nameContains(".reflectasm."))
-                        .or(nameStartsWith("sun.reflect"))
-                        .or(allJvmAop())
-                        .or(ElementMatchers.isSynthetic()));
+        IgnoredTypeMatcher ignoredTypes = ignoredTypes();
+        AgentBuilder agentBuilder = newAgentBuilder().ignore(ignoredTypes);
 
         JDK9ModuleExporter.EdgeClasses edgeClasses = new JDK9ModuleExporter.EdgeClasses();
         try {
@@ -132,6 +315,13 @@ public class AgentLauncher {
         } catch (Exception e) {
             throw new Exception("JVMAop agent inject bootstrap instrumentation failure. Shutting down.", e);
         }
+        // after the injection, so the switches go to the classes shared with the bootstrap templates
+        InvocationContextStack.setReusable(Config.Agent.REUSE_INVOCATION_CONTEXT);
+        TransformProfiler.setSampleRate(Config.Agent.TRANSFORM_PROFILER_SAMPLE_RATE);
+        InterceptorSwitch.setCircuitBreaker(Config.Agent.INTERCEPTOR_FAILURE_THRESHOLD,
+                TimeUnit.SECONDS.toMillis(Config.Agent.INTERCEPTOR_FAILURE_WINDOW),
+                TimeUnit.SECONDS.toMillis(Config.Agent.INTERCEPTOR_BYPASS_DURATION));
+        InterceptorSwitch.setTripListener(message -> LOGGER.warn(message));
 
         try {
             agentBuilder = JDK9ModuleExporter.openReadEdge(instrumentation, agentBuilder, edgeClasses);
@@ -139,23 +329,74 @@ public class AgentLauncher {
             throw new Exception("JVMAop agent open read edge in JDK 9+ failure. Shutting down.", e);
         }
 
-        agentBuilder.type(pluginFinder.buildMatch())
+        installOn(agentBuilder, ignoredTypes, instrumentation, pluginFinder, attached);
+    }
+
+    /**
+     * Install the transformer of the plugins, by the agent builder ready for the bootstrap classes and the modules.
+     */
+    static void installOn(AgentBuilder agentBuilder, IgnoredTypeMatcher ignoredTypes, Instrumentation instrumentation,
+                          PluginFinder pluginFinder, boolean attached) throws InterruptedException {
+        // the classes left enhanced by the last detach are called into the interceptors again
+        for (String pluginName : DETACHED_PLUGINS) {
+            InterceptorSwitches.INSTANCE.setPluginEnabled(pluginName, true);
+        }
+        DETACHED_PLUGINS.clear();
+
+        AgentBuilder.RedefinitionStrategy.BatchAllocator batchAllocator =
+                new RetransformBatchAllocator(Config.Agent.RETRANSFORM_BATCH_SIZE);
+        RetransformListener retransformListener = new RetransformListener();
+        ResettableClassFileTransformer transformer = agentBuilder.type(new TypeMatcher(pluginFinder.buildMatch()))
                 .transform(new Transformer(pluginFinder))
                 .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
-                .with(new RedefinitionListener())
+                .with(batchAllocator)
+                .with(attached ? NO_LOADED_CLASSES : AgentBuilder.RedefinitionStrategy.DiscoveryStrategy.SinglePass.INSTANCE)
+                .with(attached ? AgentBuilder.RedefinitionStrategy.Listener.NoOp.INSTANCE : retransformListener)
                 .with(new Listener())
                 .installOn(instrumentation);
+        INSTRUMENTATION = instrumentation;
+        PLUGIN_FINDER = pluginFinder;
+        IGNORED_TYPES = ignoredTypes;
+        TRANSFORMER = transformer;
 
         PluginFinder.pluginInitCompleted();
 
         LOGGER.info("JVMAop agent transformer has installed.");
+
+        if (attached) {
+            LoadedClassRetransformer retransformer = new LoadedClassRetransformer(
+                    instrumentation, batchAllocator, retransformListener, Config.Agent.RETRANSFORM_THREADS);
+            // the JVM rejects the enhancement adding members to a loaded class, only the classes left enhanced by
+            // the last detach have them already
+            List<Class<?>> types = new ArrayList<>();
+            List<Class<?>> skippedTypes = new ArrayList<>();
+            for (Class<?> type : retransformer.collect(not(ignoredTypes).and(pluginFinder.buildMatch()))) {
+                if (hasAddedMembers(type)) {
+                    types.add(type);
+                } else {
+                    skippedTypes.add(type);
+                }
+            }
+            retransformListener.onSkipped(skippedTypes);
+            retransformer.retransform(types);
+        }
+    }
+
+    /**
+     * The ignore list of {@link Config.Agent#IGNORE_PREFIXES} and {@link Config.Agent#IGNORE_CONTAINS}, along with the
+     * classes of the agent itself.
+     */
+    static IgnoredTypeMatcher ignoredTypes() {
+        List<String> prefixes = new ArrayList<>(Config.Agent.IGNORE_PREFIXES);
+        prefixes.add(JVM_AOP_PACKAGE);
+        return new IgnoredTypeMatcher(prefixes, Config.Agent.IGNORE_CONTAINS);
     }
 
     /**
      * Create a new agent builder through customized {@link ByteBuddy} powered by
      * {@link AuxiliaryTypeNamingStrategy} {@link DelegateNamingResolver} {@link MethodNameTransformer} and {@link ImplementationContextFactory}
      */
-    private static AgentBuilder newAgentBuilder() {
+    static AgentBuilder newAgentBuilder() {
         final ByteBuddy byteBuddy = new ByteBuddy()
                 .with(TypeValidation.of(Config.Agent.IS_OPEN_DEBUGGING_CLASS))
                 .with(new AuxiliaryTypeNamingStrategy(NAME_TRAIT))
@@ -166,10 +407,6 @@ public class AgentLauncher {
                 .with(new DescriptionStrategy(NAME_TRAIT));
     }
 
-    private static ElementMatcher.Junction<NamedElement> allJvmAop() {
-        return nameStartsWith("com.fasnote.jvm.aop.");
-    }
-
     private static class Transformer implements AgentBuilder.Transformer {
         private final PluginFinder pluginFinder;
 
@@ -183,13 +420,26 @@ public class AgentLauncher {
                                                 final ClassLoader classLoader,
                                                 final JavaModule javaModule,
                                                 final ProtectionDomain protectionDomain) {
-            List<AbstractClassEnhancePluginDefine> pluginDefines = pluginFinder.find(typeDescription);
+            List<AbstractClassEnhancePluginDefine> pluginDefines;
+            int generation = NegativeMatchCache.INSTANCE.getGeneration();
+            Object previousLoader = SuperTypeCache.INSTANCE.enter(classLoader);
+            try {
+                pluginDefines = pluginFinder.find(typeDescription);
+            } finally {
+                SuperTypeCache.INSTANCE.exit(previousLoader);
+            }
             if (!pluginDefines.isEmpty()) {
                 DynamicType.Builder<?> newBuilder = builder;
                 EnhanceContext context = new EnhanceContext();
+                if (Config.Agent.FUSE_INTERCEPTOR_CHAINS) {
+                    newBuilder = InterceptorChainFusion.fuse(typeDescription, newBuilder, pluginDefines, classLoader, context);
+                }
                 for (AbstractClassEnhancePluginDefine define : pluginDefines) {
+                    long start = TransformProfiler.start();
                     DynamicType.Builder<?> possibleNewBuilder = define.define(
                             typeDescription, newBuilder, classLoader, context);
+                    TransformProfiler.stop(start, TransformProfiler.Stage.DEFINE, define.getClass().getName(),
+                            possibleNewBuilder != null);
                     if (possibleNewBuilder != null) {
                         newBuilder = possibleNewBuilder;
                     }
@@ -198,18 +448,63 @@ public class AgentLauncher {
                     LOGGER.debug("Finish the prepare stage for {}.", typeDescription.getName());
                 }
 
+                TransformProfiler.beginMake();
                 return newBuilder;
             }
 
             LOGGER.debug("Matched class {}, but ignore by finding mechanism.", typeDescription.getTypeName());
+            NegativeMatchCache.INSTANCE.recordUnmatched(classLoader, typeDescription.getName(), generation);
             return builder;
         }
     }
 
+    /**
+     * Match the types by the matcher of {@link PluginFinder#buildMatch()}, with their class loader entered into {@link
+     * SuperTypeCache}. The types matched by no plugin are remembered by {@link NegativeMatchCache}, and not matched
+     * again when they are retransformed.
+     */
+    private static class TypeMatcher implements AgentBuilder.RawMatcher {
+        private final ElementMatcher<? super TypeDescription> matcher;
+
+        TypeMatcher(ElementMatcher<? super TypeDescription> matcher) {
+            this.matcher = matcher;
+        }
+
+        @Override
+        public boolean matches(TypeDescription typeDescription,
+                               ClassLoader classLoader,
+                               JavaModule module,
+                               Class<?> classBeingRedefined,
+                               ProtectionDomain protectionDomain) {
+            NegativeMatchCache negativeMatchCache = NegativeMatchCache.INSTANCE;
+            String typeName = typeDescription.getName();
+            if (negativeMatchCache.isUnmatched(classLoader, typeName)) {
+                return false;
+            }
+            int generation = negativeMatchCache.getGeneration();
+            boolean matched;
+            long start = TransformProfiler.start();
+            Object previousLoader = SuperTypeCache.INSTANCE.enter(classLoader);
+            try {
+                matched = matcher.matches(typeDescription);
+            } finally {
+                SuperTypeCache.INSTANCE.exit(previousLoader);
+            }
+            TransformProfiler.stop(start, TransformProfiler.Stage.TYPE_MATCH, matched);
+            if (!matched) {
+                negativeMatchCache.recordUnmatched(classLoader, typeName, generation);
+            }
+            return matched;
+        }
+    }
+
+    /**
+     * Log the transformations, and wrap the transformation of every class for {@link TransformProfiler}.
+     */
     private static class Listener implements AgentBuilder.Listener {
         @Override
         public void onDiscovery(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
-
+            TransformProfiler.beginClass();
         }
 
         @Override
@@ -218,6 +513,7 @@ public class AgentLauncher {
                                      final JavaModule module,
                                      final boolean loaded,
                                      final DynamicType dynamicType) {
+            TransformProfiler.endMake();
             if (LOGGER.isDebugEnable()) {
                 LOGGER.debug("On Transformation class {}.", typeDescription.getName());
             }
@@ -244,28 +540,7 @@ public class AgentLauncher {
 
         @Override
         public void onComplete(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
-        }
-    }
-
-    private static class RedefinitionListener implements AgentBuilder.RedefinitionStrategy.Listener {
-
-        @Override
-        public void onBatch(int index, List<Class<?>> batch, List<Class<?>> types) {
-            /* do nothing */
-        }
-
-        @Override
-        public Iterable<? extends List<Class<?>>> onError(int index,
-                                                          List<Class<?>> batch,
-                                                          Throwable throwable,
-                                                          List<Class<?>> types) {
-            LOGGER.error(throwable, "index={}, batch={}, types={}", index, batch, types);
-            return Collections.emptyList();
-        }
-
-        @Override
-        public void onComplete(int amount, List<Class<?>> types, Map<List<Class<?>>, Throwable> failures) {
-            /* do nothing */
+            TransformProfiler.endClass();
         }
     }
 }
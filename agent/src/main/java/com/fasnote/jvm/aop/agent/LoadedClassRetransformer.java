@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import com.fasnote.jvm.aop.agent.core.plugin.match.SuperTypeCache;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retransform the classes loaded before the agent is attached, in batches on several threads. Byte-buddy retransforms
+ * the batches one after another on the installing thread; the class file transformer does most of the work of a
+ * retransformation and runs on the calling thread, so the batches of different class loaders are spread over {@code
+ * threads} threads here. The batches and the progress reporting follow byte-buddy's {@link
+ * AgentBuilder.RedefinitionStrategy.BatchAllocator} and {@link AgentBuilder.RedefinitionStrategy.Listener}, as if
+ * byte-buddy did it.
+ */
+class LoadedClassRetransformer {
+    private static final ILog LOGGER = LogManager.getLogger(LoadedClassRetransformer.class);
+
+    private final Instrumentation instrumentation;
+    private final AgentBuilder.RedefinitionStrategy.BatchAllocator batchAllocator;
+    private final RetransformListener listener;
+    private final int threads;
+
+    LoadedClassRetransformer(Instrumentation instrumentation,
+                             AgentBuilder.RedefinitionStrategy.BatchAllocator batchAllocator,
+                             RetransformListener listener,
+                             int threads) {
+        this.instrumentation = instrumentation;
+        this.batchAllocator = batchAllocator;
+        this.listener = listener;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param matcher the classes to retransform, the same as the agent builder transforms.
+     * @return the loaded classes, which could be retransformed and are matched.
+     */
+    List<Class<?>> collect(ElementMatcher<? super TypeDescription> matcher) {
+        List<Class<?>> types = new ArrayList<>();
+        for (Class<?> type : instrumentation.getAllLoadedClasses()) {
+            if (!instrumentation.isModifiableClass(type)) {
+                continue;
+            }
+            Object previousLoader = SuperTypeCache.INSTANCE.enter(type.getClassLoader());
+            try {
+                if (matcher.matches(TypeDescription.ForLoadedType.of(type))) {
+                    types.add(type);
+                }
+            } catch (Throwable t) {
+                LOGGER.debug("Match loaded class {} failure, skip it. {}", type.getName(), t);
+            } finally {
+                SuperTypeCache.INSTANCE.exit(previousLoader);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Retransform the classes, and wait until all the batches are done.
+     */
+    void retransform(List<Class<?>> types) throws InterruptedException {
+        List<Class<?>> unmodifiableTypes = Collections.unmodifiableList(types);
+        ConcurrentLinkedQueue<List<Class<?>>> batches = new ConcurrentLinkedQueue<>();
+        for (List<Class<?>> batch : batchAllocator.batch(unmodifiableTypes)) {
+            batches.add(batch);
+        }
+        listener.onStart(types.size());
+
+        AtomicInteger index = new AtomicInteger();
+        Map<List<Class<?>>, Throwable> failures = new ConcurrentHashMap<>();
+        int workers = Math.min(threads, Math.max(1, batches.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "JVMAop retransform thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> {
+                    // the retries of a failed batch are taken by the thread which failed it
+                    Deque<List<Class<?>>> retries = new ArrayDeque<>();
+                    List<Class<?>> batch;
+                    while ((batch = retries.isEmpty() ? batches.poll() : retries.poll()) != null) {
+                        int batchIndex = index.getAndIncrement();
+                        listener.onBatch(batchIndex, batch, unmodifiableTypes);
+                        try {
+                            instrumentation.retransformClasses(batch.toArray(new Class<?>[0]));
+                        } catch (Throwable t) {
+                            failures.put(batch, t);
+                            for (List<Class<?>> retry : listener.onError(batchIndex, batch, t, unmodifiableTypes)) {
+                                retries.add(retry);
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            LOGGER.debug("Waiting for the retransformation of the loaded classes.");
+        }
+        listener.onComplete(index.get(), unmodifiableTypes, failures);
+    }
+}
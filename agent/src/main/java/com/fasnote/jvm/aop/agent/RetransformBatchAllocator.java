@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent;
+
+import net.bytebuddy.agent.builder.AgentBuilder;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Split the loaded classes to retransform into batches of at most {@code batchSize} classes. The classes of one class
+ * loader are kept together, so a class failing to retransform only holds back the classes of the same loader, and the
+ * batches of different loaders can be retransformed in parallel without waiting for each other on the loader lock.
+ */
+class RetransformBatchAllocator implements AgentBuilder.RedefinitionStrategy.BatchAllocator {
+    private final int batchSize;
+
+    RetransformBatchAllocator(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public Iterable<? extends List<Class<?>>> batch(List<Class<?>> types) {
+        Map<ClassLoader, List<Class<?>>> typesByLoader = new IdentityHashMap<>();
+        for (Class<?> type : types) {
+            typesByLoader.computeIfAbsent(type.getClassLoader(), loader -> new ArrayList<>()).add(type);
+        }
+        List<List<Class<?>>> batches = new ArrayList<>();
+        for (List<Class<?>> loaderTypes : typesByLoader.values()) {
+            for (int from = 0; from < loaderTypes.size(); from += batchSize) {
+                batches.add(new ArrayList<>(loaderTypes.subList(from, Math.min(from + batchSize, loaderTypes.size()))));
+            }
+        }
+        return batches;
+    }
+}
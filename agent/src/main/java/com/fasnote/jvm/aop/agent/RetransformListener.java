@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent;
+
+import com.fasnote.jvm.aop.agent.core.logging.api.ILog;
+import com.fasnote.jvm.aop.agent.core.logging.api.LogManager;
+import net.bytebuddy.agent.builder.AgentBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Report the progress of retransforming the loaded classes, one line per batch. A failed batch is split, and its classes
+ * are retried one by one, so the JVM rejecting one class, such as one whose enhancement adds fields, doesn't leave the
+ * other classes of the batch untouched. The classes left out before retransforming, as the JVM would reject them, are
+ * only counted in the summary.
+ */
+class RetransformListener implements AgentBuilder.RedefinitionStrategy.Listener {
+    private static final ILog LOGGER = LogManager.getLogger(RetransformListener.class);
+
+    private final AtomicInteger retransformed = new AtomicInteger();
+
+    private final Set<Class<?>> failedTypes = ConcurrentHashMap.newKeySet();
+
+    private volatile int total;
+
+    private volatile int skipped;
+
+    private volatile long startTime = System.currentTimeMillis();
+
+    /**
+     * Called by {@link LoadedClassRetransformer} before the first batch, as byte-buddy's own batching doesn't tell the
+     * total.
+     */
+    void onStart(int total) {
+        this.total = total;
+        this.startTime = System.currentTimeMillis();
+        LOGGER.info("Begin to retransform {} loaded classes.", total);
+    }
+
+    /**
+     * Called before {@link #onStart(int)}, with the loaded classes not to be retransformed, as their enhancement would
+     * add members, which the JVM doesn't allow for a loaded class.
+     */
+    void onSkipped(Collection<Class<?>> types) {
+        this.skipped = types.size();
+    }
+
+    /**
+     * @return the classes failed to be retransformed, after retrying them one by one.
+     */
+    Set<Class<?>> getFailedTypes() {
+        return failedTypes;
+    }
+
+    @Override
+    public void onBatch(int index, List<Class<?>> batch, List<Class<?>> types) {
+        int done = retransformed.addAndGet(batch.size());
+        int total = Math.max(this.total, types.size());
+        LOGGER.info("Retransforming batch {} of {} classes, {}/{} classes.", index, batch.size(), done, total);
+    }
+
+    @Override
+    public Iterable<? extends List<Class<?>>> onError(int index,
+                                                      List<Class<?>> batch,
+                                                      Throwable throwable,
+                                                      List<Class<?>> types) {
+        if (batch.size() > 1) {
+            LOGGER.warn("Retransform batch {} failure, retry its {} classes one by one. {}", index, batch.size(), throwable);
+            retransformed.addAndGet(-batch.size());
+            List<List<Class<?>>> retries = new ArrayList<>(batch.size());
+            for (Class<?> type : batch) {
+                retries.add(Collections.<Class<?>>singletonList(type));
+            }
+            return retries;
+        }
+        failedTypes.addAll(batch);
+        String typeName = batch.isEmpty() ? null : batch.get(0).getName();
+        if (throwable instanceof UnsupportedOperationException) {
+            // the JVM rejects the changed schema, the class stays as it is
+            LOGGER.debug("Retransform class {} is rejected. {}", typeName, throwable.getMessage());
+        } else {
+            LOGGER.error(throwable, "Retransform class {} failure.", typeName);
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void onComplete(int amount, List<Class<?>> types, Map<List<Class<?>>, Throwable> failures) {
+        LOGGER.info("Retransformed {} loaded classes in {} batches, {} classes failed, {} classes skipped for the members added by the enhancement, took {}ms.",
+                types.size(), amount, failedTypes.size(), skipped, System.currentTimeMillis() - startTime);
+    }
+}
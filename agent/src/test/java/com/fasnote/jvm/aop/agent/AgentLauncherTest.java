@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent;
+
+import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.InterceptorSwitches;
+import com.fasnote.jvm.aop.agent.core.plugin.PluginFinder;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.ClassInstanceMethodsEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InstanceConstructorInterceptor;
+import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.InterceptorHolder;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.IgnoredTypeMatcher;
+import com.fasnote.jvm.aop.agent.core.plugin.match.NameMatch;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.StubMethod;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.fasnote.jvm.aop.agent.core.conf.Constants.NAME_TRAIT;
+import static net.bytebuddy.matcher.ElementMatchers.any;
+
+public class AgentLauncherTest {
+
+    /**
+     * A class matched by the plugin, but not enhanced.
+     */
+    private static final Class<?> PLAIN = load(new ByteBuddy().subclass(Object.class).name("test.detach.Plain"));
+
+    /**
+     * A class with the field and the interface added by the enhancement of instance methods.
+     */
+    private static final Class<?> EXTENDED = load(new ByteBuddy().subclass(Object.class)
+                                                                 .name("test.detach.Extended")
+                                                                 .defineField(AbstractClassEnhancePluginDefine.CONTEXT_ATTR_NAME, Object.class, Visibility.PRIVATE)
+                                                                 .implement(EnhancedInstance.class)
+                                                                 .intercept(FieldAccessor.ofField(AbstractClassEnhancePluginDefine.CONTEXT_ATTR_NAME)));
+
+    /**
+     * A class with the origin method renamed by the rebase.
+     */
+    private static final Class<?> REBASED = load(new ByteBuddy().subclass(Object.class)
+                                                                .name("test.detach.Rebased")
+                                                                .defineMethod(NAME_TRAIT + "original$run$0", void.class, Visibility.PRIVATE)
+                                                                .intercept(StubMethod.INSTANCE));
+
+    public static class DetachTestInterceptor implements InstanceConstructorInterceptor {
+        @Override
+        public void onConstruct(EnhancedInstance objInst, Object[] allArguments) {
+        }
+    }
+
+    public static class DetachTestDefine extends ClassInstanceMethodsEnhancePluginDefine {
+        private final String className;
+
+        DetachTestDefine(String className) {
+            this.className = className;
+            setPluginName("detach-test");
+        }
+
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(className);
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return new ConstructorInterceptPoint[]{
+                    new ConstructorInterceptPoint() {
+                        @Override
+                        public ElementMatcher<MethodDescription> getConstructorMatcher() {
+                            return any();
+                        }
+
+                        @Override
+                        public String getConstructorInterceptor() {
+                            return DetachTestInterceptor.class.getName();
+                        }
+                    }
+            };
+        }
+
+        @Override
+        public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+            return null;
+        }
+    }
+
+    @Test
+    public void testHasAddedMembers() {
+        Assert.assertFalse(AgentLauncher.hasAddedMembers(PLAIN));
+        Assert.assertTrue(AgentLauncher.hasAddedMembers(EXTENDED));
+        Assert.assertTrue(AgentLauncher.hasAddedMembers(REBASED));
+    }
+
+    @Test
+    public void testDetachAndRelaunch() throws Exception {
+        StubInstrumentation instrumentation = new StubInstrumentation(PLAIN, EXTENDED, REBASED, String.class);
+        // the enhancement would add members to the plain class, the JVM doesn't allow it for a loaded class
+        Set<Class<?>> enhancedTypes = new HashSet<>(Arrays.asList(EXTENDED, REBASED));
+
+        install(instrumentation);
+        Assert.assertEquals(1, instrumentation.getTransformers().size());
+        Assert.assertEquals(enhancedTypes, retransformedTypes(instrumentation));
+        Assert.assertTrue(InterceptorSwitches.INSTANCE.isPluginEnabled("detach-test"));
+
+        // the stub doesn't enhance the classes, the holder stands for the bridge kept by an enhanced class
+        InterceptorHolder<InstanceConstructorInterceptor> interceptor =
+                InterceptorHolder.load(DetachTestInterceptor.class.getName(), AgentLauncherTest.class.getClassLoader());
+        Assert.assertFalse(interceptor.isReleased());
+
+        instrumentation.getRetransformations().clear();
+        AgentLauncher.detach();
+        Assert.assertTrue(instrumentation.getTransformers().isEmpty());
+        // the classes with added members are not even tried, they stay with the plugins disabled
+        Assert.assertEquals(Collections.singletonList(Collections.singletonList(PLAIN)), instrumentation.getRetransformations());
+        Assert.assertFalse(InterceptorSwitches.INSTANCE.isPluginEnabled("detach-test"));
+        // and their bridges don't keep the interceptors
+        Assert.assertTrue(interceptor.isReleased());
+
+        instrumentation.getRetransformations().clear();
+        install(instrumentation);
+        Assert.assertEquals(1, instrumentation.getTransformers().size());
+        Assert.assertEquals(enhancedTypes, retransformedTypes(instrumentation));
+        Assert.assertTrue(InterceptorSwitches.INSTANCE.isPluginEnabled("detach-test"));
+
+        AgentLauncher.detach();
+        Assert.assertTrue(instrumentation.getTransformers().isEmpty());
+        // detached already
+        AgentLauncher.detach();
+    }
+
+    /**
+     * Install the transformer as an attached agent, without the bootstrap injection and the module edges of the shaded
+     * agent jar.
+     */
+    private static void install(StubInstrumentation instrumentation) throws InterruptedException {
+        IgnoredTypeMatcher ignoredTypes = AgentLauncher.ignoredTypes();
+        AgentLauncher.installOn(AgentLauncher.newAgentBuilder().ignore(ignoredTypes), ignoredTypes, instrumentation,
+                newPluginFinder(), true);
+    }
+
+    private static PluginFinder newPluginFinder() {
+        List<AbstractClassEnhancePluginDefine> defines = new ArrayList<>();
+        for (Class<?> type : Arrays.asList(PLAIN, EXTENDED, REBASED)) {
+            defines.add(new DetachTestDefine(type.getName()));
+        }
+        return new PluginFinder(defines);
+    }
+
+    private static Set<Class<?>> retransformedTypes(StubInstrumentation instrumentation) {
+        Set<Class<?>> types = new HashSet<>();
+        for (List<Class<?>> batch : instrumentation.getRetransformations()) {
+            types.addAll(batch);
+        }
+        return types;
+    }
+
+    private static Class<?> load(DynamicType.Builder<?> builder) {
+        return builder.make().load(AgentLauncherTest.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER).getLoaded();
+    }
+}
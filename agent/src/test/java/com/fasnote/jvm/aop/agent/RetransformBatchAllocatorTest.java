@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RetransformBatchAllocatorTest {
+
+    public static class First {
+    }
+
+    public static class Second {
+    }
+
+    @Test
+    public void testBatchByClassLoader() {
+        List<Class<?>> types = Arrays.asList(String.class, First.class, Integer.class, Second.class, Long.class);
+        List<List<Class<?>>> batches = new ArrayList<>();
+        for (List<Class<?>> batch : new RetransformBatchAllocator(2).batch(types)) {
+            batches.add(batch);
+        }
+
+        Assert.assertEquals(3, batches.size());
+        int total = 0;
+        for (List<Class<?>> batch : batches) {
+            Assert.assertTrue(batch.size() <= 2);
+            for (Class<?> type : batch) {
+                Assert.assertSame(batch.get(0).getClassLoader(), type.getClassLoader());
+            }
+            total += batch.size();
+        }
+        Assert.assertEquals(types.size(), total);
+        // the classes of one class loader keep their order
+        Assert.assertTrue(batches.contains(Arrays.asList(String.class, Integer.class)));
+        Assert.assertTrue(batches.contains(Collections.singletonList(Long.class)));
+        Assert.assertTrue(batches.contains(Arrays.asList(First.class, Second.class)));
+    }
+
+    @Test
+    public void testBatchSize() {
+        List<Class<?>> types = Arrays.asList(String.class, Integer.class, Long.class);
+        Assert.assertFalse(new RetransformBatchAllocator(10).batch(Collections.emptyList()).iterator().hasNext());
+
+        List<List<Class<?>>> batches = new ArrayList<>();
+        for (List<Class<?>> batch : new RetransformBatchAllocator(10).batch(types)) {
+            batches.add(batch);
+        }
+        Assert.assertEquals(Collections.singletonList(types), batches);
+
+        // a size less than 1 puts every class into its own batch
+        batches.clear();
+        for (List<Class<?>> batch : new RetransformBatchAllocator(0).batch(types)) {
+            batches.add(batch);
+        }
+        Assert.assertEquals(3, batches.size());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static net.bytebuddy.matcher.ElementMatchers.any;
+
+public class RetransformListenerTest {
+
+    @Test
+    public void testRetryOneByOne() {
+        RetransformListener listener = new RetransformListener();
+        List<Class<?>> batch = Arrays.asList(String.class, Integer.class, Long.class);
+        List<List<Class<?>>> retries = new ArrayList<>();
+        for (List<Class<?>> retry : listener.onError(0, batch, new IllegalStateException(), batch)) {
+            retries.add(retry);
+        }
+        Assert.assertEquals(Arrays.asList(
+                Collections.singletonList(String.class),
+                Collections.singletonList(Integer.class),
+                Collections.singletonList(Long.class)), retries);
+        Assert.assertTrue(listener.getFailedTypes().isEmpty());
+
+        // a class failed by itself is not retried again
+        Assert.assertFalse(listener.onError(1, Collections.singletonList(Integer.class), new IllegalStateException(), batch)
+                                   .iterator().hasNext());
+        Assert.assertEquals(Collections.singleton(Integer.class), listener.getFailedTypes());
+    }
+
+    @Test
+    public void testRetransformRejectedClass() throws InterruptedException {
+        StubInstrumentation instrumentation = new StubInstrumentation(String.class, Integer.class, Long.class, Short.class);
+        instrumentation.reject(Long.class);
+        RetransformListener listener = new RetransformListener();
+        LoadedClassRetransformer retransformer = new LoadedClassRetransformer(instrumentation,
+                new RetransformBatchAllocator(2), listener, 2);
+        List<Class<?>> types = retransformer.collect(any());
+        Assert.assertEquals(Arrays.asList(String.class, Integer.class, Long.class, Short.class), types);
+
+        retransformer.retransform(types);
+        Assert.assertEquals(Collections.singleton(Long.class), listener.getFailedTypes());
+        // the failed batch is retried one by one, so Short is still retransformed by itself
+        List<List<Class<?>>> retransformations = instrumentation.getRetransformations();
+        Assert.assertEquals(4, retransformations.size());
+        Assert.assertTrue(retransformations.contains(Arrays.asList(String.class, Integer.class)));
+        Assert.assertTrue(retransformations.contains(Arrays.asList(Long.class, Short.class)));
+        Assert.assertTrue(retransformations.contains(Collections.singletonList(Long.class)));
+        Assert.assertTrue(retransformations.contains(Collections.singletonList(Short.class)));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.fasnote.jvm.aop.agent;
+
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.jar.JarFile;
+
+/**
+ * An {@link Instrumentation} of the given loaded classes, which records the retransformations instead of doing them.
+ * The retransformation of a batch fails, if it contains a class given to {@link #reject(Class[])}.
+ */
+class StubInstrumentation implements Instrumentation {
+    private final Class<?>[] loadedClasses;
+
+    private final Set<Class<?>> rejectedTypes = Collections.synchronizedSet(new HashSet<>());
+
+    private final List<List<Class<?>>> retransformations = new CopyOnWriteArrayList<>();
+
+    private final List<ClassFileTransformer> transformers = new CopyOnWriteArrayList<>();
+
+    StubInstrumentation(Class<?>... loadedClasses) {
+        this.loadedClasses = loadedClasses;
+    }
+
+    void reject(Class<?>... types) {
+        rejectedTypes.addAll(Arrays.asList(types));
+    }
+
+    /**
+     * @return the batches given to {@link #retransformClasses(Class[])}, including the rejected ones.
+     */
+    List<List<Class<?>>> getRetransformations() {
+        return retransformations;
+    }
+
+    List<ClassFileTransformer> getTransformers() {
+        return transformers;
+    }
+
+    @Override
+    public void addTransformer(ClassFileTransformer transformer, boolean canRetransform) {
+        transformers.add(transformer);
+    }
+
+    @Override
+    public void addTransformer(ClassFileTransformer transformer) {
+        transformers.add(transformer);
+    }
+
+    @Override
+    public boolean removeTransformer(ClassFileTransformer transformer) {
+        return transformers.remove(transformer);
+    }
+
+    @Override
+    public boolean isRetransformClassesSupported() {
+        return true;
+    }
+
+    @Override
+    public void retransformClasses(Class<?>... classes) throws UnmodifiableClassException {
+        List<Class<?>> batch = new ArrayList<>(Arrays.asList(classes));
+        retransformations.add(batch);
+        for (Class<?> type : batch) {
+            if (rejectedTypes.contains(type)) {
+                throw new UnsupportedOperationException("class redefinition failed: attempted to change the schema of "
+                        + type.getName());
+            }
+        }
+    }
+
+    @Override
+    public boolean isRedefineClassesSupported() {
+        return true;
+    }
+
+    @Override
+    public void redefineClasses(ClassDefinition... definitions) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isModifiableClass(Class<?> theClass) {
+        return !theClass.isPrimitive() && !theClass.isArray();
+    }
+
+    @Override
+    public Class[] getAllLoadedClasses() {
+        return loadedClasses.clone();
+    }
+
+    @Override
+    public Class[] getInitiatedClasses(ClassLoader loader) {
+        return new Class[0];
+    }
+
+    @Override
+    public long getObjectSize(Object objectToSize) {
+        return 0L;
+    }
+
+    @Override
+    public void appendToBootstrapClassLoaderSearch(JarFile jarfile) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void appendToSystemClassLoaderSearch(JarFile jarfile) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isNativeMethodPrefixSupported() {
+        return false;
+    }
+
+    @Override
+    public void setNativeMethodPrefix(ClassFileTransformer transformer, String prefix) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void redefineModule(Module module, Set<Module> extraReads, Map<String, Set<Module>> extraExports,
+                               Map<String, Set<Module>> extraOpens, Set<Class<?>> extraUses,
+                               Map<Class<?>, List<Class<?>>> extraProvides) {
+    }
+
+    @Override
+    public boolean isModifiableModule(Module module) {
+        return true;
+    }
+}
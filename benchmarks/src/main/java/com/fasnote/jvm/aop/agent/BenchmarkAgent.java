@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.agent;
+
+import com.fasnote.jvm.aop.agent.core.conf.Config;
+import com.fasnote.jvm.aop.agent.core.logging.core.LogLevel;
+import com.fasnote.jvm.aop.agent.core.logging.core.LogOutput;
+import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.PluginFinder;
+import com.fasnote.jvm.aop.benchmarks.plugin.NoopInstrumentation;
+import com.fasnote.jvm.aop.benchmarks.plugin.NoopV2Instrumentation;
+import net.bytebuddy.agent.ByteBuddyAgent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Install the agent into the benchmark JVM, through the same {@link AgentLauncher#installClassTransformer} as premain,
+ * with the no-op plugins rather than the ones of the plugins folder.
+ */
+public final class BenchmarkAgent {
+    private static boolean INSTALLED = false;
+
+    private BenchmarkAgent() {
+    }
+
+    /**
+     * Install the agent once. It must be called before the sample classes are loaded.
+     */
+    public static synchronized void install() throws Exception {
+        if (INSTALLED) {
+            return;
+        }
+        Config.Logging.OUTPUT = LogOutput.CONSOLE;
+        Config.Logging.LEVEL = LogLevel.WARN;
+
+        List<AbstractClassEnhancePluginDefine> plugins = new ArrayList<>();
+        plugins.add(new NoopInstrumentation());
+        plugins.add(new NoopV2Instrumentation());
+        for (AbstractClassEnhancePluginDefine plugin : plugins) {
+            plugin.setPluginName("noop");
+        }
+        AgentLauncher.installClassTransformer(ByteBuddyAgent.install(), new PluginFinder(plugins));
+        INSTALLED = true;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.benchmarks;
+
+import com.fasnote.benchmarks.sample.InterceptedService;
+import com.fasnote.benchmarks.sample.InterceptedV2Service;
+import com.fasnote.benchmarks.sample.PlainService;
+import com.fasnote.jvm.aop.agent.BenchmarkAgent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of the interceptor bridges, calling no-op interceptors, compared to the same methods not enhanced. Run
+ * with {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.attach.allowAttachSelf=true")
+public class InterceptorBridgeBenchmark {
+    private int value;
+
+    private PlainService plainService;
+
+    private InterceptedService interceptedService;
+
+    private InterceptedV2Service interceptedV2Service;
+
+    @Setup
+    public void setUp() throws Exception {
+        // before the sample classes are loaded
+        BenchmarkAgent.install();
+        plainService = new PlainService(1);
+        interceptedService = new InterceptedService(1);
+        interceptedV2Service = new InterceptedV2Service(1);
+    }
+
+    @Benchmark
+    public int baseline() {
+        return plainService.compute(value++);
+    }
+
+    @Benchmark
+    public int instMethodsInter() {
+        return interceptedService.compute(value++);
+    }
+
+    @Benchmark
+    public int instMethodsInterWithOverrideArgs() {
+        return interceptedService.computeOverrideArgs(value++);
+    }
+
+    @Benchmark
+    public int instMethodsInterV2() {
+        return interceptedV2Service.compute(value++);
+    }
+
+    @Benchmark
+    public int staticBaseline() {
+        return PlainService.computeStatic(value++);
+    }
+
+    @Benchmark
+    public int staticMethodsInter() {
+        return InterceptedService.computeStatic(value++);
+    }
+
+    @Benchmark
+    public int staticMethodsInterV2() {
+        return InterceptedV2Service.computeStatic(value++);
+    }
+
+    @Benchmark
+    public Object constructorBaseline() {
+        return new PlainService(value++);
+    }
+
+    @Benchmark
+    public Object constructorInter() {
+        return new InterceptedService(value++);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.fasnote.jvm.aop.benchmarks;
+
+import com.fasnote.jvm.aop.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import com.fasnote.jvm.aop.agent.core.plugin.PluginFinder;
+import com.fasnote.jvm.aop.agent.core.plugin.match.ClassAnnotationMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.HierarchyMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.IndirectMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.MethodAnnotationMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.MultiClassNameMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.PrefixMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.RegexMatch;
+import com.fasnote.jvm.aop.agent.core.plugin.match.SuperTypeCache;
+import com.fasnote.jvm.aop.benchmarks.plugin.MatchOnlyInstrumentation;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ByteArrayClassLoader;
+import net.bytebuddy.implementation.StubMethod;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.bytebuddy.matcher.ElementMatchers.none;
+
+/**
+ * The cost of matching one loaded class against the plugins, by the type matcher of the agent builder and by {@link
+ * PluginFinder#find(TypeDescription)}. {@link #TYPES} synthetic classes are generated and loaded, spread over 200
+ * packages, a quarter of them implementing one of 50 synthetic interfaces and a tenth annotated. The plugins match
+ * them by package prefixes, parent types, class and method annotations, class names and a few regular expressions.
+ * <p>
+ * {@link #orChainMatcher()} is the matcher built by joining the junctions of all the plugins by or, as the agent did
+ * before {@link PluginFinder#buildMatch()} was compiled, and with no class loader entered into {@link SuperTypeCache}.
+ * The others enter the class loader of every class, as the agent does. The scores are per class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TypeMatcherBenchmark {
+    static final int TYPES = 20_000;
+
+    private static final int PACKAGES = 200;
+
+    private static final int INTERFACES = 50;
+
+    @Param({"100", "1000"})
+    private int plugins;
+
+    private List<TypeDescription> types;
+
+    private ClassLoader classLoader;
+
+    private ElementMatcher<? super TypeDescription> orChainMatcher;
+
+    private ElementMatcher<? super TypeDescription> compiledMatcher;
+
+    private PluginFinder pluginFinder;
+
+    @Setup
+    public void setUp() {
+        types = new ArrayList<>(TYPES);
+        for (Class<?> type : loadSyntheticClasses()) {
+            types.add(TypeDescription.ForLoadedType.of(type));
+            classLoader = type.getClassLoader();
+        }
+
+        List<AbstractClassEnhancePluginDefine> defines = new ArrayList<>(plugins);
+        ElementMatcher.Junction<TypeDescription> junction = none();
+        for (int i = 0; i < plugins; i++) {
+            IndirectMatch match = syntheticMatch(i);
+            MatchOnlyInstrumentation define = new MatchOnlyInstrumentation(match);
+            define.setPluginName("synthetic-" + i);
+            defines.add(define);
+            junction = junction.or(match.buildJunction());
+        }
+        orChainMatcher = junction;
+        pluginFinder = new PluginFinder(defines);
+        compiledMatcher = pluginFinder.buildMatch();
+    }
+
+    private static IndirectMatch syntheticMatch(int i) {
+        if (i % 50 == 49) {
+            return RegexMatch.byRegexMatch("synthetic\\.p\\d+\\.Type" + i + "\\d*");
+        }
+        switch (i % 5) {
+            case 0:
+                return PrefixMatch.nameStartsWith("synthetic.p" + i % PACKAGES + ".");
+            case 1:
+                return HierarchyMatch.byHierarchyMatch("synthetic.api.Service" + i % INTERFACES);
+            case 2:
+                return ClassAnnotationMatch.byClassAnnotationMatch("synthetic.ann.Mark" + i);
+            case 3:
+                return MethodAnnotationMatch.byMethodAnnotationMatch("synthetic.ann.Trace" + i);
+            default:
+                return MultiClassNameMatch.byMultiClassMatch("synthetic.p" + i % PACKAGES + ".Type" + i * 7);
+        }
+    }
+
+    private static List<Class<?>> loadSyntheticClasses() {
+        ByteBuddy byteBuddy = new ByteBuddy();
+        Map<String, byte[]> interfaceBytes = new HashMap<>();
+        List<DynamicType.Unloaded<?>> interfaces = new ArrayList<>(INTERFACES);
+        for (int i = 0; i < INTERFACES; i++) {
+            DynamicType.Unloaded<?> type = byteBuddy.makeInterface().name("synthetic.api.Service" + i).make();
+            interfaces.add(type);
+            interfaceBytes.put(type.getTypeDescription().getName(), type.getBytes());
+        }
+        ClassLoader interfaceLoader = new ByteArrayClassLoader(TypeMatcherBenchmark.class.getClassLoader(), interfaceBytes);
+
+        Map<TypeDescription, byte[]> classBytes = new HashMap<>();
+        for (int i = 0; i < TYPES; i++) {
+            DynamicType.Builder<?> builder = byteBuddy.subclass(Object.class)
+                    .name("synthetic.p" + i % PACKAGES + ".Type" + i);
+            if (i % 4 == 0) {
+                builder = builder.implement(interfaces.get(i % INTERFACES).getTypeDescription());
+            }
+            if (i % 10 == 0) {
+                builder = builder.annotateType(AnnotationDescription.Builder.ofType(Deprecated.class).build());
+            }
+            DynamicType.Unloaded<?> type = builder.defineMethod("run", void.class, Visibility.PUBLIC)
+                    .intercept(StubMethod.INSTANCE)
+                    .make();
+            classBytes.put(type.getTypeDescription(), type.getBytes());
+        }
+        return new ArrayList<>(ByteArrayClassLoader.load(interfaceLoader, classBytes).values());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TYPES)
+    public int orChainMatcher() {
+        int matched = 0;
+        for (TypeDescription type : types) {
+            if (orChainMatcher.matches(type)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TYPES)
+    public int compiledMatcher() {
+        int matched = 0;
+        for (TypeDescription type : types) {
+            Object previousLoader = SuperTypeCache.INSTANCE.enter(classLoader);
+            try {
+                if (compiledMatcher.matches(type)) {
+                    matched++;
+                }
+            } finally {
+                SuperTypeCache.INSTANCE.exit(previousLoader);
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TYPES)
+    public int find() {
+        int found = 0;
+        for (TypeDescription type : types) {
+            Object previousLoader = SuperTypeCache.INSTANCE.enter(classLoader);
+            try {
+                found += pluginFinder.find(type).size();
+            } finally {
+                SuperTypeCache.INSTANCE.exit(previousLoader);
+            }
+        }
+        return found;
+    }
+}
@@ -19,6 +19,7 @@
 package net.bytebuddy.agent.builder;
 
 import com.fasnote.jvm.aop.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import com.fasnote.jvm.aop.agent.core.plugin.loader.ClassLoaderKey;
 import net.bytebuddy.description.annotation.AnnotationList;
 import net.bytebuddy.description.field.FieldDescription;
 import net.bytebuddy.description.field.FieldList;
@@ -36,8 +37,12 @@ import net.bytebuddy.utility.JavaModule;
 import net.bytebuddy.utility.nullability.MaybeNull;
 
 import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.annotation.Annotation;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -116,6 +121,16 @@ public class DescriptionStrategy implements AgentBuilder.DescriptionStrategy {
         return new SWTypeDescriptionWrapper(delegate.apply(name, type, typePool, circularityLock, classLoader, module), nameTrait, classLoader, name);
     }
 
+    /**
+     * Drop the original fields and methods cached for the types, except the given ones, when the agent is detached. The
+     * given types are still enhanced, their cache is kept for them to be enhanced in the same shape at the next attach.
+     *
+     * @param enhancedTypes the types which are not restored to the original bytecode.
+     */
+    public static void retainTypeCache(Collection<Class<?>> enhancedTypes) {
+        SWTypeDescriptionWrapper.retain(enhancedTypes);
+    }
+
     /**
      * A TypeDescription wrapper to remove fields, methods, interface generated by JVMAop.
      */
@@ -128,9 +143,11 @@ public class DescriptionStrategy implements AgentBuilder.DescriptionStrategy {
 
         /**
          * Original type cache.
-         * classloader hashcode -> ( typeName -> type cache )
+         * classloader -> ( typeName -> type cache ), the entries of the collected class loaders are expunged.
          */
-        private static final Map<Integer, Map<String, TypeCache>> CLASS_LOADER_TYPE_CACHE = new ConcurrentHashMap<>();
+        private static final Map<ClassLoaderKey, Map<String, TypeCache>> CLASS_LOADER_TYPE_CACHE = new ConcurrentHashMap<>();
+
+        private static final ReferenceQueue<ClassLoader> COLLECTED_CLASSLOADERS = new ReferenceQueue<>();
 
         private static final List<String> IGNORED_INTERFACES = List.of(EnhancedInstance.class.getName());
         private final String nameTrait;
@@ -151,13 +168,39 @@ public class DescriptionStrategy implements AgentBuilder.DescriptionStrategy {
             this.typeName = typeName;
         }
 
+        static void retain(Collection<Class<?>> types) {
+            Map<ClassLoaderKey, Set<String>> retained = new HashMap<>();
+            for (Class<?> type : types) {
+                retained.computeIfAbsent(new ClassLoaderKey(type.getClassLoader()), k -> new HashSet<>())
+                        .add(type.getName());
+            }
+            CLASS_LOADER_TYPE_CACHE.entrySet().removeIf(entry -> {
+                Set<String> typeNames = retained.get(entry.getKey());
+                if (typeNames == null) {
+                    return true;
+                }
+                entry.getValue().keySet().retainAll(typeNames);
+                return entry.getValue().isEmpty();
+            });
+        }
+
         private TypeCache getTypeCache() {
-            int classLoaderHashCode = classLoader != null ? classLoader.hashCode() : 0;
-            Map<String, TypeCache> typeCacheMap = CLASS_LOADER_TYPE_CACHE.computeIfAbsent(classLoaderHashCode, k -> new ConcurrentHashMap<>());
+            Map<String, TypeCache> typeCacheMap = CLASS_LOADER_TYPE_CACHE.get(new ClassLoaderKey(classLoader));
+            if (typeCacheMap == null) {
+                expungeCollectedLoaders();
+                typeCacheMap = CLASS_LOADER_TYPE_CACHE.computeIfAbsent(new ClassLoaderKey(classLoader, COLLECTED_CLASSLOADERS), k -> new ConcurrentHashMap<>());
+            }
             TypeCache typeCache = typeCacheMap.computeIfAbsent(typeName, k -> new TypeCache(typeName));
             return typeCache;
         }
 
+        private static void expungeCollectedLoaders() {
+            Reference<? extends ClassLoader> collected;
+            while ((collected = COLLECTED_CLASSLOADERS.poll()) != null) {
+                CLASS_LOADER_TYPE_CACHE.remove(collected);
+            }
+        }
+
         @Override
         public TypeList.Generic getInterfaces() {
             if (this.interfaces == null) {